@@ -145,6 +145,11 @@ public void print(Component component) {
         TextAdapter.sendMessage(player, WorldEditText.format(component, getLocale()));
     }
 
+    @Override
+    public void printActionBar(Component component) {
+        TextAdapter.sendActionBar(player, WorldEditText.format(component, getLocale()));
+    }
+
     @Override
     public boolean trySetPosition(Vector3 pos, float pitch, float yaw) {
         Location location = new Location(player.getWorld(), pos.x(), pos.y(),
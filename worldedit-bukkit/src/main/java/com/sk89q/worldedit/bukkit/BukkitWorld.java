@@ -44,6 +44,7 @@
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.HeightMapType;
 import com.sk89q.worldedit.world.RegenOptions;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
@@ -56,6 +57,7 @@
 import io.papermc.lib.PaperLib;
 import org.apache.logging.log4j.Logger;
 import org.bukkit.Effect;
+import org.bukkit.HeightMap;
 import org.bukkit.TreeType;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -73,6 +75,7 @@
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import javax.annotation.Nullable;
@@ -375,6 +378,15 @@ public int getMinY() {
         return getWorld().getMinHeight();
     }
 
+    @Override
+    public OptionalInt getHighestBlockY(HeightMapType type, int x, int z) {
+        HeightMap nativeType = switch (type) {
+            case WORLD_SURFACE -> HeightMap.WORLD_SURFACE;
+            case MOTION_BLOCKING -> HeightMap.MOTION_BLOCKING;
+        };
+        return OptionalInt.of(getWorld().getHighestBlockYAt(x, z, nativeType));
+    }
+
     @Override
     public void fixAfterFastMode(Iterable<BlockVector2> chunks) {
         World world = getWorld();
@@ -562,6 +574,20 @@ public Set<SideEffect> applySideEffects(BlockVector3 position, com.sk89q.worlded
         return ImmutableSet.of();
     }
 
+    @Override
+    public Set<SideEffect> applySideEffects(Map<BlockVector3, com.sk89q.worldedit.world.block.BlockState> previousTypes,
+            SideEffectSet sideEffectSet) {
+        if (worldNativeAccess != null) {
+            worldNativeAccess.applySideEffects(previousTypes, sideEffectSet);
+            return Sets.intersection(
+                    WorldEditPlugin.getInstance().getInternalPlatform().getSupportedSideEffects(),
+                    sideEffectSet.getSideEffectsToApply()
+            );
+        }
+
+        return ImmutableSet.of();
+    }
+
     @Override
     public boolean useItem(BlockVector3 position, BaseItem item, Direction face) {
         BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
@@ -179,6 +179,14 @@ public void print(Component component) {
         ));
     }
 
+    @Override
+    public void printActionBar(Component component) {
+        this.player.sendSystemMessage(ComponentConverter.Serializer.fromJson(
+            GsonComponentSerializer.INSTANCE.serialize(WorldEditText.format(component, getLocale())),
+            player.registryAccess()
+        ), true);
+    }
+
     private void sendColorized(String msg, ChatFormatting formatting) {
         for (String part : msg.split("\n", 0)) {
             this.player.sendSystemMessage(
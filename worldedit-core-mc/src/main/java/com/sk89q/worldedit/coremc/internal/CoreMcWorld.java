@@ -53,6 +53,7 @@
 import com.sk89q.worldedit.util.concurrency.LazyReference;
 import com.sk89q.worldedit.util.io.file.SafeFiles;
 import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.HeightMapType;
 import com.sk89q.worldedit.world.RegenOptions;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -98,6 +99,7 @@
 import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.chunk.status.ChunkStatus;
 import net.minecraft.world.level.dimension.LevelStem;
+import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.levelgen.feature.ConfiguredFeature;
 import net.minecraft.world.level.levelgen.placement.PlacedFeature;
 import net.minecraft.world.level.levelgen.structure.BoundingBox;
@@ -121,6 +123,7 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -204,6 +207,12 @@ public Set<SideEffect> applySideEffects(BlockVector3 position, BlockState previo
         return Sets.intersection(platform.getSupportedSideEffects(), sideEffectSet.getSideEffectsToApply());
     }
 
+    @Override
+    public Set<SideEffect> applySideEffects(Map<BlockVector3, BlockState> previousTypes, SideEffectSet sideEffectSet) {
+        worldNativeAccess.applySideEffects(previousTypes, sideEffectSet);
+        return Sets.intersection(platform.getSupportedSideEffects(), sideEffectSet.getSideEffectsToApply());
+    }
+
     @Override
     public int getBlockLightLevel(BlockVector3 position) {
         checkNotNull(position);
@@ -633,6 +642,16 @@ public int getMaxY() {
         return getWorld().getMaxY();
     }
 
+    @Override
+    public OptionalInt getHighestBlockY(HeightMapType type, int x, int z) {
+        Heightmap.Types nativeType = switch (type) {
+            case WORLD_SURFACE -> Heightmap.Types.WORLD_SURFACE;
+            case MOTION_BLOCKING -> Heightmap.Types.MOTION_BLOCKING;
+        };
+        // Loaded first, as the level reports the minimum Y for chunks that aren't loaded
+        return OptionalInt.of(getWorld().getChunk(x >> 4, z >> 4).getHeight(nativeType, x & 15, z & 15));
+    }
+
     @Override
     public BlockVector3 getSpawnPosition() {
         return platform.getAdapter().adapt(getWorld().getLevelData().getRespawnData().pos());
@@ -84,6 +84,7 @@ private fun writeAllCommands() {
 
         dumpSection("General Commands") {
             yield("worldedit")
+            yield("jobs")
             yieldAll(findCommandsIn<HistoryCommands>())
             yieldAll(findCommandsIn<GeneralCommands>())
         }
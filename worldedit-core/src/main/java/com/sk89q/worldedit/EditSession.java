@@ -56,6 +56,7 @@
 import com.sk89q.worldedit.function.block.SnowSimulator;
 import com.sk89q.worldedit.function.generator.ForestGenerator;
 import com.sk89q.worldedit.function.generator.GardenPatchGenerator;
+import com.sk89q.worldedit.function.mask.AbstractExtentMask;
 import com.sk89q.worldedit.function.mask.BlockMask;
 import com.sk89q.worldedit.function.mask.BlockStateMask;
 import com.sk89q.worldedit.function.mask.BlockTypeMask;
@@ -67,6 +68,7 @@
 import com.sk89q.worldedit.function.mask.Masks;
 import com.sk89q.worldedit.function.mask.NoiseFilter2D;
 import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.mask.SolidBlockMask;
 import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
 import com.sk89q.worldedit.function.operation.Operation;
@@ -83,8 +85,10 @@
 import com.sk89q.worldedit.history.UndoContext;
 import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
+import com.sk89q.worldedit.internal.expression.ExpressionRowCache;
 import com.sk89q.worldedit.internal.expression.ExpressionTimeoutException;
 import com.sk89q.worldedit.internal.expression.LocalSlot.Variable;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
@@ -119,6 +123,7 @@
 import com.sk89q.worldedit.util.eventbus.EventBus;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.world.HeightMapType;
 import com.sk89q.worldedit.world.NullWorld;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -139,6 +144,7 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
@@ -764,6 +770,10 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
     /**
      * Returns the highest solid 'terrain' block.
      *
+     * <p>The blocks above the highest block in the world's height map are
+     * skipped when there is no filter, or when the filter reads the world and
+     * can never match air.</p>
+     *
      * @param x the X coordinate
      * @param z the Z coordinate
      * @param minY minimal height
@@ -772,7 +782,15 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
      * @return height of highest block found or 'minY'
      */
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY, Mask filter) {
-        for (int y = maxY; y >= minY; --y) {
+        int startY;
+        if (filter == null) {
+            startY = getColumnScanStart(HeightMapType.MOTION_BLOCKING, x, z, maxY);
+        } else if (neverMatchesWorldAir(filter)) {
+            startY = getColumnScanStart(HeightMapType.WORLD_SURFACE, x, z, maxY);
+        } else {
+            startY = maxY;
+        }
+        for (int y = startY; y >= minY; --y) {
             BlockVector3 pt = BlockVector3.at(x, y, z);
             if (filter == null
                     ? getBlock(pt).getBlockType().getMaterial().isMovementBlocker()
@@ -784,6 +802,44 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY, Mask filter)
         return minY;
     }
 
+    /**
+     * Get the Y to start scanning a column down from, skipping the blocks
+     * above the highest block of the world's height map of the given type.
+     */
+    private int getColumnScanStart(HeightMapType type, int x, int z, int maxY) {
+        if (world == null) {
+            return maxY;
+        }
+        OptionalInt highest = world.getHighestBlockY(type, x, z);
+        return highest.isPresent() ? Math.min(maxY, highest.getAsInt()) : maxY;
+    }
+
+    /**
+     * Check if a mask reads blocks from the world, and can never match air.
+     */
+    private boolean neverMatchesWorldAir(Mask mask) {
+        if (mask instanceof MaskUnion union) {
+            return union.getMasks().stream().allMatch(this::neverMatchesWorldAir);
+        }
+        if (mask instanceof MaskIntersection intersection) {
+            return intersection.getMasks().stream().anyMatch(this::neverMatchesWorldAir);
+        }
+        if (!(mask instanceof AbstractExtentMask extentMask)
+            || (extentMask.getExtent() != this && extentMask.getExtent() != world)) {
+            return false;
+        }
+        if (mask instanceof ExistingBlockMask || mask instanceof SolidBlockMask) {
+            return true;
+        }
+        if (mask instanceof BlockTypeMask blockTypeMask) {
+            return blockTypeMask.getBlocks().stream().noneMatch(type -> type.getMaterial().isAir());
+        }
+        if (mask instanceof BlockMask blockMask) {
+            return blockMask.getBlocks().stream().noneMatch(block -> block.getBlockType().getMaterial().isAir());
+        }
+        return false;
+    }
+
     /**
      * Set a block, bypassing both history and block re-ordering.
      *
@@ -2096,7 +2152,8 @@ public int thaw(BlockVector3 position, double radius, int height)
                     continue;
                 }
 
-                for (int y = maxY; y > minY; --y) {
+                // Only air is above the world surface
+                for (int y = getColumnScanStart(HeightMapType.WORLD_SURFACE, x, z, maxY); y > minY; --y) {
                     BlockVector3 pt = BlockVector3.at(x, y, z);
                     BlockType id = getBlock(pt).getBlockType();
 
@@ -2226,7 +2283,8 @@ public int green(BlockVector3 position, double radius, int height, boolean onlyN
                     continue;
                 }
 
-                for (int y = maxY; y > minY; --y) {
+                // Only air is above the world surface
+                for (int y = getColumnScanStart(HeightMapType.WORLD_SURFACE, x, z, maxY); y > minY; --y) {
                     final BlockVector3 pt = BlockVector3.at(x, y, z);
                     final BlockState block = getBlock(pt);
 
@@ -2479,9 +2537,24 @@ public int makeShape(final Region region, Transform transform,
 
         final int[] timedOut = {0};
         final Transform transformInverse = transform.inverse();
+        // without type and data, the result only depends on the position and rows can be shared
+        final ExpressionRowCache rowCache = expression.supportsRowEvaluation()
+            && !expression.usesSlot("type") && !expression.usesSlot("data")
+            ? new ExpressionRowCache(expression, region, transformInverse, timeout) : null;
         final ArbitraryShape shape = new ArbitraryShape(region) {
             @Override
             protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
+                if (rowCache != null) {
+                    try {
+                        return rowCache.evaluate(x, y, z) <= 0 ? null : defaultMaterial;
+                    } catch (ExpressionTimeoutException e) {
+                        timedOut[0] = timedOut[0] + 1;
+                        return null;
+                    } catch (EvaluationException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
                 final Vector3 current = Vector3.at(x, y, z);
                 environment.setCurrentBlock(current);
                 final Vector3 inputPosition = transformInverse.apply(current);
@@ -3012,15 +3085,23 @@ public int makeBiomeShape(final Region region, Transform transform, final BiomeT
 
         AtomicInteger timedOut = new AtomicInteger();
         final Transform transformInverse = transform.inverse();
+        final ExpressionRowCache rowCache = expression.supportsRowEvaluation()
+            ? new ExpressionRowCache(expression, region, transformInverse, timeout) : null;
         final ArbitraryBiomeShape shape = new ArbitraryBiomeShape(region) {
             @Override
             protected BiomeType getBiome(int x, int y, int z, BiomeType defaultBiomeType) {
                 final Vector3 current = Vector3.at(x, y, z);
                 environment.setCurrentBlock(current);
-                final Vector3 inputPosition = transformInverse.apply(current);
 
                 try {
-                    if (expression.evaluate(new double[]{ inputPosition.x(), inputPosition.y(), inputPosition.z() }, timeout) <= 0) {
+                    final double result;
+                    if (rowCache != null) {
+                        result = rowCache.evaluate(x, y, z);
+                    } else {
+                        final Vector3 inputPosition = transformInverse.apply(current);
+                        result = expression.evaluate(new double[]{ inputPosition.x(), inputPosition.y(), inputPosition.z() }, timeout);
+                    }
+                    if (result <= 0) {
                         return null;
                     }
 
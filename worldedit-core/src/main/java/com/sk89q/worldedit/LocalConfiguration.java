@@ -82,6 +82,11 @@ public abstract class LocalConfiguration {
     public int scriptTimeout = 3000;
     public int calculationTimeout = 100;
     public int maxCalculationTimeout = 300;
+    public int taskWorkerThreads = 2;
+    public int taskQueueSize = 20;
+    public boolean taskVirtualThreads = true;
+    public int taskTickBudget = 20;
+    public int taskTickedEditVolume = 100000;
     public Set<String> allowedDataCycleBlocks = new HashSet<>();
     public String saveDir = "schematics";
     public String scriptsDir = "craftscripts";
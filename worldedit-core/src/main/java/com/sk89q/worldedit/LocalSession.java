@@ -20,6 +20,8 @@
 package com.sk89q.worldedit;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.jchronic.Chronic;
 import com.sk89q.jchronic.Options;
 import com.sk89q.jchronic.utils.Span;
@@ -72,7 +74,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
@@ -101,6 +105,7 @@ public class LocalSession {
     private transient Placement placement = new Placement(PlacementType.PLAYER, BlockVector3.ZERO);
     private final transient ArrayDeque<EditSession> history = new ArrayDeque<>();
     private transient int historyPointer = 0;
+    private final transient Set<ListenableFuture<?>> pendingEdits = ConcurrentHashMap.newKeySet();
     private transient ClipboardHolder clipboard;
     private transient boolean superPickaxe = false;
     private transient BlockTool pickaxeMode = new SinglePickaxe();
@@ -247,6 +252,29 @@ public void remember(EditSession editSession) {
         historyPointer = history.size();
     }
 
+    /**
+     * Track an edit of this session that is still running, like a scheduled
+     * job. Commands that edit the world or use the history of this session
+     * are refused until it is done.
+     *
+     * @param edit a future that is done once the edit has been remembered
+     */
+    public void addPendingEdit(ListenableFuture<?> edit) {
+        checkNotNull(edit);
+        pendingEdits.add(edit);
+        edit.addListener(() -> pendingEdits.remove(edit), MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Get whether an edit of this session is still running.
+     *
+     * @return true if there are pending edits
+     * @see #addPendingEdit(ListenableFuture)
+     */
+    public boolean hasPendingEdits() {
+        return !pendingEdits.isEmpty();
+    }
+
     /**
      * Performs an undo.
      *
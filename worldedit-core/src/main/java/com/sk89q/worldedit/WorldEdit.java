@@ -43,6 +43,7 @@
 import com.sk89q.worldedit.extension.platform.PlatformManager;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.internal.SchematicsEventListener;
 import com.sk89q.worldedit.internal.expression.invoke.ReturnException;
@@ -87,6 +88,7 @@
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
 
@@ -122,6 +124,7 @@ public final class WorldEdit {
     private final EditSessionFactory editSessionFactory = new EditSessionFactory.EditSessionFactoryImpl();
     private final SessionManager sessions = new SessionManager(this);
     private final Supervisor supervisor = new SimpleSupervisor();
+    private final OperationScheduler operationScheduler = new OperationScheduler(20, TimeUnit.MILLISECONDS);
     private final AssetLoaders assetLoaders = new AssetLoaders(this);
     private final SchematicsManager schematicsManager = new SchematicsManager(this);
 
@@ -182,6 +185,16 @@ public Supervisor getSupervisor() {
         return supervisor;
     }
 
+    /**
+     * Get the scheduler that runs large operations over several ticks.
+     * Internal, not for API use.
+     *
+     * @return the operation scheduler
+     */
+    public OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+
     /**
      * Get the executor service. Internal, not for API use.
      *
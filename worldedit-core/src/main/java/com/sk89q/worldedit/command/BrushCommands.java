@@ -75,6 +75,7 @@
 import com.sk89q.worldedit.util.asset.AssetLoadTask;
 import com.sk89q.worldedit.util.asset.AssetLoader;
 import com.sk89q.worldedit.util.asset.holder.ImageHeightmap;
+import com.sk89q.worldedit.util.concurrency.FairTaskExecutor;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
@@ -468,6 +469,7 @@ void heightmapBrush(Player player, LocalSession session,
             AssetLoadTask<ImageHeightmap> task = new AssetLoadTask<>(loader.get(), imageName);
             AsyncCommandBuilder.wrap(task, player)
                 .registerWithSupervisor(worldEdit.getSupervisor(), "Loading asset " + imageName)
+                .setTaskType(FairTaskExecutor.TaskType.IO)
                 .setDelayMessage(TranslatableComponent.of("worldedit.asset.load.loading"))
                 .setWorkingMessage(TranslatableComponent.of("worldedit.asset.load.still-loading"))
                 .onSuccess(TranslatableComponent.of("worldedit.brush.heightmap.equip", TextComponent.of((int) radius)), heightmap -> {
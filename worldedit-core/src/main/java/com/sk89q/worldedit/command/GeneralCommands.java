@@ -257,6 +257,14 @@ void perf(Actor actor, LocalSession session,
                 return;
             }
 
+            if (newState == SideEffect.State.DELAYED && !sideEffect.isDelayable()) {
+                actor.printError(TranslatableComponent.of(
+                        "worldedit.perf.sideeffect.not-delayable",
+                        TranslatableComponent.of(sideEffect.getDisplayName())
+                ));
+                return;
+            }
+
             if (newState != null) {
                 session.setSideEffectSet(session.getSideEffectSet().with(sideEffect, newState));
                 if (!showInfoBox) {
@@ -276,7 +284,9 @@ void perf(Actor actor, LocalSession session,
         } else if (newState != null) {
             SideEffectSet applier = session.getSideEffectSet();
             for (SideEffect sideEffectEntry : WorldEdit.getInstance().getPlatformManager().getSupportedSideEffects()) {
-                if (sideEffectEntry.isExposed()) {
+                // Side effects that can't be delayed are left as they are
+                if (sideEffectEntry.isExposed()
+                    && (newState != SideEffect.State.DELAYED || sideEffectEntry.isDelayable())) {
                     applier = applier.with(sideEffectEntry, newState);
                 }
             }
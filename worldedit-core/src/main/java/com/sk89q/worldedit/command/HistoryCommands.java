@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.PendingEditException;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.command.util.CommandPermissions;
@@ -75,6 +76,9 @@ public void undo(Actor actor, LocalSession session,
                 return;
             }
         }
+        if (undoSession.hasPendingEdits()) {
+            throw new PendingEditException();
+        }
         int timesUndone = 0;
         for (int i = 0; i < times; ++i) {
             BlockBag blockBag = actor instanceof Player player ? undoSession.getBlockBag(player) : null;
@@ -114,6 +118,9 @@ public void redo(Actor actor, LocalSession session,
                 return;
             }
         }
+        if (redoSession.hasPendingEdits()) {
+            throw new PendingEditException();
+        }
         int timesRedone = 0;
         for (int i = 0; i < times; ++i) {
             BlockBag blockBag = actor instanceof Player player ? redoSession.getBlockBag(player) : null;
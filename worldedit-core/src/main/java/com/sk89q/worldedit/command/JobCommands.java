@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.command.util.CommandPermissions;
+import com.sk89q.worldedit.command.util.CommandPermissionsConditionGenerator;
+import com.sk89q.worldedit.command.util.TaskProgressMessages;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.function.operation.OperationTask;
+import com.sk89q.worldedit.util.auth.AuthorizationException;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import org.enginehub.piston.annotation.Command;
+import org.enginehub.piston.annotation.CommandContainer;
+import org.enginehub.piston.annotation.param.Arg;
+import org.enginehub.piston.annotation.param.Switch;
+import org.enginehub.piston.exception.StopExecutionException;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Commands for managing jobs, the operations that run over several ticks.
+ *
+ * <p>Actors can only see and manage their own jobs, unless they have the
+ * {@code worldedit.jobs.others} permission.</p>
+ */
+@CommandContainer(superTypes = CommandPermissionsConditionGenerator.Registration.class)
+public class JobCommands {
+
+    private final WorldEdit worldEdit;
+
+    public JobCommands(WorldEdit worldEdit) {
+        checkNotNull(worldEdit);
+        this.worldEdit = worldEdit;
+    }
+
+    @Command(
+        name = "list",
+        desc = "List running jobs"
+    )
+    @CommandPermissions("worldedit.jobs.list")
+    public void list(Actor actor,
+                     @Switch(name = 'a', desc = "List the jobs of everyone")
+                         boolean all) throws AuthorizationException {
+        if (all) {
+            actor.checkPermission("worldedit.jobs.others");
+        }
+        List<OperationTask> tasks = worldEdit.getOperationScheduler().getTasks();
+        tasks.removeIf(task -> !all && !isOwner(actor, task));
+        if (tasks.isEmpty()) {
+            actor.printInfo(TranslatableComponent.of("worldedit.jobs.none"));
+            return;
+        }
+        for (OperationTask task : tasks) {
+            actor.print(TranslatableComponent.of(
+                task.isPaused() ? "worldedit.jobs.entry.paused" : "worldedit.jobs.entry",
+                TextComponent.of(task.getId()),
+                TaskProgressMessages.describe(task)
+            ));
+        }
+    }
+
+    @Command(
+        name = "cancel",
+        desc = "Cancel a job, keeping the changes made so far so they can be undone"
+    )
+    @CommandPermissions("worldedit.jobs.cancel")
+    public void cancel(Actor actor,
+                       @Arg(desc = "The ID of the job")
+                           int id) {
+        OperationTask task = getTask(actor, id);
+        task.cancel(false);
+        actor.printInfo(TranslatableComponent.of("worldedit.jobs.cancel", TextComponent.of(id)));
+    }
+
+    @Command(
+        name = "pause",
+        desc = "Pause a job"
+    )
+    @CommandPermissions("worldedit.jobs.pause")
+    public void pause(Actor actor,
+                      @Arg(desc = "The ID of the job")
+                          int id) {
+        OperationTask task = getTask(actor, id);
+        if (task.setPaused(true)) {
+            actor.printInfo(TranslatableComponent.of("worldedit.jobs.pause", TextComponent.of(id)));
+        } else {
+            actor.printError(TranslatableComponent.of("worldedit.jobs.pause.already", TextComponent.of(id)));
+        }
+    }
+
+    @Command(
+        name = "resume",
+        desc = "Resume a paused job"
+    )
+    @CommandPermissions("worldedit.jobs.pause")
+    public void resume(Actor actor,
+                       @Arg(desc = "The ID of the job")
+                           int id) {
+        OperationTask task = getTask(actor, id);
+        if (task.setPaused(false)) {
+            actor.printInfo(TranslatableComponent.of("worldedit.jobs.resume", TextComponent.of(id)));
+        } else {
+            actor.printError(TranslatableComponent.of("worldedit.jobs.resume.not-paused", TextComponent.of(id)));
+        }
+    }
+
+    private OperationTask getTask(Actor actor, int id) {
+        return worldEdit.getOperationScheduler().getTask(id)
+            .filter(task -> isOwner(actor, task) || actor.hasPermission("worldedit.jobs.others"))
+            .orElseThrow(() -> new StopExecutionException(
+                TranslatableComponent.of("worldedit.jobs.not-found", TextComponent.of(id))
+            ));
+    }
+
+    private static boolean isOwner(Actor actor, OperationTask task) {
+        return task.getOwner() instanceof Actor owner && owner.getUniqueId().equals(actor.getUniqueId());
+    }
+
+}
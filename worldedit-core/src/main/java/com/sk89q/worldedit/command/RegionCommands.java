@@ -28,6 +28,7 @@
 import com.sk89q.worldedit.command.util.CommandPermissions;
 import com.sk89q.worldedit.command.util.CommandPermissionsConditionGenerator;
 import com.sk89q.worldedit.command.util.Logging;
+import com.sk89q.worldedit.command.util.TickedOperations;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extent.Extent;
@@ -116,15 +117,17 @@ public int set(Actor actor, EditSession editSession,
         RegionFunction set = new BlockReplace(editSession, pattern);
         RegionVisitor visitor = new RegionVisitor(region, set);
 
-        Operations.completeBlindly(visitor);
-        List<Component> messages = Lists.newArrayList(visitor.getStatusMessages());
-        if (messages.isEmpty()) {
-            actor.printInfo(TranslatableComponent.of("worldedit.set.done"));
-        } else {
-            actor.printInfo(TranslatableComponent.of("worldedit.set.done.verbose", TextUtils.join(messages, TextComponent.of(", "))));
-        }
+        boolean completed = TickedOperations.complete(actor, editSession, "//set", region.getVolume(), visitor, () -> {
+            List<Component> messages = Lists.newArrayList(visitor.getStatusMessages());
+            if (messages.isEmpty()) {
+                actor.printInfo(TranslatableComponent.of("worldedit.set.done"));
+            } else {
+                actor.printInfo(TranslatableComponent.of("worldedit.set.done.verbose", TextUtils.join(messages, TextComponent.of(", "))));
+            }
+        });
 
-        return visitor.getAffected();
+        // A scheduled edit only reports its count once it is done
+        return completed ? visitor.getAffected() : 0;
     }
 
     @Command(
@@ -209,9 +212,14 @@ public int replace(Actor actor, EditSession editSession, @Selection Region regio
         if (from == null) {
             from = new ExistingBlockMask(editSession);
         }
-        int affected = editSession.replaceBlocks(region, from, to);
-        actor.printInfo(TranslatableComponent.of("worldedit.replace.replaced", TextComponent.of(affected)));
-        return affected;
+        RegionFunction replace = new RegionMaskingFilter(from, new BlockReplace(editSession, to));
+        RegionVisitor visitor = new RegionVisitor(region, replace);
+
+        boolean completed = TickedOperations.complete(actor, editSession, "//replace", region.getVolume(), visitor, () ->
+            actor.printInfo(TranslatableComponent.of("worldedit.replace.replaced", TextComponent.of(visitor.getAffected())))
+        );
+        // A scheduled edit only reports its count once it is done
+        return completed ? visitor.getAffected() : 0;
     }
 
     @Command(
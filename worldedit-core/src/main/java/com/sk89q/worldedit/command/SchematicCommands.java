@@ -35,15 +35,17 @@
 import com.sk89q.worldedit.extent.clipboard.io.BuiltInClipboardFormat;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormat;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardFormats;
-import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.extent.clipboard.io.ClipboardWriter;
+import com.sk89q.worldedit.extent.clipboard.io.SharedClipboardCache;
 import com.sk89q.worldedit.extent.clipboard.io.share.ClipboardShareDestination;
 import com.sk89q.worldedit.extent.clipboard.io.share.ClipboardShareMetadata;
 import com.sk89q.worldedit.internal.annotation.SchematicPath;
 import com.sk89q.worldedit.internal.schematic.SchematicsManager;
+import com.sk89q.worldedit.internal.util.ClipboardTransformBaker;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
 import com.sk89q.worldedit.math.transform.Transform;
 import com.sk89q.worldedit.session.ClipboardHolder;
+import com.sk89q.worldedit.util.concurrency.FairTaskExecutor;
 import com.sk89q.worldedit.util.formatting.component.CodeFormat;
 import com.sk89q.worldedit.util.formatting.component.ErrorFormat;
 import com.sk89q.worldedit.util.formatting.component.PaginationBox;
@@ -66,10 +68,8 @@
 import org.enginehub.piston.exception.CommandException;
 import org.enginehub.piston.exception.StopExecutionException;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -91,6 +91,7 @@ public class SchematicCommands {
 
     private static final Logger LOGGER = LogManagerCompat.getLogger();
     private final WorldEdit worldEdit;
+    private final SharedClipboardCache clipboardCache = new SharedClipboardCache();
 
     /**
      * Create a new instance.
@@ -130,9 +131,10 @@ public void load(Actor actor, LocalSession session,
             format = inferredFormat;
         }
 
-        SchematicLoadTask task = new SchematicLoadTask(actor, f, format);
+        SchematicLoadTask task = new SchematicLoadTask(actor, f, format, clipboardCache);
         AsyncCommandBuilder.wrap(task, actor)
                 .registerWithSupervisor(worldEdit.getSupervisor(), "Loading schematic " + filename)
+                .setTaskType(FairTaskExecutor.TaskType.IO)
                 .setDelayMessage(TranslatableComponent.of("worldedit.schematic.load.loading"))
                 .setWorkingMessage(TranslatableComponent.of("worldedit.schematic.load.still-loading"))
                 .onSuccess(TextComponent.of(filename, TextColor.GOLD)
@@ -191,6 +193,7 @@ public void save(Actor actor, LocalSession session,
         SchematicSaveTask task = new SchematicSaveTask(actor, f, format, holder, overwrite);
         AsyncCommandBuilder.wrap(task, actor)
                 .registerWithSupervisor(worldEdit.getSupervisor(), "Saving schematic " + filename)
+                .setTaskType(FairTaskExecutor.TaskType.IO)
                 .setDelayMessage(TranslatableComponent.of("worldedit.schematic.save.saving"))
                 .setWorkingMessage(TranslatableComponent.of("worldedit.schematic.save.still-saving"))
                 .onSuccess(filename + " saved" + (overwrite ? " (overwriting previous file)." : "."), null)
@@ -233,6 +236,7 @@ public void share(Actor actor, LocalSession session,
         SchematicShareTask task = new SchematicShareTask(actor, holder, destination, format, schematicName);
         AsyncCommandBuilder.wrap(task, actor)
             .registerWithSupervisor(worldEdit.getSupervisor(), "Sharing schematic")
+            .setTaskType(FairTaskExecutor.TaskType.IO)
             .setDelayMessage(TranslatableComponent.of("worldedit.schematic.save.saving"))
             .setWorkingMessage(TranslatableComponent.of("worldedit.schematic.save.still-saving"))
             .onSuccess("Shared", consumer -> consumer.accept(actor))
@@ -342,24 +346,21 @@ private static class SchematicLoadTask implements Callable<ClipboardHolder> {
         private final Actor actor;
         private final File file;
         private final ClipboardFormat format;
+        private final SharedClipboardCache clipboardCache;
 
-        SchematicLoadTask(Actor actor, File file, ClipboardFormat format) {
+        SchematicLoadTask(Actor actor, File file, ClipboardFormat format, SharedClipboardCache clipboardCache) {
             this.actor = actor;
             this.file = file;
             this.format = format;
+            this.clipboardCache = clipboardCache;
         }
 
         @Override
         public ClipboardHolder call() throws Exception {
-            try (Closer closer = Closer.create()) {
-                FileInputStream fis = closer.register(new FileInputStream(file));
-                BufferedInputStream bis = closer.register(new BufferedInputStream(fis));
-                ClipboardReader reader = closer.register(format.getReader(bis));
-
-                Clipboard clipboard = reader.read();
-                LOGGER.info(actor.getName() + " loaded " + file.getCanonicalPath());
-                return new ClipboardHolder(clipboard);
-            }
+            // Everyone loading the same file shares it until they change their copy
+            Clipboard clipboard = clipboardCache.load(file.toPath(), format);
+            LOGGER.info(actor.getName() + " loaded " + file.getCanonicalPath());
+            return new ClipboardHolder(clipboard);
         }
     }
 
@@ -375,7 +376,8 @@ public ClipboardHolder call() throws Exception {
         void writeToOutputStream(OutputStream outputStream) throws IOException, WorldEditException {
             Clipboard clipboard = holder.getClipboard();
             Transform transform = holder.getTransform();
-            Clipboard target = clipboard.transform(transform);
+            // The writer only reads the clipboard, so a transformed view is enough
+            Clipboard target = ClipboardTransformBaker.viewTransform(clipboard, transform);
 
             try (Closer closer = Closer.create()) {
                 OutputStream stream = closer.register(outputStream);
@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.command.util.CommandPermissionsConditionGenerator;
 import com.sk89q.worldedit.command.util.HookMode;
 import com.sk89q.worldedit.command.util.PrintCommandHelp;
+import com.sk89q.worldedit.command.util.TaskProgressMessages;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.platform.ConfigurationLoadEvent;
 import com.sk89q.worldedit.extension.platform.Actor;
@@ -43,6 +44,7 @@
 import com.sk89q.worldedit.util.report.ConfigReport;
 import com.sk89q.worldedit.util.report.ReportList;
 import com.sk89q.worldedit.util.report.SystemInfoReport;
+import com.sk89q.worldedit.util.task.Task;
 import org.enginehub.piston.annotation.Command;
 import org.enginehub.piston.annotation.CommandContainer;
 import org.enginehub.piston.annotation.param.Arg;
@@ -145,6 +147,22 @@ public void report(Actor actor,
         }
     }
 
+    @Command(
+        name = "tasks",
+        desc = "Show the progress of running tasks"
+    )
+    @CommandPermissions("worldedit.tasks")
+    public void tasks(Actor actor) {
+        List<Task<?>> tasks = we.getSupervisor().getTasks();
+        if (tasks.isEmpty()) {
+            actor.printInfo(TranslatableComponent.of("worldedit.tasks.none"));
+            return;
+        }
+        for (Task<?> task : tasks) {
+            actor.print(TaskProgressMessages.describe(task));
+        }
+    }
+
     @Command(
         name = "trace",
         desc = "Toggles trace hook"
@@ -51,7 +51,7 @@ public static void register(CommandManager commandManager) {
                 null));
         commandManager.registerConverter(Key.of(SideEffect.State.class),
                 MultiKeyConverter.from(
-                    EnumSet.of(SideEffect.State.OFF, SideEffect.State.ON),
+                    EnumSet.of(SideEffect.State.OFF, SideEffect.State.ON, SideEffect.State.DELAYED),
                     r -> ImmutableSet.of(r.name().toLowerCase(Locale.US)),
                     null));
         commandManager.registerConverter(Key.of(HookMode.class),
@@ -27,6 +27,7 @@
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.internal.command.exception.ExceptionConverter;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import com.sk89q.worldedit.util.concurrency.FairTaskExecutor;
 import com.sk89q.worldedit.util.formatting.component.ErrorFormat;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
@@ -51,6 +52,7 @@
     private final Callable<T> callable;
     private final Actor sender;
 
+    private FairTaskExecutor.TaskType taskType = FairTaskExecutor.TaskType.INTERACTIVE;
     @Nullable
     private Supervisor supervisor;
     @Nullable
@@ -87,6 +89,19 @@ public AsyncCommandBuilder<T> registerWithSupervisor(Supervisor supervisor, Stri
         return this;
     }
 
+    /**
+     * Set the kind of work the task does, which decides how it is scheduled
+     * when it is run on a {@link FairTaskExecutor}. Tasks are
+     * {@linkplain FairTaskExecutor.TaskType#INTERACTIVE interactive} by default.
+     *
+     * @param taskType the kind of work
+     * @return this builder
+     */
+    public AsyncCommandBuilder<T> setTaskType(FairTaskExecutor.TaskType taskType) {
+        this.taskType = checkNotNull(taskType);
+        return this;
+    }
+
     @InlineMe(
         replacement = "this.setDelayMessage(TextComponent.of(checkNotNull(message)))",
         imports = "com.sk89q.worldedit.util.formatting.text.TextComponent",
@@ -143,7 +158,11 @@ public AsyncCommandBuilder<T> onFailure(@Nullable String message, @Nullable Exce
     }
 
     public ListenableFuture<T> buildAndExec(ListeningExecutorService executor) {
-        final ListenableFuture<T> future = checkNotNull(executor).submit(this::runTask);
+        checkNotNull(executor);
+        // queue fairly per sender if possible
+        final ListenableFuture<T> future = executor instanceof FairTaskExecutor fairExecutor
+            ? fairExecutor.submit(sender.getUniqueId(), taskType, this::runTask)
+            : executor.submit(this::runTask);
         if (delayMessage != null) {
             FutureProgressListener.addProgressListener(
                 future,
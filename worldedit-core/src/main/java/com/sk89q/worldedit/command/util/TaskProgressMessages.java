@@ -0,0 +1,97 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command.util;
+
+import com.sk89q.worldedit.function.operation.OperationTask;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import com.sk89q.worldedit.util.task.Task;
+import com.sk89q.worldedit.util.task.progress.Progress;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Describes the progress of {@link Task}s to users.
+ */
+public final class TaskProgressMessages {
+
+    private TaskProgressMessages() {
+    }
+
+    /**
+     * Describe the progress of a task in one line.
+     *
+     * <p>For an {@link OperationTask}, this includes the number of processed
+     * blocks, the estimated total, the throughput and the estimated time
+     * remaining, as far as they are known.</p>
+     *
+     * @param task the task
+     * @return a description of the progress
+     */
+    public static Component describe(Task<?> task) {
+        Component name = TextComponent.of(task.getName(), TextColor.WHITE);
+        if (task instanceof OperationTask operationTask && task.getState() == Task.State.RUNNING) {
+            TextComponent processed = TextComponent.of(operationTask.getProcessedCount());
+            TextComponent throughput = TextComponent.of(Math.round(operationTask.getThroughput()));
+            long estimate = operationTask.getEstimatedCount();
+            if (estimate < 0) {
+                return TranslatableComponent.of("worldedit.task.progress.blocks", name, processed, throughput)
+                    .color(TextColor.GRAY);
+            }
+            TextComponent total = TextComponent.of(estimate);
+            TextComponent percent = TextComponent.of(percent(task.getProgress()));
+            Optional<Duration> remaining = operationTask.getEstimatedTimeRemaining();
+            if (remaining.isEmpty()) {
+                return TranslatableComponent.of("worldedit.task.progress.estimate",
+                    name, processed, total, percent, throughput
+                ).color(TextColor.GRAY);
+            }
+            return TranslatableComponent.of("worldedit.task.progress.eta",
+                name, processed, total, percent, throughput, TextComponent.of(format(remaining.get()))
+            ).color(TextColor.GRAY);
+        }
+
+        Progress progress = task.getProgress();
+        if (task.getState() == Task.State.RUNNING && !progress.isIndeterminate()) {
+            return TranslatableComponent.of("worldedit.task.progress.percent", name, TextComponent.of(percent(progress)))
+                .color(TextColor.GRAY);
+        }
+        return TranslatableComponent.of("worldedit.task.progress.state",
+            name, TextComponent.of(task.getState().name().toLowerCase(Locale.ROOT))
+        ).color(TextColor.GRAY);
+    }
+
+    private static long percent(Progress progress) {
+        return (long) Math.floor(progress.getProgress() * 100);
+    }
+
+    private static String format(Duration duration) {
+        long seconds = duration.toSeconds();
+        if (seconds >= 3600) {
+            return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        }
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command.util;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
+import com.sk89q.worldedit.function.operation.OperationTask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.session.request.Request;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs large operations of commands over several ticks, as jobs that can be
+ * paused and cancelled.
+ */
+public final class TickedOperations {
+
+    /**
+     * The time between progress updates in the action bar.
+     */
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private TickedOperations() {
+    }
+
+    /**
+     * Complete an operation of the current command.
+     *
+     * <p>If the operation covers at least
+     * {@link LocalConfiguration#taskTickedEditVolume} blocks, it is run by the
+     * {@link OperationScheduler} a slice at a time, and the edit session is
+     * flushed after every slice so that players see the edit progress. The
+     * command's edit session is then only remembered and closed once the
+     * operation is done. Until then, the session of the command refuses
+     * other edits and changes to its history. Smaller operations, and all
+     * operations on platforms that can't schedule them, are completed right
+     * away.</p>
+     *
+     * <p>Scheduled operations are monitored by the
+     * {@linkplain WorldEdit#getSupervisor() supervisor}, and their progress is
+     * shown in the action bar of the actor every second. If the operation is
+     * cancelled, the changes made until then are still remembered, so they
+     * can be undone.</p>
+     *
+     * @param actor the actor running the command
+     * @param editSession the edit session of the command
+     * @param name the name of the operation, to show with its progress
+     * @param volume the number of blocks the operation covers
+     * @param operation the operation
+     * @param onComplete called once the operation has completed
+     * @return true if the operation was completed right away, false if it was
+     *     scheduled, and only reports its results in {@code onComplete}
+     */
+    public static boolean complete(Actor actor, EditSession editSession, String name, long volume,
+                                   Operation operation, Runnable onComplete) {
+        WorldEdit worldEdit = WorldEdit.getInstance();
+        OperationScheduler scheduler = worldEdit.getOperationScheduler();
+        int threshold = worldEdit.getConfiguration().taskTickedEditVolume;
+        if (threshold <= 0 || volume < threshold || !scheduler.isRunning()) {
+            Operations.completeBlindly(operation);
+            onComplete.run();
+            return true;
+        }
+
+        OperationTask task = scheduler.submit(operation, name, actor, new SliceHandler(actor, editSession));
+        worldEdit.getSupervisor().monitor(task);
+        Request.request().addPendingOperation(task);
+        LocalSession session = Request.request().getSession();
+        if (session != null) {
+            session.addPendingEdit(task);
+        }
+        actor.printInfo(TranslatableComponent.of("worldedit.jobs.started", TextComponent.of(task.getId())));
+        Futures.addCallback(task, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Void result) {
+                onComplete.run();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CancellationException) {
+                    actor.printInfo(TranslatableComponent.of("worldedit.jobs.cancelled", TextComponent.of(task.getId())));
+                } else {
+                    worldEdit.getPlatformManager().getPlatformCommandManager().handleException(actor, t);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return false;
+    }
+
+    /**
+     * Flushes the edit session after every slice, and shows the progress.
+     */
+    private static final class SliceHandler implements Consumer<OperationTask> {
+        private final Actor actor;
+        private final EditSession editSession;
+        private long lastReport = System.nanoTime();
+
+        private SliceHandler(Actor actor, EditSession editSession) {
+            this.actor = actor;
+            this.editSession = editSession;
+        }
+
+        @Override
+        public void accept(OperationTask task) {
+            Operations.completeBlindly(editSession.commit());
+            long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL) {
+                lastReport = now;
+                actor.printActionBar(TaskProgressMessages.describe(task));
+            }
+        }
+    }
+
+}
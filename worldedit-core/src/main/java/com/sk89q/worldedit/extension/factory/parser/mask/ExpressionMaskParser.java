@@ -57,6 +57,7 @@ public Mask parseFromInput(String input, ParserContext context) throws InputPars
 
         try {
             Expression exp = Expression.compile(input.substring(1), "x", "y", "z");
+            exp.optimize();
             WorldEditExpressionEnvironment env = new WorldEditExpressionEnvironment(
                     context.requireExtent(), new Identity());
             exp.setEnvironment(env);
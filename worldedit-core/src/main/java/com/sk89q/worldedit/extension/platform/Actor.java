@@ -120,6 +120,17 @@ default void printDebug(Component component) {
      */
     void print(Component component);
 
+    /**
+     * Show a {@link Component} in the action bar, above the hotbar, such as
+     * the progress of a running operation.
+     *
+     * <p>Actors without an action bar ignore this.</p>
+     *
+     * @param component The component to show
+     */
+    default void printActionBar(Component component) {
+    }
+
     /**
      * Returns true if the actor can destroy bedrock.
      *
@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.internal.block.BlockStateTransformCache;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.registry.BlockRegistry;
@@ -106,6 +107,7 @@ void ready(PlatformManager platformManager, Platform platform) {
 
         @Override
         void unready(PlatformManager platformManager, Platform platform) {
+            BlockStateTransformCache.clear();
             BlockStateIdAccess.clear();
         }
     };
@@ -22,11 +22,15 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.MissingWorldException;
+import com.sk89q.worldedit.PendingEditException;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.command.ApplyBrushCommands;
 import com.sk89q.worldedit.command.BiomeCommands;
@@ -43,6 +47,8 @@
 import com.sk89q.worldedit.command.GenerationCommandsRegistration;
 import com.sk89q.worldedit.command.HistoryCommands;
 import com.sk89q.worldedit.command.HistoryCommandsRegistration;
+import com.sk89q.worldedit.command.JobCommands;
+import com.sk89q.worldedit.command.JobCommandsRegistration;
 import com.sk89q.worldedit.command.NavigationCommands;
 import com.sk89q.worldedit.command.NavigationCommandsRegistration;
 import com.sk89q.worldedit.command.PaintBrushCommands;
@@ -256,6 +262,12 @@ private void registerAlwaysInjectedValues() {
                     .orElseThrow(() -> new IllegalStateException("No LocalSession"));
                 return context.injectedValue(Key.of(Actor.class))
                     .map(actor -> {
+                        if (localSession.hasPendingEdits()) {
+                            // Its edits would end up in the history before the running one
+                            PendingEditException e = new PendingEditException();
+                            exceptionConverter.convert(e);
+                            throw new AssertionError("Should have thrown a new exception.", e);
+                        }
                         EditSession editSession = localSession.createEditSession(actor);
                         editSession.enableStandardMode();
                         return editSession;
@@ -352,6 +364,13 @@ private void registerAllCommands() {
                 ApplyBrushCommands.register(commandManagerService, manager, registration);
             }
         );
+        registerSubCommands(
+            "jobs",
+            ImmutableList.of("/jobs"),
+            "Commands for managing running jobs",
+            JobCommandsRegistration.builder(),
+            new JobCommands(worldEdit)
+        );
         registerSubCommands(
             "worldedit",
             ImmutableList.of("we"),
@@ -511,23 +530,20 @@ private void executeCommand(CommandEvent event, String[] splitArgs) {
 
                     if (editSessionOpt.isPresent()) {
                         EditSession editSession = editSessionOpt.get();
-                        session.remember(editSession);
-                        editSession.close();
-
-                        if (config.profile) {
-                            long time = System.currentTimeMillis() - start;
-                            double timeS = (time / 1000.0);
-                            int changed = editSession.getBlockChangeCount();
-                            double throughput = timeS == 0 ? changed : changed / timeS;
-                            actor.printDebug(TranslatableComponent.of(
-                                "worldedit.command.time-elapsed",
-                                TextComponent.of(timeS),
-                                TextComponent.of(changed),
-                                TextComponent.of(Math.round(throughput))
-                            ));
+                        List<ListenableFuture<?>> pending = Request.request().getPendingOperations();
+                        if (pending.isEmpty()) {
+                            finishEditSession(actor, session, editSession, config, start);
+                        } else {
+                            // The command left operations running, so the edit session is still in use,
+                            // and the session stays locked until it has been remembered
+                            session.addPendingEdit(Futures.whenAllComplete(pending).run(() -> {
+                                try {
+                                    finishEditSession(actor, session, editSession, config, start);
+                                } catch (Throwable t) {
+                                    handleException(actor, t);
+                                }
+                            }, MoreExecutors.directExecutor()));
                         }
-
-                        worldEdit.flushBlockBag(actor, editSession);
                     }
                 }
             } catch (Throwable t) {
@@ -570,6 +586,50 @@ private void executeCommand(CommandEvent event, String[] splitArgs) {
         event.setCancelled(true);
     }
 
+    private void finishEditSession(Actor actor, LocalSession session, EditSession editSession,
+                                   LocalConfiguration config, long start) {
+        session.remember(editSession);
+        editSession.close();
+
+        if (config.profile) {
+            long time = System.currentTimeMillis() - start;
+            double timeS = (time / 1000.0);
+            int changed = editSession.getBlockChangeCount();
+            double throughput = timeS == 0 ? changed : changed / timeS;
+            actor.printDebug(TranslatableComponent.of(
+                "worldedit.command.time-elapsed",
+                TextComponent.of(timeS),
+                TextComponent.of(changed),
+                TextComponent.of(Math.round(throughput))
+            ));
+        }
+
+        worldEdit.flushBlockBag(actor, editSession);
+    }
+
+    /**
+     * Report an exception that was thrown on behalf of a command after it
+     * returned, such as by an operation it left running.
+     *
+     * <p>Internal, do not call.</p>
+     *
+     * @param actor the actor that ran the command
+     * @param t the exception
+     */
+    public void handleException(Actor actor, Throwable t) {
+        try {
+            Throwable next = t;
+            do {
+                exceptionConverter.convert(next);
+                next = next.getCause();
+            } while (next != null);
+        } catch (CommandException e) {
+            actor.printError(e.getRichMessage());
+            return;
+        }
+        handleUnknownException(actor, t);
+    }
+
     private MemoizingValueAccess initializeInjectedValues(Arguments arguments, Actor actor) {
         InjectedValueStore store = MapBackedValueStore.create();
         store.injectValue(Key.of(Actor.class), ValueProvider.constant(actor));
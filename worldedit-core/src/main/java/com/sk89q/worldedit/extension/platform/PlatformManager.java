@@ -22,7 +22,7 @@
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sk89q.worldedit.LocalConfiguration;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEdit;
@@ -40,12 +40,13 @@
 import com.sk89q.worldedit.event.platform.PlatformUnreadyEvent;
 import com.sk89q.worldedit.event.platform.PlatformsRegisteredEvent;
 import com.sk89q.worldedit.event.platform.PlayerInputEvent;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
 import com.sk89q.worldedit.session.request.Request;
 import com.sk89q.worldedit.util.HandSide;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.SideEffect;
-import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
+import com.sk89q.worldedit.util.concurrency.FairTaskExecutor;
 import com.sk89q.worldedit.util.eventbus.Subscribe;
 import com.sk89q.worldedit.util.lifecycle.Lifecycled;
 import com.sk89q.worldedit.util.lifecycle.SimpleLifecycled;
@@ -58,6 +59,9 @@
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -79,6 +83,7 @@ public class PlatformManager {
     private final WorldEdit worldEdit;
     private final PlatformCommandManager platformCommandManager;
     private final SimpleLifecycled<ListeningExecutorService> executorService;
+    private final SimpleLifecycled<ExecutorService> snapshotLoaderService;
     private final Map<Platform, Boolean> platforms = Maps.newHashMap();
     private final ImmutableMap<Capability, SimpleLifecycled<Platform>> preferences = Stream.of(Capability.values())
         .collect(Maps.toImmutableEnumMap(
@@ -100,6 +105,7 @@ public PlatformManager(WorldEdit worldEdit) {
         this.worldEdit = worldEdit;
         this.platformCommandManager = new PlatformCommandManager(worldEdit, this);
         this.executorService = SimpleLifecycled.invalid();
+        this.snapshotLoaderService = SimpleLifecycled.invalid();
 
         // Register this instance for events
         worldEdit.getEventBus().register(this);
@@ -330,16 +336,40 @@ public PlatformCommandManager getPlatformCommandManager() {
     /**
      * Get the executor service. Internal, not for API use.
      *
+     * <p>This is a {@link FairTaskExecutor}, so tasks submitted on behalf of
+     * a player through it don't have to wait for the tasks of other players.</p>
+     *
      * @return the executor service
      */
     public ListeningExecutorService getExecutorService() {
         return executorService.valueOrThrow();
     }
 
-    private static ListeningExecutorService createExecutor() {
-        return MoreExecutors.listeningDecorator(
-                EvenMoreExecutors.newBoundedCachedThreadPool(
-                        0, 1, 20, "WorldEdit Task Executor - %s"));
+    /**
+     * Get the executor that loads snapshot chunks ahead of a restore. Internal, not for API use.
+     *
+     * <p>It is shut down along with the platforms.</p>
+     *
+     * @return the executor service, or nothing if no platform is ready
+     */
+    public Optional<ExecutorService> getSnapshotLoaderService() {
+        return snapshotLoaderService.value();
+    }
+
+    private static ExecutorService createSnapshotLoader() {
+        return Executors.newFixedThreadPool(
+            Math.min(Runtime.getRuntime().availableProcessors(), 4),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("worldedit-snapshot-loader-%d")
+                .build()
+        );
+    }
+
+    private ListeningExecutorService createExecutor() {
+        LocalConfiguration config = getConfiguration();
+        return new FairTaskExecutor(config.taskWorkerThreads, config.taskQueueSize, config.taskVirtualThreads,
+            "WorldEdit Task Executor - %s");
     }
 
     /**
@@ -406,6 +436,14 @@ public void handleNewPlatformReady(PlatformReadyEvent event) {
         if (!executorService.isValid()) {
             executorService.newValue(createExecutor());
         }
+        if (!snapshotLoaderService.isValid()) {
+            snapshotLoaderService.newValue(createSnapshotLoader());
+        }
+        OperationScheduler scheduler = worldEdit.getOperationScheduler();
+        if (!scheduler.isRunning()) {
+            scheduler.setBudget(getConfiguration().taskTickBudget, TimeUnit.MILLISECONDS);
+            scheduler.start(queryCapability(Capability.WORLD_EDITING));
+        }
     }
 
     /**
@@ -420,9 +458,20 @@ public void handleNewPlatformUnready(PlatformUnreadyEvent event) {
         if (!platforms.containsValue(true)) {
             executorService.value().ifPresent(ListeningExecutorService::shutdownNow);
             executorService.invalidate();
+            snapshotLoaderService.value().ifPresent(ExecutorService::shutdownNow);
+            snapshotLoaderService.invalidate();
+            worldEdit.getOperationScheduler().stop();
         }
     }
 
+    /**
+     * Internal, do not call.
+     */
+    @Subscribe
+    public void handleConfigurationLoad(ConfigurationLoadEvent event) {
+        worldEdit.getOperationScheduler().setBudget(event.getConfiguration().taskTickBudget, TimeUnit.MILLISECONDS);
+    }
+
     @Subscribe
     public void handleBlockInteract(BlockInteractEvent event) {
         // Create a proxy actor with a potentially different world for
@@ -143,6 +143,11 @@ public void print(Component component) {
         basePlayer.print(component);
     }
 
+    @Override
+    public void printActionBar(Component component) {
+        basePlayer.printActionBar(component);
+    }
+
     @Override
     public String[] getGroups() {
         return permActor.getGroups();
@@ -104,7 +104,10 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
     public boolean setBiome(BlockVector3 position, BiomeType biome) {
         if (enabled) {
             BiomeType previous = getBiome(position);
-            changeSet.add(new BiomeChange3D(position, previous, biome));
+            // Worlds store biomes per 4x4x4 cell, so most positions of a cell are already set by an earlier change
+            if (!previous.equals(biome)) {
+                changeSet.add(new BiomeChange3D(position, previous, biome));
+            }
         }
         return super.setBiome(position, biome);
     }
@@ -19,24 +19,34 @@
 
 package com.sk89q.worldedit.extent.buffer.internal;
 
-import com.google.common.base.Throwables;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.util.collection.BlockMap;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
- * An extent that buffers all changes until completed.
+ * An extent that buffers all changes until completed, and then sets them in
+ * region and chunk order.
+ *
+ * <p>Once more than {@link #getFlushThreshold()} blocks are buffered, the
+ * blocks of every chunk but the one last edited are set early.</p>
  */
 public class BatchingExtent extends AbstractBufferingExtent {
 
-    private final BlockMap<BaseBlock> blockMap = BlockMap.createForBaseBlock();
+    /**
+     * The default number of buffered blocks after which completed chunks are set.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 1 << 20;
+
+    private final PackedBlockBuffer buffer = new PackedBlockBuffer();
     private boolean enabled;
+    private int flushThreshold = DEFAULT_FLUSH_THRESHOLD;
 
     public BatchingExtent(Extent extent) {
         this(extent, true);
@@ -47,6 +57,27 @@ public BatchingExtent(Extent extent, boolean enabled) {
         this.enabled = enabled;
     }
 
+    /**
+     * Get the number of buffered blocks after which the blocks of completed
+     * chunks are set, before the commit.
+     *
+     * @return the flush threshold
+     */
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    /**
+     * Set the number of buffered blocks after which the blocks of completed
+     * chunks are set, before the commit.
+     *
+     * @param flushThreshold the flush threshold, or {@link Integer#MAX_VALUE} to hold every block until the commit
+     */
+    public void setFlushThreshold(int flushThreshold) {
+        checkArgument(flushThreshold > 0, "flushThreshold must be positive");
+        this.flushThreshold = flushThreshold;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -64,7 +95,13 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
         if (!enabled) {
             return setDelegateBlock(location, block);
         }
-        blockMap.put(location, block.toBaseBlock());
+        if (!PackedBlockBuffer.canBuffer(location)) {
+            return setDelegateBlock(location, block);
+        }
+        buffer.put(location, block.toBaseBlock());
+        if (buffer.size() > flushThreshold) {
+            buffer.flushCompletedChunks(this::setDelegateBlock);
+        }
         return true;
     }
 
@@ -74,7 +111,7 @@ protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
             // Early exit if we're not enabled.
             return null;
         }
-        return blockMap.get(position);
+        return buffer.get(position);
     }
 
     @Override
@@ -86,22 +123,7 @@ protected Operation commitBefore() {
 
             @Override
             public Operation resume(RunContext run) throws WorldEditException {
-                try {
-                    blockMap.forEach((position, block) -> {
-                        try {
-                            getExtent().setBlock(position, block);
-                        } catch (WorldEditException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-                } catch (RuntimeException e) {
-                    if (e.getCause() != null) {
-                        Throwables.throwIfInstanceOf(e.getCause(), WorldEditException.class);
-                    }
-                    throw e;
-                }
-
-                blockMap.clear();
+                buffer.flush(getExtent()::setBlock);
                 return null;
             }
 
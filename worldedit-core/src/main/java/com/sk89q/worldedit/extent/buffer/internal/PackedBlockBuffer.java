@@ -0,0 +1,271 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.buffer.internal;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.sk89q.worldedit.math.BitMath.fixSign;
+import static com.sk89q.worldedit.math.BitMath.mask;
+
+/**
+ * A buffer of blocks for the batching extents.
+ *
+ * <p>Positions are stored as packed keys which sort by region, then chunk,
+ * then Y value (max -> min), and blocks are stored as internal block state
+ * IDs where possible, in two primitive arrays. Flushing sorts both arrays
+ * in place, and sets the blocks in that order.</p>
+ *
+ * <p>Only {@linkplain BlockVector3#isLongPackable(BlockVector3) long-packable}
+ * positions can be buffered.</p>
+ */
+public final class PackedBlockBuffer {
+
+    /**
+     * Something that blocks are flushed to.
+     */
+    @FunctionalInterface
+    public interface BlockSink {
+        void setBlock(BlockVector3 position, BaseBlock block) throws WorldEditException;
+    }
+
+    // The key is made of 7 parts, from highest to lowest:
+    // [region X (17)][region Z (17)][chunk X (5)][chunk Z (5)][block Y (12)][block X (4)][block Z (4)] = 64 bits
+    // Region X is kept signed, since the keys are sorted as signed values. Region Z has its sign flipped,
+    // and Y is inverted, so that both sort as unsigned values.
+    private static final int BLOCK_Z_SHIFT = 0;
+    private static final int BLOCK_X_SHIFT = 4 + BLOCK_Z_SHIFT;
+    private static final int Y_SHIFT = 4 + BLOCK_X_SHIFT;
+    private static final int CHUNK_Z_SHIFT = 12 + Y_SHIFT;
+    private static final int CHUNK_X_SHIFT = 5 + CHUNK_Z_SHIFT;
+    private static final int REGION_Z_SHIFT = 5 + CHUNK_X_SHIFT;
+    private static final int REGION_X_SHIFT = 17 + REGION_Z_SHIFT;
+    private static final int Y_MAX = 2047;
+    private static final long FLIP_REGION_Z_SIGN = 1L << 16;
+    // Every bit above the block Y, i.e. the region and chunk
+    private static final long CHUNK_MASK = -1L << CHUNK_Z_SHIFT;
+
+    static long toKey(BlockVector3 position) {
+        int x = position.x();
+        int z = position.z();
+        return ((long) (x >> 9) << REGION_X_SHIFT)
+            | ((((z >> 9) & mask(17)) ^ FLIP_REGION_Z_SIGN) << REGION_Z_SHIFT)
+            | ((long) ((x >> 4) & mask(5)) << CHUNK_X_SHIFT)
+            | ((long) ((z >> 4) & mask(5)) << CHUNK_Z_SHIFT)
+            | ((long) (Y_MAX - position.y()) << Y_SHIFT)
+            | ((long) (x & mask(4)) << BLOCK_X_SHIFT)
+            | ((long) (z & mask(4)) << BLOCK_Z_SHIFT);
+    }
+
+    static BlockVector3 toPosition(long key) {
+        int regionX = (int) (key >> REGION_X_SHIFT);
+        int regionZ = fixSign((int) (((key >>> REGION_Z_SHIFT) & mask(17)) ^ FLIP_REGION_Z_SIGN), 17);
+        int x = (regionX << 9)
+            | ((int) (key >>> CHUNK_X_SHIFT) & mask(5)) << 4
+            | ((int) (key >>> BLOCK_X_SHIFT) & mask(4));
+        int z = (regionZ << 9)
+            | ((int) (key >>> CHUNK_Z_SHIFT) & mask(5)) << 4
+            | ((int) (key >>> BLOCK_Z_SHIFT) & mask(4));
+        int y = Y_MAX - ((int) (key >>> Y_SHIFT) & mask(12));
+        return BlockVector3.at(x, y, z);
+    }
+
+    /**
+     * Check if a position can be buffered.
+     *
+     * @param position the position
+     * @return true if the position can be buffered
+     */
+    public static boolean canBuffer(BlockVector3 position) {
+        return BlockVector3.isLongPackable(position);
+    }
+
+    // Key -> index into keys and values
+    private final Long2IntOpenHashMap slots = new Long2IntOpenHashMap();
+    private long[] keys = LongArrays.EMPTY_ARRAY;
+    // An internal block state ID, or the complement of an index into fullBlocks
+    private long[] values = LongArrays.EMPTY_ARRAY;
+    // Blocks that have NBT data, or no internal ID. Overwritten entries are nulled out
+    private List<BaseBlock> fullBlocks = new ArrayList<>();
+    private int size;
+    private long lastChunk;
+
+    public PackedBlockBuffer() {
+        slots.defaultReturnValue(-1);
+    }
+
+    /**
+     * Get the number of buffered blocks.
+     *
+     * @return the number of buffered blocks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Buffer a block.
+     *
+     * @param position the position, which must be {@linkplain #canBuffer(BlockVector3) bufferable}
+     * @param block the block
+     */
+    public void put(BlockVector3 position, BaseBlock block) {
+        long key = toKey(position);
+        int slot = slots.get(key);
+        if (slot < 0) {
+            slot = size++;
+            if (slot == keys.length) {
+                int length = Math.max(16, slot * 2);
+                keys = Arrays.copyOf(keys, length);
+                values = Arrays.copyOf(values, length);
+            }
+            keys[slot] = key;
+            values[slot] = toValue(block, 0);
+            slots.put(key, slot);
+        } else {
+            values[slot] = toValue(block, values[slot]);
+        }
+        lastChunk = key & CHUNK_MASK;
+    }
+
+    private long toValue(BaseBlock block, long previous) {
+        if (block.getNbtReference() == null) {
+            int id = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+            if (BlockStateIdAccess.isValidInternalId(id)) {
+                if (previous < 0) {
+                    fullBlocks.set((int) ~previous, null);
+                }
+                return id;
+            }
+        }
+        if (previous < 0) {
+            fullBlocks.set((int) ~previous, block);
+            return previous;
+        }
+        fullBlocks.add(block);
+        return ~(long) (fullBlocks.size() - 1);
+    }
+
+    private BaseBlock fromValue(long value) {
+        if (value < 0) {
+            return fullBlocks.get((int) ~value);
+        }
+        BlockState state = BlockStateIdAccess.getBlockStateById((int) value);
+        checkState(state != null, "No block state for internal ID %s", value);
+        return state.toBaseBlock();
+    }
+
+    /**
+     * Get a buffered block.
+     *
+     * @param position the position
+     * @return the buffered block, or null if there is none
+     */
+    @Nullable
+    public BaseBlock get(BlockVector3 position) {
+        if (!canBuffer(position)) {
+            return null;
+        }
+        int slot = slots.get(toKey(position));
+        return slot < 0 ? null : fromValue(values[slot]);
+    }
+
+    /**
+     * Set every buffered block, in region and chunk order, and empty the
+     * buffer.
+     *
+     * <p>If the sink throws, the block it failed on and the blocks after it
+     * stay buffered.</p>
+     *
+     * @param sink the sink to set the blocks with
+     * @throws WorldEditException thrown by the sink
+     */
+    public void flush(BlockSink sink) throws WorldEditException {
+        flush(sink, false);
+    }
+
+    /**
+     * Set the buffered blocks of every chunk except the last one a block was
+     * buffered in, which is likely still being edited, in region and chunk
+     * order.
+     *
+     * @param sink the sink to set the blocks with
+     * @throws WorldEditException thrown by the sink
+     */
+    public void flushCompletedChunks(BlockSink sink) throws WorldEditException {
+        flush(sink, true);
+    }
+
+    private void flush(BlockSink sink, boolean keepLastChunk) throws WorldEditException {
+        // Sorting breaks the slots, so only the kept blocks are put back in them
+        LongArrays.radixSort(keys, values, 0, size);
+        slots.clear();
+        List<BaseBlock> keptFullBlocks = new ArrayList<>();
+        int kept = 0;
+        int next = 0;
+        try {
+            for (; next < size; next++) {
+                long key = keys[next];
+                if (keepLastChunk && (key & CHUNK_MASK) == lastChunk) {
+                    kept = keep(next, kept, keptFullBlocks);
+                } else {
+                    sink.setBlock(toPosition(key), fromValue(values[next]));
+                }
+            }
+        } finally {
+            // If the sink threw, the block it failed on and every block after it are kept
+            for (; next < size; next++) {
+                kept = keep(next, kept, keptFullBlocks);
+            }
+            size = kept;
+            fullBlocks = keptFullBlocks;
+        }
+    }
+
+    /**
+     * Move a block that isn't flushed down to the end of the kept blocks.
+     *
+     * @return the new number of kept blocks
+     */
+    private int keep(int index, int kept, List<BaseBlock> keptFullBlocks) {
+        long key = keys[index];
+        long value = values[index];
+        if (value < 0) {
+            keptFullBlocks.add(fullBlocks.get((int) ~value));
+            value = ~(long) (keptFullBlocks.size() - 1);
+        }
+        keys[kept] = key;
+        values[kept] = value;
+        slots.put(key, kept);
+        return kept + 1;
+    }
+
+}
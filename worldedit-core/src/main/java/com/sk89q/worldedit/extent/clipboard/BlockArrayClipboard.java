@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -31,17 +32,30 @@
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.block.BlockTypes;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import javax.annotation.Nullable;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Stores block data as an array of {@link BaseBlock}s and
  * other data as lists or maps.
+ *
+ * <p>Biomes are stored per 4x4x4 cell, aligned to the biome cells of the
+ * world the positions come from, so setting the biome of one position sets
+ * it for its whole cell. Once two positions of a cell are set to different
+ * biomes, which happens when the source stores biomes per block or its cells
+ * don't line up with these, biomes are stored per block instead.</p>
+ *
+ * <p>Entities are also indexed by the chunk they are in, so that finding
+ * the entities in a region only looks at the chunks it covers.</p>
  */
 public class BlockArrayClipboard implements Clipboard {
 
@@ -61,9 +75,16 @@ private static BlockVector3 getDimensions(Region region) {
     private final int zStride;
     // Laid out in x-y-z order, as that's how we currently loop over positions.
     private final BaseBlock[] blocks;
-    // Laid out in x-y-z order, as that's how we currently loop over positions.
+    // Cells of 4x4x4 blocks, laid out in x-y-z order.
     private BiomeType[] biomes = null;
+    // Laid out like blocks, once the biomes of a cell differ.
+    private BiomeType[] blockBiomes = null;
+    private final BlockVector3 biomeCellMinimum;
+    private final int biomeYStride;
+    private final int biomeZStride;
     private final List<ClipboardEntity> entities = new ArrayList<>();
+    private final Long2ObjectMap<List<ClipboardEntity>> entitiesByChunk = new Long2ObjectOpenHashMap<>();
+    private long nextEntitySequence;
 
     /**
      * Create a new instance.
@@ -81,12 +102,26 @@ public BlockArrayClipboard(Region region) {
         blocks = new BaseBlock[dimensions.x() * dimensions.y() * dimensions.z()];
         yStride = dimensions.x();
         zStride = yStride * dimensions.y();
+
+        biomeCellMinimum = toBiomeCell(region.getMinimumPoint());
+        BlockVector3 biomeDimensions = toBiomeCell(region.getMaximumPoint()).subtract(biomeCellMinimum).add(1, 1, 1);
+        biomeYStride = biomeDimensions.x();
+        biomeZStride = biomeYStride * biomeDimensions.y();
+    }
+
+    private static BlockVector3 toBiomeCell(BlockVector3 position) {
+        return position.shr(2);
     }
 
     private int indexBlockVecBasedArray(BlockVector3 v) {
         return v.x() + (v.y() * yStride) + (v.z() * zStride);
     }
 
+    private int indexBiomeArray(BlockVector3 position) {
+        BlockVector3 v = toBiomeCell(position).subtract(biomeCellMinimum);
+        return v.x() + (v.y() * biomeYStride) + (v.z() * biomeZStride);
+    }
+
     @Override
     public Region getRegion() {
         return region.clone();
@@ -117,17 +152,47 @@ public BlockVector3 getMaximumPoint() {
         return region.getMaximumPoint();
     }
 
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
     @Override
     public List<? extends Entity> getEntities(Region region) {
-        List<Entity> filtered = new ArrayList<>();
-        for (Entity entity : entities) {
-            if (region.contains(entity.getLocation().toVector().toBlockPoint())) {
-                filtered.add(entity);
+        if (entities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BlockVector3 min = region.getMinimumPoint().shr(4);
+        BlockVector3 max = region.getMaximumPoint().shr(4);
+        long chunkCount = (long) (max.x() - min.x() + 1) * (max.z() - min.z() + 1);
+
+        List<ClipboardEntity> filtered = new ArrayList<>();
+        if (chunkCount >= entitiesByChunk.size()) {
+            // The region covers as many chunks as there are with entities, so don't bother with the index
+            addEntitiesInRegion(entities, region, filtered);
+        } else {
+            for (int chunkX = min.x(); chunkX <= max.x(); chunkX++) {
+                for (int chunkZ = min.z(); chunkZ <= max.z(); chunkZ++) {
+                    List<ClipboardEntity> chunkEntities = entitiesByChunk.get(getChunkKey(chunkX, chunkZ));
+                    if (chunkEntities != null) {
+                        addEntitiesInRegion(chunkEntities, region, filtered);
+                    }
+                }
             }
+            // Keep the order in which the entities were added
+            filtered.sort(Comparator.comparingLong(entity -> entity.sequence));
         }
         return Collections.unmodifiableList(filtered);
     }
 
+    private static void addEntitiesInRegion(List<ClipboardEntity> entities, Region region,
+                                            List<ClipboardEntity> filtered) {
+        for (ClipboardEntity entity : entities) {
+            if (region.contains(entity.blockPosition)) {
+                filtered.add(entity);
+            }
+        }
+    }
+
     @Override
     public List<? extends Entity> getEntities() {
         return Collections.unmodifiableList(entities);
@@ -136,8 +201,9 @@ public List<? extends Entity> getEntities() {
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity entity) {
-        ClipboardEntity ret = new ClipboardEntity(location, entity);
+        ClipboardEntity ret = new ClipboardEntity(location, entity, nextEntitySequence++);
         entities.add(ret);
+        entitiesByChunk.computeIfAbsent(ret.getChunkKey(), k -> new ArrayList<>()).add(ret);
         return ret;
     }
 
@@ -178,17 +244,60 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
         }
     }
 
+    /**
+     * Copy a row of blocks along the x-axis from another clipboard, without
+     * going through {@link #getFullBlock(BlockVector3)} and
+     * {@link #setBlock(BlockVector3, BlockStateHolder)} for every block.
+     *
+     * <p>Rows can only be copied between clipboards with cuboid regions,
+     * where both rows are entirely within the regions.</p>
+     *
+     * @param source the clipboard to copy from
+     * @param from the first position of the row in the source clipboard
+     * @param to the first position of the row in this clipboard
+     * @param length the length of the row
+     * @return true if the row was copied, false if it can't be copied this way
+     */
+    public boolean copyRow(BlockArrayClipboard source, BlockVector3 from, BlockVector3 to, int length) {
+        checkNotNull(source);
+        checkNotNull(from);
+        checkNotNull(to);
+        checkArgument(length >= 0, "length must be non-negative");
+        BlockVector3 rowLength = BlockVector3.at(length - 1, 0, 0);
+        if (!(region instanceof CuboidRegion) || !(source.region instanceof CuboidRegion)
+            || !from.containedWithin(source.getMinimumPoint(), source.getMaximumPoint().subtract(rowLength))
+            || !to.containedWithin(getMinimumPoint(), getMaximumPoint().subtract(rowLength))) {
+            return false;
+        }
+        System.arraycopy(
+            source.blocks, source.indexBlockVecBasedArray(from.subtract(source.getMinimumPoint())),
+            blocks, indexBlockVecBasedArray(to.subtract(getMinimumPoint())),
+            length
+        );
+        return true;
+    }
+
     @Override
     public boolean hasBiomes() {
-        return biomes != null;
+        return biomes != null || blockBiomes != null;
+    }
+
+    /**
+     * Return whether biomes are stored per block, rather than per 4x4x4
+     * cell.
+     *
+     * @return true if biomes are stored per block
+     */
+    public boolean storesBiomesPerBlock() {
+        return blockBiomes != null;
     }
 
     @Override
     public BiomeType getBiome(BlockVector3 position) {
-        if (biomes != null
-                && position.containedWithin(getMinimumPoint(), getMaximumPoint())) {
-            BlockVector3 v = position.subtract(region.getMinimumPoint());
-            BiomeType biomeType = biomes[indexBlockVecBasedArray(v)];
+        if (hasBiomes() && position.containedWithin(getMinimumPoint(), getMaximumPoint())) {
+            BiomeType biomeType = blockBiomes != null
+                ? blockBiomes[indexBlockVecBasedArray(position.subtract(getMinimumPoint()))]
+                : biomes[indexBiomeArray(position)];
             if (biomeType != null) {
                 return biomeType;
             }
@@ -200,17 +309,44 @@ public BiomeType getBiome(BlockVector3 position) {
     @Override
     public boolean setBiome(BlockVector3 position, BiomeType biome) {
         if (position.containedWithin(getMinimumPoint(), getMaximumPoint())) {
-            BlockVector3 v = position.subtract(region.getMinimumPoint());
-            if (biomes == null) {
-                BlockVector3 dimensions = getDimensions();
-                biomes = new BiomeType[dimensions.x() * dimensions.y() * dimensions.z()];
+            if (blockBiomes == null) {
+                if (biomes == null) {
+                    BlockVector3 maximumCell = toBiomeCell(getMaximumPoint()).subtract(biomeCellMinimum);
+                    biomes = new BiomeType[(maximumCell.z() + 1) * biomeZStride];
+                }
+                int index = indexBiomeArray(position);
+                BiomeType existing = biomes[index];
+                if (existing == null || existing.equals(biome)) {
+                    biomes[index] = biome;
+                    return true;
+                }
+                storeBiomesPerBlock();
             }
-            biomes[indexBlockVecBasedArray(v)] = biome;
+            blockBiomes[indexBlockVecBasedArray(position.subtract(getMinimumPoint()))] = biome;
             return true;
         }
         return false;
     }
 
+    /**
+     * Switch from storing biomes per cell to storing them per block, keeping
+     * the biome every position currently has.
+     */
+    private void storeBiomesPerBlock() {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 dimensions = getDimensions();
+        blockBiomes = new BiomeType[blocks.length];
+        for (int z = 0; z < dimensions.z(); z++) {
+            for (int y = 0; y < dimensions.y(); y++) {
+                for (int x = 0; x < dimensions.x(); x++) {
+                    BlockVector3 v = BlockVector3.at(x, y, z);
+                    blockBiomes[indexBlockVecBasedArray(v)] = biomes[indexBiomeArray(v.add(min))];
+                }
+            }
+        }
+        biomes = null;
+    }
+
     @Nullable
     @Override
     public Operation commit() {
@@ -221,13 +357,32 @@ public Operation commit() {
      * Stores entity data.
      */
     private class ClipboardEntity extends StoredEntity {
-        ClipboardEntity(Location location, BaseEntity entity) {
+        private final BlockVector3 blockPosition;
+        private final long sequence;
+
+        ClipboardEntity(Location location, BaseEntity entity, long sequence) {
             super(location, entity);
+            this.blockPosition = location.toVector().toBlockPoint();
+            this.sequence = sequence;
+        }
+
+        private long getChunkKey() {
+            return BlockArrayClipboard.getChunkKey(blockPosition.x() >> 4, blockPosition.z() >> 4);
         }
 
         @Override
         public boolean remove() {
-            return entities.remove(this);
+            if (!entities.remove(this)) {
+                return false;
+            }
+            List<ClipboardEntity> chunkEntities = entitiesByChunk.get(getChunkKey());
+            if (chunkEntities != null) {
+                chunkEntities.remove(this);
+                if (chunkEntities.isEmpty()) {
+                    entitiesByChunk.remove(getChunkKey());
+                }
+            }
+            return true;
         }
 
         @Nullable
@@ -0,0 +1,292 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A clipboard that reads from a clipboard shared with others, until it is
+ * changed.
+ *
+ * <p>The first change to blocks, biomes or entities copies the shared
+ * clipboard into a private {@link BlockArrayClipboard}, which all reads and
+ * changes go to from then on. The shared clipboard is never changed. The
+ * origin is always private to this clipboard.</p>
+ *
+ * <p>Entities of the shared clipboard are handed out wrapped, so removing or
+ * moving one changes this clipboard's copy of it instead. Once copied, this
+ * clipboard no longer refers to the shared clipboard, so it can be dropped
+ * from any cache holding it.</p>
+ */
+public final class CopyOnWriteClipboard implements Clipboard {
+
+    @Nullable
+    private Clipboard shared;
+    @Nullable
+    private BlockArrayClipboard copy;
+    @Nullable
+    private Set<SharedEntity> sharedEntities = Collections.newSetFromMap(new WeakHashMap<>());
+    private BlockVector3 origin;
+
+    /**
+     * Create a new instance.
+     *
+     * @param shared the shared clipboard, which must not be changed
+     */
+    public CopyOnWriteClipboard(Clipboard shared) {
+        checkNotNull(shared);
+        this.shared = shared;
+        this.origin = shared.getOrigin();
+    }
+
+    /**
+     * Return whether this clipboard has been changed, and no longer reads
+     * from the shared clipboard.
+     *
+     * @return true if this clipboard has its own copy
+     */
+    public boolean isCopied() {
+        return copy != null;
+    }
+
+    private Clipboard getCurrent() {
+        return copy != null ? copy : checkNotNull(shared);
+    }
+
+    private BlockArrayClipboard getCopy() {
+        if (copy == null) {
+            Clipboard shared = checkNotNull(this.shared);
+            Region region = shared.getRegion();
+            BlockArrayClipboard newCopy = new BlockArrayClipboard(region);
+            boolean hasBiomes = shared.hasBiomes();
+            for (BlockVector3 position : region) {
+                newCopy.setBlock(position, shared.getFullBlock(position));
+                if (hasBiomes) {
+                    newCopy.setBiome(position, shared.getBiome(position));
+                }
+            }
+            Map<Entity, Entity> copiedEntities = new IdentityHashMap<>();
+            for (Entity entity : shared.getEntities()) {
+                BaseEntity state = entity.getState();
+                if (state != null) {
+                    Entity copied = newCopy.createEntity(entity.getLocation().setExtent(newCopy), state);
+                    if (copied != null) {
+                        copiedEntities.put(entity, copied);
+                    }
+                }
+            }
+            copy = newCopy;
+            // Point entities handed out so far at their copies, and let go of the shared clipboard
+            for (SharedEntity entity : checkNotNull(sharedEntities)) {
+                entity.setCopied(copiedEntities.get(entity.entity));
+            }
+            sharedEntities = null;
+            this.shared = null;
+        }
+        return copy;
+    }
+
+    @Override
+    public Region getRegion() {
+        return getCurrent().getRegion();
+    }
+
+    @Override
+    public BlockVector3 getDimensions() {
+        return getCurrent().getDimensions();
+    }
+
+    @Override
+    public BlockVector3 getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(BlockVector3 origin) {
+        checkNotNull(origin);
+        this.origin = origin;
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return getCurrent().getMinimumPoint();
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return getCurrent().getMaximumPoint();
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        return getCurrent().getBlock(position);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        return getCurrent().getFullBlock(position);
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
+        return getCopy().setBlock(position, block);
+    }
+
+    @Override
+    public boolean hasBiomes() {
+        return getCurrent().hasBiomes();
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector3 position) {
+        return getCurrent().getBiome(position);
+    }
+
+    @Override
+    public boolean setBiome(BlockVector3 position, BiomeType biome) {
+        return getCopy().setBiome(position, biome);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        if (copy != null) {
+            return copy.getEntities(region);
+        }
+        return wrapShared(checkNotNull(shared).getEntities(region));
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        if (copy != null) {
+            return copy.getEntities();
+        }
+        return wrapShared(checkNotNull(shared).getEntities());
+    }
+
+    private List<? extends Entity> wrapShared(List<? extends Entity> entities) {
+        List<Entity> wrapped = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            SharedEntity sharedEntity = new SharedEntity(entity);
+            checkNotNull(sharedEntities).add(sharedEntity);
+            wrapped.add(sharedEntity);
+        }
+        return Collections.unmodifiableList(wrapped);
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        return getCopy().createEntity(location, entity);
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    /**
+     * An entity of the shared clipboard, which is copied before it is changed.
+     */
+    private final class SharedEntity implements Entity {
+
+        private Entity entity;
+        private boolean copied;
+
+        SharedEntity(Entity entity) {
+            this.entity = entity;
+        }
+
+        /**
+         * Switch to the copy of the entity, once the shared clipboard is copied.
+         *
+         * @param copiedEntity the copied entity, or null if it couldn't be copied
+         */
+        void setCopied(@Nullable Entity copiedEntity) {
+            if (copiedEntity != null) {
+                entity = copiedEntity;
+                copied = true;
+            }
+        }
+
+        @Nullable
+        private Entity getCopied() {
+            getCopy();
+            return copied ? entity : null;
+        }
+
+        @Nullable
+        @Override
+        public BaseEntity getState() {
+            return entity.getState();
+        }
+
+        @Override
+        public boolean remove() {
+            Entity copied = getCopied();
+            return copied != null && copied.remove();
+        }
+
+        @Override
+        public Location getLocation() {
+            return entity.getLocation().setExtent(CopyOnWriteClipboard.this);
+        }
+
+        @Override
+        public boolean setLocation(Location location) {
+            Entity copied = getCopied();
+            return copied != null && copied.setLocation(location);
+        }
+
+        @Override
+        public Extent getExtent() {
+            return CopyOnWriteClipboard.this;
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return entity.getFacet(cls);
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
+import com.sk89q.worldedit.function.entity.ExtentEntityCopy;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.internal.helper.RotationNbtTransformer;
+import com.sk89q.worldedit.internal.util.AxisAlignedTransform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockTypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read-only view of a clipboard with an axis-aligned rotation or flip
+ * applied around its origin, which doesn't copy the blocks of the original.
+ *
+ * <p>Positions are mapped back to the original clipboard on every access,
+ * and blocks and biomes are read from it and transformed on the fly. Only
+ * entities are transformed up front.</p>
+ *
+ * <p>Blocks, biomes and entities can't be changed through the view. Setting
+ * them throws {@link UnsupportedOperationException}, and removing an entity
+ * does nothing. The origin can still be changed, and is not shared with the
+ * original clipboard.</p>
+ */
+public final class TransformedClipboard implements Clipboard {
+
+    /**
+     * Return whether a view can be created for the given transform.
+     *
+     * @param transform the transform
+     * @return true if the transform is an axis-aligned rotation or flip with an integer translation
+     */
+    public static boolean canTransform(Transform transform) {
+        return AxisAlignedTransform.of(transform) != null && AxisAlignedTransform.of(transform.inverse()) != null;
+    }
+
+    private final Clipboard original;
+    private final Transform transform;
+    private final AxisAlignedTransform toOriginal;
+    private final RotationNbtTransformer rotationTransformer;
+    private final CuboidRegion region;
+    private BlockVector3 origin;
+    private final List<TransformedEntity> entities = new ArrayList<>();
+
+    /**
+     * Create a new instance.
+     *
+     * @param original the original clipboard
+     * @param transform the transform, which must be {@linkplain #canTransform(Transform) supported}
+     * @throws WorldEditException if the entities of the clipboard can't be transformed
+     */
+    public TransformedClipboard(Clipboard original, Transform transform) throws WorldEditException {
+        checkNotNull(original);
+        checkNotNull(transform);
+        checkArgument(canTransform(transform), "transform must be an axis-aligned rotation or flip");
+        this.original = original;
+        this.transform = transform;
+        this.origin = original.getOrigin();
+
+        BlockVector3 pivot = original.getOrigin();
+        AxisAlignedTransform fromOriginal = checkNotNull(AxisAlignedTransform.of(transform)).withOffsets(pivot, pivot);
+        this.toOriginal = checkNotNull(AxisAlignedTransform.of(transform.inverse())).withOffsets(pivot, pivot);
+        this.rotationTransformer = new RotationNbtTransformer(transform);
+        BlockVector3 first = fromOriginal.apply(original.getMinimumPoint());
+        BlockVector3 second = fromOriginal.apply(original.getMaximumPoint());
+        this.region = new CuboidRegion(first.getMinimum(second), first.getMaximum(second));
+
+        Extent entityTarget = new AbstractDelegateExtent(this) {
+            @Override
+            public Entity createEntity(Location location, BaseEntity entity) {
+                TransformedEntity transformed = new TransformedEntity(location.setExtent(TransformedClipboard.this), entity);
+                entities.add(transformed);
+                return transformed;
+            }
+        };
+        ExtentEntityCopy entityCopy = new ExtentEntityCopy(pivot.toVector3(), entityTarget, pivot.toVector3(), transform);
+        for (Entity entity : original.getEntities(original.getRegion())) {
+            entityCopy.apply(entity);
+        }
+    }
+
+    @Override
+    public Region getRegion() {
+        return region.clone();
+    }
+
+    @Override
+    public BlockVector3 getDimensions() {
+        return region.getMaximumPoint().subtract(region.getMinimumPoint()).add(1, 1, 1);
+    }
+
+    @Override
+    public BlockVector3 getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(BlockVector3 origin) {
+        this.origin = origin;
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return region.getMinimumPoint();
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return region.getMaximumPoint();
+    }
+
+    private boolean contains(BlockVector3 position) {
+        return position.containedWithin(region.getMinimumPoint(), region.getMaximumPoint());
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        if (!contains(position)) {
+            return BlockTypes.AIR.getDefaultState();
+        }
+        return BlockTransformExtent.transform(original.getBlock(toOriginal.apply(position)), transform);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        if (!contains(position)) {
+            return BlockTypes.AIR.getDefaultState().toBaseBlock();
+        }
+        BaseBlock block = BlockTransformExtent.transform(original.getFullBlock(toOriginal.apply(position)), transform);
+        return rotationTransformer.transform(block);
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+        throw new UnsupportedOperationException("Blocks can't be set in a transformed clipboard view");
+    }
+
+    @Override
+    public boolean hasBiomes() {
+        return original.hasBiomes();
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector3 position) {
+        if (!contains(position)) {
+            return BiomeTypes.OCEAN;
+        }
+        return original.getBiome(toOriginal.apply(position));
+    }
+
+    @Override
+    public boolean setBiome(BlockVector3 position, BiomeType biome) {
+        throw new UnsupportedOperationException("Biomes can't be set in a transformed clipboard view");
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        List<Entity> filtered = new ArrayList<>();
+        for (TransformedEntity entity : entities) {
+            if (region.contains(entity.getLocation().toVector().toBlockPoint())) {
+                filtered.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(filtered);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        throw new UnsupportedOperationException("Entities can't be created in a transformed clipboard view");
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    /**
+     * An entity of the original clipboard, transformed.
+     */
+    private static class TransformedEntity extends StoredEntity {
+        TransformedEntity(Location location, BaseEntity entity) {
+            super(location, entity);
+        }
+
+        @Override
+        public boolean remove() {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return null;
+        }
+    }
+
+}
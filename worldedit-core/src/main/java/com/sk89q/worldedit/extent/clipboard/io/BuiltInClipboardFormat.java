@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.extent.clipboard.io.sponge.SpongeSchematicV2Writer;
 import com.sk89q.worldedit.extent.clipboard.io.sponge.SpongeSchematicV3Reader;
 import com.sk89q.worldedit.extent.clipboard.io.sponge.SpongeSchematicV3Writer;
+import com.sk89q.worldedit.util.io.ZlibPools;
 import org.enginehub.linbus.stream.LinBinaryIO;
 import org.enginehub.linbus.stream.LinReadOptions;
 import org.enginehub.linbus.tree.LinCompoundTag;
@@ -38,8 +39,6 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * A collection of supported clipboard formats.
@@ -59,7 +58,7 @@ public String getPrimaryFileExtension() {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
             return new MCEditSchematicReader(LinBinaryIO.read(
-                new DataInputStream(new GZIPInputStream(inputStream)),
+                new DataInputStream(ZlibPools.gzipInputStream(inputStream)),
                 LEGACY_OPTIONS
             ));
         }
@@ -73,7 +72,7 @@ public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
         public boolean isFormat(InputStream inputStream) {
             LinRootEntry rootEntry;
             try {
-                DataInputStream stream = new DataInputStream(new GZIPInputStream(inputStream));
+                DataInputStream stream = new DataInputStream(ZlibPools.gzipInputStream(inputStream));
                 rootEntry = LinBinaryIO.readUsing(stream, LEGACY_OPTIONS, LinRootEntry::readFrom);
             } catch (Exception e) {
                 return false;
@@ -94,7 +93,7 @@ public String getPrimaryFileExtension() {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
             return new SpongeSchematicV1Reader(LinBinaryIO.read(
-                new DataInputStream(new GZIPInputStream(inputStream)), LEGACY_OPTIONS
+                new DataInputStream(ZlibPools.gzipInputStream(inputStream)), LEGACY_OPTIONS
             ));
         }
 
@@ -118,13 +117,13 @@ public String getPrimaryFileExtension() {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
             return new SpongeSchematicV2Reader(LinBinaryIO.read(
-                new DataInputStream(new GZIPInputStream(inputStream)), LEGACY_OPTIONS
+                new DataInputStream(ZlibPools.gzipInputStream(inputStream)), LEGACY_OPTIONS
             ));
         }
 
         @Override
         public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
-            return new SpongeSchematicV2Writer(new DataOutputStream(new GZIPOutputStream(outputStream)));
+            return new SpongeSchematicV2Writer(new DataOutputStream(ZlibPools.gzipOutputStream(outputStream)));
         }
 
         @Override
@@ -142,20 +141,20 @@ public String getPrimaryFileExtension() {
         @Override
         public ClipboardReader getReader(InputStream inputStream) throws IOException {
             return new SpongeSchematicV3Reader(LinBinaryIO.read(
-                new DataInputStream(new GZIPInputStream(inputStream))
+                new DataInputStream(ZlibPools.gzipInputStream(inputStream))
             ));
         }
 
         @Override
         public ClipboardWriter getWriter(OutputStream outputStream) throws IOException {
-            return new SpongeSchematicV3Writer(new DataOutputStream(new GZIPOutputStream(outputStream)));
+            return new SpongeSchematicV3Writer(new DataOutputStream(ZlibPools.gzipOutputStream(outputStream)));
         }
 
         @Override
         public boolean isFormat(InputStream inputStream) {
             LinCompoundTag root;
             try {
-                DataInputStream stream = new DataInputStream(new GZIPInputStream(inputStream));
+                DataInputStream stream = new DataInputStream(ZlibPools.gzipInputStream(inputStream));
                 root = LinBinaryIO.readUsing(stream, LinRootEntry::readFrom).value();
             } catch (Exception e) {
                 return false;
@@ -176,7 +175,7 @@ public boolean isFormat(InputStream inputStream) {
     private static boolean detectOldSpongeSchematic(InputStream inputStream, int version) {
         LinRootEntry rootEntry;
         try {
-            DataInputStream stream = new DataInputStream(new GZIPInputStream(inputStream));
+            DataInputStream stream = new DataInputStream(ZlibPools.gzipInputStream(inputStream));
             rootEntry = LinBinaryIO.readUsing(stream, LEGACY_OPTIONS, LinRootEntry::readFrom);
         } catch (Exception e) {
             return false;
@@ -0,0 +1,94 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.CopyOnWriteClipboard;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A cache of clipboards loaded from files, shared by everyone who loads the
+ * same file.
+ *
+ * <p>Clipboards are keyed by the real path of the file, its modification
+ * time and size, and the format it is read with, so a changed file is read
+ * again. Every load returns a new {@link CopyOnWriteClipboard} over the
+ * shared clipboard, so changes by one holder are not seen by others. Shared
+ * clipboards are only weakly held, and are dropped once no clipboard reads
+ * from them anymore.</p>
+ *
+ * <p>Concurrent loads of the same file wait for a single read.</p>
+ */
+public final class SharedClipboardCache {
+
+    private record Key(Path path, FileTime modified, long size, ClipboardFormat format) {
+    }
+
+    private final Cache<Key, Clipboard> clipboards = CacheBuilder.newBuilder()
+        .weakValues()
+        .build();
+
+    /**
+     * Load a clipboard from a file, or share an already loaded one.
+     *
+     * @param path the file
+     * @param format the format of the file
+     * @return a clipboard private to the caller
+     * @throws IOException if the file can't be read
+     */
+    public Clipboard load(Path path, ClipboardFormat format) throws IOException {
+        checkNotNull(path);
+        checkNotNull(format);
+        Path realPath = path.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+        Key key = new Key(realPath, attributes.lastModifiedTime(), attributes.size(), format);
+        Clipboard shared;
+        try {
+            shared = clipboards.get(key, () -> read(realPath, format));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to read " + realPath, e.getCause());
+        }
+        return new CopyOnWriteClipboard(shared);
+    }
+
+    private static Clipboard read(Path path, ClipboardFormat format) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path));
+             ClipboardReader reader = format.getReader(stream)) {
+            return reader.read();
+        }
+    }
+
+}
@@ -222,6 +222,7 @@ static void readEntities(BlockArrayClipboard clipboard, List<? extends LinCompou
             String id = entityTag.getTag("Id", LinTagType.stringTag()).value();
             LinCompoundTag.Builder values = extractData(positionIsRelative, entityTag);
             LinCompoundTag dataTag = values.putString("id", id).build();
+            // Fixed up before the rotation is read, as fixes for old data versions may change it
             dataTag = fixer.fixUp(DataFixer.FixTypes.ENTITY, dataTag);
 
             EntityType entityType = EntityTypes.get(id);
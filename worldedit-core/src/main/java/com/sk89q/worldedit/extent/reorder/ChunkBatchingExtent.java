@@ -22,27 +22,35 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.buffer.internal.PackedBlockBuffer;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.util.collection.BlockMap;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
-import java.util.ArrayList;
-import java.util.List;
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A special extent that batches changes into Minecraft chunks. This helps
  * improve the speed of setting the blocks, since chunks do not need to be
  * loaded repeatedly, however it does take more memory due to caching the
  * blocks.
+ *
+ * <p>Once more than {@link #getFlushThreshold()} blocks are buffered, the
+ * blocks of every chunk but the one last edited are set early, to bound
+ * that memory.</p>
  */
 public class ChunkBatchingExtent extends AbstractBufferingExtent {
 
-    private final BlockMap<BaseBlock> blockMap = BlockMap.createForBaseBlock();
+    /**
+     * The default number of buffered blocks after which completed chunks are set.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 1 << 20;
+
+    private final PackedBlockBuffer buffer = new PackedBlockBuffer();
     private boolean enabled;
+    private int flushThreshold = DEFAULT_FLUSH_THRESHOLD;
 
     public ChunkBatchingExtent(Extent extent) {
         this(extent, true);
@@ -53,6 +61,27 @@ public ChunkBatchingExtent(Extent extent, boolean enabled) {
         this.enabled = enabled;
     }
 
+    /**
+     * Get the number of buffered blocks after which the blocks of completed
+     * chunks are set, before the commit.
+     *
+     * @return the flush threshold
+     */
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    /**
+     * Set the number of buffered blocks after which the blocks of completed
+     * chunks are set, before the commit.
+     *
+     * @param flushThreshold the flush threshold, or {@link Integer#MAX_VALUE} to hold every block until the commit
+     */
+    public void setFlushThreshold(int flushThreshold) {
+        checkArgument(flushThreshold > 0, "flushThreshold must be positive");
+        this.flushThreshold = flushThreshold;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -70,7 +99,13 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
         if (!enabled) {
             return setDelegateBlock(location, block);
         }
-        blockMap.put(location, block.toBaseBlock());
+        if (!PackedBlockBuffer.canBuffer(location)) {
+            return setDelegateBlock(location, block);
+        }
+        buffer.put(location, block.toBaseBlock());
+        if (buffer.size() > flushThreshold) {
+            buffer.flushCompletedChunks(this::setDelegateBlock);
+        }
         return true;
     }
 
@@ -80,7 +115,7 @@ protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
             // Early exit if we're not enabled.
             return null;
         }
-        return blockMap.get(position);
+        return buffer.get(position);
     }
 
     @Override
@@ -92,13 +127,7 @@ protected Operation commitBefore() {
 
             @Override
             public Operation resume(RunContext run) throws WorldEditException {
-                List<BlockVector3> blockVectors = new ArrayList<>(blockMap.keySet());
-                RegionOptimizedVectorSorter.sort(blockVectors);
-                for (BlockVector3 position : blockVectors) {
-                    BaseBlock block = blockMap.get(position);
-                    getExtent().setBlock(position, block);
-                }
-                blockMap.clear();
+                buffer.flush(getExtent()::setBlock);
                 return null;
             }
 
@@ -22,11 +22,13 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.buffer.internal.PackedBlockBuffer;
 import com.sk89q.worldedit.extent.world.SideEffectExtent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.function.operation.SetBlockMap;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.collection.BlockMap;
 import com.sk89q.worldedit.world.block.BaseBlock;
@@ -38,13 +40,23 @@
 import com.sk89q.worldedit.world.block.BlockTypes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Re-orders blocks into several stages.
  *
+ * <p>When more than {@link #getFlushThreshold()} blocks have been staged
+ * in the clearing stages and the {@link PlacementPriority#FIRST} stage,
+ * those stages are set in chunk order right away, since they are always set
+ * before the later stages. Only the later stages are held until the
+ * commit.</p>
+ *
  * @deprecated Use {@link SideEffectExtent} with {@link SideEffectExtent#setPostEditSimulationEnabled} instead.
  */
 @Deprecated
@@ -155,9 +167,21 @@ public class MultiStageReorder extends AbstractBufferingExtent implements Reorde
         priorityMap.put(BlockTypes.MOVING_PISTON, PlacementPriority.FINAL);
     }
 
-    private final Map<PlacementPriority, BlockMap<BaseBlock>> stages = new HashMap<>();
+    /**
+     * The default number of blocks staged in the early stages after which they are set.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 1 << 20;
+
+    private static final PlacementPriority[] PRIORITIES = PlacementPriority.values();
+
+    private final Map<BlockType, PlacementPriority> priorities;
+    private final Map<PlacementPriority, BlockMap<BaseBlock>> stages = new EnumMap<>(PlacementPriority.class);
+    // The priority of each block state by internal ID, filled in as states are seen
+    private PlacementPriority[] priorityById = new PlacementPriority[0];
 
     private boolean enabled;
+    private int flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+    private int stagedCount;
 
     public enum PlacementPriority {
         CLEAR_FINAL,
@@ -185,14 +209,47 @@ public MultiStageReorder(Extent extent) {
      * @param enabled true to enable
      */
     public MultiStageReorder(Extent extent, boolean enabled) {
+        this(extent, enabled, priorityMap);
+    }
+
+    /**
+     * Create a new instance with the given priorities of block types.
+     *
+     * @param extent the extent
+     * @param enabled true to enable
+     * @param priorities the priorities of block types that aren't {@link PlacementPriority#FIRST}
+     */
+    MultiStageReorder(Extent extent, boolean enabled, Map<BlockType, PlacementPriority> priorities) {
         super(extent);
         this.enabled = enabled;
+        this.priorities = priorities;
 
-        for (PlacementPriority priority : PlacementPriority.values()) {
+        for (PlacementPriority priority : PRIORITIES) {
             stages.put(priority, BlockMap.createForBaseBlock());
         }
     }
 
+    /**
+     * Get the number of blocks staged in the clearing stages and the first
+     * stage after which they are set, before the commit.
+     *
+     * @return the flush threshold
+     */
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    /**
+     * Set the number of blocks staged in the clearing stages and the first
+     * stage after which they are set, before the commit.
+     *
+     * @param flushThreshold the flush threshold, or {@link Integer#MAX_VALUE} to hold every block until the commit
+     */
+    public void setFlushThreshold(int flushThreshold) {
+        checkArgument(flushThreshold > 0, "flushThreshold must be positive");
+        this.flushThreshold = flushThreshold;
+    }
+
     /**
      * Return whether re-ordering is enabled.
      *
@@ -222,7 +279,58 @@ public boolean commitRequired() {
      * @return The priority
      */
     private <B extends BlockStateHolder<B>> PlacementPriority getPlacementPriority(B block) {
-        return priorityMap.getOrDefault(block.getBlockType(), PlacementPriority.FIRST);
+        BlockState state = block.toImmutableState();
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (id < 0) {
+            return priorities.getOrDefault(block.getBlockType(), PlacementPriority.FIRST);
+        }
+        if (id < priorityById.length) {
+            PlacementPriority priority = priorityById[id];
+            if (priority != null) {
+                return priority;
+            }
+        } else {
+            priorityById = Arrays.copyOf(priorityById, Math.max(id + 1, priorityById.length * 2));
+        }
+        PlacementPriority priority = priorities.getOrDefault(block.getBlockType(), PlacementPriority.FIRST);
+        priorityById[id] = priority;
+        return priority;
+    }
+
+    /**
+     * Stage a block, and set the early stages if they have grown past the
+     * flush threshold.
+     */
+    private void stage(PlacementPriority priority, BlockVector3 location, BaseBlock block) throws WorldEditException {
+        // Overwriting a staged block doesn't grow the stage
+        if (stages.get(priority).put(location, block) == null
+            && priority.compareTo(PlacementPriority.FIRST) <= 0 && ++stagedCount > flushThreshold) {
+            flushEarlyStages();
+        }
+    }
+
+    /**
+     * Set the clearing stages and the first stage, which are always set
+     * before the other stages.
+     */
+    private void flushEarlyStages() throws WorldEditException {
+        for (PlacementPriority priority : PRIORITIES) {
+            if (priority.compareTo(PlacementPriority.FIRST) > 0) {
+                break;
+            }
+            BlockMap<BaseBlock> blocks = stages.get(priority);
+            PackedBlockBuffer buffer = new PackedBlockBuffer();
+            for (Map.Entry<BlockVector3, BaseBlock> entry : blocks.entrySet()) {
+                if (PackedBlockBuffer.canBuffer(entry.getKey())) {
+                    buffer.put(entry.getKey(), entry.getValue());
+                } else {
+                    setDelegateBlock(entry.getKey(), entry.getValue());
+                }
+            }
+            buffer.flush(this::setDelegateBlock);
+            blocks.clear();
+        }
+        stagedCount = 0;
     }
 
     @Override
@@ -238,14 +346,14 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
         if (srcPriority != PlacementPriority.FIRST) {
             BaseBlock replacement = (block.getBlockType().getMaterial().isAir() ? block : BlockTypes.AIR.getDefaultState()).toBaseBlock();
 
-            BlockMap<BaseBlock> stage = switch (srcPriority) {
-                case FINAL -> stages.get(PlacementPriority.CLEAR_FINAL);
-                case LATE -> stages.get(PlacementPriority.CLEAR_LATE);
-                case LAST -> stages.get(PlacementPriority.CLEAR_LAST);
+            PlacementPriority stage = switch (srcPriority) {
+                case FINAL -> PlacementPriority.CLEAR_FINAL;
+                case LATE -> PlacementPriority.CLEAR_LATE;
+                case LAST -> PlacementPriority.CLEAR_LAST;
                 default -> null;
             };
             if (stage != null) {
-                stage.put(location, replacement);
+                stage(stage, location, replacement);
             }
 
             if (block.getBlockType().getMaterial().isAir()) {
@@ -253,7 +361,7 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
             }
         }
 
-        stages.get(priority).put(location, block.toBaseBlock());
+        stage(priority, location, block.toBaseBlock());
         return !existing.equalsFuzzy(block);
     }
 
@@ -277,8 +385,9 @@ public Operation commitBefore() {
         if (!commitRequired()) {
             return null;
         }
+        stagedCount = 0;
         List<Operation> operations = new ArrayList<>();
-        for (PlacementPriority priority : PlacementPriority.values()) {
+        for (PlacementPriority priority : PRIORITIES) {
             BlockMap<BaseBlock> blocks = stages.get(priority);
             operations.add(new SetBlockMap(getExtent(), blocks) {
                 @Override
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.block.BlockStateTransformCache;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.math.transform.AffineTransform;
@@ -56,6 +57,8 @@
 public class BlockTransformExtent extends AbstractDelegateExtent {
 
     private final Transform transform;
+    @Nullable
+    private Transform inverse;
 
     /**
      * Create a new instance.
@@ -85,7 +88,13 @@ public Transform getTransform() {
      * @return the same block
      */
     private <T extends BlockStateHolder<T>> T transformBlock(T block, boolean reverse) {
-        return transform(block, reverse ? transform.inverse() : transform);
+        if (reverse) {
+            if (inverse == null) {
+                inverse = transform.inverse();
+            }
+            return transform(block, inverse);
+        }
+        return transform(block, transform);
     }
 
     @Override
@@ -110,10 +119,14 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
      *
      * <p>The provided block is <em>not</em> modified.</p>
      *
+     * <p>Block states transformed by an axis-aligned rotation or flip are
+     * cached, so that repeated transforms are a single table lookup.</p>
+     *
      * @param block the block
      * @param transform the transform
      * @return the same block
      */
+    @SuppressWarnings("unchecked")
     public static <B extends BlockStateHolder<B>> B transform(B block, Transform transform) {
         checkNotNull(block);
         checkNotNull(transform);
@@ -122,6 +135,25 @@ public static <B extends BlockStateHolder<B>> B transform(B block, Transform tra
             return block;
         }
 
+        if (block instanceof BlockState state) {
+            BlockState cached = BlockStateTransformCache.computeIfAbsent(state, transform,
+                s -> transformProperties(s, transform));
+            if (cached != null) {
+                return (B) cached;
+            }
+        } else if (block instanceof BaseBlock baseBlock) {
+            BlockState state = baseBlock.toImmutableState();
+            BlockState cached = BlockStateTransformCache.computeIfAbsent(state, transform,
+                s -> transformProperties(s, transform));
+            if (cached != null) {
+                return cached == state ? block : (B) cached.toBaseBlock(baseBlock.getNbtReference());
+            }
+        }
+
+        return transformProperties(block, transform);
+    }
+
+    private static <B extends BlockStateHolder<B>> B transformProperties(B block, Transform transform) {
         B result = block;
         List<? extends Property<?>> properties = block.getBlockType().getProperties();
 
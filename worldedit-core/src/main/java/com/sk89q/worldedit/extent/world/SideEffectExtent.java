@@ -32,8 +32,11 @@
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -45,13 +48,23 @@
 
 /**
  * An extent that sets blocks in the world, with a {@link SideEffectSet}.
+ *
+ * <p>Side effects that are {@link SideEffect.State#DELAYED delayed}, or all
+ * side effects when post-edit simulation is enabled, are applied when the
+ * extent is committed. The changed positions are grouped by chunk section,
+ * and each section is passed to
+ * {@link World#applySideEffects(Map, SideEffectSet)} at once.</p>
  */
 public class SideEffectExtent extends AbstractDelegateExtent {
 
     private final World world;
-    private final Map<BlockVector3, BlockState> positions = BlockMap.create();
+    private final Map<BlockVector3, DirtySection> dirtySections = new HashMap<>();
     private final Set<BlockVector2> dirtyBiomes = new HashSet<>();
     private SideEffectSet sideEffectSet = SideEffectSet.defaults();
+    // The side effects applied while setting blocks, and after the edit
+    private SideEffectSet immediateSideEffectSet = SideEffectSet.defaults();
+    private SideEffectSet delayedSideEffectSet = INTERNAL_NONE;
+    private boolean delaying;
     private boolean postEditSimulation;
 
     private static final SideEffectSet INTERNAL_NONE = new SideEffectSet(
@@ -76,6 +89,7 @@ public boolean isPostEditSimulationEnabled() {
 
     public void setPostEditSimulationEnabled(boolean enabled) {
         this.postEditSimulation = enabled;
+        updateSideEffectSets();
     }
 
     public SideEffectSet getSideEffectSet() {
@@ -84,15 +98,36 @@ public SideEffectSet getSideEffectSet() {
 
     public void setSideEffectSet(SideEffectSet sideEffectSet) {
         this.sideEffectSet = sideEffectSet;
+        updateSideEffectSets();
+    }
+
+    private void updateSideEffectSets() {
+        SideEffectSet immediate = postEditSimulation ? INTERNAL_NONE : sideEffectSet;
+        SideEffectSet delayed = postEditSimulation ? sideEffectSet : INTERNAL_NONE;
+        boolean delaying = postEditSimulation;
+        for (SideEffect effect : SideEffect.values()) {
+            if (!effect.isDelayable()) {
+                // These are not delayed themselves, but may change how the delayed ones are applied
+                delayed = delayed.with(effect, sideEffectSet.getState(effect));
+            } else if (sideEffectSet.getState(effect) == SideEffect.State.DELAYED) {
+                immediate = immediate.with(effect, SideEffect.State.OFF);
+                delayed = delayed.with(effect, SideEffect.State.ON);
+                delaying = true;
+            }
+        }
+        this.immediateSideEffectSet = immediate;
+        this.delayedSideEffectSet = delayed;
+        this.delaying = delaying;
     }
 
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
-        if (postEditSimulation) {
-            positions.put(location, world.getBlock(location));
+        if (delaying) {
+            BlockVector3 section = location.shr(4);
+            dirtySections.computeIfAbsent(section, DirtySection::new).put(location, world.getBlock(location));
         }
 
-        return world.setBlock(location, block, postEditSimulation ? INTERNAL_NONE : sideEffectSet);
+        return world.setBlock(location, block, immediateSideEffectSet);
     }
 
     @Override
@@ -102,7 +137,7 @@ public boolean setBiome(BlockVector3 position, BiomeType biome) {
     }
 
     public boolean commitRequired() {
-        return postEditSimulation || !dirtyBiomes.isEmpty();
+        return postEditSimulation || !dirtySections.isEmpty() || !dirtyBiomes.isEmpty();
     }
 
     @Override
@@ -117,18 +152,14 @@ public Operation resume(RunContext run) throws WorldEditException {
                     world.sendBiomeUpdates(dirtyBiomes);
                 }
 
-                if (postEditSimulation) {
-                    Iterator<Map.Entry<BlockVector3, BlockState>> positionIterator = positions.entrySet().iterator();
-                    while (run.shouldContinue() && positionIterator.hasNext()) {
-                        Map.Entry<BlockVector3, BlockState> position = positionIterator.next();
-                        world.applySideEffects(position.getKey(), position.getValue(), sideEffectSet);
-                        positionIterator.remove();
-                    }
-
-                    return !positions.isEmpty() ? this : null;
+                Iterator<DirtySection> sectionIterator = dirtySections.values().iterator();
+                while (run.shouldContinue() && sectionIterator.hasNext()) {
+                    DirtySection section = sectionIterator.next();
+                    world.applySideEffects(section.getPreviousTypes(), delayedSideEffectSet);
+                    sectionIterator.remove();
                 }
 
-                return null;
+                return !dirtySections.isEmpty() ? this : null;
             }
 
             @Override
@@ -136,4 +167,32 @@ public void cancel() {
             }
         };
     }
+
+    /**
+     * The previous types of the changed blocks in one chunk section.
+     */
+    private static final class DirtySection {
+
+        private final BlockVector3 origin;
+        // Index in section (x, z, y; 4 bits each) -> previous type
+        private final Short2ObjectMap<BlockState> previousTypes = new Short2ObjectOpenHashMap<>();
+
+        private DirtySection(BlockVector3 section) {
+            this.origin = section.shl(4);
+        }
+
+        void put(BlockVector3 position, BlockState previousType) {
+            short index = (short) ((position.x() & 15) | (position.z() & 15) << 4 | (position.y() & 15) << 8);
+            previousTypes.put(index, previousType);
+        }
+
+        Map<BlockVector3, BlockState> getPreviousTypes() {
+            Map<BlockVector3, BlockState> result = BlockMap.create();
+            for (Short2ObjectMap.Entry<BlockState> entry : previousTypes.short2ObjectEntrySet()) {
+                int index = entry.getShortKey();
+                result.put(origin.add(index & 15, index >> 8 & 15, index >> 4 & 15), entry.getValue());
+            }
+            return result;
+        }
+    }
 }
@@ -22,15 +22,13 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.RegionFunction;
-import com.sk89q.worldedit.internal.helper.MCDirections;
+import com.sk89q.worldedit.internal.helper.RotationNbtTransformer;
+import com.sk89q.worldedit.internal.util.AxisAlignedTransform;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.math.transform.Transform;
-import com.sk89q.worldedit.util.Direction;
-import com.sk89q.worldedit.util.Direction.Flag;
 import com.sk89q.worldedit.world.block.BaseBlock;
-import org.enginehub.linbus.tree.LinCompoundTag;
-import org.enginehub.linbus.tree.LinTag;
+
+import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -44,6 +42,10 @@ public class ExtentBlockCopy implements RegionFunction {
     private final BlockVector3 from;
     private final BlockVector3 to;
     private final Transform transform;
+    // The transform around the offsets, if it can be applied with integer arithmetic
+    @Nullable
+    private final AxisAlignedTransform integerTransform;
+    private final RotationNbtTransformer rotationTransformer;
 
     /**
      * Make a new copy.
@@ -65,54 +67,26 @@ public ExtentBlockCopy(Extent source, BlockVector3 from, Extent destination, Blo
         this.destination = destination;
         this.to = to;
         this.transform = transform;
+        AxisAlignedTransform axisAligned = AxisAlignedTransform.of(transform);
+        this.integerTransform = axisAligned == null ? null : axisAligned.withOffsets(from, to);
+        this.rotationTransformer = new RotationNbtTransformer(transform);
     }
 
     @Override
     public boolean apply(BlockVector3 position) throws WorldEditException {
         BaseBlock block = source.getFullBlock(position);
-        BlockVector3 orig = position.subtract(from);
-        BlockVector3 transformed = transform.apply(orig.toVector3()).toBlockPoint();
+        BlockVector3 destinationPosition;
+        if (integerTransform != null) {
+            destinationPosition = integerTransform.apply(position);
+        } else {
+            BlockVector3 orig = position.subtract(from);
+            destinationPosition = transform.apply(orig.toVector3()).toBlockPoint().add(to);
+        }
 
         // Apply transformations to NBT data if necessary
-        block = transformNbtData(block);
-
-        return destination.setBlock(transformed.add(to), block);
-    }
-
-    /**
-     * Transform NBT data in the given block state and return a new instance
-     * if the NBT data needs to be transformed.
-     *
-     * @param state the existing state
-     * @return a new state or the existing one
-     */
-    private BaseBlock transformNbtData(BaseBlock state) {
-        LinCompoundTag tag = state.getNbt();
-
-        if (tag != null) {
-            // Handle blocks which store their rotation in NBT
-            LinTag<?> rotTag = tag.value().get("Rot");
-            if (rotTag != null && rotTag.value() instanceof Number number) {
-                int rot = number.intValue();
-
-                Direction direction = MCDirections.fromRotation(rot);
-
-                if (direction != null) {
-                    Vector3 vector = transform.apply(direction.toVector()).subtract(transform.apply(Vector3.ZERO)).normalize();
-                    Direction newDirection = Direction.findClosest(vector, Flag.CARDINAL | Flag.ORDINAL | Flag.SECONDARY_ORDINAL);
-
-                    if (newDirection != null) {
-                        return state.toBaseBlock(
-                            tag.toBuilder()
-                                .putByte("Rot", (byte) MCDirections.toRotation(newDirection))
-                                .build()
-                        );
-                    }
-                }
-            }
-        }
+        block = rotationTransformer.transform(block);
 
-        return state;
+        return destination.setBlock(destinationPosition, block);
     }
 
 }
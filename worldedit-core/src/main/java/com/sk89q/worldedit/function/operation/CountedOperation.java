@@ -0,0 +1,54 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+
+/**
+ * An operation that counts the units of work it has done, such as visited
+ * blocks, so that its progress can be reported while it runs.
+ */
+public interface CountedOperation extends Operation, ProgressObservable {
+
+    /**
+     * Get the number of units of work done so far.
+     *
+     * @return the number of processed units
+     */
+    long getProcessedCount();
+
+    /**
+     * Get an estimate of the total number of units of work.
+     *
+     * @return the estimated total, or {@code -1} if it is not known
+     */
+    long getEstimatedCount();
+
+    @Override
+    default Progress getProgress() {
+        long estimate = getEstimatedCount();
+        if (estimate <= 0) {
+            return Progress.indeterminate();
+        }
+        return Progress.of(getProcessedCount() / (double) estimate);
+    }
+
+}
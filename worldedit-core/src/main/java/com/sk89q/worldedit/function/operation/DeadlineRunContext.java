@@ -0,0 +1,75 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A run that stops once a time budget is used up.
+ *
+ * <p>The clock is only read every {@value #CLOCK_CHECK_INTERVAL} calls to
+ * {@link #shouldContinue()}, so operations can check it for every block.
+ * Once the budget has run out, the context stays expired.</p>
+ */
+public class DeadlineRunContext extends RunContext {
+
+    /**
+     * The number of checks per clock read. Must be a power of two.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private final long deadline;
+    private int checks;
+    private boolean expired;
+
+    /**
+     * Create a new run that may take up to the given time from now.
+     *
+     * @param budgetNanos the time budget, in nanoseconds
+     */
+    public DeadlineRunContext(long budgetNanos) {
+        checkArgument(budgetNanos >= 0, "budgetNanos >= 0 required");
+        this.deadline = System.nanoTime() + budgetNanos;
+    }
+
+    @Override
+    public boolean shouldContinue() {
+        if (expired) {
+            return false;
+        }
+        if ((checks++ & (CLOCK_CHECK_INTERVAL - 1)) != 0) {
+            return true;
+        }
+        return !isExpired();
+    }
+
+    /**
+     * Return whether the time budget has been used up, reading the clock.
+     *
+     * @return true if the budget has been used up
+     */
+    public boolean isExpired() {
+        if (!expired && System.nanoTime() - deadline >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+}
@@ -25,6 +25,8 @@
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.entity.metadata.EntityProperties;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
 import com.sk89q.worldedit.function.CombinedRegionFunction;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.RegionMaskingFilter;
@@ -38,6 +40,7 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.transform.Identity;
 import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
@@ -55,8 +58,16 @@
  * <p>This is a forward extent copy, meaning that it iterates over the blocks
  * in the source extent, and will copy as many blocks as there are in the
  * source. Therefore, interpolation will not occur to fill in the gaps.</p>
+ *
+ * <p>Its progress is counted in blocks, over all repetitions.</p>
+ *
+ * <p>Untransformed copies of a cuboid between two
+ * {@link BlockArrayClipboard}s without a source function are copied one
+ * section of the destination at a time, rather than through a
+ * {@link RegionVisitor}. Biomes of cuboids
+ * copied with an axis-aligned transform are copied once per 4x4x4 cell.</p>
  */
-public class ForwardExtentCopy implements Operation {
+public class ForwardExtentCopy implements CountedOperation {
 
     private final Extent source;
     private final Extent destination;
@@ -73,12 +84,16 @@ public class ForwardExtentCopy implements Operation {
     private Transform currentTransform = null;
 
     private RegionVisitor lastVisitor;
+    private SectionedBlockCopy lastSectionedCopy;
     private RegionVisitor lastBiomeVisitor;
+    private QuartBiomeCopy lastQuartBiomeCopy;
     private EntityVisitor lastEntityVisitor;
 
     private int affectedBlocks;
     private int affectedBiomeCols;
     private int affectedEntities;
+    private long processedBlocks;
+    private int startedRepetitions;
 
     /**
      * Create a new copy using the region's lowest minimum point as the
@@ -262,16 +277,39 @@ public int getAffected() {
         return affectedBlocks + affectedBiomeCols + affectedEntities;
     }
 
+    @Override
+    public long getProcessedCount() {
+        RegionVisitor visitor = lastVisitor;
+        SectionedBlockCopy sectionedCopy = lastSectionedCopy;
+        return processedBlocks + (visitor != null ? visitor.getProcessedCount() : 0)
+            + (sectionedCopy != null ? sectionedCopy.getProcessedCount() : 0);
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return region.getVolume() * (startedRepetitions + repetitions);
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
         if (lastVisitor != null) {
             affectedBlocks += lastVisitor.getAffected();
+            processedBlocks += lastVisitor.getProcessedCount();
             lastVisitor = null;
         }
+        if (lastSectionedCopy != null) {
+            affectedBlocks += lastSectionedCopy.getAffected();
+            processedBlocks += lastSectionedCopy.getProcessedCount();
+            lastSectionedCopy = null;
+        }
         if (lastBiomeVisitor != null) {
             affectedBiomeCols += lastBiomeVisitor.getAffected();
             lastBiomeVisitor = null;
         }
+        if (lastQuartBiomeCopy != null) {
+            affectedBiomeCols += lastQuartBiomeCopy.getAffected();
+            lastQuartBiomeCopy = null;
+        }
         if (lastEntityVisitor != null) {
             affectedEntities += lastEntityVisitor.getAffected();
             lastEntityVisitor = null;
@@ -279,6 +317,7 @@ public Operation resume(RunContext run) throws WorldEditException {
 
         if (repetitions > 0) {
             repetitions--;
+            startedRepetitions++;
 
             if (currentTransform == null) {
                 currentTransform = transform;
@@ -286,27 +325,44 @@ public Operation resume(RunContext run) throws WorldEditException {
                 currentTransform = currentTransform.combine(transform);
             }
 
-            ExtentBlockCopy blockCopy = new ExtentBlockCopy(source, from, destination, to, currentTransform);
-            RegionMaskingFilter filteredFunction = new RegionMaskingFilter(sourceMask,
-                    sourceFunction == null ? blockCopy : new CombinedRegionFunction(blockCopy, sourceFunction));
-            RegionVisitor blockVisitor = new RegionVisitor(region, filteredFunction);
-
-            lastVisitor = blockVisitor;
+            Operation blockOperation;
+            if (canCopySections()) {
+                SectionedBlockCopy sectionedCopy = new SectionedBlockCopy(
+                        (BlockArrayClipboard) getUntransformedSource(), (CuboidRegion) region, from,
+                        (BlockArrayClipboard) destination, to, sourceMask);
+                lastSectionedCopy = sectionedCopy;
+                blockOperation = sectionedCopy;
+            } else {
+                ExtentBlockCopy blockCopy = new ExtentBlockCopy(source, from, destination, to, currentTransform);
+                RegionMaskingFilter filteredFunction = new RegionMaskingFilter(sourceMask,
+                        sourceFunction == null ? blockCopy : new CombinedRegionFunction(blockCopy, sourceFunction));
+                RegionVisitor blockVisitor = new RegionVisitor(region, filteredFunction);
+                lastVisitor = blockVisitor;
+                blockOperation = blockVisitor;
+            }
 
             if (!copyingBiomes && !copyingEntities) {
-                return new DelegateOperation(this, blockVisitor);
+                return new DelegateOperation(this, blockOperation);
             }
 
-            List<Operation> ops = Lists.newArrayList(blockVisitor);
+            List<Operation> ops = Lists.newArrayList(blockOperation);
 
             if (copyingBiomes) {
                 ExtentBiomeCopy biomeCopy = new ExtentBiomeCopy(source, from,
                         destination, to, currentTransform);
-                RegionFunction biomeFunction = sourceFunction == null ? biomeCopy
-                        : new RegionMaskingFilter(sourceMask, biomeCopy);
-                RegionVisitor biomeVisitor = new RegionVisitor(region, biomeFunction);
-                ops.add(biomeVisitor);
-                lastBiomeVisitor = biomeVisitor;
+                if (sourceFunction == null && region instanceof CuboidRegion cuboid
+                        && QuartBiomeCopy.canCopy(currentTransform)) {
+                    QuartBiomeCopy quartBiomeCopy = new QuartBiomeCopy(source, cuboid, from,
+                            destination, to, currentTransform, biomeCopy);
+                    ops.add(quartBiomeCopy);
+                    lastQuartBiomeCopy = quartBiomeCopy;
+                } else {
+                    RegionFunction biomeFunction = sourceFunction == null ? biomeCopy
+                            : new RegionMaskingFilter(sourceMask, biomeCopy);
+                    RegionVisitor biomeVisitor = new RegionVisitor(region, biomeFunction);
+                    ops.add(biomeVisitor);
+                    lastBiomeVisitor = biomeVisitor;
+                }
             }
 
             if (copyingEntities) {
@@ -328,6 +384,39 @@ public Operation resume(RunContext run) throws WorldEditException {
         }
     }
 
+    /**
+     * Return whether the blocks of this repetition can be copied a section
+     * at a time.
+     *
+     * <p>Copies within one extent are excluded, as the order in which
+     * overlapping blocks are copied would change.</p>
+     *
+     * @return true if sections can be copied
+     */
+    private boolean canCopySections() {
+        if (!currentTransform.isIdentity() || sourceFunction != null || !(region instanceof CuboidRegion)) {
+            return false;
+        }
+        // Other extents only have per-block access, so sections wouldn't copy any faster
+        Extent untransformedSource = getUntransformedSource();
+        return untransformedSource != destination
+            && untransformedSource instanceof BlockArrayClipboard && destination instanceof BlockArrayClipboard;
+    }
+
+    /**
+     * Get the source extent, without any {@link BlockTransformExtent}s that
+     * don't transform blocks.
+     *
+     * @return the source extent
+     */
+    private Extent getUntransformedSource() {
+        Extent extent = source;
+        while (extent instanceof BlockTransformExtent transformExtent && transformExtent.getTransform().isIdentity()) {
+            extent = transformExtent.getExtent();
+        }
+        return extent;
+    }
+
     @Override
     public void cancel() {
     }
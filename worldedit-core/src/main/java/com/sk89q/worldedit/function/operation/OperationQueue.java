@@ -34,8 +34,11 @@
 
 /**
  * Executes multiple queues in order.
+ *
+ * <p>The progress of the queue is the sum of the progress of its
+ * {@link CountedOperation}s.</p>
  */
-public class OperationQueue implements Operation {
+public class OperationQueue implements CountedOperation {
 
     private final List<Operation> operations;
     private final Deque<Operation> queue = new ArrayDeque<>();
@@ -79,6 +82,29 @@ public void offer(Operation operation) {
         operations.add(operation);
     }
 
+    @Override
+    public long getProcessedCount() {
+        long processed = 0;
+        for (Operation operation : operations) {
+            if (operation instanceof CountedOperation counted) {
+                processed += counted.getProcessedCount();
+            }
+        }
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        long estimate = 0;
+        for (Operation operation : operations) {
+            if (!(operation instanceof CountedOperation counted) || counted.getEstimatedCount() < 0) {
+                return -1;
+            }
+            estimate += counted.getEstimatedCount();
+        }
+        return estimate;
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
         if (current == null && !queue.isEmpty()) {
@@ -0,0 +1,233 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.extension.platform.Platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs operations a slice at a time on the server thread, so that large
+ * operations don't stall the server.
+ *
+ * <p>Every tick, the submitted operations take turns sharing a time budget.
+ * Each of them is resumed with a {@link DeadlineRunContext} for its share of
+ * the remaining budget, until it either completes or its share is used up.
+ * Operations that don't check {@link RunContext#shouldContinue()} still run
+ * to completion in one go.</p>
+ *
+ * <p>Operations can be submitted from any thread, but are only ever run from
+ * the thread calling {@link #tick()}. Until they complete, their tasks can be
+ * looked up by {@linkplain OperationTask#getId() ID}, to be paused or
+ * cancelled.</p>
+ */
+public class OperationScheduler {
+
+    private final Queue<OperationTask> submitted = new ConcurrentLinkedQueue<>();
+    private final List<OperationTask> running = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private volatile long budgetNanos;
+    @Nullable
+    private volatile Object ticker;
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param budget the time operations may take per tick
+     * @param unit the unit of {@code budget}
+     */
+    public OperationScheduler(long budget, TimeUnit unit) {
+        checkArgument(budget > 0, "budget > 0 required");
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Set the time operations may take per tick.
+     *
+     * @param budget the time budget
+     * @param unit the unit of {@code budget}
+     */
+    public void setBudget(long budget, TimeUnit unit) {
+        checkArgument(budget > 0, "budget > 0 required");
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Start running operations every tick of the given platform.
+     *
+     * <p>Ticks scheduled by an earlier call, or before {@link #stop()}, are
+     * ignored from then on.</p>
+     *
+     * @param platform the platform
+     * @return true if the platform supports scheduling tasks
+     */
+    public boolean start(Platform platform) {
+        Object token = new Object();
+        ticker = token;
+        if (platform.schedule(1, 1, () -> {
+            if (ticker == token) {
+                tick();
+            }
+        }) == -1) {
+            ticker = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop running operations, and cancel all operations that have not
+     * completed yet.
+     */
+    public synchronized void stop() {
+        ticker = null;
+        OperationTask task;
+        while ((task = submitted.poll()) != null) {
+            running.add(task);
+        }
+        for (OperationTask runningTask : running) {
+            runningTask.cancelOperation();
+        }
+        running.clear();
+    }
+
+    /**
+     * Return whether operations are being run on the ticks of a platform.
+     *
+     * @return true if submitted operations are run
+     */
+    public boolean isRunning() {
+        return ticker != null;
+    }
+
+    /**
+     * Submit an operation to be run over the next ticks.
+     *
+     * @param operation the operation
+     * @return a task that completes when the operation does
+     * @see #submit(Operation, String, Object, Consumer)
+     */
+    public OperationTask submit(Operation operation) {
+        return submit(operation, "Operation", null, null);
+    }
+
+    /**
+     * Submit an operation to be run over the next ticks.
+     *
+     * <p>Cancelling the returned task cancels the operation before the
+     * next slice is run. If the operation or {@code afterSlice} throws, the
+     * task fails with that exception.</p>
+     *
+     * @param operation the operation
+     * @param name the name of the task
+     * @param owner the owner of the task, or {@code null}
+     * @param afterSlice called after every slice of the operation, such as to flush its changes
+     * @return a task that completes when the operation does
+     */
+    public OperationTask submit(Operation operation, String name, @Nullable Object owner,
+                                @Nullable Consumer<OperationTask> afterSlice) {
+        OperationTask task = new OperationTask(nextId.getAndIncrement(), operation, name, owner, afterSlice);
+        submitted.add(task);
+        return task;
+    }
+
+    /**
+     * Get the tasks of all operations that have not completed yet.
+     *
+     * @return a list of tasks
+     */
+    public synchronized List<OperationTask> getTasks() {
+        List<OperationTask> tasks = new ArrayList<>(running);
+        tasks.addAll(submitted);
+        tasks.sort(Comparator.comparingInt(OperationTask::getId));
+        return tasks;
+    }
+
+    /**
+     * Get the task of an operation that has not completed yet.
+     *
+     * @param id the ID of the task
+     * @return the task, if there is one with that ID
+     */
+    public Optional<OperationTask> getTask(int id) {
+        return getTasks().stream().filter(task -> task.getId() == id).findFirst();
+    }
+
+    /**
+     * Get the number of operations that have not completed yet.
+     *
+     * @return the number of operations
+     */
+    public synchronized int getOperationCount() {
+        return running.size() + submitted.size();
+    }
+
+    /**
+     * Run a slice of every submitted operation. This is called every tick
+     * once {@link #start(Platform)} has been called.
+     */
+    public synchronized void tick() {
+        OperationTask task;
+        while ((task = submitted.poll()) != null) {
+            running.add(task);
+        }
+        if (running.isEmpty()) {
+            return;
+        }
+
+        int remaining = 0;
+        for (OperationTask runningTask : running) {
+            if (!runningTask.isPaused() || runningTask.isCancelled()) {
+                remaining++;
+            }
+        }
+
+        long end = System.nanoTime() + budgetNanos;
+        for (Iterator<OperationTask> it = running.iterator(); it.hasNext();) {
+            OperationTask runningTask = it.next();
+            if (runningTask.isPaused() && !runningTask.isCancelled()) {
+                continue;
+            }
+            long share = Math.max(0, (end - System.nanoTime()) / remaining--);
+            if (runningTask.runSlice(new DeadlineRunContext(share))) {
+                it.remove();
+            }
+        }
+
+        // Let the next operation go first next tick
+        if (running.size() > 1) {
+            Collections.rotate(running, -1);
+        }
+    }
+
+}
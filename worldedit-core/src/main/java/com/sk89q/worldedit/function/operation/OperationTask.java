@@ -0,0 +1,243 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.util.task.AbstractTask;
+import com.sk89q.worldedit.util.task.progress.Progress;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An operation that is run by an {@link OperationScheduler}.
+ *
+ * <p>Besides the progress of the operation, the task reports how fast a
+ * {@link CountedOperation} is going and when it is expected to finish.
+ * Cancelling the task cancels the operation before its next slice, and
+ * pausing it skips its slices until it is resumed. Either way, the changes
+ * made so far stay in place.</p>
+ */
+public final class OperationTask extends AbstractTask<Void> {
+
+    private final int id;
+    private final Operation operation;
+    @Nullable
+    private final Consumer<OperationTask> afterSlice;
+    @Nullable
+    private Operation current;
+    private volatile long startTime = -1;
+    private long pauseTime = -1;
+    private long pausedNanos;
+
+    OperationTask(int id, Operation operation, String name, @Nullable Object owner,
+                  @Nullable Consumer<OperationTask> afterSlice) {
+        super(name, owner);
+        checkNotNull(operation);
+        this.id = id;
+        this.operation = operation;
+        this.current = operation;
+        this.afterSlice = afterSlice;
+    }
+
+    /**
+     * Get the ID of this task, which is unique within its scheduler and
+     * short enough to be typed in commands.
+     *
+     * @return the ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the operation, as it was submitted.
+     *
+     * @return the operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public State getState() {
+        if (isCancelled()) {
+            return State.CANCELLED;
+        } else if (isDone()) {
+            try {
+                get();
+                return State.SUCCEEDED;
+            } catch (InterruptedException e) {
+                return State.CANCELLED;
+            } catch (ExecutionException e) {
+                return State.FAILED;
+            }
+        } else {
+            return startTime == -1 ? State.SCHEDULED : State.RUNNING;
+        }
+    }
+
+    @Override
+    public Progress getProgress() {
+        if (isDone() && !isCancelled()) {
+            return Progress.completed();
+        }
+        return operation instanceof CountedOperation counted ? counted.getProgress() : Progress.indeterminate();
+    }
+
+    /**
+     * Get the number of units of work the operation has done.
+     *
+     * @return the processed units, or {@code 0} if the operation doesn't count them
+     * @see CountedOperation#getProcessedCount()
+     */
+    public long getProcessedCount() {
+        return operation instanceof CountedOperation counted ? counted.getProcessedCount() : 0;
+    }
+
+    /**
+     * Get the estimated number of units of work of the operation.
+     *
+     * @return the estimated total, or {@code -1} if it is not known
+     * @see CountedOperation#getEstimatedCount()
+     */
+    public long getEstimatedCount() {
+        return operation instanceof CountedOperation counted ? counted.getEstimatedCount() : -1;
+    }
+
+    /**
+     * Pause or resume the operation. A paused operation keeps its place in
+     * the scheduler, but is not run until it is resumed.
+     *
+     * @param paused true to pause, false to resume
+     * @return true if the task was not already in that state
+     */
+    public synchronized boolean setPaused(boolean paused) {
+        if (paused == isPaused()) {
+            return false;
+        }
+        if (paused) {
+            pauseTime = System.nanoTime();
+        } else {
+            pausedNanos += System.nanoTime() - pauseTime;
+            pauseTime = -1;
+        }
+        return true;
+    }
+
+    /**
+     * Return whether the operation is paused.
+     *
+     * @return true if paused
+     */
+    public synchronized boolean isPaused() {
+        return pauseTime != -1;
+    }
+
+    /**
+     * Get the average number of units of work done per second while the
+     * operation was running, not counting the time it was paused.
+     *
+     * @return the throughput, or {@code 0} if the operation has not started
+     */
+    public double getThroughput() {
+        long start = startTime;
+        if (start == -1) {
+            return 0;
+        }
+        long elapsed = getRunningNanos(start);
+        return elapsed <= 0 ? 0 : getProcessedCount() * 1e9 / elapsed;
+    }
+
+    private synchronized long getRunningNanos(long start) {
+        long now = pauseTime != -1 ? pauseTime : System.nanoTime();
+        return now - start - pausedNanos;
+    }
+
+    /**
+     * Estimate the time until the operation completes, from its throughput
+     * so far.
+     *
+     * @return the remaining time, if it can be estimated
+     */
+    public Optional<Duration> getEstimatedTimeRemaining() {
+        long estimate = getEstimatedCount();
+        double throughput = getThroughput();
+        if (estimate < 0 || throughput <= 0) {
+            return Optional.empty();
+        }
+        long remaining = Math.max(0, estimate - getProcessedCount());
+        return Optional.of(Duration.ofMillis((long) (remaining * 1000 / throughput)));
+    }
+
+    /**
+     * Run a slice of the operation.
+     *
+     * @param run the run context of the slice
+     * @return true if the task is done
+     */
+    boolean runSlice(DeadlineRunContext run) {
+        if (isCancelled()) {
+            cancelOperation();
+            return true;
+        }
+        if (startTime == -1) {
+            start();
+        }
+        try {
+            do {
+                current = current.resume(run);
+            } while (current != null && !run.isExpired());
+            if (afterSlice != null) {
+                afterSlice.accept(this);
+            }
+        } catch (Throwable t) {
+            setException(t);
+            return true;
+        }
+        if (current == null) {
+            set(null);
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void start() {
+        startTime = System.nanoTime();
+        // time paused before the start doesn't count
+        pausedNanos = 0;
+    }
+
+    /**
+     * Cancel the operation, and then this task.
+     */
+    void cancelOperation() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+        cancel(false);
+    }
+
+}
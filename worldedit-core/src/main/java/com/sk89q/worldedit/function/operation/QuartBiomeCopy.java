@@ -0,0 +1,219 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.internal.util.AxisAlignedTransform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import com.sk89q.worldedit.world.biome.BiomeType;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Copies biomes at the resolution they are stored at, one position per
+ * 4x4x4 cell of the destination.
+ *
+ * <p>For each cell of the destination that the copy covers, the biome copy
+ * function is applied to a source position that is transformed into that
+ * cell. This requires a cuboid region and a transform that maps it to a
+ * cuboid, i.e. an axis-aligned rotation or flip with an integer
+ * translation.</p>
+ *
+ * <p>A cell is only copied from one position if all the source positions
+ * that map into it have the same biome, and the destination stores biomes
+ * per cell. Otherwise, such as when the source stores biomes per block or
+ * its cells don't line up with the destination's, the biome copy function is
+ * applied to each of them.</p>
+ */
+final class QuartBiomeCopy implements Operation {
+
+    private static final int CELL_SHIFT = 2;
+    private static final int CELL_MASK = (1 << CELL_SHIFT) - 1;
+
+    /**
+     * Return whether biomes can be copied per cell with the given transform.
+     *
+     * @param transform the transform applied to source positions
+     * @return true if biomes can be copied per cell
+     */
+    static boolean canCopy(Transform transform) {
+        return AxisAlignedTransform.of(transform) != null && AxisAlignedTransform.of(transform.inverse()) != null;
+    }
+
+    private final Extent source;
+    private final Extent destination;
+    private final RegionFunction biomeCopy;
+    private final AxisAlignedTransform inverse;
+    private final BlockVector3 min;
+    private final BlockVector3 max;
+
+    private int cellX;
+    private int cellY;
+    private int cellZ;
+    private int affected;
+
+    /**
+     * Create a new copy.
+     *
+     * @param source the source extent
+     * @param region the region of the source to copy
+     * @param from the source position
+     * @param destination the destination extent
+     * @param to the destination position
+     * @param transform the transform applied to source positions, which must be {@linkplain #canCopy(Transform) supported}
+     * @param biomeCopy the function that copies the biome of a source position
+     */
+    QuartBiomeCopy(Extent source, CuboidRegion region, BlockVector3 from, Extent destination, BlockVector3 to,
+                   Transform transform, RegionFunction biomeCopy) {
+        this.source = source;
+        this.destination = destination;
+        this.biomeCopy = biomeCopy;
+        AxisAlignedTransform forward = checkNotNull(AxisAlignedTransform.of(transform)).withOffsets(from, to);
+        this.inverse = checkNotNull(AxisAlignedTransform.of(transform.inverse())).withOffsets(to, from);
+        BlockVector3 first = forward.apply(region.getMinimumPoint());
+        BlockVector3 second = forward.apply(region.getMaximumPoint());
+        this.min = first.getMinimum(second);
+        this.max = first.getMaximum(second);
+        this.cellX = min.x() >> CELL_SHIFT;
+        this.cellY = min.y() >> CELL_SHIFT;
+        this.cellZ = min.z() >> CELL_SHIFT;
+    }
+
+    /**
+     * Get the number of affected cells.
+     *
+     * @return the number of affected cells
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        while (cellX <= max.x() >> CELL_SHIFT) {
+            BlockVector3 target = BlockVector3.at(
+                Math.max(min.x(), cellX << CELL_SHIFT),
+                Math.max(min.y(), cellY << CELL_SHIFT),
+                Math.max(min.z(), cellZ << CELL_SHIFT)
+            );
+            BlockVector3 targetMax = BlockVector3.at(
+                Math.min(max.x(), (cellX << CELL_SHIFT) | CELL_MASK),
+                Math.min(max.y(), (cellY << CELL_SHIFT) | CELL_MASK),
+                Math.min(max.z(), (cellZ << CELL_SHIFT) | CELL_MASK)
+            );
+            if (copyCell(inverse.apply(target), inverse.apply(targetMax))) {
+                affected++;
+            }
+
+            if (++cellY > max.y() >> CELL_SHIFT) {
+                cellY = min.y() >> CELL_SHIFT;
+                if (++cellZ > max.z() >> CELL_SHIFT) {
+                    cellZ = min.z() >> CELL_SHIFT;
+                    cellX++;
+                }
+            }
+
+            if (!run.shouldContinue() && cellX <= max.x() >> CELL_SHIFT) {
+                return this;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Copy the biomes of the source positions that map into one cell.
+     *
+     * @param first the source position of one corner of the cell
+     * @param second the source position of the opposite corner
+     * @return true if any biome was copied
+     */
+    private boolean copyCell(BlockVector3 first, BlockVector3 second) throws WorldEditException {
+        BlockVector3 cellMin = first.getMinimum(second);
+        BlockVector3 cellMax = first.getMaximum(second);
+        boolean copied = false;
+        if (destinationStoresCells() && isUniform(cellMin, cellMax)) {
+            copied = biomeCopy.apply(first);
+            // The destination may have switched to storing biomes per block, if the cell already had another biome
+            if (destinationStoresCells()) {
+                return copied;
+            }
+        }
+        for (int y = cellMin.y(); y <= cellMax.y(); y++) {
+            for (int z = cellMin.z(); z <= cellMax.z(); z++) {
+                for (int x = cellMin.x(); x <= cellMax.x(); x++) {
+                    copied |= biomeCopy.apply(BlockVector3.at(x, y, z));
+                }
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Return whether setting the biome of one position of the destination
+     * sets it for its whole cell, as in worlds.
+     *
+     * @return true if the destination stores biomes per cell
+     */
+    private boolean destinationStoresCells() {
+        if (destination instanceof BlockArrayClipboard clipboard) {
+            return !clipboard.storesBiomesPerBlock();
+        }
+        return !(destination instanceof Clipboard);
+    }
+
+    private boolean isUniform(BlockVector3 cellMin, BlockVector3 cellMax) {
+        BiomeType biome = source.getBiome(cellMin);
+        for (int y = cellMin.y(); y <= cellMax.y(); y++) {
+            for (int z = cellMin.z(); z <= cellMax.z(); z++) {
+                for (int x = cellMin.x(); x <= cellMax.x(); x++) {
+                    if (!biome.equals(source.getBiome(BlockVector3.at(x, y, z)))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public Iterable<Component> getStatusMessages() {
+        return ImmutableList.of(TranslatableComponent.of(
+                "worldedit.operation.affected.biome",
+                TextComponent.of(getAffected())
+        ).color(TextColor.LIGHT_PURPLE));
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Copies a cuboid of blocks between two {@link BlockArrayClipboard}s without
+ * a transform, one 16x16x16 section of the destination at a time.
+ *
+ * <p>Without a mask, whole rows of the clipboards' arrays are moved at once.
+ * With a mask, blocks are tested and set one at a time, in section order.</p>
+ *
+ * <p>The operation yields between sections when
+ * {@link RunContext#shouldContinue()} returns false.</p>
+ */
+final class SectionedBlockCopy implements CountedOperation {
+
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_MASK = (1 << SECTION_SHIFT) - 1;
+
+    private final BlockArrayClipboard source;
+    private final BlockArrayClipboard destination;
+    @Nullable
+    private final Mask mask;
+    private final BlockVector3 offset;
+    private final BlockVector3 min;
+    private final BlockVector3 max;
+    private final long volume;
+    private final boolean copyingRows;
+
+    private int sectionX;
+    private int sectionY;
+    private int sectionZ;
+    private int affected;
+    private long processed;
+
+    /**
+     * Create a new copy.
+     *
+     * @param source the source clipboard
+     * @param region the region of the source to copy
+     * @param from the source position
+     * @param destination the destination clipboard
+     * @param to the destination position
+     * @param mask the mask of source blocks to copy
+     */
+    SectionedBlockCopy(BlockArrayClipboard source, CuboidRegion region, BlockVector3 from,
+                       BlockArrayClipboard destination, BlockVector3 to, Mask mask) {
+        this.source = source;
+        this.destination = destination;
+        this.mask = mask == Masks.alwaysTrue() ? null : mask;
+        this.offset = to.subtract(from);
+        this.min = region.getMinimumPoint().add(offset);
+        this.max = region.getMaximumPoint().add(offset);
+        this.volume = region.getVolume();
+        this.copyingRows = this.mask == null;
+        this.sectionX = min.x() >> SECTION_SHIFT;
+        this.sectionY = min.y() >> SECTION_SHIFT;
+        this.sectionZ = min.z() >> SECTION_SHIFT;
+    }
+
+    /**
+     * Get the number of affected blocks.
+     *
+     * @return the number of affected blocks
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return volume;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        while (sectionX <= max.x() >> SECTION_SHIFT) {
+            copySection();
+
+            // Finish a column of sections before moving on to the next chunk
+            if (++sectionY > max.y() >> SECTION_SHIFT) {
+                sectionY = min.y() >> SECTION_SHIFT;
+                if (++sectionZ > max.z() >> SECTION_SHIFT) {
+                    sectionZ = min.z() >> SECTION_SHIFT;
+                    sectionX++;
+                }
+            }
+
+            if (!run.shouldContinue() && sectionX <= max.x() >> SECTION_SHIFT) {
+                return this;
+            }
+        }
+
+        return null;
+    }
+
+    private void copySection() throws WorldEditException {
+        int minX = Math.max(min.x(), sectionX << SECTION_SHIFT);
+        int minY = Math.max(min.y(), sectionY << SECTION_SHIFT);
+        int minZ = Math.max(min.z(), sectionZ << SECTION_SHIFT);
+        int maxX = Math.min(max.x(), (sectionX << SECTION_SHIFT) | SECTION_MASK);
+        int maxY = Math.min(max.y(), (sectionY << SECTION_SHIFT) | SECTION_MASK);
+        int maxZ = Math.min(max.z(), (sectionZ << SECTION_SHIFT) | SECTION_MASK);
+        int length = maxX - minX + 1;
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                BlockVector3 rowStart = BlockVector3.at(minX, y, z);
+                if (copyingRows && destination.copyRow(source, rowStart.subtract(offset), rowStart, length)) {
+                    affected += length;
+                    processed += length;
+                    continue;
+                }
+
+                for (int x = minX; x <= maxX; x++) {
+                    BlockVector3 target = BlockVector3.at(x, y, z);
+                    BlockVector3 position = target.subtract(offset);
+                    if ((mask == null || mask.test(position))
+                        && destination.setBlock(target, source.getFullBlock(position))) {
+                        affected++;
+                    }
+                    processed++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public Iterable<Component> getStatusMessages() {
+        return ImmutableList.of(TranslatableComponent.of(
+                "worldedit.operation.affected.block",
+                TextComponent.of(getAffected())
+        ).color(TextColor.LIGHT_PURPLE));
+    }
+
+}
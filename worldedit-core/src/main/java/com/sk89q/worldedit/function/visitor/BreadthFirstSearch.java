@@ -22,6 +22,7 @@
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.CountedOperation;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -52,13 +53,14 @@
  * functionality that starts at certain points and extends outward from
  * those points.</p>
  */
-public abstract class BreadthFirstSearch implements Operation {
+public abstract class BreadthFirstSearch implements CountedOperation {
 
     private final RegionFunction function;
     private final Queue<BlockVector3> queue = new ArrayDeque<>();
     private final Set<BlockVector3> visited = new HashSet<>();
     private final List<BlockVector3> directions = new ArrayList<>();
     private int affected = 0;
+    private long processed = 0;
 
     /**
      * Create a new instance.
@@ -165,6 +167,22 @@ public int getAffected() {
         return affected;
     }
 
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The extent of a search is not known until it is done, so this
+     * always returns {@code -1}.</p>
+     */
+    @Override
+    public long getEstimatedCount() {
+        return -1;
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
         BlockVector3 position;
@@ -173,10 +191,15 @@ public Operation resume(RunContext run) throws WorldEditException {
             if (function.apply(position)) {
                 affected++;
             }
+            processed++;
 
             for (BlockVector3 dir : directions) {
                 visit(position, position.add(dir));
             }
+
+            if (!run.shouldContinue() && !queue.isEmpty()) {
+                return this;
+            }
         }
 
         return null;
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.function.EntityFunction;
+import com.sk89q.worldedit.function.operation.CountedOperation;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.util.formatting.text.Component;
@@ -37,11 +38,12 @@
 /**
  * Visits entities as provided by an {@code Iterator}.
  */
-public class EntityVisitor implements Operation {
+public class EntityVisitor implements CountedOperation {
 
     private final Iterator<? extends Entity> iterator;
     private final EntityFunction function;
     private int affected = 0;
+    private long processed = 0;
 
     /**
      * Create a new instance.
@@ -65,12 +67,27 @@ public int getAffected() {
         return affected;
     }
 
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return -1;
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
         while (iterator.hasNext()) {
             if (function.apply(iterator.next())) {
                 affected++;
             }
+            processed++;
+
+            if (!run.shouldContinue() && iterator.hasNext()) {
+                return this;
+            }
         }
 
         return null;
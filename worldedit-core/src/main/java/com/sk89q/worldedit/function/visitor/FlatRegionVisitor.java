@@ -22,6 +22,7 @@
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.FlatRegionFunction;
+import com.sk89q.worldedit.function.operation.CountedOperation;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector2;
@@ -31,16 +32,22 @@
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
 
+import java.util.Iterator;
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Applies region functions to columns in a {@link FlatRegion}.
  */
-public class FlatRegionVisitor implements Operation {
+public class FlatRegionVisitor implements CountedOperation {
 
     private final FlatRegion flatRegion;
     private final FlatRegionFunction function;
+    @Nullable
+    private Iterator<BlockVector2> iterator;
     private int affected = 0;
+    private long processed = 0;
 
     /**
      * Create a new visitor.
@@ -65,12 +72,31 @@ public int getAffected() {
         return affected;
     }
 
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return (long) flatRegion.getWidth() * flatRegion.getLength();
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (BlockVector2 pt : flatRegion.asFlatRegion()) {
-            if (function.apply(pt)) {
+        if (iterator == null) {
+            iterator = flatRegion.asFlatRegion().iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+            processed++;
+
+            if (!run.shouldContinue() && iterator.hasNext()) {
+                return this;
+            }
         }
 
         return null;
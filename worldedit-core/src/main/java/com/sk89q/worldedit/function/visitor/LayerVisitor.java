@@ -23,12 +23,16 @@
 import com.sk89q.worldedit.function.LayerFunction;
 import com.sk89q.worldedit.function.mask.Mask2D;
 import com.sk89q.worldedit.function.mask.Masks;
+import com.sk89q.worldedit.function.operation.CountedOperation;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.FlatRegion;
 
+import java.util.Iterator;
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -40,13 +44,16 @@
  * maximum Y down to a minimum Y), and then applies a {@link LayerFunction} to
  * each layer.</p>
  */
-public class LayerVisitor implements Operation {
+public class LayerVisitor implements CountedOperation {
 
     private final FlatRegion flatRegion;
     private final LayerFunction function;
     private Mask2D mask = Masks.alwaysTrue2D();
     private final int minY;
     private final int maxY;
+    @Nullable
+    private Iterator<BlockVector2> iterator;
+    private long processed = 0;
 
     /**
      * Create a new visitor.
@@ -88,9 +95,29 @@ public void setMask(Mask2D mask) {
         this.mask = mask;
     }
 
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return (long) flatRegion.getWidth() * flatRegion.getLength();
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (BlockVector2 column : flatRegion.asFlatRegion()) {
+        if (iterator == null) {
+            iterator = flatRegion.asFlatRegion().iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (!run.shouldContinue()) {
+                return this;
+            }
+
+            BlockVector2 column = iterator.next();
+            processed++;
             if (!mask.test(column)) {
                 continue;
             }
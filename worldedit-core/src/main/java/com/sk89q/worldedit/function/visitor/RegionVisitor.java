@@ -22,6 +22,7 @@
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.CountedOperation;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -31,14 +32,23 @@
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
 
+import java.util.Iterator;
+import javax.annotation.Nullable;
+
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
+ *
+ * <p>The visitor stops early when {@link RunContext#shouldContinue()} returns
+ * false, and picks up where it left off when it is resumed again.</p>
  */
-public class RegionVisitor implements Operation {
+public class RegionVisitor implements CountedOperation {
 
     private final Region region;
     private final RegionFunction function;
+    @Nullable
+    private Iterator<BlockVector3> iterator;
     private int affected = 0;
+    private long processed = 0;
 
     public RegionVisitor(Region region, RegionFunction function) {
         this.region = region;
@@ -54,12 +64,31 @@ public int getAffected() {
         return affected;
     }
 
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return region.getVolume();
+    }
+
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (BlockVector3 pt : region) {
-            if (function.apply(pt)) {
+        if (iterator == null) {
+            iterator = region.iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+            processed++;
+
+            if (!run.shouldContinue() && iterator.hasNext()) {
+                return this;
+            }
         }
 
         return null;
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.internal.anvil;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
@@ -38,13 +39,20 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,6 +61,11 @@ public final class ChunkDeleter {
 
     public static final String DELCHUNKS_FILE_NAME = "delete_chunks.json";
     private static final Logger LOGGER = LogManagerCompat.getLogger();
+    /**
+     * Region files are independent of each other, so they are processed concurrently. This is
+     * mostly I/O, so there's little point going much wider than this.
+     */
+    private static final int MAX_REGION_THREADS = 4;
 
     private static final Comparator<BlockVector2> chunkSorter = Comparator.comparing(
         pos -> (pos.x() & 31) + (pos.z() & 31) * 32
@@ -85,7 +98,20 @@ public static void runFromFile(Path chunkFile, boolean deleteOnSuccess) {
         }
         LOGGER.info("Found chunk deletions. Proceeding with deletion...");
         long start = System.currentTimeMillis();
-        if (chunkDeleter.runDeleter()) {
+        boolean success;
+        ExecutorService regionExecutor = Executors.newFixedThreadPool(
+            Math.min(Runtime.getRuntime().availableProcessors(), MAX_REGION_THREADS),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("worldedit-chunk-deleter-%d")
+                .build()
+        );
+        try {
+            success = chunkDeleter.runDeleter(regionExecutor);
+        } finally {
+            regionExecutor.shutdownNow();
+        }
+        if (success) {
             LOGGER.info("Successfully deleted {} matching chunks (out of {}, taking {} ms).",
                     chunkDeleter.getDeletedChunkCount(), chunkDeleter.getDeletionsRequested(),
                     System.currentTimeMillis() - start);
@@ -119,40 +145,69 @@ private static ChunkDeleter createFromFile(Path chunkFile) throws IOException {
     }
 
     private final ChunkDeletionInfo chunkDeletionInfo;
-    private final Set<Path> backedUpRegions = new HashSet<>();
-    private boolean shouldPreload;
+    private final Set<Path> backedUpRegions = ConcurrentHashMap.newKeySet();
     private int debugRate = 100;
-    private int totalChunksDeleted = 0;
+    private final AtomicInteger totalChunksDeleted = new AtomicInteger();
     private int deletionsRequested = 0;
 
-    private boolean runDeleter() {
-        return chunkDeletionInfo.batches.stream().allMatch(this::runBatch);
+    private boolean runDeleter(ExecutorService regionExecutor) {
+        return chunkDeletionInfo.batches.stream().allMatch(batch -> runBatch(batch, regionExecutor));
     }
 
-    private boolean runBatch(ChunkDeletionInfo.ChunkBatch chunkBatch) {
+    private boolean runBatch(ChunkDeletionInfo.ChunkBatch chunkBatch, ExecutorService regionExecutor) {
         int chunkCount = chunkBatch.getChunkCount();
         LOGGER.debug("Processing deletion batch with {} chunks.", chunkCount);
         final Map<Path, Stream<BlockVector2>> regionToChunkList = groupChunks(chunkBatch);
         BiPredicate<RegionAccess, BlockVector2> predicate = createPredicates(chunkBatch.deletionPredicates);
-        shouldPreload = chunkBatch.chunks == null;
         deletionsRequested += chunkCount;
         debugRate = chunkCount / 10;
 
-        return regionToChunkList.entrySet().stream().allMatch(entry -> {
-            Path regionPath = entry.getKey();
-            if (!Files.exists(regionPath)) {
-                return true;
-            }
-            if (chunkBatch.backup && !backedUpRegions.contains(regionPath)) {
-                try {
-                    backupRegion(regionPath);
-                } catch (IOException e) {
-                    LOGGER.warn("Error backing up region file: " + regionPath + ". Aborting the process.", e);
+        // Each region file is only ever touched by one task, so they can run side by side.
+        // Once one of them fails, the ones that haven't started yet are skipped.
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Boolean>> results = new ArrayList<>(regionToChunkList.size());
+        for (Map.Entry<Path, Stream<BlockVector2>> entry : regionToChunkList.entrySet()) {
+            results.add(regionExecutor.submit(() -> {
+                if (failed.get()) {
                     return false;
                 }
+                boolean regionSuccess = processRegion(chunkBatch, entry.getKey(), entry.getValue(), predicate);
+                if (!regionSuccess) {
+                    failed.set(true);
+                }
+                return regionSuccess;
+            }));
+        }
+        boolean success = true;
+        for (Future<Boolean> result : results) {
+            try {
+                success &= result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while deleting chunks. Aborting the process.", e);
+                return false;
+            } catch (ExecutionException e) {
+                LOGGER.warn("Error deleting chunks. Aborting the process.", e.getCause());
+                success = false;
             }
-            return deleteChunks(regionPath, entry.getValue(), predicate);
-        });
+        }
+        return success;
+    }
+
+    private boolean processRegion(ChunkDeletionInfo.ChunkBatch chunkBatch, Path regionPath, Stream<BlockVector2> chunks,
+                                  BiPredicate<RegionAccess, BlockVector2> predicate) {
+        if (!Files.exists(regionPath)) {
+            return true;
+        }
+        if (chunkBatch.backup && backedUpRegions.add(regionPath)) {
+            try {
+                backupRegion(regionPath);
+            } catch (IOException e) {
+                LOGGER.warn("Error backing up region file: " + regionPath + ". Aborting the process.", e);
+                return false;
+            }
+        }
+        return deleteChunks(regionPath, chunks, predicate);
     }
 
     private Map<Path, Stream<BlockVector2>> groupChunks(ChunkDeletionInfo.ChunkBatch chunkBatch) {
@@ -246,12 +301,11 @@ private BiPredicate<RegionAccess, BlockVector2> createPredicate(ChunkDeletionInf
     private void backupRegion(Path regionFile) throws IOException {
         Path backupFile = regionFile.resolveSibling(regionFile.getFileName() + ".bak");
         Files.copy(regionFile, backupFile, StandardCopyOption.REPLACE_EXISTING);
-        backedUpRegions.add(backupFile);
     }
 
     private boolean deleteChunks(Path regionFile, Stream<BlockVector2> chunks,
                                  BiPredicate<RegionAccess, BlockVector2> deletionPredicate) {
-        try (RegionAccess region = new RegionAccess(regionFile, shouldPreload)) {
+        try (RegionAccess region = new RegionAccess(regionFile)) {
             for (Iterator<BlockVector2> iterator = chunks.iterator(); iterator.hasNext();) {
                 BlockVector2 chunk = iterator.next();
                 if (chunk == null) {
@@ -259,9 +313,9 @@ private boolean deleteChunks(Path regionFile, Stream<BlockVector2> chunks,
                 }
                 if (deletionPredicate.test(region, chunk)) {
                     region.deleteChunk(chunk);
-                    totalChunksDeleted++;
-                    if (debugRate != 0 && totalChunksDeleted % debugRate == 0) {
-                        LOGGER.debug("Deleted {} chunks so far.", totalChunksDeleted);
+                    int deleted = totalChunksDeleted.incrementAndGet();
+                    if (debugRate != 0 && deleted % debugRate == 0) {
+                        LOGGER.debug("Deleted {} chunks so far.", deleted);
                     }
                 } else {
                     LOGGER.debug("Chunk did not match predicates: " + chunk);
@@ -275,7 +329,7 @@ private boolean deleteChunks(Path regionFile, Stream<BlockVector2> chunks,
     }
 
     public int getDeletedChunkCount() {
-        return totalChunksDeleted;
+        return totalChunksDeleted.get();
     }
 
     public int getDeletionsRequested() {
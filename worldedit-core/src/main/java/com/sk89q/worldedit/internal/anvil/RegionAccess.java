@@ -21,38 +21,44 @@
 
 import com.sk89q.worldedit.math.BlockVector2;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Internal class. Subject to changes.
+ *
+ * <p>
+ * Only the 8 KiB location/timestamp header of the region file is touched. It is read into memory
+ * when the file is opened, and written back on close if any chunk was deleted.
+ * </p>
  */
 class RegionAccess implements AutoCloseable {
 
-    private final RandomAccessFile raf;
-    private int[] offsets;
-    private int[] timestamps;
-
-    RegionAccess(Path file) throws IOException {
-        this(file, false);
-    }
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_SIZE = SECTOR_SIZE * 2;
 
-    RegionAccess(Path file, boolean preload) throws IOException {
-        raf = new RandomAccessFile(file.toFile(), "rw");
-        if (preload) {
-            readHeaders();
-        }
-    }
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private boolean dirty;
 
-    private void readHeaders() throws IOException {
-        offsets = new int[1024];
-        timestamps = new int[1024];
-        for (int idx = 0; idx < 1024; ++idx) {
-            offsets[idx] = raf.readInt();
-        }
-        for (int idx = 0; idx < 1024; ++idx) {
-            timestamps[idx] = raf.readInt();
+    RegionAccess(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Region file is too small to contain a header: " + file);
+            }
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new EOFException("Region file ended inside its header: " + file);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
         }
     }
 
@@ -63,39 +69,34 @@ private static int indexChunk(BlockVector2 pos) {
     }
 
     int getModificationTime(BlockVector2 pos) throws IOException {
-        int idx = indexChunk(pos);
-        if (timestamps != null) {
-            return timestamps[idx];
-        }
-        raf.seek(idx * 4L + 4096);
-        return raf.readInt();
+        return header.getInt(SECTOR_SIZE + indexChunk(pos) * 4);
     }
 
     int getChunkSize(BlockVector2 pos) throws IOException {
-        int idx = indexChunk(pos);
-        if (offsets != null) {
-            return offsets[idx] & 0xFF;
-        }
-        raf.seek(idx * 4L);
-        // 3 bytes for offset
-        raf.read();
-        raf.read();
-        raf.read();
-        // one byte for size - note, yes, could do raf.readInt() & 0xFF but that does extra checks
-        return raf.read();
+        // 3 bytes for offset, one byte for size
+        return header.get(indexChunk(pos) * 4 + 3) & 0xFF;
     }
 
     void deleteChunk(BlockVector2 pos) throws IOException {
-        int idx = indexChunk(pos);
-        raf.seek(idx * 4L);
-        raf.writeInt(0);
-        if (offsets != null) {
-            offsets[idx] = 0;
+        int idx = indexChunk(pos) * 4;
+        if (header.getInt(idx) != 0) {
+            header.putInt(idx, 0);
+            dirty = true;
         }
     }
 
     @Override
     public void close() throws IOException {
-        raf.close();
+        try {
+            if (dirty) {
+                // Only the chunk locations change, so the timestamps don't need writing back
+                ByteBuffer locations = header.slice(0, SECTOR_SIZE);
+                while (locations.hasRemaining()) {
+                    channel.write(locations, locations.position());
+                }
+            }
+        } finally {
+            channel.close();
+        }
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.block;
+
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.world.block.BlockState;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+import javax.annotation.Nullable;
+
+/**
+ * A shared cache of transformed block states, for the 48 axis-aligned
+ * rotations and flips.
+ *
+ * <p>Each axis-aligned transform has a table from the internal ID of a block
+ * state to its transformed state, which is filled in lazily as states are
+ * transformed. Other transforms, and states without an internal ID, are
+ * not cached.</p>
+ *
+ * <p>Tables are atomic arrays, so a state read from a table is always fully
+ * published. They are only replaced when they grow, under a lock.</p>
+ */
+public final class BlockStateTransformCache {
+
+    /**
+     * The number of signed permutation matrices, i.e. axis-aligned transforms.
+     */
+    private static final int TRANSFORM_COUNT = 48;
+    private static final int INITIAL_TABLE_SIZE = 1 << 12;
+
+    private static final AtomicReferenceArray<AtomicReferenceArray<BlockState>> tables =
+        new AtomicReferenceArray<>(TRANSFORM_COUNT);
+
+    /**
+     * Get the transformed block state, computing and caching it if required.
+     *
+     * @param state the block state
+     * @param transform the transform
+     * @param function the function to transform the state with, if it is not cached
+     * @return the transformed state, or {@code null} if the transform or state can't be cached
+     */
+    @Nullable
+    public static BlockState computeIfAbsent(BlockState state, Transform transform, UnaryOperator<BlockState> function) {
+        int index = getIndex(transform);
+        if (index == -1) {
+            return null;
+        }
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<BlockState> table = tables.get(index);
+        if (table != null && id < table.length()) {
+            BlockState cached = table.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        BlockState result = function.apply(state);
+        store(index, id, result);
+        return result;
+    }
+
+    private static synchronized void store(int index, int id, BlockState result) {
+        AtomicReferenceArray<BlockState> table = tables.get(index);
+        if (table == null || id >= table.length()) {
+            int length = table == null ? INITIAL_TABLE_SIZE : table.length() * 2;
+            AtomicReferenceArray<BlockState> grown = new AtomicReferenceArray<>(Math.max(length, id + 1));
+            for (int i = 0; table != null && i < table.length(); i++) {
+                grown.set(i, table.get(i));
+            }
+            table = grown;
+            tables.set(index, table);
+        }
+        table.set(id, result);
+    }
+
+    /**
+     * Get the index of the table for the given transform.
+     *
+     * @param transform the transform
+     * @return the index, or -1 if the transform is not an axis-aligned rotation or flip
+     */
+    private static int getIndex(Transform transform) {
+        if (!(transform instanceof AffineTransform affine)
+            || affine.m03() != 0 || affine.m13() != 0 || affine.m23() != 0) {
+            return -1;
+        }
+        int x = getColumn(affine.m00(), affine.m01(), affine.m02());
+        int y = getColumn(affine.m10(), affine.m11(), affine.m12());
+        int z = getColumn(affine.m20(), affine.m21(), affine.m22());
+        if (x == -1 || y == -1 || z == -1) {
+            return -1;
+        }
+        int xAxis = x >> 1;
+        int yAxis = y >> 1;
+        int zAxis = z >> 1;
+        if (xAxis == yAxis || xAxis == zAxis || yAxis == zAxis) {
+            return -1;
+        }
+        // 6 permutations of the axes (the z axis follows from the other two), times 8 sign combinations
+        int permutation = xAxis * 2 + (yAxis > (3 - xAxis - yAxis) ? 1 : 0);
+        int signs = (x & 1) | (y & 1) << 1 | (z & 1) << 2;
+        return permutation * 8 + signs;
+    }
+
+    /**
+     * Get the single non-zero column of a matrix row.
+     *
+     * @return the column times two, plus one if it is negative, or -1 if the row has not exactly one entry of ±1
+     */
+    private static int getColumn(double c0, double c1, double c2) {
+        if (c1 == 0 && c2 == 0) {
+            return getSign(c0);
+        } else if (c0 == 0 && c2 == 0) {
+            return getSign(c1) | 2;
+        } else if (c0 == 0 && c1 == 0) {
+            return getSign(c2) | 4;
+        }
+        return -1;
+    }
+
+    private static int getSign(double value) {
+        return value == 1 ? 0 : value == -1 ? 1 : -1;
+    }
+
+    /**
+     * Clear all cached states, as internal IDs are only valid until the
+     * platform is unloaded.
+     */
+    public static synchronized void clear() {
+        for (int i = 0; i < TRANSFORM_COUNT; i++) {
+            tables.set(i, null);
+        }
+    }
+
+    private BlockStateTransformCache() {
+    }
+
+}
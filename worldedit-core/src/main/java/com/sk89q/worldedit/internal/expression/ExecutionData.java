@@ -19,29 +19,107 @@
 
 package com.sk89q.worldedit.internal.expression;
 
-import java.time.Instant;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 import static java.util.Objects.requireNonNull;
 
-public record ExecutionData(SlotTable slots, Functions functions, Instant deadline) {
+/**
+ * The evaluation context of an expression: its variables, its {@code megabuf},
+ * its environment, and the state of the running evaluation.
+ *
+ * <p>Compiled expressions keep no state of their own, so one expression can be
+ * evaluated by several threads at once, as long as each of them uses its own
+ * context from {@link Expression#createContext()}. A context must only be
+ * used by one thread at a time.</p>
+ *
+ * <p>One context is reused for every evaluation, and
+ * {@link #startEvaluation(int)} resets it. The deadline is only armed when
+ * the first loop iteration checks it, and the clock is only read every
+ * {@value #CLOCK_CHECK_INTERVAL} checks after that, so evaluations without
+ * loops never read the clock at all.</p>
+ */
+public final class ExecutionData {
     /**
      * Special execution context for evaluating constant values. As long as no variables are used, it can be considered
      * constant.
      */
-    public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null, Instant.MAX);
+    public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null);
+
+    /**
+     * The number of deadline checks per clock read. Must be a power of two.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    @Nullable
+    private final SlotTable slots;
+    @Nullable
+    private final Functions functions;
+    private final Int2ObjectMap<double[]> megaBuffer = new Int2ObjectOpenHashMap<>();
+    @Nullable
+    private ExpressionEnvironment environment;
+    private long timeoutNanos = -1;
+    private long deadline;
+    private boolean deadlineArmed;
+    private int checks;
+
+    // Maintained by the expression that created this context
+    @Nullable
+    Expression owner;
+    LocalSlot.Variable[] providedVariables = new LocalSlot.Variable[0];
+    @Nullable
+    LocalSlot.Variable[] programVariables;
+    @Nullable
+    double[] programSlots;
+
+    public ExecutionData(@Nullable SlotTable slots, @Nullable Functions functions) {
+        this.slots = slots;
+        this.functions = functions;
+    }
 
-    @Override
     public SlotTable slots() {
         return requireNonNull(slots, "Cannot use variables in a constant");
     }
 
-    @Override
     public Functions functions() {
         return requireNonNull(functions, "Cannot use functions in a constant");
     }
 
+    Int2ObjectMap<double[]> megaBuffer() {
+        return megaBuffer;
+    }
+
+    public ExpressionEnvironment getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(ExpressionEnvironment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Starts a new evaluation.
+     *
+     * @param timeout the time limit of the evaluation in milliseconds, or a negative number for no limit
+     */
+    public void startEvaluation(int timeout) {
+        this.timeoutNanos = timeout < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.deadlineArmed = false;
+        this.checks = 0;
+    }
+
     public void checkDeadline() {
-        if (Instant.now().isAfter(deadline)) {
+        if (timeoutNanos < 0 || (checks++ & (CLOCK_CHECK_INTERVAL - 1)) != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!deadlineArmed) {
+            deadline = now + timeoutNanos;
+            deadlineArmed = true;
+        } else if (now - deadline > 0) {
             throw new ExpressionTimeoutException("Calculations exceeded time limit.");
         }
     }
@@ -19,10 +19,14 @@
 
 package com.sk89q.worldedit.internal.expression;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.antlr.ExpressionLexer;
 import com.sk89q.worldedit.antlr.ExpressionParser;
+import com.sk89q.worldedit.internal.expression.bytecode.BytecodeCompiler;
+import com.sk89q.worldedit.internal.expression.bytecode.CompiledProgram;
 import com.sk89q.worldedit.internal.expression.invoke.ExpressionCompiler;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -30,11 +34,13 @@
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
-import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -62,15 +68,40 @@
  * as you want by calling {@link #evaluate(double...)}. You do not need to
  * pass values for all slots specified while compiling.
  * To query slots after evaluation, you can use the {@linkplain #getSlots() slot table}.
+ *
+ * <p>These methods all use the default {@linkplain ExecutionData context} of the
+ * expression, which must only be used by one thread at a time. To evaluate the
+ * same expression from several threads, give each of them its own context from
+ * {@link #createContext()}.</p>
  */
 public class Expression {
 
+    /**
+     * Compilations are shared between expressions with the same source and
+     * provided slots, so that an expression used over and over, like the one of
+     * a brush, is only parsed and compiled once.
+     */
+    private static final Cache<CompilationKey, Compilation> COMPILATIONS = CacheBuilder.newBuilder()
+        .maximumSize(64)
+        .build();
+
+    private record CompilationKey(String source, List<String> providedSlots) {
+    }
+
+    private record Compilation(ExpressionParser.AllStatementsContext root,
+                               CompiledExpression compiledExpression,
+                               @Nullable CompiledProgram program) {
+    }
+
     private final String source;
-    private final SlotTable slots = new SlotTable();
     private final List<String> providedSlots;
     private final ExpressionParser.AllStatementsContext root;
-    private final Functions functions = Functions.create();
+    private final Functions functions = Functions.getInstance();
     private final CompiledExpression compiledExpression;
+    // Replaced by optimize() while other threads may be evaluating, so it is read once per evaluation
+    @Nullable
+    private volatile CompiledProgram program;
+    private final ExecutionData defaultContext;
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
         return new Expression(expression, variableNames);
@@ -80,19 +111,23 @@ private Expression(String expression, String... variableNames) throws Expression
         checkNotNull(expression, "Expression cannot be null.");
         checkArgument(!expression.isEmpty(), "Expression cannot be empty string.");
         this.source = expression;
-        slots.putSlot("e", new LocalSlot.Constant(Math.E));
-        slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
-        slots.putSlot("true", new LocalSlot.Constant(1));
-        slots.putSlot("false", new LocalSlot.Constant(0));
+        this.providedSlots = ImmutableList.copyOf(variableNames);
+        SlotTable slots = createSlotTable();
 
-        for (String variableName : variableNames) {
-            if (slots.initVariable(variableName).isEmpty()) {
-                throw new ExpressionException(-1, "Tried to overwrite identifier '" + variableName + "'");
-            }
+        CompilationKey key = new CompilationKey(source, providedSlots);
+        Compilation compilation = COMPILATIONS.getIfPresent(key);
+        if (compilation == null) {
+            compilation = parseAndCompile(slots);
+            COMPILATIONS.put(key, compilation);
         }
-        this.providedSlots = ImmutableList.copyOf(variableNames);
+        this.root = compilation.root();
+        this.compiledExpression = compilation.compiledExpression();
+        this.program = compilation.program();
+        this.defaultContext = createContext(slots);
+    }
 
-        CharStream cs = CharStreams.fromString(expression, "<input>");
+    private Compilation parseAndCompile(SlotTable slots) {
+        CharStream cs = CharStreams.fromString(source, "<input>");
         ExpressionLexer lexer = new ExpressionLexer(cs);
         lexer.removeErrorListeners();
         lexer.addErrorListener(new LexerErrorListener());
@@ -100,6 +135,7 @@ private Expression(String expression, String... variableNames) throws Expression
         ExpressionParser parser = new ExpressionParser(tokens);
         parser.removeErrorListeners();
         parser.addErrorListener(new ParserErrorListener());
+        ExpressionParser.AllStatementsContext root;
         try {
             root = parser.allStatements();
             Objects.requireNonNull(root, "Unable to parse root, but no exceptions?");
@@ -107,7 +143,43 @@ private Expression(String expression, String... variableNames) throws Expression
             throw new ParserException(parser.getState(), e);
         }
         ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
-        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        CompiledExpression compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        CompiledProgram program = new BytecodeCompiler().compileExpression(root, functions, slots, providedSlots)
+            .orElse(null);
+        return new Compilation(root, compiledExpression, program);
+    }
+
+    private SlotTable createSlotTable() {
+        SlotTable slots = new SlotTable();
+        slots.putSlot("e", new LocalSlot.Constant(Math.E));
+        slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
+        slots.putSlot("true", new LocalSlot.Constant(1));
+        slots.putSlot("false", new LocalSlot.Constant(0));
+        for (String variableName : providedSlots) {
+            slots.initVariable(variableName).orElseThrow(() ->
+                new ExpressionException(-1, "Tried to overwrite identifier '" + variableName + "'"));
+        }
+        return slots;
+    }
+
+    private ExecutionData createContext(SlotTable slots) {
+        ExecutionData context = new ExecutionData(slots, functions);
+        context.owner = this;
+        context.providedVariables = providedSlots.stream()
+            .map(name -> slots.getVariable(name).orElseThrow())
+            .toArray(LocalSlot.Variable[]::new);
+        return context;
+    }
+
+    /**
+     * Creates a new evaluation context for this expression, with its own
+     * variables and {@code megabuf}, and no environment. Evaluations using
+     * different contexts can run on different threads at the same time.
+     *
+     * @return the new context
+     */
+    public ExecutionData createContext() {
+        return createContext(createSlotTable());
     }
 
     public double evaluate(double... values) throws EvaluationException {
@@ -115,26 +187,193 @@ public double evaluate(double... values) throws EvaluationException {
     }
 
     public double evaluate(double[] values, int timeout) throws EvaluationException {
+        return evaluate(defaultContext, values, timeout);
+    }
+
+    /**
+     * Evaluates the expression in the given context.
+     *
+     * @param context the context, created by {@link #createContext()}
+     * @param values the values of the provided variables
+     * @param timeout the time limit in milliseconds, or a negative number for no limit
+     * @return the result
+     * @throws EvaluationException if evaluation fails
+     */
+    public double evaluate(ExecutionData context, double[] values, int timeout) throws EvaluationException {
+        checkContext(context);
+        LocalSlot.Variable[] providedVariables = context.providedVariables;
         for (int i = 0; i < values.length; ++i) {
-            String slotName = providedSlots.get(i);
-            LocalSlot.Variable slot = slots.getVariable(slotName)
-                .orElseThrow(() -> new EvaluationException(-1,
-                    "Tried to assign to non-variable " + slotName + "."));
+            providedVariables[i].setValue(values[i]);
+        }
 
-            slot.setValue(values[i]);
+        CompiledProgram program = this.program;
+        if (program != null) {
+            return evaluateProgram(program, context);
         }
 
-        Instant deadline = Instant.now().plusMillis(timeout);
+        context.startEvaluation(timeout);
         // evaluation exceptions are thrown out of this method
-        Double result = compiledExpression.execute(new ExecutionData(slots, functions, deadline));
+        Double result = compiledExpression.execute(context);
         if (result == null) {
             throw new EvaluationException(-1, "Expression must result in a value");
         }
         return result;
     }
 
+    private void checkContext(ExecutionData context) {
+        checkArgument(context.owner == this, "Context was created for a different expression");
+    }
+
+    private double evaluateProgram(CompiledProgram program, ExecutionData context) {
+        double[] values = loadProgramSlots(program, context);
+        double result = program.evaluate(values, context);
+        storeProgramSlots(program, context, values, -1);
+        return result;
+    }
+
+    /**
+     * Check if {@link #evaluateRow} evaluates whole rows at once, and the
+     * points have no effects besides their result and variables. Such points
+     * can be evaluated ahead of time, or more than once, without changing the
+     * outcome. Otherwise, {@link #evaluateRow} evaluates each point on its own.
+     *
+     * @return {@code true} if rows are evaluated at once
+     */
+    public boolean supportsRowEvaluation() {
+        return supportsRowEvaluation(program);
+    }
+
+    private static boolean supportsRowEvaluation(@Nullable CompiledProgram program) {
+        return program != null && program.isPure();
+    }
+
+    /**
+     * Check if the expression may read or write the given variable.
+     *
+     * <p>If the expression can't be analyzed, every variable is assumed to be used.</p>
+     *
+     * @param name the variable name
+     * @return {@code true} if the variable may be used
+     */
+    public boolean usesSlot(String name) {
+        CompiledProgram program = this.program;
+        if (program == null) {
+            return true;
+        }
+        int slot = program.getSlotNames().indexOf(name);
+        return slot >= 0 && (program.isRead(slot) || program.isWritten(slot));
+    }
+
+    /**
+     * Evaluates the expression for a row of points, where only one of the
+     * provided variables changes between them. This is equivalent to calling
+     * {@link #evaluate(double[], int)} for each point, with {@code values}
+     * changed only at the varying index, but does the work that doesn't depend
+     * on the varying variable once per row.
+     *
+     * <p>When this returns, the slots hold the values of the last evaluation.</p>
+     *
+     * @param values the values of the provided variables
+     * @param varyingIndex the index of the provided variable that changes
+     * @param varyingValues the values of the varying variable
+     * @param results the array to write the results to
+     * @param count the number of points
+     * @param timeout the timeout for each point, in milliseconds
+     * @throws EvaluationException if evaluation fails
+     */
+    public void evaluateRow(double[] values, int varyingIndex, double[] varyingValues, double[] results,
+                            int count, int timeout) throws EvaluationException {
+        evaluateRow(defaultContext, values, varyingIndex, varyingValues, results, count, timeout);
+    }
+
+    /**
+     * Evaluates the expression for a row of points in the given context, like
+     * {@link #evaluateRow(double[], int, double[], double[], int, int)}.
+     *
+     * @param context the context, created by {@link #createContext()}
+     * @param values the values of the provided variables
+     * @param varyingIndex the index of the provided variable that changes
+     * @param varyingValues the values of the varying variable
+     * @param results the array to write the results to
+     * @param count the number of points
+     * @param timeout the timeout for each point, in milliseconds
+     * @throws EvaluationException if evaluation fails
+     */
+    public void evaluateRow(ExecutionData context, double[] values, int varyingIndex, double[] varyingValues,
+                            double[] results, int count, int timeout) throws EvaluationException {
+        checkContext(context);
+        checkElementIndex(varyingIndex, providedSlots.size());
+        checkArgument(count <= varyingValues.length && count <= results.length,
+            "Not enough room for %s points", count);
+        CompiledProgram program = this.program;
+        if (!supportsRowEvaluation(program)) {
+            double[] pointValues = Arrays.copyOf(values, Math.max(values.length, varyingIndex + 1));
+            for (int i = 0; i < count; i++) {
+                pointValues[varyingIndex] = varyingValues[i];
+                results[i] = evaluate(context, pointValues, timeout);
+            }
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        LocalSlot.Variable[] providedVariables = context.providedVariables;
+        for (int i = 0; i < values.length; ++i) {
+            providedVariables[i].setValue(values[i]);
+        }
+        double[] slotValues = loadProgramSlots(program, context);
+        program.evaluateRow(varyingIndex, slotValues, varyingValues, results, count, context);
+        storeProgramSlots(program, context, slotValues, varyingIndex);
+    }
+
+    private double[] loadProgramSlots(CompiledProgram program, ExecutionData context) {
+        LocalSlot.Variable[] variables = getProgramVariables(program, context);
+        double[] values = context.programSlots;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = variables[i].value();
+        }
+        return values;
+    }
+
+    private void storeProgramSlots(CompiledProgram program, ExecutionData context, double[] values, int alsoWritten) {
+        LocalSlot.Variable[] variables = context.programVariables;
+        for (int i = 0; i < values.length; i++) {
+            if (program.isWritten(i) || i == alsoWritten) {
+                variables[i].setValue(values[i]);
+            }
+        }
+    }
+
+    private LocalSlot.Variable[] getProgramVariables(CompiledProgram program, ExecutionData context) {
+        LocalSlot.Variable[] variables = context.programVariables;
+        if (variables == null) {
+            List<String> slotNames = program.getSlotNames();
+            variables = new LocalSlot.Variable[slotNames.size()];
+            for (int i = 0; i < variables.length; i++) {
+                // the program only accepts variables here
+                variables[i] = context.slots().initVariable(slotNames.get(i)).orElseThrow();
+            }
+            context.programVariables = variables;
+            context.programSlots = new double[variables.length];
+        }
+        return variables;
+    }
+
+    /**
+     * Optimizes the expression for repeated evaluation: constants are folded,
+     * branches on constants are removed and repeated subexpressions are only
+     * computed once. The results don't change.
+     *
+     * <p>Optimized programs are shared like compilations, so this is cheap for
+     * expressions that were optimized before. Expressions that use loops or other
+     * statements that can't be compiled to bytecode are left as they are.</p>
+     */
     public void optimize() {
-        // TODO optimizing
+        CompiledProgram program = this.program;
+        if (program != null) {
+            this.program = program.optimize();
+        }
     }
 
     public String getSource() {
@@ -147,15 +386,15 @@ public String toString() {
     }
 
     public SlotTable getSlots() {
-        return slots;
+        return defaultContext.slots();
     }
 
     public ExpressionEnvironment getEnvironment() {
-        return functions.getEnvironment();
+        return defaultContext.getEnvironment();
     }
 
     public void setEnvironment(ExpressionEnvironment environment) {
-        functions.setEnvironment(environment);
+        defaultContext.setEnvironment(environment);
     }
 
 }
@@ -69,16 +69,62 @@ public static void checkIterations(int iterations, int positionInLine) {
         check(iterations <= 256, positionInLine, "Loop exceeded 256 iterations");
     }
 
+    // Usable AlmostEqual function, based on http://www.cygnus-software.com/papers/comparingfloats/comparingfloats.htm
+    public static boolean almostEqual2sComplement(double a, double b) {
+        // Make sure maxUlps is non-negative and small enough that the
+        // default NAN won't compare as equal to anything.
+        //assert(maxUlps > 0 && maxUlps < 4 * 1024 * 1024); // this is for floats, not doubles
+
+        long aLong = Double.doubleToRawLongBits(a);
+        // Make aLong lexicographically ordered as a twos-complement long
+        if (aLong < 0) {
+            aLong = 0x8000000000000000L - aLong;
+        }
+
+        long bLong = Double.doubleToRawLongBits(b);
+        // Make bLong lexicographically ordered as a twos-complement long
+        if (bLong < 0) {
+            bLong = 0x8000000000000000L - bLong;
+        }
+
+        final long longDiff = Math.abs(aLong - bLong);
+        return longDiff <= 450359963L;
+    }
+
+    private static final double[] factorials = new double[171];
+
+    static {
+        factorials[0] = 1;
+        for (int i = 1; i < factorials.length; ++i) {
+            factorials[i] = factorials[i - 1] * i;
+        }
+    }
+
+    public static double factorial(double x) {
+        final int n = (int) x;
+
+        if (n < 0) {
+            return 0;
+        }
+
+        if (n >= factorials.length) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return factorials[n];
+    }
+
     public static MethodHandle resolveFunction(Functions functions,
                                                ExpressionParser.FunctionCallContext ctx) {
         String fnName = ctx.name.getText();
         Set<MethodHandle> matchingFns = functions.getMap().get(fnName);
         check(!matchingFns.isEmpty(), ctx, "Unknown function '" + fnName + "'");
         for (MethodHandle function : matchingFns) {
+            int contextParams = takesContext(function) ? 1 : 0;
             if (function.isVarargsCollector()) {
                 int nParams = function.type().parameterCount();
                 // last param is the array, turn that varargs
-                int keptParams = nParams - 1;
+                int keptParams = nParams - 1 - contextParams;
                 function = function.asCollector(
                     // collect into the last array
                     function.type().parameterType(nParams - 1),
@@ -88,7 +134,7 @@ public static MethodHandle resolveFunction(Functions functions,
                 // re-wrap it for the inner arguments
                 function = function.asType(function.type().wrap());
             }
-            MethodType type = function.type();
+            MethodType type = function.type().dropParameterTypes(0, contextParams);
             if (type.parameterCount() != ctx.args.size()) {
                 // skip non-matching function
                 continue;
@@ -102,15 +148,25 @@ public static MethodHandle resolveFunction(Functions functions,
         }
         // We matched no function, fail with appropriate message.
         String possibleCounts = matchingFns.stream()
-            .map(mh -> mh.isVarargsCollector()
-                ? (mh.type().parameterCount() - 1) + "+"
-                : String.valueOf(mh.type().parameterCount()))
+            .map(mh -> {
+                int params = mh.type().parameterCount() - (takesContext(mh) ? 1 : 0);
+                return mh.isVarargsCollector() ? (params - 1) + "+" : String.valueOf(params);
+            })
             .collect(Collectors.joining("/"));
         throw evalException(ctx, "Incorrect number of arguments for function '" + fnName + "', "
             + "expected " + possibleCounts + ", "
             + "got " + ctx.args.size());
     }
 
+    /**
+     * Check if the function takes the {@link ExecutionData} of the evaluation as its
+     * first parameter, in front of the parameters given by the expression.
+     */
+    public static boolean takesContext(MethodHandle function) {
+        MethodType type = function.type();
+        return type.parameterCount() > 0 && type.parameterType(0) == ExecutionData.class;
+    }
+
     // Special argument handle names
     /**
      * The argument should be wrapped in a {@link LocalSlot.Constant} before being passed.
@@ -0,0 +1,142 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.Region;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Evaluates a shape expression with the provided variables {@code x, y, z}
+ * a whole X row at a time, keeping the most recently used rows.
+ *
+ * <p>Each row covers the region, plus one block on either side for hollow
+ * shapes. If the transform doesn't keep {@code y} and {@code z} constant along
+ * a row, a row fails to evaluate, or most of the evaluated points are never
+ * requested, this falls back to evaluating each point on its own.</p>
+ */
+public final class ExpressionRowCache {
+
+    /**
+     * The maximum number of cached results, across all rows.
+     */
+    private static final int MAX_CACHED_POINTS = 1 << 20;
+
+    private final Expression expression;
+    private final Transform transformInverse;
+    private final int timeout;
+    private final int minX;
+    private final double[] inputX;
+    private final double[] values = new double[3];
+    private final int maxRows;
+    private final Long2ObjectLinkedOpenHashMap<double[]> rows = new Long2ObjectLinkedOpenHashMap<>();
+    private boolean pointMode;
+    private long requestedPoints;
+    private long evaluatedPoints;
+
+    /**
+     * Create a new row cache.
+     *
+     * @param expression the expression, which must {@linkplain Expression#supportsRowEvaluation() support rows}
+     * @param region the region the points are in
+     * @param transformInverse the transform from world positions to expression inputs
+     * @param timeout the timeout for points evaluated on their own, in milliseconds
+     */
+    public ExpressionRowCache(Expression expression, Region region, Transform transformInverse, int timeout) {
+        checkArgument(expression.supportsRowEvaluation(), "Expression does not support rows");
+        this.expression = expression;
+        this.transformInverse = transformInverse;
+        this.timeout = timeout;
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        this.minX = min.x() - 1;
+        this.inputX = new double[max.x() - minX + 2];
+        this.maxRows = Math.max(8, MAX_CACHED_POINTS / inputX.length);
+    }
+
+    /**
+     * Evaluates the expression for the given world position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the result
+     * @throws EvaluationException if evaluation fails
+     */
+    public double evaluate(int x, int y, int z) throws EvaluationException {
+        int index = x - minX;
+        if (pointMode || index < 0 || index >= inputX.length) {
+            return evaluatePoint(x, y, z);
+        }
+        long key = ((long) y << 32) | (z & 0xFFFFFFFFL);
+        double[] row = rows.getAndMoveToLast(key);
+        if (row == null) {
+            row = evaluateRow(y, z);
+            if (row == null) {
+                pointMode = true;
+                rows.clear();
+                return evaluatePoint(x, y, z);
+            }
+            if (rows.size() >= maxRows) {
+                rows.removeFirst();
+            }
+            rows.putAndMoveToLast(key, row);
+        }
+        requestedPoints++;
+        // stop once most of the work is thrown away, allowing for the rows in use
+        if (evaluatedPoints > 2 * requestedPoints + 16L * inputX.length) {
+            pointMode = true;
+            rows.clear();
+        }
+        return row[index];
+    }
+
+    private double evaluatePoint(int x, int y, int z) throws EvaluationException {
+        Vector3 input = transformInverse.apply(Vector3.at(x, y, z));
+        return expression.evaluate(new double[]{ input.x(), input.y(), input.z() }, timeout);
+    }
+
+    private double[] evaluateRow(int y, int z) {
+        Vector3 first = transformInverse.apply(Vector3.at(minX, y, z));
+        for (int i = 0; i < inputX.length; i++) {
+            Vector3 input = i == 0 ? first : transformInverse.apply(Vector3.at(minX + i, y, z));
+            if (input.y() != first.y() || input.z() != first.z()) {
+                return null;
+            }
+            inputX[i] = input.x();
+        }
+        values[1] = first.y();
+        values[2] = first.z();
+        double[] row = new double[inputX.length];
+        try {
+            expression.evaluateRow(values, 0, inputX, row, row.length, timeout);
+        } catch (EvaluationException e) {
+            // report it for the point that caused it
+            return null;
+        }
+        evaluatedPoints += row.length;
+        return row;
+    }
+
+}
@@ -26,10 +26,6 @@
 import com.google.common.collect.SetMultimap;
 import com.google.common.primitives.Doubles;
 import com.sk89q.worldedit.internal.expression.LocalSlot.Variable;
-import com.sk89q.worldedit.math.Vector3;
-import com.sk89q.worldedit.math.noise.PerlinNoise;
-import com.sk89q.worldedit.math.noise.RidgedMultiFractalNoise;
-import com.sk89q.worldedit.math.noise.VoronoiNoise;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
@@ -45,11 +41,21 @@
 
 /**
  * Contains all functions that can be used in expressions.
+ *
+ * <p>The functions hold no state of their own, so one instance is shared by
+ * all expressions. Functions that need the state of the evaluation, like the
+ * {@code megabuf} or the environment, take its {@link ExecutionData} as their
+ * first parameter.</p>
+ *
+ * <p>The global buffer used by {@code gmegabuf} and {@code gclosest} is
+ * shared by every expression on every thread. Each call that accesses it
+ * holds its lock for the duration of the call, so a {@code gclosest} scan
+ * never sees a partially written buffer.</p>
  */
 public final class Functions {
 
-    static Functions create() {
-        return new Functions();
+    static Functions getInstance() {
+        return INSTANCE;
     }
 
     private static final MethodHandle DOUBLE_VALUE;
@@ -116,17 +122,15 @@ private static void addMathHandles(
             .asVarargsCollector(double[].class));
     }
 
-    private void addFunctionHandles(
+    private static void addFunctionHandles(
         SetMultimap<String, MethodHandle> map,
         MethodHandles.Lookup lookup
-    ) throws NoSuchMethodException, IllegalAccessException {
+    ) throws IllegalAccessException {
         for (Method method : Functions.class.getDeclaredMethods()) {
             if (method.isAnnotationPresent(ExpressionFunction.class)) {
-                if (Modifier.isStatic(method.getModifiers())) {
-                    map.put(method.getName(), lookup.unreflect(method));
-                } else {
-                    map.put(method.getName(), lookup.unreflectSpecial(method, Functions.class).bindTo(this));
-                }
+                checkState(Modifier.isStatic(method.getModifiers()),
+                    "Function %s must be static", method.getName());
+                map.put(method.getName(), lookup.unreflect(method));
             }
         }
     }
@@ -156,10 +160,12 @@ private static double swap(Variable x, Variable y) {
     }
 
 
+    /**
+     * Guarded by itself.
+     */
     private static final Int2ObjectMap<double[]> globalMegaBuffer = new Int2ObjectOpenHashMap<>();
-    private final Int2ObjectMap<double[]> megaBuffer = new Int2ObjectOpenHashMap<>();
+    private static final Functions INSTANCE = new Functions();
     private final SetMultimap<String, MethodHandle> map;
-    private ExpressionEnvironment environment;
 
     private Functions() {
         MethodHandles.Lookup lookup = MethodHandles.lookup();
@@ -179,14 +185,6 @@ public SetMultimap<String, MethodHandle> getMap() {
         return map;
     }
 
-    public ExpressionEnvironment getEnvironment() {
-        return environment;
-    }
-
-    public void setEnvironment(ExpressionEnvironment environment) {
-        this.environment = environment;
-    }
-
     private static double[] getSubBuffer(Int2ObjectMap<double[]> megabuf, int key) {
         return megabuf.computeIfAbsent(key, k -> new double[1024]);
     }
@@ -202,36 +200,43 @@ private static double setBufferItem(final Int2ObjectMap<double[]> megabuf, final
 
     @ExpressionFunction
     private static double gmegabuf(double index) {
-        return getBufferItem(globalMegaBuffer, (int) index);
+        synchronized (globalMegaBuffer) {
+            return getBufferItem(globalMegaBuffer, (int) index);
+        }
     }
 
     @ExpressionFunction
     private static double gmegabuf(double index, double value) {
-        return setBufferItem(globalMegaBuffer, (int) index, value);
+        synchronized (globalMegaBuffer) {
+            return setBufferItem(globalMegaBuffer, (int) index, value);
+        }
     }
 
     @ExpressionFunction
-    private double megabuf(double index) {
-        return getBufferItem(megaBuffer, (int) index);
+    private static double megabuf(ExecutionData data, double index) {
+        return getBufferItem(data.megaBuffer(), (int) index);
     }
 
     @ExpressionFunction
-    private double megabuf(double index, double value) {
-        return setBufferItem(megaBuffer, (int) index, value);
+    private static double megabuf(ExecutionData data, double index, double value) {
+        return setBufferItem(data.megaBuffer(), (int) index, value);
     }
 
     @ExpressionFunction
-    private double closest(double x, double y, double z, double index, double count, double stride) {
+    private static double closest(ExecutionData data, double x, double y, double z,
+                                  double index, double count, double stride) {
         return findClosest(
-            megaBuffer, x, y, z, (int) index, (int) count, (int) stride
+            data.megaBuffer(), x, y, z, (int) index, (int) count, (int) stride
         );
     }
 
     @ExpressionFunction
     private static double gclosest(double x, double y, double z, double index, double count, double stride) {
-        return findClosest(
-            globalMegaBuffer, x, y, z, (int) index, (int) count, (int) stride
-        );
+        synchronized (globalMegaBuffer) {
+            return findClosest(
+                globalMegaBuffer, x, y, z, (int) index, (int) count, (int) stride
+            );
+        }
     }
 
     private static double findClosest(Int2ObjectMap<double[]> megabuf, double x, double y, double z, int index, int count, int stride) {
@@ -269,42 +274,18 @@ private static double randint(double max) {
     @ExpressionFunction
     private static double perlin(double seed, double x, double y, double z,
                                  double frequency, double octaves, double persistence) {
-        PerlinNoise perlin = new PerlinNoise();
-        try {
-            perlin.setSeed((int) seed);
-            perlin.setFrequency(frequency);
-            perlin.setOctaveCount((int) octaves);
-            perlin.setPersistence(persistence);
-        } catch (IllegalArgumentException e) {
-            throw new EvaluationException(0, "Perlin noise error: " + e.getMessage());
-        }
-        return perlin.noise(Vector3.at(x, y, z));
+        return NoiseCache.perlin((int) seed, frequency, (int) octaves, persistence).noise(x, y, z);
     }
 
     @ExpressionFunction
     private static double voronoi(double seed, double x, double y, double z, double frequency) {
-        VoronoiNoise voronoi = new VoronoiNoise();
-        try {
-            voronoi.setSeed((int) seed);
-            voronoi.setFrequency(frequency);
-        } catch (IllegalArgumentException e) {
-            throw new EvaluationException(0, "Voronoi error: " + e.getMessage());
-        }
-        return voronoi.noise(Vector3.at(x, y, z));
+        return NoiseCache.voronoi((int) seed, frequency).noise(x, y, z);
     }
 
     @ExpressionFunction
     private static double ridgedmulti(double seed, double x, double y, double z,
                                       double frequency, double octaves) {
-        RidgedMultiFractalNoise ridgedMulti = new RidgedMultiFractalNoise();
-        try {
-            ridgedMulti.setSeed((int) seed);
-            ridgedMulti.setFrequency(frequency);
-            ridgedMulti.setOctaveCount((int) octaves);
-        } catch (IllegalArgumentException e) {
-            throw new EvaluationException(0, "Ridged multi error: " + e.getMessage());
-        }
-        return ridgedMulti.noise(Vector3.at(x, y, z));
+        return NoiseCache.ridgedMulti((int) seed, frequency, (int) octaves).noise(x, y, z);
     }
 
     private static double queryInternal(LocalSlot type, LocalSlot data, double typeId, double dataValue) {
@@ -324,8 +305,10 @@ private static double queryInternal(LocalSlot type, LocalSlot data, double typeI
     }
 
     @ExpressionFunction
-    private double query(double x, double y, double z, LocalSlot type, LocalSlot data) {
+    private static double query(ExecutionData executionData,
+                                double x, double y, double z, LocalSlot type, LocalSlot data) {
         // Read values from world
+        final ExpressionEnvironment environment = executionData.getEnvironment();
         final double typeId = environment.getBlockType(x, y, z);
         final double dataValue = environment.getBlockData(x, y, z);
 
@@ -333,8 +316,10 @@ private double query(double x, double y, double z, LocalSlot type, LocalSlot dat
     }
 
     @ExpressionFunction
-    private double queryAbs(double x, double y, double z, LocalSlot type, LocalSlot data) {
+    private static double queryAbs(ExecutionData executionData,
+                                   double x, double y, double z, LocalSlot type, LocalSlot data) {
         // Read values from world
+        final ExpressionEnvironment environment = executionData.getEnvironment();
         final double typeId = environment.getBlockTypeAbs(x, y, z);
         final double dataValue = environment.getBlockDataAbs(x, y, z);
 
@@ -342,8 +327,10 @@ private double queryAbs(double x, double y, double z, LocalSlot type, LocalSlot
     }
 
     @ExpressionFunction
-    private double queryRel(double x, double y, double z, LocalSlot type, LocalSlot data) {
+    private static double queryRel(ExecutionData executionData,
+                                   double x, double y, double z, LocalSlot type, LocalSlot data) {
         // Read values from world
+        final ExpressionEnvironment environment = executionData.getEnvironment();
         final double typeId = environment.getBlockTypeRel(x, y, z);
         final double dataValue = environment.getBlockDataRel(x, y, z);
 
@@ -0,0 +1,137 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sk89q.worldedit.math.noise.NoiseGenerator;
+import com.sk89q.worldedit.math.noise.PerlinNoise;
+import com.sk89q.worldedit.math.noise.RidgedMultiFractalNoise;
+import com.sk89q.worldedit.math.noise.VoronoiNoise;
+
+/**
+ * Caches the generators used by the noise functions, which would otherwise
+ * have to be created and configured for every call.
+ *
+ * <p>Configured generators are only read from, so they are shared between
+ * threads through a bounded cache. Each thread also remembers the generator it
+ * used last, which is usually the one it needs next.</p>
+ */
+final class NoiseCache {
+
+    private static final int MAX_GENERATORS = 256;
+    private static final Cache<Key, NoiseGenerator> GENERATORS = CacheBuilder.newBuilder()
+        .maximumSize(MAX_GENERATORS)
+        .build();
+    private static final ThreadLocal<Entry> LAST_USED = new ThreadLocal<>();
+
+    private enum Kind {
+        PERLIN,
+        VORONOI,
+        RIDGED_MULTI
+    }
+
+    private record Key(Kind kind, int seed, double frequency, int octaves, double persistence) {
+        boolean matches(Kind kind, int seed, double frequency, int octaves, double persistence) {
+            return this.kind == kind && this.seed == seed && this.octaves == octaves
+                && Double.compare(this.frequency, frequency) == 0
+                && Double.compare(this.persistence, persistence) == 0;
+        }
+    }
+
+    private record Entry(Key key, NoiseGenerator generator) {
+    }
+
+    static NoiseGenerator perlin(int seed, double frequency, int octaves, double persistence) {
+        return get(Kind.PERLIN, seed, frequency, octaves, persistence);
+    }
+
+    static NoiseGenerator voronoi(int seed, double frequency) {
+        return get(Kind.VORONOI, seed, frequency, 0, 0);
+    }
+
+    static NoiseGenerator ridgedMulti(int seed, double frequency, int octaves) {
+        return get(Kind.RIDGED_MULTI, seed, frequency, octaves, 0);
+    }
+
+    private static NoiseGenerator get(Kind kind, int seed, double frequency, int octaves, double persistence) {
+        Entry last = LAST_USED.get();
+        if (last != null && last.key().matches(kind, seed, frequency, octaves, persistence)) {
+            return last.generator();
+        }
+        Key key = new Key(kind, seed, frequency, octaves, persistence);
+        NoiseGenerator generator = GENERATORS.getIfPresent(key);
+        if (generator == null) {
+            // racing threads may both create it, which is harmless
+            generator = create(key);
+            GENERATORS.put(key, generator);
+        }
+        LAST_USED.set(new Entry(key, generator));
+        return generator;
+    }
+
+    private static NoiseGenerator create(Key key) {
+        return switch (key.kind()) {
+            case PERLIN -> createPerlin(key);
+            case VORONOI -> createVoronoi(key);
+            case RIDGED_MULTI -> createRidgedMulti(key);
+        };
+    }
+
+    private static NoiseGenerator createPerlin(Key key) {
+        PerlinNoise perlin = new PerlinNoise();
+        try {
+            perlin.setSeed(key.seed());
+            perlin.setFrequency(key.frequency());
+            perlin.setOctaveCount(key.octaves());
+            perlin.setPersistence(key.persistence());
+        } catch (IllegalArgumentException e) {
+            throw new EvaluationException(0, "Perlin noise error: " + e.getMessage());
+        }
+        return perlin;
+    }
+
+    private static NoiseGenerator createVoronoi(Key key) {
+        VoronoiNoise voronoi = new VoronoiNoise();
+        try {
+            voronoi.setSeed(key.seed());
+            voronoi.setFrequency(key.frequency());
+        } catch (IllegalArgumentException e) {
+            throw new EvaluationException(0, "Voronoi error: " + e.getMessage());
+        }
+        return voronoi;
+    }
+
+    private static NoiseGenerator createRidgedMulti(Key key) {
+        RidgedMultiFractalNoise ridgedMulti = new RidgedMultiFractalNoise();
+        try {
+            ridgedMulti.setSeed(key.seed());
+            ridgedMulti.setFrequency(key.frequency());
+            ridgedMulti.setOctaveCount(key.octaves());
+        } catch (IllegalArgumentException e) {
+            throw new EvaluationException(0, "Ridged multi error: " + e.getMessage());
+        }
+        return ridgedMulti;
+    }
+
+    private NoiseCache() {
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.sk89q.worldedit.antlr.ExpressionParser;
+import com.sk89q.worldedit.internal.expression.Functions;
+import com.sk89q.worldedit.internal.expression.SlotTable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compiles an expression from an AST into JVM bytecode, when possible.
+ *
+ * <p>Programs that use loops, switches, or functions that operate on variables
+ * are not supported, and should be run using the
+ * {@link com.sk89q.worldedit.internal.expression.invoke.ExpressionCompiler method handle backend}.</p>
+ */
+public class BytecodeCompiler {
+
+    /**
+     * Compiles the expression.
+     *
+     * @param root the parsed expression, which must already compile with the method handle backend
+     * @param functions the functions
+     * @param slots the slot table, holding the constants
+     * @param providedSlots the names of the provided slots
+     * @return the program, or empty if the expression is not supported
+     */
+    public Optional<CompiledProgram> compileExpression(ExpressionParser.AllStatementsContext root,
+                                                       Functions functions,
+                                                       SlotTable slots,
+                                                       List<String> providedSlots) {
+        NodeBuilder builder = new NodeBuilder(functions, slots, providedSlots);
+        Node node;
+        try {
+            node = builder.build(root);
+        } catch (NodeBuilder.UnsupportedProgramException e) {
+            return Optional.empty();
+        }
+        List<String> slotNames = builder.getSlotNames();
+        boolean[] readSlots = builder.getReadSlots();
+        boolean[] writtenSlots = builder.getWrittenSlots();
+        ProgramEvaluator evaluator;
+        try {
+            evaluator = new ProgramGenerator(node, slotNames.size(), 0, writtenSlots).generate();
+        } catch (ClassFileWriter.TooLargeException e) {
+            return Optional.empty();
+        }
+        return Optional.of(new CompiledProgram(node, slotNames, readSlots, writtenSlots, builder.isPure(), 0,
+            evaluator));
+    }
+}
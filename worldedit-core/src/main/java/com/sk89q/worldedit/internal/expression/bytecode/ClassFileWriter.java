@@ -0,0 +1,665 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A minimal class file writer, supporting exactly what the {@link ProgramGenerator} needs.
+ *
+ * <p>Code is written together with a model of the operand stack, so that the
+ * {@code StackMapTable} can be emitted as full frames at every jump target.
+ * Locals are fixed for the whole method and must all be initialized before
+ * the first jump.</p>
+ */
+final class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 3;
+    static final int LCONST_0 = 9;
+    static final int DCONST_0 = 14;
+    static final int BIPUSH = 16;
+    static final int SIPUSH = 17;
+    static final int LDC = 18;
+    static final int LDC_W = 19;
+    static final int LDC2_W = 20;
+    static final int ILOAD = 21;
+    static final int DLOAD = 24;
+    static final int ALOAD = 25;
+    static final int ISTORE = 54;
+    static final int DSTORE = 57;
+    static final int DALOAD = 49;
+    static final int DASTORE = 82;
+    static final int POP2 = 88;
+    static final int DUP2 = 92;
+    static final int DADD = 99;
+    static final int DSUB = 103;
+    static final int DMUL = 107;
+    static final int DDIV = 111;
+    static final int DREM = 115;
+    static final int DNEG = 119;
+    static final int LSHL = 121;
+    static final int LSHR = 123;
+    static final int LXOR = 131;
+    static final int IINC = 132;
+    static final int I2D = 135;
+    static final int L2I = 136;
+    static final int L2D = 138;
+    static final int D2L = 143;
+    static final int DCMPL = 151;
+    static final int DCMPG = 152;
+    static final int IFEQ = 153;
+    static final int IFNE = 154;
+    static final int IFLT = 155;
+    static final int IFGE = 156;
+    static final int IFGT = 157;
+    static final int IFLE = 158;
+    static final int IF_ICMPLT = 161;
+    static final int IF_ICMPGE = 162;
+    static final int GOTO = 167;
+    static final int DRETURN = 175;
+    static final int RETURN = 177;
+    static final int INVOKEVIRTUAL = 182;
+    static final int INVOKESPECIAL = 183;
+    static final int INVOKESTATIC = 184;
+    static final int INVOKEINTERFACE = 185;
+    static final int ARRAYLENGTH = 190;
+    private static final int WIDE = 196;
+
+    private static final int MAX_JUMP = Short.MAX_VALUE;
+
+    /**
+     * A verification type, as used by the operand stack model and the stack map frames.
+     *
+     * @param tag the verification type tag
+     * @param classIndex the constant pool index of the class, for object types
+     */
+    record Type(int tag, int classIndex) {
+        static final Type INT = new Type(1, 0);
+        static final Type DOUBLE = new Type(3, 0);
+        static final Type LONG = new Type(4, 0);
+
+        int size() {
+            return tag == 3 || tag == 4 ? 2 : 1;
+        }
+    }
+
+    static final class Label {
+        private int offset = -1;
+        private List<Type> stack;
+        private final List<int[]> fixups = new ArrayList<>();
+    }
+
+    /**
+     * Thrown when the generated code does not fit the limits of a class file.
+     */
+    static final class TooLargeException extends RuntimeException {
+        TooLargeException() {
+            super("Generated code is too large", null, false, false);
+        }
+    }
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+    private final List<int[]> bootstrapMethods = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+
+    ClassFileWriter(String name, String superName, String... interfaceNames) {
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+        this.interfaces = Arrays.stream(interfaceNames).mapToInt(this::classRef).toArray();
+    }
+
+    int thisClass() {
+        return thisClass;
+    }
+
+    private int entry(String key, int slots, IoAction writer) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int index = poolCount;
+        try {
+            writer.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        poolCount += slots;
+        if (poolCount > 0xFFFF) {
+            throw new TooLargeException();
+        }
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, 1, () -> {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+        });
+    }
+
+    int integer(int value) {
+        return entry("I" + value, 1, () -> {
+            pool.writeByte(3);
+            pool.writeInt(value);
+        });
+    }
+
+    int longConstant(long value) {
+        return entry("J" + value, 2, () -> {
+            pool.writeByte(5);
+            pool.writeLong(value);
+        });
+    }
+
+    int doubleConstant(double value) {
+        // key on the raw bits, so that -0.0 and NaN payloads are kept apart
+        return entry("D" + Double.doubleToRawLongBits(value), 2, () -> {
+            pool.writeByte(6);
+            pool.writeDouble(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, 1, () -> {
+            pool.writeByte(7);
+            pool.writeShort(name);
+        });
+    }
+
+    int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return entry("N" + name + ":" + descriptor, 1, () -> {
+            pool.writeByte(12);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+        });
+    }
+
+    int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int natIndex = nameAndType(name, descriptor);
+        return entry("M" + tag + owner + "." + name + ":" + descriptor, 1, () -> {
+            pool.writeByte(tag);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(natIndex);
+        });
+    }
+
+    /**
+     * Adds a dynamic constant produced by a static bootstrap method on a class.
+     */
+    int dynamicConstant(String bootstrapOwner, String bootstrapName, String bootstrapDescriptor,
+                        String name, String descriptor, int... bootstrapArguments) {
+        int methodRef = memberRef(10, bootstrapOwner, bootstrapName, bootstrapDescriptor);
+        int handle = entry("H6." + methodRef, 1, () -> {
+            pool.writeByte(15);
+            // REF_invokeStatic
+            pool.writeByte(6);
+            pool.writeShort(methodRef);
+        });
+        int[] bootstrap = new int[bootstrapArguments.length + 1];
+        bootstrap[0] = handle;
+        System.arraycopy(bootstrapArguments, 0, bootstrap, 1, bootstrapArguments.length);
+        int bootstrapIndex = -1;
+        for (int i = 0; i < bootstrapMethods.size(); i++) {
+            if (Arrays.equals(bootstrapMethods.get(i), bootstrap)) {
+                bootstrapIndex = i;
+                break;
+            }
+        }
+        if (bootstrapIndex == -1) {
+            bootstrapIndex = bootstrapMethods.size();
+            bootstrapMethods.add(bootstrap);
+        }
+        int finalBootstrapIndex = bootstrapIndex;
+        int natIndex = nameAndType(name, descriptor);
+        return entry("Y" + bootstrapIndex + "." + natIndex, 1, () -> {
+            pool.writeByte(17);
+            pool.writeShort(finalBootstrapIndex);
+            pool.writeShort(natIndex);
+        });
+    }
+
+    Type objectType(String internalName) {
+        return new Type(7, classRef(internalName));
+    }
+
+    /**
+     * Starts a new method. The locals are the types of all local variables of the
+     * method, including {@code this} and the parameters.
+     */
+    Code method(int access, String name, String descriptor, List<Type> locals) {
+        return new Code(access, name, descriptor, locals);
+    }
+
+    byte[] toByteArray() {
+        int bootstrapAttribute = bootstrapMethods.isEmpty() ? 0 : utf8("BootstrapMethods");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            // Java 17
+            out.writeShort(61);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int anInterface : interfaces) {
+                out.writeShort(anInterface);
+            }
+            // no fields
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            if (bootstrapAttribute == 0) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(bootstrapAttribute);
+                int length = 2;
+                for (int[] bootstrap : bootstrapMethods) {
+                    length += 2 + bootstrap.length * 2;
+                }
+                out.writeInt(length);
+                out.writeShort(bootstrapMethods.size());
+                for (int[] bootstrap : bootstrapMethods) {
+                    out.writeShort(bootstrap[0]);
+                    out.writeShort(bootstrap.length - 1);
+                    for (int i = 1; i < bootstrap.length; i++) {
+                        out.writeShort(bootstrap[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * The code of a single method.
+     */
+    final class Code {
+
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final List<Type> locals;
+        private final int maxLocals;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Type> stack = new ArrayList<>();
+        private final TreeMap<Integer, List<Type>> frames = new TreeMap<>();
+        private final List<Label> labels = new ArrayList<>();
+        private int stackSize;
+        private int maxStack;
+        private boolean reachable = true;
+
+        private Code(int access, String name, String descriptor, List<Type> locals) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.locals = List.copyOf(locals);
+            this.maxLocals = locals.stream().mapToInt(Type::size).sum();
+        }
+
+        private void u1(int value) {
+            code.write(value);
+        }
+
+        private void u2(int value) {
+            code.write(value >>> 8);
+            code.write(value);
+        }
+
+        private void pop(int count) {
+            for (int i = 0; i < count; i++) {
+                Type removed = stack.remove(stack.size() - 1);
+                stackSize -= removed.size();
+            }
+        }
+
+        private void push(Type type) {
+            stack.add(type);
+            stackSize += type.size();
+            maxStack = Math.max(maxStack, stackSize);
+        }
+
+        /**
+         * Writes an instruction without operands.
+         *
+         * @param opcode the opcode
+         * @param popped the number of stack entries it consumes
+         * @param pushed the type it produces, or {@code null}
+         */
+        void insn(int opcode, int popped, Type pushed) {
+            checkState(reachable, "Unreachable code");
+            u1(opcode);
+            pop(popped);
+            if (pushed != null) {
+                push(pushed);
+            }
+        }
+
+        void returnInsn(int opcode) {
+            insn(opcode, opcode == RETURN ? 0 : 1, null);
+            reachable = false;
+        }
+
+        void dconst(double value) {
+            if (Double.doubleToRawLongBits(value) == 0L || value == 1.0) {
+                insn(DCONST_0 + (int) value, 0, Type.DOUBLE);
+            } else {
+                ldc2(doubleConstant(value), Type.DOUBLE);
+            }
+        }
+
+        void lconst(long value) {
+            if (value == 0L || value == 1L) {
+                insn(LCONST_0 + (int) value, 0, Type.LONG);
+            } else {
+                ldc2(longConstant(value), Type.LONG);
+            }
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                insn(ICONST_0 + value, 0, Type.INT);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                insn(BIPUSH, 0, Type.INT);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                insn(SIPUSH, 0, Type.INT);
+                u2(value);
+            } else {
+                ldc(integer(value), Type.INT);
+            }
+        }
+
+        private void ldc2(int index, Type type) {
+            insn(LDC2_W, 0, type);
+            u2(index);
+        }
+
+        /**
+         * Loads a single-slot constant, such as an integer or a dynamic constant.
+         */
+        void ldc(int index, Type type) {
+            if (index <= 0xFF) {
+                insn(LDC, 0, type);
+                u1(index);
+            } else {
+                insn(LDC_W, 0, type);
+                u2(index);
+            }
+        }
+
+        private void local(int opcode, int shortForm, int index) {
+            if (index <= 3) {
+                u1(shortForm + index);
+            } else if (index <= 0xFF) {
+                u1(opcode);
+                u1(index);
+            } else {
+                u1(WIDE);
+                u1(opcode);
+                u2(index);
+            }
+        }
+
+        void load(Type type, int index) {
+            checkState(reachable, "Unreachable code");
+            if (type == Type.DOUBLE) {
+                local(DLOAD, 38, index);
+            } else if (type == Type.INT) {
+                local(ILOAD, 26, index);
+            } else {
+                local(ALOAD, 42, index);
+            }
+            push(type);
+        }
+
+        void store(Type type, int index) {
+            checkState(reachable, "Unreachable code");
+            if (type == Type.DOUBLE) {
+                local(DSTORE, 71, index);
+            } else {
+                local(ISTORE, 59, index);
+            }
+            pop(1);
+        }
+
+        void iinc(int index, int amount) {
+            checkState(reachable, "Unreachable code");
+            if (index <= 0xFF && amount >= Byte.MIN_VALUE && amount <= Byte.MAX_VALUE) {
+                u1(IINC);
+                u1(index);
+                u1(amount);
+            } else {
+                u1(WIDE);
+                u1(IINC);
+                u2(index);
+                u2(amount);
+            }
+        }
+
+        /**
+         * Writes an invoke instruction. The receiver, if any, must already be on the stack.
+         */
+        void invoke(int opcode, String owner, String methodName, String methodDescriptor) {
+            boolean isInterface = opcode == INVOKEINTERFACE;
+            int ref = memberRef(isInterface ? 11 : 10, owner, methodName, methodDescriptor);
+            List<Type> arguments = parseArguments(methodDescriptor);
+            Type returned = parseType(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+            insn(opcode, arguments.size() + (opcode == INVOKESTATIC ? 0 : 1), returned);
+            u2(ref);
+            if (isInterface) {
+                u1(1 + arguments.stream().mapToInt(Type::size).sum());
+                u1(0);
+            }
+        }
+
+        private List<Type> parseArguments(String methodDescriptor) {
+            List<Type> types = new ArrayList<>();
+            int i = 1;
+            while (methodDescriptor.charAt(i) != ')') {
+                int start = i;
+                while (methodDescriptor.charAt(i) == '[') {
+                    i++;
+                }
+                if (methodDescriptor.charAt(i) == 'L') {
+                    i = methodDescriptor.indexOf(';', i);
+                }
+                i++;
+                types.add(parseType(methodDescriptor.substring(start, i)));
+            }
+            return types;
+        }
+
+        private Type parseType(String type) {
+            return switch (type.charAt(0)) {
+                case 'V' -> null;
+                case 'D' -> Type.DOUBLE;
+                case 'J' -> Type.LONG;
+                case 'Z', 'B', 'C', 'S', 'I' -> Type.INT;
+                case 'L' -> objectType(type.substring(1, type.length() - 1));
+                case '[' -> objectType(type);
+                default -> throw new IllegalArgumentException("Bad descriptor: " + type);
+            };
+        }
+
+        /**
+         * Writes a jump. Conditional jumps consume their operands first.
+         */
+        void jump(int opcode, Label target) {
+            checkState(reachable, "Unreachable code");
+            int start = code.size();
+            u1(opcode);
+            u2(0);
+            if (opcode == IF_ICMPLT || opcode == IF_ICMPGE) {
+                pop(2);
+            } else if (opcode != GOTO) {
+                pop(1);
+            }
+            mergeInto(target);
+            target.fixups.add(new int[] {start, start + 1});
+            if (!labels.contains(target)) {
+                labels.add(target);
+            }
+            if (opcode == GOTO) {
+                reachable = false;
+            }
+        }
+
+        private void mergeInto(Label target) {
+            if (target.stack == null) {
+                target.stack = List.copyOf(stack);
+            } else {
+                checkState(target.stack.equals(stack), "Inconsistent stack at jump target");
+            }
+        }
+
+        void bind(Label label) {
+            checkState(label.offset == -1, "Label already bound");
+            if (reachable) {
+                mergeInto(label);
+            } else {
+                checkState(label.stack != null, "Label is not reachable");
+                stack.clear();
+                stackSize = 0;
+                label.stack.forEach(this::push);
+                reachable = true;
+            }
+            label.offset = code.size();
+            frames.put(label.offset, label.stack);
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+        }
+
+        /**
+         * Finishes the method and adds it to the class.
+         */
+        void finish() {
+            checkState(!reachable, "Method does not end with a return");
+            byte[] bytes = code.toByteArray();
+            for (Label label : labels) {
+                checkState(label.offset != -1, "Unbound label");
+                for (int[] fixup : label.fixups) {
+                    int delta = label.offset - fixup[0];
+                    if (delta > MAX_JUMP || delta < -MAX_JUMP) {
+                        throw new TooLargeException();
+                    }
+                    bytes[fixup[1]] = (byte) (delta >>> 8);
+                    bytes[fixup[1] + 1] = (byte) delta;
+                }
+            }
+            if (bytes.length > 0xFFFF || maxLocals > 0xFFFF) {
+                throw new TooLargeException();
+            }
+            int codeAttribute = utf8("Code");
+            int frameAttribute = frames.isEmpty() ? 0 : utf8("StackMapTable");
+            ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            try {
+                DataOutputStream out = new DataOutputStream(frameBytes);
+                int previous = -1;
+                out.writeShort(frames.size());
+                for (Map.Entry<Integer, List<Type>> frame : frames.entrySet()) {
+                    // full_frame
+                    out.writeByte(255);
+                    out.writeShort(frame.getKey() - previous - 1);
+                    previous = frame.getKey();
+                    writeTypes(out, locals);
+                    writeTypes(out, frame.getValue());
+                }
+
+                out = new DataOutputStream(methodBytes);
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(codeAttribute);
+                int attributesLength = frameAttribute == 0 ? 0 : 6 + frameBytes.size();
+                out.writeInt(12 + bytes.length + attributesLength);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                // no exception table
+                out.writeShort(0);
+                if (frameAttribute == 0) {
+                    out.writeShort(0);
+                } else {
+                    out.writeShort(1);
+                    out.writeShort(frameAttribute);
+                    out.writeInt(frameBytes.size());
+                    frameBytes.writeTo(out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            methods.add(methodBytes.toByteArray());
+        }
+
+        private void writeTypes(DataOutputStream out, List<Type> types) throws IOException {
+            out.writeShort(types.size());
+            for (Type type : types) {
+                out.writeByte(type.tag());
+                if (type.tag() == 7) {
+                    out.writeShort(type.classIndex());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.internal.expression.ExecutionData;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * An expression compiled to a hidden class.
+ *
+ * <p>The program works on an array of slot values, indexed like
+ * {@link #getSlotNames()}. The provided slots come first, in order.</p>
+ */
+public final class CompiledProgram {
+
+    private final Node root;
+    private final ImmutableList<String> slotNames;
+    private final boolean[] readSlots;
+    private final boolean[] writtenSlots;
+    private final boolean pure;
+    private final int tempCount;
+    private final ProgramEvaluator evaluator;
+    private final AtomicReferenceArray<RowEvaluator> rowEvaluators;
+    @Nullable
+    private volatile CompiledProgram optimized;
+
+    CompiledProgram(Node root, List<String> slotNames, boolean[] readSlots, boolean[] writtenSlots,
+                    boolean pure, int tempCount, ProgramEvaluator evaluator) {
+        this.root = root;
+        this.slotNames = ImmutableList.copyOf(slotNames);
+        this.readSlots = readSlots.clone();
+        this.writtenSlots = writtenSlots.clone();
+        this.pure = pure;
+        this.tempCount = tempCount;
+        this.evaluator = evaluator;
+        this.rowEvaluators = new AtomicReferenceArray<>(slotNames.size());
+    }
+
+    /**
+     * Get the names of the slots used by this program.
+     *
+     * @return the slot names
+     */
+    public List<String> getSlotNames() {
+        return slotNames;
+    }
+
+    /**
+     * Check if the program may read the given slot.
+     *
+     * @param slot the slot index
+     * @return {@code true} if the slot may be read
+     */
+    public boolean isRead(int slot) {
+        return readSlots[slot];
+    }
+
+    /**
+     * Check if the program may write to the given slot.
+     *
+     * @param slot the slot index
+     * @return {@code true} if the slot may be written
+     */
+    public boolean isWritten(int slot) {
+        return writtenSlots[slot];
+    }
+
+    /**
+     * Check if the program has no effects besides its result and slots. Such
+     * programs give the same result for the same slot values, no matter how
+     * often or in what order they are evaluated.
+     *
+     * @return {@code true} if the program is pure
+     */
+    public boolean isPure() {
+        return pure;
+    }
+
+    /**
+     * Get an optimized version of this program, with constants folded, branches on
+     * constants removed and repeated subtrees computed once. It uses the same
+     * slots and gives the same results.
+     *
+     * <p>The optimized program is generated on the first call and shared by later
+     * ones. If it can't be generated, this program is returned.</p>
+     *
+     * @return the optimized program
+     */
+    public CompiledProgram optimize() {
+        CompiledProgram result = optimized;
+        if (result == null) {
+            // racing threads may both generate it, but they get equivalent programs
+            result = createOptimized();
+            optimized = result;
+        }
+        return result;
+    }
+
+    private CompiledProgram createOptimized() {
+        NodeOptimizer optimizer = new NodeOptimizer(slotNames.size(), writtenSlots);
+        Node optimizedRoot = optimizer.optimize(root);
+        if (optimizedRoot.equals(root)) {
+            return this;
+        }
+        ProgramEvaluator optimizedEvaluator;
+        try {
+            optimizedEvaluator = new ProgramGenerator(optimizedRoot, slotNames.size(), optimizer.getTempCount(),
+                writtenSlots).generate();
+        } catch (ClassFileWriter.TooLargeException e) {
+            return this;
+        }
+        CompiledProgram program = new CompiledProgram(optimizedRoot, slotNames, readSlots, writtenSlots, pure,
+            optimizer.getTempCount(), optimizedEvaluator);
+        program.optimized = program;
+        return program;
+    }
+
+    /**
+     * Evaluates the program. Slots that are written by the program are updated
+     * in the array when it returns.
+     *
+     * @param slots the slot values, at least as many as {@link #getSlotNames()}
+     * @param data the context passed to functions that take it
+     * @return the result
+     */
+    public double evaluate(double[] slots, ExecutionData data) {
+        return evaluator.evaluate(slots, data);
+    }
+
+    /**
+     * Evaluates the program once for each value of the varying slot, as if
+     * {@link #evaluate(double[], ExecutionData)} was called for each of them with the same
+     * initial slot values. When this returns, the slots hold the values of the
+     * last evaluation.
+     *
+     * <p>The first call for each varying slot generates a specialized loop,
+     * with everything that doesn't depend on the varying slot computed once.</p>
+     *
+     * @param varyingSlot the index of the slot that changes between evaluations
+     * @param slots the slot values, at least as many as {@link #getSlotNames()}
+     * @param varyingValues the values of the varying slot
+     * @param results the array to write the results to
+     * @param count the number of evaluations
+     * @param data the context passed to functions that take it
+     */
+    public void evaluateRow(int varyingSlot, double[] slots, double[] varyingValues, double[] results, int count,
+                            ExecutionData data) {
+        checkElementIndex(varyingSlot, slotNames.size());
+        RowEvaluator rowEvaluator = rowEvaluators.get(varyingSlot);
+        if (rowEvaluator == null) {
+            rowEvaluator = generateRow(varyingSlot);
+            rowEvaluators.set(varyingSlot, rowEvaluator);
+        }
+        rowEvaluator.evaluateRow(slots, varyingValues, results, count, data);
+    }
+
+    private RowEvaluator generateRow(int varyingSlot) {
+        try {
+            return new ProgramGenerator(root, slotNames.size(), tempCount, writtenSlots).generateRow(varyingSlot);
+        } catch (ClassFileWriter.TooLargeException e) {
+            // the loop didn't fit next to the hoisted values, repeat single evaluations instead
+            return (slots, varyingValues, results, count, data) -> {
+                double[] initial = slots.clone();
+                for (int i = 0; i < count; i++) {
+                    System.arraycopy(initial, 0, slots, 0, initial.length);
+                    slots[varyingSlot] = varyingValues[i];
+                    results[i] = evaluator.evaluate(slots, data);
+                }
+            };
+        }
+    }
+
+}
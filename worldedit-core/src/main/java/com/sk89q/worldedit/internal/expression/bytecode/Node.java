@@ -0,0 +1,124 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+/**
+ * A node of the intermediate representation used by the bytecode backend.
+ *
+ * <p>Every node produces exactly one {@code double}, so the tree maps directly
+ * onto the operand stack of the generated method. Variables are referred to by
+ * their slot index in the {@link CompiledProgram}.</p>
+ */
+sealed interface Node {
+
+    record Constant(double value) implements Node {
+    }
+
+    record Load(int slot) implements Node {
+    }
+
+    /**
+     * Stores the value into the slot, producing the stored value.
+     */
+    record Store(int slot, Node value) implements Node {
+    }
+
+    /**
+     * Adds {@code delta} to the slot, producing the old value if {@code post} is set
+     * and the new value otherwise.
+     */
+    record Increment(int slot, double delta, boolean post) implements Node {
+    }
+
+    record Unary(UnaryOp op, Node operand) implements Node {
+    }
+
+    record Binary(BinaryOp op, Node left, Node right) implements Node {
+    }
+
+    record Conditional(Node condition, Node trueValue, Node falseValue) implements Node {
+    }
+
+    /**
+     * {@code left && right}: the value of {@code right} if {@code left} is true, otherwise {@code 0}.
+     */
+    record And(Node left, Node right) implements Node {
+    }
+
+    /**
+     * {@code left || right}: the value of {@code left} if it is true, otherwise the value of {@code right}.
+     */
+    record Or(Node left, Node right) implements Node {
+    }
+
+    /**
+     * Calls a function. The handle takes one {@code double} per argument and returns a {@code double}.
+     * Functions that need the evaluation context take the {@code ExecutionData} first.
+     *
+     * @param name the function name, used to pick intrinsics
+     * @param handle the function handle
+     * @param pure whether the function always returns the same value for the same arguments
+     *     and has no side effects
+     * @param arguments the arguments, evaluated left to right
+     */
+    record Call(String name, MethodHandle handle, boolean pure, List<Node> arguments) implements Node {
+        /**
+         * Checks if the handle takes the {@code ExecutionData} in front of the arguments.
+         */
+        boolean takesContext() {
+            return handle.type().parameterCount() > arguments.size();
+        }
+    }
+
+    /**
+     * Evaluates the effects in order, discarding their values, then produces the value.
+     */
+    record Sequence(List<Node> effects, Node value) implements Node {
+    }
+
+    enum UnaryOp {
+        NEGATE,
+        NOT,
+        COMPLEMENT,
+        FACTORIAL
+    }
+
+    enum BinaryOp {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIVIDE,
+        REMAINDER,
+        POWER,
+        SHIFT_LEFT,
+        SHIFT_RIGHT,
+        LESS,
+        LESS_EQUAL,
+        GREATER,
+        GREATER_EQUAL,
+        EQUAL,
+        NOT_EQUAL,
+        NEAR
+    }
+
+}
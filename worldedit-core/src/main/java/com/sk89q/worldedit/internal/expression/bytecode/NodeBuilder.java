@@ -0,0 +1,540 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.sk89q.worldedit.antlr.ExpressionBaseVisitor;
+import com.sk89q.worldedit.antlr.ExpressionParser;
+import com.sk89q.worldedit.internal.expression.ExecutionData;
+import com.sk89q.worldedit.internal.expression.ExpressionHelper;
+import com.sk89q.worldedit.internal.expression.Functions;
+import com.sk89q.worldedit.internal.expression.LocalSlot;
+import com.sk89q.worldedit.internal.expression.SlotTable;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.sk89q.worldedit.antlr.ExpressionLexer.ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.DIVIDE;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.DIVIDE_ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.EQUAL;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.GREATER_THAN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.GREATER_THAN_OR_EQUAL;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.INCREMENT;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.LEFT_SHIFT;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.LESS_THAN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.LESS_THAN_OR_EQUAL;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.MINUS;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.MINUS_ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.NEAR;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.NOT_EQUAL;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.PLUS;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.PLUS_ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.POWER_ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.REMAINDER;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.REMAINDER_ASSIGN;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.RIGHT_SHIFT;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.TIMES;
+import static com.sk89q.worldedit.antlr.ExpressionLexer.TIMES_ASSIGN;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Builds the {@link Node} tree for an expression.
+ *
+ * <p>Only programs without loops, switches, or functions that take variables
+ * are supported, and every variable must be definitely assigned before it is
+ * read, unless it is a provided slot. For anything else this throws
+ * {@link UnsupportedProgramException}, and the expression keeps using the
+ * method handle backend. This means the generated code never has to report
+ * an error that the method handle backend would report.</p>
+ */
+class NodeBuilder extends ExpressionBaseVisitor<Node> {
+
+    /**
+     * Functions that only depend on their arguments.
+     */
+    private static final Set<String> PURE_FUNCTIONS = ImmutableSet.of(
+        "sin", "cos", "tan", "asin", "acos", "atan",
+        "sinh", "cosh", "tanh", "sqrt", "cbrt", "abs",
+        "ceil", "floor", "rint", "exp", "log", "log10",
+        "ln", "round", "atan2", "min", "max",
+        "perlin", "voronoi", "ridgedmulti"
+    );
+
+    /**
+     * Marks the result of a child that does not produce anything, like {@code ;}.
+     */
+    private static final Node EMPTY = new Node.Constant(Double.NaN);
+
+    static final class UnsupportedProgramException extends RuntimeException {
+        UnsupportedProgramException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final Functions functions;
+    private final SlotTable slots;
+    private final Map<String, Integer> slotIndices = new LinkedHashMap<>();
+    private final Set<Integer> readSlots = new HashSet<>();
+    private final Set<Integer> writtenSlots = new HashSet<>();
+    private Set<String> assigned = new HashSet<>();
+    private int conditionalDepth;
+    private boolean returned;
+    private boolean pure = true;
+
+    NodeBuilder(Functions functions, SlotTable slots, List<String> providedSlots) {
+        this.functions = functions;
+        this.slots = slots;
+        for (String slot : providedSlots) {
+            slotIndices.put(slot, slotIndices.size());
+            assigned.add(slot);
+        }
+    }
+
+    /**
+     * Builds the program.
+     */
+    Node build(ExpressionParser.AllStatementsContext root) {
+        Node result = root.accept(this);
+        if (result == EMPTY) {
+            // fails at runtime, as it has no value
+            throw new UnsupportedProgramException("No result");
+        }
+        return result;
+    }
+
+    List<String> getSlotNames() {
+        return ImmutableList.copyOf(slotIndices.keySet());
+    }
+
+    boolean[] getReadSlots() {
+        return toFlags(readSlots);
+    }
+
+    boolean[] getWrittenSlots() {
+        return toFlags(writtenSlots);
+    }
+
+    /**
+     * Checks if the program only calls functions without side effects.
+     */
+    boolean isPure() {
+        return pure;
+    }
+
+    private boolean[] toFlags(Set<Integer> slots) {
+        boolean[] flags = new boolean[slotIndices.size()];
+        for (int slot : slots) {
+            flags[slot] = true;
+        }
+        return flags;
+    }
+
+    private static UnsupportedProgramException unsupported(String message) {
+        return new UnsupportedProgramException(message);
+    }
+
+    private int slotIndex(String name) {
+        return slotIndices.computeIfAbsent(name, n -> slotIndices.size());
+    }
+
+    private boolean isConstant(String name) {
+        return slots.getSlot(name).filter(LocalSlot.Constant.class::isInstance).isPresent();
+    }
+
+    private int readVariable(Token token) {
+        String name = token.getText();
+        if (isConstant(name)) {
+            throw unsupported("'" + name + "' is not a variable");
+        }
+        if (!assigned.contains(name)) {
+            throw unsupported("'" + name + "' may not be initialized");
+        }
+        int slot = slotIndex(name);
+        readSlots.add(slot);
+        return slot;
+    }
+
+    private int writeVariable(Token token) {
+        String name = token.getText();
+        if (isConstant(name)) {
+            throw unsupported("'" + name + "' is not a variable");
+        }
+        assigned.add(name);
+        int slot = slotIndex(name);
+        writtenSlots.add(slot);
+        return slot;
+    }
+
+    private Node value(ParseTree tree) {
+        Node node = tree.accept(this);
+        if (node == EMPTY) {
+            throw unsupported("No value");
+        }
+        return node;
+    }
+
+    /**
+     * Builds the branches of a conditional, keeping only the variables assigned in both.
+     */
+    private Node conditional(Node condition, ParseTree trueBranch, ParseTree falseBranch) {
+        Set<String> before = assigned;
+        conditionalDepth++;
+        assigned = new HashSet<>(before);
+        Node trueValue = value(trueBranch);
+        Set<String> afterTrue = assigned;
+        assigned = new HashSet<>(before);
+        Node falseValue = value(falseBranch);
+        assigned.retainAll(afterTrue);
+        conditionalDepth--;
+        return new Node.Conditional(condition, trueValue, falseValue);
+    }
+
+    @Override
+    protected Node defaultResult() {
+        return EMPTY;
+    }
+
+    @Override
+    public Node visitTerminal(TerminalNode node) {
+        return EMPTY;
+    }
+
+    @Override
+    public Node visitChildren(RuleNode node) {
+        List<Node> effects = new ArrayList<>();
+        Node result = EMPTY;
+        int n = node.getChildCount();
+        for (int i = 0; i < n && !returned; i++) {
+            ParseTree c = node.getChild(i);
+            if (c instanceof TerminalNode terminalNode && terminalNode.getSymbol().getType() == Token.EOF) {
+                break;
+            }
+            Node childResult = c.accept(this);
+            if (childResult == EMPTY) {
+                continue;
+            }
+            if (result != EMPTY) {
+                effects.add(result);
+            }
+            result = childResult;
+        }
+        if (effects.isEmpty()) {
+            return result;
+        }
+        return new Node.Sequence(ImmutableList.copyOf(effects), result);
+    }
+
+    @Override
+    public Node visitIfStatement(ExpressionParser.IfStatementContext ctx) {
+        if (ctx.falseBranch == null) {
+            throw unsupported("No else branch");
+        }
+        return conditional(value(ctx.condition), ctx.trueBranch, ctx.falseBranch);
+    }
+
+    @Override
+    public Node visitTernaryExpr(ExpressionParser.TernaryExprContext ctx) {
+        return conditional(value(ctx.condition), ctx.trueBranch, ctx.falseBranch);
+    }
+
+    @Override
+    public Node visitWhileStatement(ExpressionParser.WhileStatementContext ctx) {
+        throw unsupported("Loop");
+    }
+
+    @Override
+    public Node visitDoStatement(ExpressionParser.DoStatementContext ctx) {
+        throw unsupported("Loop");
+    }
+
+    @Override
+    public Node visitForStatement(ExpressionParser.ForStatementContext ctx) {
+        throw unsupported("Loop");
+    }
+
+    @Override
+    public Node visitSimpleForStatement(ExpressionParser.SimpleForStatementContext ctx) {
+        throw unsupported("Loop");
+    }
+
+    @Override
+    public Node visitBreakStatement(ExpressionParser.BreakStatementContext ctx) {
+        throw unsupported("Break");
+    }
+
+    @Override
+    public Node visitContinueStatement(ExpressionParser.ContinueStatementContext ctx) {
+        throw unsupported("Continue");
+    }
+
+    @Override
+    public Node visitSwitchStatement(ExpressionParser.SwitchStatementContext ctx) {
+        throw unsupported("Switch");
+    }
+
+    @Override
+    public Node visitReturnStatement(ExpressionParser.ReturnStatementContext ctx) {
+        if (conditionalDepth > 0) {
+            throw unsupported("Conditional return");
+        }
+        Node value = value(ctx.value);
+        // everything after this is dead
+        returned = true;
+        return value;
+    }
+
+    @Override
+    public Node visitExpressionStatement(ExpressionParser.ExpressionStatementContext ctx) {
+        return value(ctx.expression());
+    }
+
+    @Override
+    public Node visitPostCrementExpr(ExpressionParser.PostCrementExprContext ctx) {
+        int slot = readVariable(ctx.target);
+        writeVariable(ctx.target);
+        return new Node.Increment(slot, ctx.op.getType() == INCREMENT ? 1 : -1, true);
+    }
+
+    @Override
+    public Node visitPreCrementExpr(ExpressionParser.PreCrementExprContext ctx) {
+        int slot = readVariable(ctx.target);
+        writeVariable(ctx.target);
+        return new Node.Increment(slot, ctx.op.getType() == INCREMENT ? 1 : -1, false);
+    }
+
+    @Override
+    public Node visitPlusMinusExpr(ExpressionParser.PlusMinusExprContext ctx) {
+        Node value = value(ctx.expr);
+        return switch (ctx.op.getType()) {
+            case PLUS -> value;
+            case MINUS -> new Node.Unary(Node.UnaryOp.NEGATE, value);
+            default -> throw unsupported("Invalid text for plus/minus expr: " + ctx.op.getText());
+        };
+    }
+
+    @Override
+    public Node visitNotExpr(ExpressionParser.NotExprContext ctx) {
+        return new Node.Unary(Node.UnaryOp.NOT, value(ctx.expr));
+    }
+
+    @Override
+    public Node visitComplementExpr(ExpressionParser.ComplementExprContext ctx) {
+        return new Node.Unary(Node.UnaryOp.COMPLEMENT, value(ctx.expr));
+    }
+
+    @Override
+    public Node visitConditionalAndExpr(ExpressionParser.ConditionalAndExprContext ctx) {
+        Node left = value(ctx.left);
+        return new Node.And(left, optionalValue(ctx.right));
+    }
+
+    @Override
+    public Node visitConditionalOrExpr(ExpressionParser.ConditionalOrExprContext ctx) {
+        Node left = value(ctx.left);
+        return new Node.Or(left, optionalValue(ctx.right));
+    }
+
+    /**
+     * Builds a value that might not be evaluated, so it does not count towards definite assignment.
+     */
+    private Node optionalValue(ParseTree tree) {
+        Set<String> before = assigned;
+        assigned = new HashSet<>(before);
+        Node value = value(tree);
+        assigned = before;
+        return value;
+    }
+
+    private Node binary(Node.BinaryOp op, ParseTree left, ParseTree right) {
+        Node leftValue = value(left);
+        return new Node.Binary(op, leftValue, value(right));
+    }
+
+    @Override
+    public Node visitPowerExpr(ExpressionParser.PowerExprContext ctx) {
+        return binary(Node.BinaryOp.POWER, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitMultiplicativeExpr(ExpressionParser.MultiplicativeExprContext ctx) {
+        return binary(switch (ctx.op.getType()) {
+            case TIMES -> Node.BinaryOp.MULTIPLY;
+            case DIVIDE -> Node.BinaryOp.DIVIDE;
+            case REMAINDER -> Node.BinaryOp.REMAINDER;
+            default -> throw unsupported("Invalid text for multiplicative expr: " + ctx.op.getText());
+        }, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitAddExpr(ExpressionParser.AddExprContext ctx) {
+        return binary(switch (ctx.op.getType()) {
+            case PLUS -> Node.BinaryOp.ADD;
+            case MINUS -> Node.BinaryOp.SUBTRACT;
+            default -> throw unsupported("Invalid text for add expr: " + ctx.op.getText());
+        }, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitShiftExpr(ExpressionParser.ShiftExprContext ctx) {
+        return binary(switch (ctx.op.getType()) {
+            case LEFT_SHIFT -> Node.BinaryOp.SHIFT_LEFT;
+            case RIGHT_SHIFT -> Node.BinaryOp.SHIFT_RIGHT;
+            default -> throw unsupported("Invalid text for shift expr: " + ctx.op.getText());
+        }, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitRelationalExpr(ExpressionParser.RelationalExprContext ctx) {
+        return binary(switch (ctx.op.getType()) {
+            case LESS_THAN -> Node.BinaryOp.LESS;
+            case LESS_THAN_OR_EQUAL -> Node.BinaryOp.LESS_EQUAL;
+            case GREATER_THAN -> Node.BinaryOp.GREATER;
+            case GREATER_THAN_OR_EQUAL -> Node.BinaryOp.GREATER_EQUAL;
+            default -> throw unsupported("Invalid text for relational expr: " + ctx.op.getText());
+        }, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitEqualityExpr(ExpressionParser.EqualityExprContext ctx) {
+        return binary(switch (ctx.op.getType()) {
+            case EQUAL -> Node.BinaryOp.EQUAL;
+            case NOT_EQUAL -> Node.BinaryOp.NOT_EQUAL;
+            case NEAR -> Node.BinaryOp.NEAR;
+            default -> throw unsupported("Invalid text for equality expr: " + ctx.op.getText());
+        }, ctx.left, ctx.right);
+    }
+
+    @Override
+    public Node visitPostfixExpr(ExpressionParser.PostfixExprContext ctx) {
+        return new Node.Unary(Node.UnaryOp.FACTORIAL, value(ctx.expr));
+    }
+
+    @Override
+    public Node visitAssignment(ExpressionParser.AssignmentContext ctx) {
+        int type = ctx.assignmentOperator().start.getType();
+        if (type == ASSIGN) {
+            Node value = value(ctx.expression());
+            return new Node.Store(writeVariable(ctx.target), value);
+        }
+        int slot = readVariable(ctx.target);
+        Node arg = value(ctx.expression());
+        if (writesSlot(arg, slot)) {
+            // the argument runs before the variable is read, which this can't express
+            throw unsupported("Argument assigns to target");
+        }
+        Node.BinaryOp op = switch (type) {
+            case POWER_ASSIGN -> Node.BinaryOp.POWER;
+            case TIMES_ASSIGN -> Node.BinaryOp.MULTIPLY;
+            case DIVIDE_ASSIGN -> Node.BinaryOp.DIVIDE;
+            case REMAINDER_ASSIGN -> Node.BinaryOp.REMAINDER;
+            case PLUS_ASSIGN -> Node.BinaryOp.ADD;
+            case MINUS_ASSIGN -> Node.BinaryOp.SUBTRACT;
+            default -> throw unsupported("Invalid text for assign expr: " + ctx.assignmentOperator().getText());
+        };
+        writeVariable(ctx.target);
+        return new Node.Store(slot, new Node.Binary(op, new Node.Load(slot), arg));
+    }
+
+    private static boolean writesSlot(Node node, int slot) {
+        if (node instanceof Node.Store store) {
+            return store.slot() == slot || writesSlot(store.value(), slot);
+        } else if (node instanceof Node.Increment increment) {
+            return increment.slot() == slot;
+        } else if (node instanceof Node.Unary unary) {
+            return writesSlot(unary.operand(), slot);
+        } else if (node instanceof Node.Binary binary) {
+            return writesSlot(binary.left(), slot) || writesSlot(binary.right(), slot);
+        } else if (node instanceof Node.Conditional conditional) {
+            return writesSlot(conditional.condition(), slot)
+                || writesSlot(conditional.trueValue(), slot)
+                || writesSlot(conditional.falseValue(), slot);
+        } else if (node instanceof Node.And and) {
+            return writesSlot(and.left(), slot) || writesSlot(and.right(), slot);
+        } else if (node instanceof Node.Or or) {
+            return writesSlot(or.left(), slot) || writesSlot(or.right(), slot);
+        } else if (node instanceof Node.Call call) {
+            return call.arguments().stream().anyMatch(arg -> writesSlot(arg, slot));
+        } else if (node instanceof Node.Sequence sequence) {
+            return sequence.effects().stream().anyMatch(effect -> writesSlot(effect, slot))
+                || writesSlot(sequence.value(), slot);
+        }
+        return false;
+    }
+
+    @Override
+    public Node visitFunctionCall(ExpressionParser.FunctionCallContext ctx) {
+        MethodHandle handle = ExpressionHelper.resolveFunction(functions, ctx);
+        boolean takesContext = ExpressionHelper.takesContext(handle);
+        List<Class<?>> parameterTypes = handle.type().parameterList();
+        for (Class<?> parameterType : parameterTypes.subList(takesContext ? 1 : 0, parameterTypes.size())) {
+            if (parameterType != Double.class) {
+                throw unsupported("Function takes slots");
+            }
+        }
+        List<Node> arguments = new ArrayList<>(ctx.args.size());
+        for (ExpressionParser.ExpressionContext arg : ctx.args) {
+            arguments.add(value(arg));
+        }
+        Class<?>[] parameters = new Class<?>[arguments.size()];
+        Arrays.fill(parameters, double.class);
+        MethodType type = methodType(double.class, parameters);
+        if (takesContext) {
+            type = type.insertParameterTypes(0, ExecutionData.class);
+        }
+        String name = ctx.name.getText();
+        boolean pureCall = PURE_FUNCTIONS.contains(name);
+        pure &= pureCall;
+        return new Node.Call(
+            name,
+            handle.asType(type),
+            pureCall,
+            ImmutableList.copyOf(arguments)
+        );
+    }
+
+    @Override
+    public Node visitConstantExpression(ExpressionParser.ConstantExpressionContext ctx) {
+        return new Node.Constant(Double.parseDouble(ctx.getText()));
+    }
+
+    @Override
+    public Node visitIdExpr(ExpressionParser.IdExprContext ctx) {
+        String name = ctx.source.getText();
+        Optional<LocalSlot> slot = slots.getSlot(name);
+        if (slot.isPresent() && slot.get() instanceof LocalSlot.Constant constant) {
+            return new Node.Constant(constant.value());
+        }
+        return new Node.Load(readVariable(ctx.source));
+    }
+}
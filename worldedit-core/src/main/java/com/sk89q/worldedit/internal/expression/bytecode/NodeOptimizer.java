@@ -0,0 +1,383 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.internal.expression.ExpressionHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Simplifies a {@link Node} tree without changing what it computes.
+ *
+ * <p>Operations and pure functions on constants are folded, branches on
+ * constants are removed, and operations with an identity operand are
+ * dropped. Subtrees that appear more than once, can't throw and only read
+ * slots that are never written are computed once, at the start of the program,
+ * into temporary slots after the named ones.</p>
+ */
+final class NodeOptimizer {
+
+    private final int slotCount;
+    private final boolean[] written;
+    private final Map<Node, Integer> occurrences = new HashMap<>();
+    private final Map<Node, Integer> temps = new LinkedHashMap<>();
+    private final List<Node> tempValues = new ArrayList<>();
+
+    NodeOptimizer(int slotCount, boolean[] written) {
+        this.slotCount = slotCount;
+        this.written = written;
+    }
+
+    /**
+     * Optimizes the tree. Each optimizer can only be used once.
+     */
+    Node optimize(Node root) {
+        Node simplified = simplify(root);
+        countShareable(simplified);
+        Node shared = share(simplified);
+        if (tempValues.isEmpty()) {
+            return shared;
+        }
+        List<Node> effects = new ArrayList<>();
+        for (int i = 0; i < tempValues.size(); i++) {
+            effects.add(new Node.Store(slotCount + i, tempValues.get(i)));
+        }
+        return new Node.Sequence(ImmutableList.copyOf(effects), shared);
+    }
+
+    /**
+     * Get the number of temporary slots used by the optimized tree.
+     */
+    int getTempCount() {
+        return tempValues.size();
+    }
+
+    private Node simplify(Node node) {
+        if (node instanceof Node.Store store) {
+            return new Node.Store(store.slot(), simplify(store.value()));
+        } else if (node instanceof Node.Unary unary) {
+            return simplifyUnary(unary.op(), simplify(unary.operand()));
+        } else if (node instanceof Node.Binary binary) {
+            return simplifyBinary(binary.op(), simplify(binary.left()), simplify(binary.right()));
+        } else if (node instanceof Node.Conditional conditional) {
+            Node condition = simplify(conditional.condition());
+            if (condition instanceof Node.Constant constant) {
+                return simplify(isTrue(constant) ? conditional.trueValue() : conditional.falseValue());
+            }
+            return new Node.Conditional(condition, simplify(conditional.trueValue()),
+                simplify(conditional.falseValue()));
+        } else if (node instanceof Node.And and) {
+            Node left = simplify(and.left());
+            if (left instanceof Node.Constant constant) {
+                return isTrue(constant) ? simplify(and.right()) : new Node.Constant(0);
+            }
+            return new Node.And(left, simplify(and.right()));
+        } else if (node instanceof Node.Or or) {
+            Node left = simplify(or.left());
+            if (left instanceof Node.Constant constant) {
+                return isTrue(constant) ? left : simplify(or.right());
+            }
+            return new Node.Or(left, simplify(or.right()));
+        } else if (node instanceof Node.Call call) {
+            return simplifyCall(new Node.Call(call.name(), call.handle(), call.pure(),
+                call.arguments().stream().map(this::simplify).collect(ImmutableList.toImmutableList())));
+        } else if (node instanceof Node.Sequence sequence) {
+            return simplifySequence(sequence);
+        }
+        return node;
+    }
+
+    private static boolean isTrue(Node.Constant constant) {
+        // NaN is not equal to zero, and therefore true
+        return constant.value() != 0;
+    }
+
+    private static Node simplifyUnary(Node.UnaryOp op, Node operand) {
+        if (operand instanceof Node.Constant constant) {
+            double value = constant.value();
+            return new Node.Constant(switch (op) {
+                case NEGATE -> -value;
+                case NOT -> toDouble(value == 0);
+                case COMPLEMENT -> (double) ~(long) value;
+                case FACTORIAL -> ExpressionHelper.factorial(value);
+            });
+        }
+        if (op == Node.UnaryOp.NEGATE && operand instanceof Node.Unary inner && inner.op() == Node.UnaryOp.NEGATE) {
+            return inner.operand();
+        }
+        return new Node.Unary(op, operand);
+    }
+
+    private static Node simplifyBinary(Node.BinaryOp op, Node left, Node right) {
+        if (left instanceof Node.Constant leftConstant && right instanceof Node.Constant rightConstant) {
+            double l = leftConstant.value();
+            double r = rightConstant.value();
+            return new Node.Constant(switch (op) {
+                case ADD -> l + r;
+                case SUBTRACT -> l - r;
+                case MULTIPLY -> l * r;
+                case DIVIDE -> l / r;
+                case REMAINDER -> l % r;
+                case POWER -> Math.pow(l, r);
+                case SHIFT_LEFT -> (double) ((long) l << (int) (long) r);
+                case SHIFT_RIGHT -> (double) ((long) l >> (int) (long) r);
+                case LESS -> toDouble(l < r);
+                case LESS_EQUAL -> toDouble(l <= r);
+                case GREATER -> toDouble(l > r);
+                case GREATER_EQUAL -> toDouble(l >= r);
+                case EQUAL -> toDouble(l == r);
+                case NOT_EQUAL -> toDouble(l != r);
+                case NEAR -> toDouble(ExpressionHelper.almostEqual2sComplement(l, r));
+            });
+        }
+        // only identities that hold for every double, including -0.0 and NaN, so x + 0 is
+        // kept (it turns -0.0 into 0.0) but x + -0.0 and x - 0 are dropped
+        switch (op) {
+            case ADD -> {
+                if (isConstant(right, -0.0)) {
+                    return left;
+                } else if (isConstant(left, -0.0)) {
+                    return right;
+                }
+            }
+            case SUBTRACT -> {
+                if (isConstant(right, 0.0)) {
+                    return left;
+                }
+            }
+            case MULTIPLY -> {
+                if (isConstant(right, 1.0)) {
+                    return left;
+                } else if (isConstant(left, 1.0)) {
+                    return right;
+                }
+            }
+            case DIVIDE, POWER -> {
+                if (isConstant(right, 1.0)) {
+                    return left;
+                }
+            }
+            default -> {
+            }
+        }
+        return new Node.Binary(op, left, right);
+    }
+
+    private static boolean isConstant(Node node, double value) {
+        // compares the bits, so that 0.0 and -0.0 are told apart
+        return node instanceof Node.Constant constant && Double.compare(constant.value(), value) == 0;
+    }
+
+    private static double toDouble(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static Node simplifyCall(Node.Call call) {
+        if (!call.pure() || call.takesContext()
+            || !call.arguments().stream().allMatch(arg -> arg instanceof Node.Constant)) {
+            return call;
+        }
+        Object[] arguments = call.arguments().stream()
+            .map(arg -> ((Node.Constant) arg).value())
+            .toArray();
+        try {
+            return new Node.Constant((double) call.handle().invokeWithArguments(arguments));
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // leave it to fail when it is evaluated, as it would have without optimizing
+            return call;
+        }
+    }
+
+    private Node simplifySequence(Node.Sequence sequence) {
+        List<Node> effects = new ArrayList<>();
+        for (Node effect : sequence.effects()) {
+            addEffect(effects, simplify(effect));
+        }
+        Node value = simplify(sequence.value());
+        if (value instanceof Node.Sequence inner) {
+            effects.addAll(inner.effects());
+            value = inner.value();
+        }
+        return effects.isEmpty() ? value : new Node.Sequence(ImmutableList.copyOf(effects), value);
+    }
+
+    private void addEffect(List<Node> effects, Node effect) {
+        if (effect instanceof Node.Sequence inner) {
+            effects.addAll(inner.effects());
+            addEffect(effects, inner.value());
+        } else if (!isRemovable(effect)) {
+            effects.add(effect);
+        }
+    }
+
+    /**
+     * Checks if the node has no side effects and can't throw, so it doesn't matter
+     * whether or how often it is evaluated.
+     */
+    private static boolean isRemovable(Node node) {
+        if (node instanceof Node.Constant || node instanceof Node.Load) {
+            return true;
+        } else if (node instanceof Node.Unary unary) {
+            return isRemovable(unary.operand());
+        } else if (node instanceof Node.Binary binary) {
+            return isRemovable(binary.left()) && isRemovable(binary.right());
+        } else if (node instanceof Node.Conditional conditional) {
+            return isRemovable(conditional.condition()) && isRemovable(conditional.trueValue())
+                && isRemovable(conditional.falseValue());
+        } else if (node instanceof Node.And and) {
+            return isRemovable(and.left()) && isRemovable(and.right());
+        } else if (node instanceof Node.Or or) {
+            return isRemovable(or.left()) && isRemovable(or.right());
+        } else if (node instanceof Node.Call call) {
+            return ProgramGenerator.isMathIntrinsic(call)
+                && call.arguments().stream().allMatch(NodeOptimizer::isRemovable);
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the node can be computed at the start of the program instead.
+     */
+    private boolean isShareable(Node node) {
+        if (node instanceof Node.Constant) {
+            return true;
+        } else if (node instanceof Node.Load load) {
+            return !written[load.slot()];
+        } else if (node instanceof Node.Unary unary) {
+            return isShareable(unary.operand());
+        } else if (node instanceof Node.Binary binary) {
+            return isShareable(binary.left()) && isShareable(binary.right());
+        } else if (node instanceof Node.Conditional conditional) {
+            return isShareable(conditional.condition()) && isShareable(conditional.trueValue())
+                && isShareable(conditional.falseValue());
+        } else if (node instanceof Node.And and) {
+            return isShareable(and.left()) && isShareable(and.right());
+        } else if (node instanceof Node.Or or) {
+            return isShareable(or.left()) && isShareable(or.right());
+        } else if (node instanceof Node.Call call) {
+            return ProgramGenerator.isMathIntrinsic(call)
+                && call.arguments().stream().allMatch(this::isShareable);
+        }
+        return false;
+    }
+
+    private static boolean isLeaf(Node node) {
+        return node instanceof Node.Constant || node instanceof Node.Load;
+    }
+
+    /**
+     * Compares calls by name and arguments, as every call site has its own handle.
+     */
+    private static Node key(Node node) {
+        if (node instanceof Node.Unary unary) {
+            return new Node.Unary(unary.op(), key(unary.operand()));
+        } else if (node instanceof Node.Binary binary) {
+            return new Node.Binary(binary.op(), key(binary.left()), key(binary.right()));
+        } else if (node instanceof Node.Conditional conditional) {
+            return new Node.Conditional(key(conditional.condition()), key(conditional.trueValue()),
+                key(conditional.falseValue()));
+        } else if (node instanceof Node.And and) {
+            return new Node.And(key(and.left()), key(and.right()));
+        } else if (node instanceof Node.Or or) {
+            return new Node.Or(key(or.left()), key(or.right()));
+        } else if (node instanceof Node.Call call) {
+            return new Node.Call(call.name(), null, call.pure(),
+                call.arguments().stream().map(NodeOptimizer::key).toList());
+        }
+        return node;
+    }
+
+    private void countShareable(Node node) {
+        if (!isLeaf(node) && isShareable(node)) {
+            occurrences.merge(key(node), 1, Integer::sum);
+        }
+        forEachChild(node, this::countShareable);
+    }
+
+    private Node share(Node node) {
+        if (!isLeaf(node) && isShareable(node)) {
+            Node key = key(node);
+            if (occurrences.getOrDefault(key, 0) > 1) {
+                Integer temp = temps.get(key);
+                if (temp == null) {
+                    temp = tempValues.size();
+                    temps.put(key, temp);
+                    tempValues.add(node);
+                }
+                return new Node.Load(slotCount + temp);
+            }
+        }
+        if (node instanceof Node.Store store) {
+            return new Node.Store(store.slot(), share(store.value()));
+        } else if (node instanceof Node.Unary unary) {
+            return new Node.Unary(unary.op(), share(unary.operand()));
+        } else if (node instanceof Node.Binary binary) {
+            return new Node.Binary(binary.op(), share(binary.left()), share(binary.right()));
+        } else if (node instanceof Node.Conditional conditional) {
+            return new Node.Conditional(share(conditional.condition()), share(conditional.trueValue()),
+                share(conditional.falseValue()));
+        } else if (node instanceof Node.And and) {
+            return new Node.And(share(and.left()), share(and.right()));
+        } else if (node instanceof Node.Or or) {
+            return new Node.Or(share(or.left()), share(or.right()));
+        } else if (node instanceof Node.Call call) {
+            return new Node.Call(call.name(), call.handle(), call.pure(),
+                call.arguments().stream().map(this::share).toList());
+        } else if (node instanceof Node.Sequence sequence) {
+            return new Node.Sequence(sequence.effects().stream().map(this::share).toList(),
+                share(sequence.value()));
+        }
+        return node;
+    }
+
+    private static void forEachChild(Node node, Consumer<Node> action) {
+        if (node instanceof Node.Store store) {
+            action.accept(store.value());
+        } else if (node instanceof Node.Unary unary) {
+            action.accept(unary.operand());
+        } else if (node instanceof Node.Binary binary) {
+            action.accept(binary.left());
+            action.accept(binary.right());
+        } else if (node instanceof Node.Conditional conditional) {
+            action.accept(conditional.condition());
+            action.accept(conditional.trueValue());
+            action.accept(conditional.falseValue());
+        } else if (node instanceof Node.And and) {
+            action.accept(and.left());
+            action.accept(and.right());
+        } else if (node instanceof Node.Or or) {
+            action.accept(or.left());
+            action.accept(or.right());
+        } else if (node instanceof Node.Call call) {
+            call.arguments().forEach(action);
+        } else if (node instanceof Node.Sequence sequence) {
+            sequence.effects().forEach(action);
+            action.accept(sequence.value());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.sk89q.worldedit.internal.expression.ExecutionData;
+
+/**
+ * Implemented by the generated program classes.
+ */
+interface ProgramEvaluator {
+
+    /**
+     * Evaluates the program.
+     *
+     * @param slots the slot values, updated with any values written by the program
+     * @param data the context passed to functions that take it
+     * @return the result of the program
+     */
+    double evaluate(double[] slots, ExecutionData data);
+
+}
@@ -0,0 +1,555 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.expression.bytecode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.sk89q.worldedit.internal.expression.ExpressionHelper;
+import com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.Code;
+import com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.Label;
+import com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.ACC_PUBLIC;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.D2L;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DADD;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DALOAD;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DASTORE;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DCMPG;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DCMPL;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DDIV;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DMUL;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DNEG;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DREM;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DRETURN;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DSUB;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.DUP2;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.GOTO;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFEQ;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFGE;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFGT;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFLE;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFLT;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IFNE;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.IF_ICMPGE;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.INVOKESPECIAL;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.INVOKESTATIC;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.INVOKEVIRTUAL;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.L2D;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.L2I;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.LSHL;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.LSHR;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.LXOR;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.POP2;
+import static com.sk89q.worldedit.internal.expression.bytecode.ClassFileWriter.RETURN;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Generates hidden classes implementing {@link ProgramEvaluator} and {@link RowEvaluator}
+ * from a {@link Node} tree.
+ *
+ * <p>Each slot lives in a local variable of the generated method, and is copied
+ * in from the slot array on entry and back out on exit if it was written.
+ * Temporary slots added by the {@link NodeOptimizer} only live in locals.
+ * Math functions are called directly; other functions are called through
+ * constant method handles, which the JIT can inline like a direct call.</p>
+ *
+ * <p>Row evaluators run the program in a loop over the values of one slot.
+ * Subtrees that don't depend on that slot or on any written slot are computed
+ * once before the loop.</p>
+ */
+final class ProgramGenerator {
+
+    private static final String CLASS_NAME = "com/sk89q/worldedit/internal/expression/bytecode/Program";
+    private static final String EVALUATOR = "com/sk89q/worldedit/internal/expression/bytecode/ProgramEvaluator";
+    private static final String ROW_EVALUATOR = "com/sk89q/worldedit/internal/expression/bytecode/RowEvaluator";
+    private static final String HELPER = "com/sk89q/worldedit/internal/expression/ExpressionHelper";
+    private static final String EXECUTION_DATA = "com/sk89q/worldedit/internal/expression/ExecutionData";
+    private static final String MATH = "java/lang/Math";
+    private static final String DD_D = "(DD)D";
+    private static final String D_D = "(D)D";
+    private static final Set<String> UNARY_MATH = ImmutableSet.of(
+        "sin", "cos", "tan", "asin", "acos", "atan",
+        "sinh", "cosh", "tanh", "sqrt", "cbrt", "abs",
+        "ceil", "floor", "rint", "exp", "log", "log10"
+    );
+
+    private final Node root;
+    private final int slotCount;
+    private final int localCount;
+    private final boolean[] written;
+    private ClassFileWriter writer;
+    private final List<MethodHandle> handles = new ArrayList<>();
+    private final Map<Node, Integer> hoisted = new LinkedHashMap<>();
+    private Code code;
+    private int firstSlotLocal;
+    private int dataLocal;
+
+    /**
+     * Creates a generator.
+     *
+     * @param root the program
+     * @param slotCount the number of slots in the slot array
+     * @param tempCount the number of temporary slots after them, which only live in locals
+     * @param written which of the slots in the slot array are written
+     */
+    ProgramGenerator(Node root, int slotCount, int tempCount, boolean[] written) {
+        this.root = root;
+        this.slotCount = slotCount;
+        this.localCount = slotCount + tempCount;
+        this.written = written;
+    }
+
+    /**
+     * Generates the evaluator for single evaluations. Each generator can only be used once.
+     */
+    ProgramEvaluator generate() {
+        writer = new ClassFileWriter(CLASS_NAME, "java/lang/Object", EVALUATOR);
+        writeConstructor();
+        writeEvaluate();
+        return (ProgramEvaluator) define();
+    }
+
+    /**
+     * Generates the evaluator for rows where the given slot varies. Each generator can only be used once.
+     */
+    RowEvaluator generateRow(int varyingSlot) {
+        writer = new ClassFileWriter(CLASS_NAME, "java/lang/Object", ROW_EVALUATOR);
+        writeConstructor();
+        writeEvaluateRow(varyingSlot);
+        return (RowEvaluator) define();
+    }
+
+    private Object define() {
+        byte[] bytes = writer.toByteArray();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                .defineHiddenClassWithClassData(bytes, ImmutableList.copyOf(handles), true);
+            return lookup.findConstructor(lookup.lookupClass(), methodType(void.class)).invoke();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to define expression program", t);
+        }
+    }
+
+    private void writeConstructor() {
+        Code init = writer.method(ACC_PUBLIC, "<init>", "()V",
+            List.of(writer.objectType(CLASS_NAME)));
+        init.load(writer.objectType(CLASS_NAME), 0);
+        init.invoke(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        init.returnInsn(RETURN);
+        init.finish();
+    }
+
+    private List<Type> slotLocals(List<Type> head, int count) {
+        List<Type> locals = new ArrayList<>(head);
+        for (int i = 0; i < count; i++) {
+            locals.add(Type.DOUBLE);
+        }
+        return locals;
+    }
+
+    private int slotLocal(int slot) {
+        return firstSlotLocal + slot * 2;
+    }
+
+    private void loadSlots(int arrayLocal) {
+        Type array = writer.objectType("[D");
+        for (int i = 0; i < slotCount; i++) {
+            code.load(array, arrayLocal);
+            code.iconst(i);
+            code.insn(DALOAD, 2, Type.DOUBLE);
+            code.store(Type.DOUBLE, slotLocal(i));
+        }
+    }
+
+    private void storeSlots(int arrayLocal, int alsoWritten) {
+        Type array = writer.objectType("[D");
+        for (int i = 0; i < slotCount; i++) {
+            if (written[i] || i == alsoWritten) {
+                code.load(array, arrayLocal);
+                code.iconst(i);
+                code.load(Type.DOUBLE, slotLocal(i));
+                code.insn(DASTORE, 3, null);
+            }
+        }
+    }
+
+    /**
+     * Assigns zero to the slot locals in the range. The frames declare every local,
+     * so they must be assigned before the first branch.
+     */
+    private void clearLocals(int fromSlot, int toSlot) {
+        for (int i = fromSlot; i < toSlot; i++) {
+            code.dconst(0);
+            code.store(Type.DOUBLE, slotLocal(i));
+        }
+    }
+
+    private void writeEvaluate() {
+        // this, slots, data, slot locals
+        code = writer.method(ACC_PUBLIC, "evaluate", "([DL" + EXECUTION_DATA + ";)D",
+            slotLocals(List.of(writer.objectType(CLASS_NAME), writer.objectType("[D"),
+                writer.objectType(EXECUTION_DATA)), localCount));
+        dataLocal = 2;
+        firstSlotLocal = 3;
+        loadSlots(1);
+        clearLocals(slotCount, localCount);
+        emit(root);
+        storeSlots(1, -1);
+        code.returnInsn(DRETURN);
+        code.finish();
+    }
+
+    private void writeEvaluateRow(int varyingSlot) {
+        Node body = hoist(root, varyingSlot);
+        Type array = writer.objectType("[D");
+        // this, slots, varying values, results, count, data, index, slot and hoisted locals
+        code = writer.method(ACC_PUBLIC, "evaluateRow", "([D[D[DIL" + EXECUTION_DATA + ";)V",
+            slotLocals(List.of(writer.objectType(CLASS_NAME), array, array, array, Type.INT,
+                writer.objectType(EXECUTION_DATA), Type.INT), localCount + hoisted.size()));
+        dataLocal = 5;
+        firstSlotLocal = 7;
+        loadSlots(1);
+        code.iconst(0);
+        code.store(Type.INT, 6);
+        clearLocals(slotCount, localCount + hoisted.size());
+        int hoistedSlot = localCount;
+        for (Node invariant : hoisted.keySet()) {
+            emit(invariant);
+            code.store(Type.DOUBLE, slotLocal(hoistedSlot++));
+        }
+
+        Label loop = new Label();
+        Label end = new Label();
+        code.bind(loop);
+        code.load(Type.INT, 6);
+        code.load(Type.INT, 4);
+        code.jump(IF_ICMPGE, end);
+        code.load(array, 2);
+        code.load(Type.INT, 6);
+        code.insn(DALOAD, 2, Type.DOUBLE);
+        code.store(Type.DOUBLE, slotLocal(varyingSlot));
+        // every evaluation starts with the provided values, even if the last one changed them
+        for (int i = 0; i < slotCount; i++) {
+            if (written[i] && i != varyingSlot) {
+                code.load(array, 1);
+                code.iconst(i);
+                code.insn(DALOAD, 2, Type.DOUBLE);
+                code.store(Type.DOUBLE, slotLocal(i));
+            }
+        }
+        code.load(array, 3);
+        code.load(Type.INT, 6);
+        emit(body);
+        code.insn(DASTORE, 3, null);
+        code.iinc(6, 1);
+        code.jump(GOTO, loop);
+        code.bind(end);
+        storeSlots(1, varyingSlot);
+        code.returnInsn(RETURN);
+        code.finish();
+    }
+
+    /**
+     * Replaces the subtrees that are the same for every evaluation of the row with
+     * loads of hoisted locals, recording them in {@link #hoisted}.
+     */
+    private Node hoist(Node node, int varyingSlot) {
+        if (isInvariant(node, varyingSlot)) {
+            if (node instanceof Node.Constant || node instanceof Node.Load) {
+                return node;
+            }
+            return new Node.Load(localCount + hoisted.computeIfAbsent(node, n -> hoisted.size()));
+        }
+        if (node instanceof Node.Store store) {
+            return new Node.Store(store.slot(), hoist(store.value(), varyingSlot));
+        } else if (node instanceof Node.Unary unary) {
+            return new Node.Unary(unary.op(), hoist(unary.operand(), varyingSlot));
+        } else if (node instanceof Node.Binary binary) {
+            return new Node.Binary(binary.op(), hoist(binary.left(), varyingSlot), hoist(binary.right(), varyingSlot));
+        } else if (node instanceof Node.Conditional conditional) {
+            return new Node.Conditional(
+                hoist(conditional.condition(), varyingSlot),
+                hoist(conditional.trueValue(), varyingSlot),
+                hoist(conditional.falseValue(), varyingSlot)
+            );
+        } else if (node instanceof Node.And and) {
+            return new Node.And(hoist(and.left(), varyingSlot), hoist(and.right(), varyingSlot));
+        } else if (node instanceof Node.Or or) {
+            return new Node.Or(hoist(or.left(), varyingSlot), hoist(or.right(), varyingSlot));
+        } else if (node instanceof Node.Call call) {
+            return new Node.Call(call.name(), call.handle(), call.pure(),
+                call.arguments().stream().map(arg -> hoist(arg, varyingSlot)).toList());
+        } else if (node instanceof Node.Sequence sequence) {
+            return new Node.Sequence(
+                sequence.effects().stream().map(effect -> hoist(effect, varyingSlot)).toList(),
+                hoist(sequence.value(), varyingSlot)
+            );
+        }
+        return node;
+    }
+
+    /**
+     * Checks if the node has the same value for every evaluation of the row.
+     *
+     * <p>Invariant nodes may also be evaluated when the program would have skipped
+     * them, so they must not have side effects or be able to throw.</p>
+     */
+    private boolean isInvariant(Node node, int varyingSlot) {
+        if (node instanceof Node.Constant) {
+            return true;
+        } else if (node instanceof Node.Load load) {
+            // temporary slots are assigned in the loop
+            return load.slot() < slotCount && load.slot() != varyingSlot && !written[load.slot()];
+        } else if (node instanceof Node.Unary unary) {
+            return isInvariant(unary.operand(), varyingSlot);
+        } else if (node instanceof Node.Binary binary) {
+            return isInvariant(binary.left(), varyingSlot) && isInvariant(binary.right(), varyingSlot);
+        } else if (node instanceof Node.Conditional conditional) {
+            return isInvariant(conditional.condition(), varyingSlot)
+                && isInvariant(conditional.trueValue(), varyingSlot)
+                && isInvariant(conditional.falseValue(), varyingSlot);
+        } else if (node instanceof Node.And and) {
+            return isInvariant(and.left(), varyingSlot) && isInvariant(and.right(), varyingSlot);
+        } else if (node instanceof Node.Or or) {
+            return isInvariant(or.left(), varyingSlot) && isInvariant(or.right(), varyingSlot);
+        } else if (node instanceof Node.Call call) {
+            return isMathIntrinsic(call)
+                && call.arguments().stream().allMatch(arg -> isInvariant(arg, varyingSlot));
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the call is compiled to a call to {@link Math}, which never throws.
+     */
+    static boolean isMathIntrinsic(Node.Call call) {
+        String name = call.name();
+        int arity = call.arguments().size();
+        return ((name.equals("min") || name.equals("max")) && arity > 0)
+            || (arity == 1 && (UNARY_MATH.contains(name) || name.equals("ln") || name.equals("round")))
+            || (arity == 2 && name.equals("atan2"));
+    }
+
+    private void emit(Node node) {
+        if (node instanceof Node.Constant constant) {
+            code.dconst(constant.value());
+        } else if (node instanceof Node.Load load) {
+            code.load(Type.DOUBLE, slotLocal(load.slot()));
+        } else if (node instanceof Node.Store store) {
+            emit(store.value());
+            code.insn(DUP2, 0, Type.DOUBLE);
+            code.store(Type.DOUBLE, slotLocal(store.slot()));
+        } else if (node instanceof Node.Increment increment) {
+            int local = slotLocal(increment.slot());
+            code.load(Type.DOUBLE, local);
+            if (increment.post()) {
+                code.insn(DUP2, 0, Type.DOUBLE);
+            }
+            code.dconst(increment.delta());
+            code.insn(DADD, 2, Type.DOUBLE);
+            if (!increment.post()) {
+                code.insn(DUP2, 0, Type.DOUBLE);
+            }
+            code.store(Type.DOUBLE, local);
+        } else if (node instanceof Node.Unary unary) {
+            emitUnary(unary);
+        } else if (node instanceof Node.Binary binary) {
+            emitBinary(binary);
+        } else if (node instanceof Node.Conditional conditional) {
+            Label falseBranch = new Label();
+            Label end = new Label();
+            emitCondition(conditional.condition(), falseBranch);
+            emit(conditional.trueValue());
+            code.jump(GOTO, end);
+            code.bind(falseBranch);
+            emit(conditional.falseValue());
+            code.bind(end);
+        } else if (node instanceof Node.And and) {
+            Label falseBranch = new Label();
+            Label end = new Label();
+            emitCondition(and.left(), falseBranch);
+            emit(and.right());
+            code.jump(GOTO, end);
+            code.bind(falseBranch);
+            code.dconst(0);
+            code.bind(end);
+        } else if (node instanceof Node.Or or) {
+            Label end = new Label();
+            emit(or.left());
+            code.insn(DUP2, 0, Type.DOUBLE);
+            code.dconst(0);
+            code.insn(DCMPL, 2, Type.INT);
+            code.jump(IFNE, end);
+            code.insn(POP2, 1, null);
+            emit(or.right());
+            code.bind(end);
+        } else if (node instanceof Node.Call call) {
+            emitCall(call);
+        } else if (node instanceof Node.Sequence sequence) {
+            for (Node effect : sequence.effects()) {
+                emit(effect);
+                code.insn(POP2, 1, null);
+            }
+            emit(sequence.value());
+        } else {
+            throw new IllegalArgumentException("Unknown node " + node);
+        }
+    }
+
+    /**
+     * Evaluates the condition, jumping to the target if it is false (zero).
+     */
+    private void emitCondition(Node condition, Label ifFalse) {
+        emit(condition);
+        code.dconst(0);
+        // NaN is not equal to zero, and therefore true
+        code.insn(DCMPL, 2, Type.INT);
+        code.jump(IFEQ, ifFalse);
+    }
+
+    /**
+     * Converts the int on the stack to {@code 1.0} if the jump would be taken, {@code 0.0} otherwise.
+     */
+    private void emitBooleanToDouble(int jumpIfTrue) {
+        Label isTrue = new Label();
+        Label end = new Label();
+        code.jump(jumpIfTrue, isTrue);
+        code.dconst(0);
+        code.jump(GOTO, end);
+        code.bind(isTrue);
+        code.dconst(1);
+        code.bind(end);
+    }
+
+    private void emitUnary(Node.Unary unary) {
+        emit(unary.operand());
+        switch (unary.op()) {
+            case NEGATE -> code.insn(DNEG, 1, Type.DOUBLE);
+            case NOT -> {
+                code.dconst(0);
+                code.insn(DCMPL, 2, Type.INT);
+                emitBooleanToDouble(IFEQ);
+            }
+            case COMPLEMENT -> {
+                code.insn(D2L, 1, Type.LONG);
+                code.lconst(-1L);
+                code.insn(LXOR, 2, Type.LONG);
+                code.insn(L2D, 1, Type.DOUBLE);
+            }
+            case FACTORIAL -> code.invoke(INVOKESTATIC, HELPER, "factorial", D_D);
+            default -> throw new IllegalArgumentException("Unknown op " + unary.op());
+        }
+    }
+
+    private void emitBinary(Node.Binary binary) {
+        if (binary.op() == Node.BinaryOp.SHIFT_LEFT || binary.op() == Node.BinaryOp.SHIFT_RIGHT) {
+            emit(binary.left());
+            code.insn(D2L, 1, Type.LONG);
+            emit(binary.right());
+            code.insn(D2L, 1, Type.LONG);
+            code.insn(L2I, 1, Type.INT);
+            code.insn(binary.op() == Node.BinaryOp.SHIFT_LEFT ? LSHL : LSHR, 2, Type.LONG);
+            code.insn(L2D, 1, Type.DOUBLE);
+            return;
+        }
+        emit(binary.left());
+        emit(binary.right());
+        switch (binary.op()) {
+            case ADD -> code.insn(DADD, 2, Type.DOUBLE);
+            case SUBTRACT -> code.insn(DSUB, 2, Type.DOUBLE);
+            case MULTIPLY -> code.insn(DMUL, 2, Type.DOUBLE);
+            case DIVIDE -> code.insn(DDIV, 2, Type.DOUBLE);
+            case REMAINDER -> code.insn(DREM, 2, Type.DOUBLE);
+            case POWER -> code.invoke(INVOKESTATIC, MATH, "pow", DD_D);
+            // dcmpg makes NaN compare greater, so that < and <= are false for NaN, and vice versa
+            case LESS -> compare(DCMPG, IFLT);
+            case LESS_EQUAL -> compare(DCMPG, IFLE);
+            case GREATER -> compare(DCMPL, IFGT);
+            case GREATER_EQUAL -> compare(DCMPL, IFGE);
+            case EQUAL -> compare(DCMPL, IFEQ);
+            case NOT_EQUAL -> compare(DCMPL, IFNE);
+            case NEAR -> {
+                code.invoke(INVOKESTATIC, HELPER, "almostEqual2sComplement", "(DD)Z");
+                emitBooleanToDouble(IFNE);
+            }
+            default -> throw new IllegalArgumentException("Unknown op " + binary.op());
+        }
+    }
+
+    private void compare(int compareOpcode, int jumpIfTrue) {
+        code.insn(compareOpcode, 2, Type.INT);
+        emitBooleanToDouble(jumpIfTrue);
+    }
+
+    private void emitCall(Node.Call call) {
+        List<Node> arguments = call.arguments();
+        String name = call.name();
+        int arity = arguments.size();
+        if ((name.equals("min") || name.equals("max")) && arity > 0) {
+            // left fold, like Doubles.min/max
+            emit(arguments.get(0));
+            for (int i = 1; i < arity; i++) {
+                emit(arguments.get(i));
+                code.invoke(INVOKESTATIC, MATH, name, DD_D);
+            }
+        } else if (arity == 1 && (UNARY_MATH.contains(name) || name.equals("ln"))) {
+            emit(arguments.get(0));
+            code.invoke(INVOKESTATIC, MATH, name.equals("ln") ? "log" : name, D_D);
+        } else if (arity == 1 && name.equals("round")) {
+            emit(arguments.get(0));
+            code.invoke(INVOKESTATIC, MATH, "round", "(D)J");
+            code.insn(L2D, 1, Type.DOUBLE);
+        } else if (arity == 2 && name.equals("atan2")) {
+            emit(arguments.get(0));
+            emit(arguments.get(1));
+            code.invoke(INVOKESTATIC, MATH, "atan2", DD_D);
+        } else {
+            int index = handles.indexOf(call.handle());
+            if (index == -1) {
+                index = handles.size();
+                handles.add(call.handle());
+            }
+            code.ldc(writer.dynamicConstant(
+                "java/lang/invoke/MethodHandles", "classDataAt",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;",
+                "_", "Ljava/lang/invoke/MethodHandle;", writer.integer(index)
+            ), writer.objectType("java/lang/invoke/MethodHandle"));
+            StringBuilder descriptor = new StringBuilder("(");
+            if (call.takesContext()) {
+                code.load(writer.objectType(EXECUTION_DATA), dataLocal);
+                descriptor.append('L').append(EXECUTION_DATA).append(';');
+            }
+            for (Node argument : arguments) {
+                emit(argument);
+                descriptor.append('D');
+            }
+            descriptor.append(")D");
+            code.invoke(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact", descriptor.toString());
+        }
+    }
+}
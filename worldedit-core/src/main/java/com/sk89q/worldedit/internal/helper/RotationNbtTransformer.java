@@ -0,0 +1,98 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.helper;
+
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.Direction.Flag;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import org.enginehub.linbus.tree.LinCompoundTag;
+import org.enginehub.linbus.tree.LinTag;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Transforms the "Rot" NBT value of blocks which store their rotation in
+ * NBT.
+ *
+ * <p>The new value of each rotation is computed once, when the transformer
+ * is created.</p>
+ */
+public final class RotationNbtTransformer {
+
+    private static final int NO_ROTATION = Integer.MIN_VALUE;
+
+    // The new value of each "Rot" NBT value, or NO_ROTATION if it is unchanged
+    private final int[] rotations = new int[16];
+
+    /**
+     * Create a new instance.
+     *
+     * @param transform the transform
+     */
+    public RotationNbtTransformer(Transform transform) {
+        checkNotNull(transform);
+        for (int rot = 0; rot < rotations.length; rot++) {
+            rotations[rot] = transformRotation(transform, rot);
+        }
+    }
+
+    private static int transformRotation(Transform transform, int rot) {
+        Direction direction = MCDirections.fromRotation(rot);
+        if (direction == null) {
+            return NO_ROTATION;
+        }
+        Vector3 vector = transform.apply(direction.toVector()).subtract(transform.apply(Vector3.ZERO)).normalize();
+        Direction newDirection = Direction.findClosest(vector, Flag.CARDINAL | Flag.ORDINAL | Flag.SECONDARY_ORDINAL);
+        return newDirection == null ? NO_ROTATION : MCDirections.toRotation(newDirection);
+    }
+
+    /**
+     * Transform NBT data in the given block state and return a new instance
+     * if the NBT data needs to be transformed.
+     *
+     * @param state the existing state
+     * @return a new state or the existing one
+     */
+    public BaseBlock transform(BaseBlock state) {
+        LinCompoundTag tag = state.getNbt();
+
+        if (tag != null) {
+            // Handle blocks which store their rotation in NBT
+            LinTag<?> rotTag = tag.value().get("Rot");
+            if (rotTag != null && rotTag.value() instanceof Number number) {
+                int rot = number.intValue();
+                int newRot = rot >= 0 && rot < rotations.length ? rotations[rot] : NO_ROTATION;
+
+                if (newRot != NO_ROTATION) {
+                    return state.toBaseBlock(
+                        tag.toBuilder()
+                            .putByte("Rot", (byte) newRot)
+                            .build()
+                    );
+                }
+            }
+        }
+
+        return state;
+    }
+
+}
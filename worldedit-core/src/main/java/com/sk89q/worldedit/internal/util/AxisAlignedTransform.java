@@ -0,0 +1,129 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A transform of block positions that is an axis-aligned rotation or flip
+ * with an integer translation, applied with integer arithmetic.
+ */
+public final class AxisAlignedTransform {
+
+    /**
+     * Get the integer form of the given transform.
+     *
+     * @param transform the transform
+     * @return the integer form, or {@code null} if the transform is not an axis-aligned rotation or flip with
+     *     an integer translation
+     */
+    @Nullable
+    public static AxisAlignedTransform of(Transform transform) {
+        checkNotNull(transform);
+        if (transform.isIdentity()) {
+            return new AxisAlignedTransform(new int[] { 0, 1, 2 }, new int[] { 1, 1, 1 }, new int[3]);
+        }
+        if (!(transform instanceof AffineTransform affine)) {
+            return null;
+        }
+        double[] coefficients = affine.coefficients();
+        int[] axes = new int[3];
+        int[] signs = new int[3];
+        int[] offsets = new int[3];
+        for (int row = 0; row < 3; row++) {
+            int axis = -1;
+            for (int column = 0; column < 3; column++) {
+                double value = coefficients[row * 4 + column];
+                if (value == 0) {
+                    continue;
+                }
+                if (axis != -1 || (value != 1 && value != -1)) {
+                    return null;
+                }
+                axis = column;
+                signs[row] = (int) value;
+            }
+            double translation = coefficients[row * 4 + 3];
+            if (axis == -1 || translation != Math.rint(translation) || Math.abs(translation) > Integer.MAX_VALUE) {
+                return null;
+            }
+            axes[row] = axis;
+            offsets[row] = (int) translation;
+        }
+        return new AxisAlignedTransform(axes, signs, offsets);
+    }
+
+    // Row i of the matrix: the source axis, its sign and the offset
+    private final int[] axes;
+    private final int[] signs;
+    private final int[] offsets;
+
+    private AxisAlignedTransform(int[] axes, int[] signs, int[] offsets) {
+        this.axes = axes;
+        this.signs = signs;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Get a transform that applies this one around the given offsets, i.e.
+     * that subtracts {@code from} from a position, applies this transform
+     * and adds {@code to}.
+     *
+     * @param from the offset to subtract before the transform
+     * @param to the offset to add after the transform
+     * @return the new transform
+     */
+    public AxisAlignedTransform withOffsets(BlockVector3 from, BlockVector3 to) {
+        int[] newOffsets = new int[3];
+        for (int row = 0; row < 3; row++) {
+            newOffsets[row] = offsets[row] + getCoordinate(to, row) - signs[row] * getCoordinate(from, axes[row]);
+        }
+        return new AxisAlignedTransform(axes, signs, newOffsets);
+    }
+
+    /**
+     * Transform a position.
+     *
+     * @param position the position
+     * @return the transformed position
+     */
+    public BlockVector3 apply(BlockVector3 position) {
+        return BlockVector3.at(
+            signs[0] * getCoordinate(position, axes[0]) + offsets[0],
+            signs[1] * getCoordinate(position, axes[1]) + offsets[1],
+            signs[2] * getCoordinate(position, axes[2]) + offsets[2]
+        );
+    }
+
+    private static int getCoordinate(BlockVector3 position, int axis) {
+        return switch (axis) {
+            case 0 -> position.x();
+            case 1 -> position.y();
+            default -> position.z();
+        };
+    }
+
+}
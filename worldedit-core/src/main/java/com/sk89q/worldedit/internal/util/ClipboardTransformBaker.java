@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.TransformedClipboard;
 import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
 import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
 import com.sk89q.worldedit.function.operation.Operation;
@@ -39,6 +40,10 @@
 /**
  * Helper class to 'bake' a transform into a clipboard.
  *
+ * <p>Baking always copies the original clipboard. Code that only reads the
+ * result can use {@link #viewTransform(Clipboard, Transform)} instead, which
+ * avoids the copy for axis-aligned rotations and flips.</p>
+ *
  * @see Clipboard
  * @see Transform
  */
@@ -143,4 +148,26 @@ public static Clipboard bakeTransform(Clipboard original, Transform transform) t
         return target;
     }
 
+    /**
+     * Get a read-only clipboard with the transform applied.
+     *
+     * <p>Axis-aligned rotations and flips return a {@link TransformedClipboard}
+     * view, which shares the storage of the original clipboard and throws
+     * {@link UnsupportedOperationException} when blocks, biomes or entities
+     * are set. Other transforms are {@linkplain #bakeTransform(Clipboard, Transform) baked}.
+     * The original clipboard must not be changed while the result is in use.</p>
+     *
+     * @param original the original clipboard
+     * @param transform the transform
+     * @return a clipboard to read the transformed blocks from
+     * @throws WorldEditException if an error occurred during copy
+     */
+    public static Clipboard viewTransform(Clipboard original, Transform transform) throws WorldEditException {
+        if (!transform.isIdentity() && TransformedClipboard.canTransform(transform)) {
+            // Rotations and flips only remap positions, so there's no need for a copy
+            return new TransformedClipboard(original, transform);
+        }
+        return bakeTransform(original, transform);
+    }
+
 }
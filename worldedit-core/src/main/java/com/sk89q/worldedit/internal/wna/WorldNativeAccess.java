@@ -28,6 +28,9 @@
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import org.enginehub.linbus.tree.LinCompoundTag;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -110,6 +113,47 @@ default void applySideEffects(BlockVector3 position, BlockState previousType, Si
         markAndNotifyBlock(pos, chunk, oldData, newData, sideEffectSet);
     }
 
+    /**
+     * Apply side effects to many blocks, which are usually all in the same
+     * chunk section. Each chunk is looked up once per run of blocks in it, and
+     * lighting is updated after every block has been updated and notified.
+     *
+     * @param previousTypes the positions of the blocks, and the types of the previous blocks that were there
+     * @param sideEffectSet the side effects to apply
+     */
+    default void applySideEffects(Map<BlockVector3, BlockState> previousTypes, SideEffectSet sideEffectSet) {
+        setCurrentSideEffectSet(sideEffectSet);
+        boolean lighting = sideEffectSet.getState(SideEffect.LIGHTING) == SideEffect.State.ON;
+        List<NP> relight = lighting ? new ArrayList<>(previousTypes.size()) : List.of();
+        NC chunk = null;
+        int chunkX = 0;
+        int chunkZ = 0;
+        for (Map.Entry<BlockVector3, BlockState> entry : previousTypes.entrySet()) {
+            BlockVector3 position = entry.getKey();
+            if (chunk == null || chunkX != position.x() >> 4 || chunkZ != position.z() >> 4) {
+                chunkX = position.x() >> 4;
+                chunkZ = position.z() >> 4;
+                chunk = getChunk(chunkX, chunkZ);
+            }
+            NP pos = getPosition(position.x(), position.y(), position.z());
+            NBS oldData = toNative(entry.getValue());
+            NBS newData = getBlockState(chunk, pos);
+
+            if (sideEffectSet.shouldApply(SideEffect.UPDATE)) {
+                updateBlock(pos, oldData, newData);
+            }
+
+            markAndNotifyBlock(pos, chunk, oldData, newData, sideEffectSet);
+
+            if (lighting) {
+                relight.add(pos);
+            }
+        }
+        for (NP pos : relight) {
+            updateLightingForBlock(pos);
+        }
+    }
+
     // state-keeping functions for WNA
     // may be thread-unsafe, as this is single-threaded code
 
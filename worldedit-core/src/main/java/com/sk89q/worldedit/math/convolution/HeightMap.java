@@ -87,12 +87,7 @@ public HeightMap(EditSession session, Region region, @Nullable Mask mask) {
     public int applyFilter(HeightMapFilter filter, int iterations) throws MaxChangedBlocksException {
         checkNotNull(filter);
 
-        int[] newData = new int[data.length];
-        System.arraycopy(data, 0, newData, 0, data.length);
-
-        for (int i = 0; i < iterations; ++i) {
-            newData = filter.filter(newData, width, height, 0.5F);
-        }
+        int[] newData = filter.filter(data, width, height, 0.5F, iterations);
 
         return apply(newData);
     }
@@ -19,6 +19,11 @@
 
 package com.sk89q.worldedit.math.convolution;
 
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -28,7 +33,12 @@
  */
 public class HeightMapFilter {
 
+    // Height maps with fewer cells are filtered on the calling thread
+    private static final int PARALLELISM_THRESHOLD = 1 << 16;
+
     private Kernel kernel;
+    @Nullable
+    private SeparableKernel separableKernel;
 
     /**
      * Construct the HeightMapFilter object.
@@ -38,6 +48,7 @@ public class HeightMapFilter {
     public HeightMapFilter(Kernel kernel) {
         checkNotNull(kernel);
         this.kernel = kernel;
+        this.separableKernel = SeparableKernel.of(kernel);
     }
 
     /**
@@ -50,6 +61,7 @@ public HeightMapFilter(Kernel kernel) {
     public HeightMapFilter(int kernelWidth, int kernelHeight, float[] kernelData) {
         checkNotNull(kernelData);
         this.kernel = new Kernel(kernelWidth, kernelHeight, kernelData);
+        this.separableKernel = SeparableKernel.of(kernel);
     }
 
     /**
@@ -68,6 +80,7 @@ public void setKernel(Kernel kernel) {
         checkNotNull(kernel);
 
         this.kernel = kernel;
+        this.separableKernel = SeparableKernel.of(kernel);
     }
 
     /**
@@ -94,23 +107,50 @@ public int[] filter(int[] inData, int width, int height) {
      * @return the modified height map
      */
     public int[] filter(int[] inData, int width, int height, float offset) {
+        return filter(inData, width, height, offset, 1);
+    }
+
+    /**
+     * Filter with a 2D kernel several times, rounding the heights down after
+     * each time.
+     *
+     * @param inData the data
+     * @param width the width
+     * @param height the height
+     * @param offset the offset added to the height
+     * @param iterations the number of times to filter
+     *
+     * @return the modified height map
+     */
+    public int[] filter(int[] inData, int width, int height, float offset, int iterations) {
         checkNotNull(inData);
 
-        float[] inDataFloat = new float[inData.length];
+        float[] data = new float[inData.length];
         for (int i = 0; i < inData.length; i++) {
-            inDataFloat[i] = inData[i];
+            data[i] = inData[i];
         }
+        float[] outData = new float[inData.length];
+        float[] scratch = separableKernel != null ? new float[inData.length] : null;
 
-        int index = 0;
-        float[] matrix = kernel.getKernelData(null);
-        int[] outData = new int[inData.length];
+        for (int i = 0; i < iterations; ++i) {
+            convolve(data, outData, scratch, width, height, offset);
+            float[] filtered = outData;
+            forEachRow(width, height, y -> {
+                for (int index = y * width; index < (y + 1) * width; ++index) {
+                    filtered[index] = (float) Math.floor(filtered[index]);
+                }
+            });
+            outData = data;
+            data = filtered;
+        }
 
-        for (int y = 0; y < height; ++y) {
-            for (int x = 0; x < width; ++x) {
-                outData[index++] = (int) Math.floor(calculateHeight(inDataFloat, width, height, offset, matrix, x, y));
-            }
+        // Only the cells inside the height map are filtered, any others are copied
+        int[] result = Arrays.copyOf(inData, inData.length);
+        int cells = Math.min(width * height, inData.length);
+        for (int i = 0; i < cells; i++) {
+            result[i] = (int) data[i];
         }
-        return outData;
+        return result;
     }
 
     /**
@@ -123,18 +163,123 @@ public int[] filter(int[] inData, int width, int height, float offset) {
      * @return the modified height map
      */
     public float[] filter(float[] inData, int width, int height, float offset) {
+        return filter(inData, width, height, offset, 1);
+    }
+
+    /**
+     * Filter with a 2D kernel for float values several times.
+     *
+     * @param inData the data
+     * @param width the width
+     * @param height the height
+     * @param offset the offset added to the height
+     * @param iterations the number of times to filter
+     *
+     * @return the modified height map
+     */
+    public float[] filter(float[] inData, int width, int height, float offset, int iterations) {
         checkNotNull(inData);
 
-        int index = 0;
-        float[] matrix = kernel.getKernelData(null);
+        if (iterations <= 0) {
+            return inData.clone();
+        }
+        float[] data = inData;
         float[] outData = new float[inData.length];
+        float[] scratch = separableKernel != null ? new float[inData.length] : null;
+        float[] spare = iterations > 1 ? new float[inData.length] : null;
+
+        for (int i = 0; i < iterations; ++i) {
+            convolve(data, outData, scratch, width, height, offset);
+            float[] filtered = outData;
+            // Never write to the input
+            outData = data == inData ? spare : data;
+            data = filtered;
+        }
+        // Only the cells inside the height map are filtered, any others are copied
+        int cells = Math.min(width * height, inData.length);
+        System.arraycopy(inData, cells, data, cells, inData.length - cells);
+        return data;
+    }
 
-        for (int y = 0; y < height; ++y) {
+    /**
+     * Convolve the data with the kernel, into {@code outData}. Separable
+     * kernels are applied as a horizontal pass into {@code scratch}, and
+     * then a vertical pass. Large height maps are split by row over the
+     * common fork-join pool.
+     */
+    private void convolve(float[] inData, float[] outData, @Nullable float[] scratch, int width, int height, float offset) {
+        SeparableKernel separable = this.separableKernel;
+        if (separable == null) {
+            float[] matrix = kernel.getKernelData(null);
+            forEachRow(width, height, y -> {
+                for (int x = 0; x < width; ++x) {
+                    outData[y * width + x] = calculateHeight(inData, width, height, offset, matrix, x, y);
+                }
+            });
+            return;
+        }
+        checkNotNull(scratch);
+
+        float[] horizontal = separable.getHorizontal();
+        int kox = kernel.getXOrigin();
+        forEachRow(width, height, y -> {
+            int row = y * width;
             for (int x = 0; x < width; ++x) {
-                outData[index++] = calculateHeight(inData, width, height, offset, matrix, x, y);
+                float z = 0;
+                for (int kx = 0; kx < horizontal.length; ++kx) {
+                    float f = horizontal[kx];
+                    if (f == 0) {
+                        continue;
+                    }
+
+                    int offsetX = x + kx - kox;
+                    // Clamp coordinates inside data
+                    if (offsetX < 0 || offsetX >= width) {
+                        offsetX = x;
+                    }
+
+                    z += f * inData[row + offsetX];
+                }
+                scratch[row + x] = z;
+            }
+        });
+
+        float[] vertical = separable.getVertical();
+        int koy = kernel.getYOrigin();
+        forEachRow(width, height, y -> {
+            int row = y * width;
+            Arrays.fill(outData, row, row + width, 0);
+            for (int ky = 0; ky < vertical.length; ++ky) {
+                float f = vertical[ky];
+                if (f == 0) {
+                    continue;
+                }
+
+                int offsetY = y + ky - koy;
+                // Clamp coordinates inside data
+                if (offsetY < 0 || offsetY >= height) {
+                    offsetY = y;
+                }
+
+                int sourceRow = offsetY * width;
+                for (int x = 0; x < width; ++x) {
+                    outData[row + x] += f * scratch[sourceRow + x];
+                }
+            }
+            for (int x = 0; x < width; ++x) {
+                outData[row + x] += offset;
+            }
+        });
+    }
+
+    private static void forEachRow(int width, int height, IntConsumer action) {
+        if ((long) width * height < PARALLELISM_THRESHOLD) {
+            for (int y = 0; y < height; ++y) {
+                action.accept(y);
             }
+        } else {
+            IntStream.range(0, height).parallel().forEach(action);
         }
-        return outData;
     }
 
     /**
@@ -0,0 +1,94 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+import javax.annotation.Nullable;
+
+/**
+ * A kernel split into a horizontal and a vertical 1D kernel, whose outer
+ * product is the original kernel. Gaussian and linear kernels are separable.
+ */
+final class SeparableKernel {
+
+    // Relative to the largest entry, to allow for rounding in the kernel's data
+    private static final float TOLERANCE = 1e-5f;
+
+    /**
+     * Split a kernel, if it is separable.
+     *
+     * @param kernel the kernel
+     * @return the split kernel, or null if it is not separable
+     */
+    @Nullable
+    static SeparableKernel of(Kernel kernel) {
+        int width = kernel.getWidth();
+        int height = kernel.getHeight();
+        float[] data = kernel.getKernelData(null);
+
+        // Factor through the largest entry, then check that every entry matches
+        int pivot = 0;
+        for (int i = 1; i < width * height; i++) {
+            if (Math.abs(data[i]) > Math.abs(data[pivot])) {
+                pivot = i;
+            }
+        }
+        float max = Math.abs(data[pivot]);
+        if (max == 0) {
+            return null;
+        }
+        int pivotX = pivot % width;
+        int pivotY = pivot / width;
+
+        float[] horizontal = new float[width];
+        for (int x = 0; x < width; x++) {
+            horizontal[x] = data[pivotY * width + x] / data[pivot];
+        }
+        float[] vertical = new float[height];
+        for (int y = 0; y < height; y++) {
+            vertical[y] = data[y * width + pivotX];
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs(vertical[y] * horizontal[x] - data[y * width + x]) > max * TOLERANCE) {
+                    return null;
+                }
+            }
+        }
+        return new SeparableKernel(horizontal, vertical);
+    }
+
+    private final float[] horizontal;
+    private final float[] vertical;
+
+    private SeparableKernel(float[] horizontal, float[] vertical) {
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+    }
+
+    float[] getHorizontal() {
+        return horizontal;
+    }
+
+    float[] getVertical() {
+        return vertical;
+    }
+
+}
@@ -103,11 +103,7 @@ public SnowHeightMap(EditSession session, Region region, @Nullable Mask mask) {
     public float[] applyFilter(HeightMapFilter filter, int iterations) {
         checkNotNull(filter);
 
-        float[] newData = data.clone();
-
-        for (int i = 0; i < iterations; ++i) {
-            newData = filter.filter(newData, width, height, 0);
-        }
+        float[] newData = filter.filter(data, width, height, 0, iterations);
         // add an offset from 0.0625F to the values (half snowlayer)
         for (int i = 0; i < newData.length; ++i) {
             newData[i] = newData[i] + 0.0625F;
@@ -52,7 +52,12 @@ public float noise(Vector2 position) {
 
     @Override
     public float noise(Vector3 position) {
-        return forceRange(module.GetValue(position.x(), position.y(), position.z()));
+        return noise(position.x(), position.y(), position.z());
+    }
+
+    @Override
+    public float noise(double x, double y, double z) {
+        return forceRange(module.GetValue(x, y, z));
     }
 
     private float forceRange(double value) {
@@ -45,4 +45,17 @@ public interface NoiseGenerator {
      */
     float noise(Vector3 position);
 
+    /**
+     * Get the noise value for the given position. The returned value may
+     * change on every future call for the same position.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a noise value between 0 (inclusive) and 1 (inclusive)
+     */
+    default float noise(double x, double y, double z) {
+        return noise(Vector3.at(x, y, z));
+    }
+
 }
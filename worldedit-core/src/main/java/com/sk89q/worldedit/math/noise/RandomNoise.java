@@ -59,4 +59,9 @@ public float noise(Vector3 position) {
         return random.nextFloat();
     }
 
+    @Override
+    public float noise(double x, double y, double z) {
+        return random.nextFloat();
+    }
+
 }
@@ -19,10 +19,14 @@
 
 package com.sk89q.worldedit.session.request;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.world.World;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
@@ -36,6 +40,7 @@ public final class Request {
     private @Nullable World world;
     private @Nullable LocalSession session;
     private @Nullable EditSession editSession;
+    private final List<ListenableFuture<?>> pendingOperations = new ArrayList<>();
     private boolean valid;
 
     private Request() {
@@ -95,6 +100,26 @@ public void setEditSession(@Nullable EditSession editSession) {
         this.editSession = editSession;
     }
 
+    /**
+     * Add an operation that is still running after the request ends, such as
+     * one run by the {@link com.sk89q.worldedit.function.operation.OperationScheduler}.
+     * The {@link EditSession} of the request is only closed once all of them have completed.
+     *
+     * @param future the future of the operation
+     */
+    public void addPendingOperation(ListenableFuture<?> future) {
+        pendingOperations.add(future);
+    }
+
+    /**
+     * Get the operations that are still running after the request ends.
+     *
+     * @return the futures of the pending operations
+     */
+    public List<ListenableFuture<?>> getPendingOperations() {
+        return ImmutableList.copyOf(pendingOperations);
+    }
+
     /**
      * Get the current request, which is specific to the current thread.
      *
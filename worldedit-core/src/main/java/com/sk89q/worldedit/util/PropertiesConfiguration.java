@@ -119,6 +119,11 @@ public void load() {
         scriptTimeout = getInt("scripting-timeout", scriptTimeout);
         calculationTimeout = getInt("calculation-timeout", calculationTimeout);
         maxCalculationTimeout = getInt("max-calculation-timeout", maxCalculationTimeout);
+        taskWorkerThreads = Math.max(1, getInt("task-worker-threads", taskWorkerThreads));
+        taskQueueSize = Math.max(1, getInt("task-queue-size", taskQueueSize));
+        taskVirtualThreads = getBool("task-virtual-threads", taskVirtualThreads);
+        taskTickBudget = Math.max(1, getInt("task-tick-budget", taskTickBudget));
+        taskTickedEditVolume = getInt("task-ticked-edit-volume", taskTickedEditVolume);
         saveDir = getString("schematic-save-dir", saveDir);
         scriptsDir = getString("craftscript-dir", scriptsDir);
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
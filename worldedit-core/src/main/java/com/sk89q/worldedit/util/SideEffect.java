@@ -22,32 +22,34 @@
 import java.util.Locale;
 
 public enum SideEffect {
-    LIGHTING(State.ON, true),
-    NEIGHBORS(State.ON, true),
-    UPDATE(State.ON, true),
-    VALIDATION(State.OFF, true),
-    ENTITY_AI(State.OFF, true),
-    EVENTS(State.OFF, true),
+    LIGHTING(State.ON, true, true),
+    NEIGHBORS(State.ON, true, true),
+    UPDATE(State.ON, true, true),
+    VALIDATION(State.OFF, true, false),
+    ENTITY_AI(State.OFF, true, true),
+    EVENTS(State.OFF, true, false),
     /**
      * Internal use only.
      */
-    POI_UPDATE(State.ON, false),
+    POI_UPDATE(State.ON, false, true),
     /**
      * Internal use only.
      */
-    NETWORK(State.ON, false);
+    NETWORK(State.ON, false, true);
 
     // TODO Make these components in WE8
     private final String displayName;
     private final String description;
     private final State defaultValue;
     private final boolean exposed;
+    private final boolean delayable;
 
-    SideEffect(State defaultValue, boolean exposed) {
+    SideEffect(State defaultValue, boolean exposed, boolean delayable) {
         this.displayName = "worldedit.sideeffect." + this.name().toLowerCase(Locale.US);
         this.description = "worldedit.sideeffect." + this.name().toLowerCase(Locale.US) + ".description";
         this.defaultValue = defaultValue;
         this.exposed = exposed;
+        this.delayable = delayable;
     }
 
     public String getDisplayName() {
@@ -71,9 +73,23 @@ public boolean isExposed() {
         return exposed;
     }
 
+    /**
+     * Determines if this side effect can be {@link State#DELAYED delayed} until after an edit. Side effects that
+     * can't be delayed are applied right away when delayed.
+     *
+     * @return if the side effect can be delayed
+     */
+    public boolean isDelayable() {
+        return delayable;
+    }
+
     public enum State {
         OFF,
         ON,
+        /**
+         * Applied after the edit, in bulk per chunk section, if the side effect is
+         * {@linkplain SideEffect#isDelayable() delayable}.
+         */
         DELAYED;
 
         // TODO Make this a component in WE8
@@ -110,6 +110,12 @@ public void load() {
         calculationTimeout = config.getInt("calculation.timeout", calculationTimeout);
         maxCalculationTimeout = config.getInt("calculation.max-timeout", maxCalculationTimeout);
 
+        taskWorkerThreads = Math.max(1, config.getInt("tasks.worker-threads", taskWorkerThreads));
+        taskQueueSize = Math.max(1, config.getInt("tasks.queue-size", taskQueueSize));
+        taskVirtualThreads = config.getBoolean("tasks.virtual-threads", taskVirtualThreads);
+        taskTickBudget = Math.max(1, config.getInt("tasks.tick-budget", taskTickBudget));
+        taskTickedEditVolume = config.getInt("tasks.ticked-edit-volume", taskTickedEditVolume);
+
         saveDir = config.getString("saving.dir", saveDir);
 
         allowSymlinks = config.getBoolean("files.allow-symbolic-links", false);
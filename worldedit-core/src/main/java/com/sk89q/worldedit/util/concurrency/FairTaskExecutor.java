@@ -0,0 +1,344 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.concurrency;
+
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An executor that shares its worker threads fairly between the owners of
+ * the tasks, usually players.
+ *
+ * <p>Each owner has its own queue. When a worker becomes free, it takes the
+ * oldest task of the next owner in turn, so an owner with many or long tasks
+ * can't hold up everyone else. {@linkplain TaskType#INTERACTIVE Interactive}
+ * tasks are taken before {@linkplain TaskType#BULK bulk} ones.
+ * {@linkplain TaskType#IO I/O tasks} get their own virtual thread if enabled,
+ * and are treated as bulk tasks otherwise.</p>
+ *
+ * <p>Tasks submitted without an owner share one queue.</p>
+ */
+public final class FairTaskExecutor extends AbstractListeningExecutorService {
+
+    /**
+     * The kind of work a task does.
+     */
+    public enum TaskType {
+        /**
+         * Short tasks that a player is waiting for, like listing files.
+         */
+        INTERACTIVE,
+        /**
+         * Long tasks, like large edits.
+         */
+        BULK,
+        /**
+         * Tasks that mostly wait for the disk or network, like loading schematics.
+         */
+        IO
+    }
+
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private static final Object SHARED_OWNER = new Object();
+
+    private final int workerCount;
+    private final int queueSize;
+    private final ExecutorService workers;
+    @Nullable
+    private final ExecutorService ioThreads;
+    private final Object lock = new Object();
+    private final Map<TaskType, LinkedHashMap<Object, ArrayDeque<Runnable>>> queues = new EnumMap<>(TaskType.class);
+    private final Map<Object, Integer> queuedByOwner = new HashMap<>();
+    private int queued;
+    private int activeWorkers;
+    private int running;
+    private boolean shutdown;
+
+    /**
+     * Create a new executor.
+     *
+     * @param workerCount the number of worker threads
+     * @param queueSize the number of tasks each owner can have waiting before new ones are rejected
+     * @param virtualThreadsForIo whether {@linkplain TaskType#IO I/O tasks} run on virtual threads
+     * @param threadFormat the name format of the worker threads
+     */
+    public FairTaskExecutor(int workerCount, int queueSize, boolean virtualThreadsForIo, String threadFormat) {
+        checkArgument(workerCount > 0, "workerCount must be positive");
+        checkArgument(queueSize > 0, "queueSize must be positive");
+        this.workerCount = workerCount;
+        this.queueSize = queueSize;
+        // never more than one drain per worker is submitted
+        this.workers = EvenMoreExecutors.newBoundedCachedThreadPool(workerCount, workerCount, workerCount,
+            checkNotNull(threadFormat));
+        this.ioThreads = virtualThreadsForIo
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("WorldEdit I/O Task - ", 0).factory())
+            : null;
+        queues.put(TaskType.INTERACTIVE, new LinkedHashMap<>());
+        queues.put(TaskType.BULK, new LinkedHashMap<>());
+    }
+
+    /**
+     * Submit a task on behalf of an owner.
+     *
+     * @param owner the owner, compared with {@link Object#equals(Object)}
+     * @param type the kind of work the task does
+     * @param task the task
+     * @param <T> the type of the result
+     * @return the future result
+     * @throws RejectedExecutionException if the owner has too many waiting tasks, or this was shut down
+     */
+    public <T> ListenableFuture<T> submit(Object owner, TaskType type, Callable<T> task) {
+        ListenableFutureTask<T> future = ListenableFutureTask.create(checkNotNull(task));
+        enqueue(checkNotNull(owner), checkNotNull(type), future);
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        enqueue(SHARED_OWNER, TaskType.BULK, checkNotNull(command));
+    }
+
+    private void enqueue(Object owner, TaskType type, Runnable task) {
+        boolean startWorker;
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            int ownerQueued = queuedByOwner.getOrDefault(owner, 0);
+            if (ownerQueued >= queueSize) {
+                throw new RejectedExecutionException("Too many queued tasks (" + ownerQueued + ")");
+            }
+            queuedByOwner.put(owner, ownerQueued + 1);
+            queued++;
+            if (type == TaskType.IO && ioThreads != null) {
+                ioThreads.execute(() -> runIo(owner, task));
+                return;
+            }
+            TaskType level = type == TaskType.IO ? TaskType.BULK : type;
+            queues.get(level).computeIfAbsent(owner, k -> new ArrayDeque<>()).add(task);
+            startWorker = activeWorkers < workerCount;
+            if (startWorker) {
+                activeWorkers++;
+            }
+        }
+        if (startWorker) {
+            workers.execute(this::drain);
+        }
+    }
+
+    private void runIo(Object owner, Runnable task) {
+        synchronized (lock) {
+            dequeued(owner);
+            running++;
+        }
+        try {
+            task.run();
+        } finally {
+            synchronized (lock) {
+                running--;
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (lock) {
+                task = next();
+                if (task == null) {
+                    activeWorkers--;
+                    return;
+                }
+                running++;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // keep the worker, or its slot would be lost for good
+                LOGGER.error("Uncaught exception in task", t);
+            } finally {
+                synchronized (lock) {
+                    running--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the next task, from the owner whose turn it is at the highest level. Must hold the lock.
+     */
+    @Nullable
+    private Runnable next() {
+        for (LinkedHashMap<Object, ArrayDeque<Runnable>> level : queues.values()) {
+            Iterator<Map.Entry<Object, ArrayDeque<Runnable>>> owners = level.entrySet().iterator();
+            if (!owners.hasNext()) {
+                continue;
+            }
+            Map.Entry<Object, ArrayDeque<Runnable>> entry = owners.next();
+            Object owner = entry.getKey();
+            ArrayDeque<Runnable> ownerQueue = entry.getValue();
+            Runnable task = ownerQueue.poll();
+            // the owner goes to the back of the line
+            owners.remove();
+            if (!ownerQueue.isEmpty()) {
+                level.put(owner, ownerQueue);
+            }
+            dequeued(owner);
+            return task;
+        }
+        return null;
+    }
+
+    private void dequeued(Object owner) {
+        queued--;
+        queuedByOwner.computeIfPresent(owner, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Get the number of tasks that are waiting to run.
+     *
+     * @return the number of waiting tasks
+     */
+    public int getQueuedTaskCount() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    /**
+     * Get the number of tasks of the owner that are waiting to run.
+     *
+     * @param owner the owner
+     * @return the number of waiting tasks
+     */
+    public int getQueuedTaskCount(Object owner) {
+        synchronized (lock) {
+            return queuedByOwner.getOrDefault(owner, 0);
+        }
+    }
+
+    /**
+     * Get the number of owners that have tasks waiting to run.
+     *
+     * @return the number of owners
+     */
+    public int getQueuedOwnerCount() {
+        synchronized (lock) {
+            return queuedByOwner.size();
+        }
+    }
+
+    /**
+     * Get the number of tasks that are running.
+     *
+     * @return the number of running tasks
+     */
+    public int getRunningTaskCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the number of workers
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+        }
+        workers.shutdown();
+        if (ioThreads != null) {
+            ioThreads.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            // I/O tasks handed to their threads are still counted until they run
+            for (LinkedHashMap<Object, ArrayDeque<Runnable>> level : queues.values()) {
+                for (Map.Entry<Object, ArrayDeque<Runnable>> entry : level.entrySet()) {
+                    for (Runnable task : entry.getValue()) {
+                        pending.add(task);
+                        dequeued(entry.getKey());
+                    }
+                }
+                level.clear();
+            }
+        }
+        workers.shutdownNow();
+        if (ioThreads != null) {
+            pending.addAll(ioThreads.shutdownNow());
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return workers.isTerminated() && (ioThreads == null || ioThreads.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!workers.awaitTermination(timeout, unit)) {
+            return false;
+        }
+        return ioThreads == null || ioThreads.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
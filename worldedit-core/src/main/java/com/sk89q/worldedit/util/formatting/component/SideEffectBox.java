@@ -63,6 +63,7 @@ public SideEffectBox(SideEffectSet sideEffectSet) {
     }
 
     private static final SideEffect.State[] SHOWN_VALUES = {SideEffect.State.OFF, SideEffect.State.ON};
+    private static final SideEffect.State[] SHOWN_DELAYABLE_VALUES = {SideEffect.State.OFF, SideEffect.State.ON, SideEffect.State.DELAYED};
 
     @Override
     public Component getComponent(int number) {
@@ -72,7 +73,7 @@ public Component getComponent(int number) {
         TextComponent.Builder builder = TextComponent.builder();
         builder = builder.append(TranslatableComponent.of(effect.getDisplayName(), TextColor.YELLOW)
                 .hoverEvent(HoverEvent.of(HoverEvent.Action.SHOW_TEXT, TranslatableComponent.of(effect.getDescription()))));
-        for (SideEffect.State uiState : SHOWN_VALUES) {
+        for (SideEffect.State uiState : effect.isDelayable() ? SHOWN_DELAYABLE_VALUES : SHOWN_VALUES) {
             builder = builder.append(TextComponent.space());
             builder = builder.append(TranslatableComponent.of(uiState.getDisplayName(), uiState == state ? TextColor.WHITE : TextColor.GRAY)
                     .clickEvent(ClickEvent.runCommand("//perf -h " + effect.name().toLowerCase(Locale.US) + " " + uiState.name().toLowerCase(Locale.US)))
@@ -0,0 +1,433 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Pooled zlib state for the chunk stores, snapshot readers and clipboard formats.
+ *
+ * <p>
+ * {@link java.util.zip.GZIPInputStream} and friends allocate a new native {@link Inflater} or
+ * {@link Deflater} for every stream, which adds up quickly when restoring thousands of chunks or
+ * loading a batch of schematics. The streams created here instead take their zlib state (and, for
+ * chunk data, their input buffer) from a per-thread pool, and return it when they are closed.
+ * Streams that are never closed simply leave their state to the garbage collector.
+ * </p>
+ */
+public final class ZlibPools {
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    /**
+     * Region files cannot store chunks larger than 1 MiB, so there's no point keeping anything
+     * larger than that around.
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+    private static final Pool<Inflater> GZIP_INFLATERS = new Pool<>(
+        () -> new Inflater(true), Inflater::reset, Inflater::end
+    );
+    private static final Pool<Inflater> ZLIB_INFLATERS = new Pool<>(
+        Inflater::new, Inflater::reset, Inflater::end
+    );
+    private static final Pool<Deflater> GZIP_DEFLATERS = new Pool<>(
+        () -> new Deflater(Deflater.DEFAULT_COMPRESSION, true), Deflater::reset, Deflater::end
+    );
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+    /**
+     * Wrap a GZIP-compressed stream. Like {@link java.util.zip.GZIPInputStream}, concatenated GZIP
+     * members are read as one stream, and anything after the last member that is not a GZIP header
+     * is ignored.
+     *
+     * @param in the compressed stream
+     * @return the uncompressed stream
+     * @throws IOException if the GZIP header could not be read
+     */
+    public static InputStream gzipInputStream(InputStream in) throws IOException {
+        return new PooledInflaterInputStream(in, GZIP_INFLATERS, null);
+    }
+
+    /**
+     * Wrap a zlib-compressed stream.
+     *
+     * @param in the compressed stream
+     * @return the uncompressed stream
+     */
+    public static InputStream zlibInputStream(InputStream in) {
+        try {
+            return new PooledInflaterInputStream(in, ZLIB_INFLATERS, null);
+        } catch (IOException e) {
+            // only GZIP streams read a header up front
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Wrap a stream so that everything written to it is GZIP-compressed.
+     *
+     * @param out the stream to write compressed data to
+     * @return the compressing stream
+     * @throws IOException if the GZIP header could not be written
+     */
+    public static DeflaterOutputStream gzipOutputStream(OutputStream out) throws IOException {
+        return new PooledGzipOutputStream(out);
+    }
+
+    /**
+     * Borrow a scratch buffer of at least the given size from the current thread's pool. It should
+     * be given back with {@link #releaseBuffer(byte[])}, or handed off to
+     * {@link #inflate(byte[], int, boolean)}.
+     *
+     * @param minSize the minimum size of the buffer
+     * @return a buffer, with unspecified contents
+     */
+    public static byte[] borrowBuffer(int minSize) {
+        byte[] buffer = BUFFERS.get();
+        if (buffer == null || buffer.length < minSize) {
+            return new byte[minSize];
+        }
+        BUFFERS.set(null);
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back to the current thread's pool.
+     *
+     * @param buffer the buffer
+     */
+    public static void releaseBuffer(byte[] buffer) {
+        if (buffer.length > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+        byte[] current = BUFFERS.get();
+        if (current == null || current.length < buffer.length) {
+            BUFFERS.set(buffer);
+        }
+    }
+
+    /**
+     * Decompress the first {@code length} bytes of a buffer obtained from
+     * {@link #borrowBuffer(int)}. The returned stream takes ownership of the buffer, and releases
+     * it when closed.
+     *
+     * @param buffer the compressed data
+     * @param length the length of the compressed data
+     * @param gzip {@code true} if the data is GZIP-compressed, {@code false} if it is zlib-compressed
+     * @return the uncompressed stream
+     * @throws IOException if the GZIP header could not be read
+     */
+    public static InputStream inflate(byte[] buffer, int length, boolean gzip) throws IOException {
+        InputStream in = new ByteArrayInputStream(buffer, 0, length);
+        try {
+            return new PooledInflaterInputStream(in, gzip ? GZIP_INFLATERS : ZLIB_INFLATERS, buffer);
+        } catch (IOException e) {
+            releaseBuffer(buffer);
+            throw e;
+        }
+    }
+
+    private ZlibPools() {
+    }
+
+    private static final class Pool<T> {
+
+        private final ThreadLocal<T> idle = new ThreadLocal<>();
+        private final Supplier<T> factory;
+        private final Consumer<T> reset;
+        private final Consumer<T> discard;
+
+        private Pool(Supplier<T> factory, Consumer<T> reset, Consumer<T> discard) {
+            this.factory = factory;
+            this.reset = reset;
+            this.discard = discard;
+        }
+
+        T borrow() {
+            T value = idle.get();
+            if (value == null) {
+                return factory.get();
+            }
+            idle.set(null);
+            return value;
+        }
+
+        void release(T value) {
+            if (idle.get() != null) {
+                discard.accept(value);
+                return;
+            }
+            reset.accept(value);
+            idle.set(value);
+        }
+    }
+
+    private static final class PooledInflaterInputStream extends InflaterInputStream {
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        private final Pool<Inflater> pool;
+        private final byte[] ownedBuffer;
+        private final CRC32 crc;
+        private boolean eos;
+        private boolean released;
+
+        PooledInflaterInputStream(InputStream in, Pool<Inflater> pool, byte[] ownedBuffer) throws IOException {
+            super(in, pool.borrow(), STREAM_BUFFER_SIZE);
+            this.pool = pool;
+            this.ownedBuffer = ownedBuffer;
+            this.crc = pool == GZIP_INFLATERS ? new CRC32() : null;
+            if (crc != null) {
+                try {
+                    readHeader(in);
+                } catch (IOException e) {
+                    release();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Read a GZIP member header.
+         *
+         * @return the length of the header in bytes
+         */
+        private static int readHeader(InputStream in) throws IOException {
+            if (readUShort(in) != 0x8b1f) {
+                throw new ZipException("Not in GZIP format");
+            }
+            if (readUByte(in) != 8) {
+                throw new ZipException("Unsupported compression method");
+            }
+            int flags = readUByte(in);
+            // MTIME, XFL, OS
+            skipFully(in, 6);
+            int length = 10;
+            if ((flags & FEXTRA) == FEXTRA) {
+                int extraLength = readUShort(in);
+                skipFully(in, extraLength);
+                length += extraLength + 2;
+            }
+            if ((flags & FNAME) == FNAME) {
+                do {
+                    length++;
+                } while (readUByte(in) != 0);
+            }
+            if ((flags & FCOMMENT) == FCOMMENT) {
+                do {
+                    length++;
+                } while (readUByte(in) != 0);
+            }
+            if ((flags & FHCRC) == FHCRC) {
+                skipFully(in, 2);
+                length += 2;
+            }
+            return length;
+        }
+
+        /**
+         * Read the trailer of the current member, and the header of the next one if there is one.
+         *
+         * @return {@code true} if the end of the stream was reached
+         */
+        private boolean readTrailer() throws IOException {
+            InputStream trailerIn = in;
+            int remaining = inf.getRemaining();
+            if (remaining > 0) {
+                trailerIn = new SequenceInputStream(
+                    new ByteArrayInputStream(buf, len - remaining, remaining),
+                    new FilterInputStream(in) {
+                        @Override
+                        public void close() {
+                        }
+                    }
+                );
+            }
+            long expectedCrc = readUInt(trailerIn);
+            long expectedSize = readUInt(trailerIn);
+            if (expectedCrc != crc.getValue() || expectedSize != (inf.getBytesWritten() & 0xFFFFFFFFL)) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+
+            // 8 bytes of trailer, and at least 10 bytes of header and 8 bytes of trailer after it
+            if (in.available() == 0 && remaining <= 26) {
+                return true;
+            }
+            int consumed = 8;
+            try {
+                consumed += readHeader(trailerIn);
+            } catch (IOException e) {
+                // not another member, like GZIPInputStream
+                return true;
+            }
+            inf.reset();
+            crc.reset();
+            if (remaining > consumed) {
+                inf.setInput(buf, len - remaining + consumed, remaining - consumed);
+            }
+            return false;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eos) {
+                return -1;
+            }
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                if (crc != null && !readTrailer()) {
+                    return read(b, off, len);
+                }
+                eos = true;
+            } else if (crc != null) {
+                crc.update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return eos ? 0 : super.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            released = true;
+            pool.release(inf);
+            if (ownedBuffer != null) {
+                releaseBuffer(ownedBuffer);
+            }
+        }
+    }
+
+    private static final class PooledGzipOutputStream extends DeflaterOutputStream {
+
+        private static final byte[] HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+        };
+
+        private final CRC32 crc = new CRC32();
+        private boolean trailerWritten;
+        private boolean released;
+
+        PooledGzipOutputStream(OutputStream out) throws IOException {
+            super(out, GZIP_DEFLATERS.borrow(), STREAM_BUFFER_SIZE);
+            try {
+                out.write(HEADER);
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            super.finish();
+            if (!trailerWritten) {
+                trailerWritten = true;
+                writeUInt(out, crc.getValue());
+                writeUInt(out, def.getBytesRead());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            released = true;
+            GZIP_DEFLATERS.release(def);
+        }
+    }
+
+    private static int readUByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static int readUShort(InputStream in) throws IOException {
+        int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    private static long readUInt(InputStream in) throws IOException {
+        long s = readUShort(in);
+        return ((long) readUShort(in) << 16) | s;
+    }
+
+    private static void skipFully(InputStream in, int n) throws IOException {
+        while (n > 0) {
+            readUByte(in);
+            n--;
+        }
+    }
+
+    private static void writeUInt(OutputStream out, long value) throws IOException {
+        out.write((int) (value & 0xFF));
+        out.write((int) ((value >> 8) & 0xFF));
+        out.write((int) ((value >> 16) & 0xFF));
+        out.write((int) ((value >> 24) & 0xFF));
+    }
+}
@@ -128,6 +128,7 @@ public static Progress split(Collection<Progress> progress) {
                 return indeterminate();
             }
             total += p.getProgress();
+            count++;
         }
 
         return of(total / count);
@@ -161,6 +162,7 @@ public static Progress splitObservables(Collection<? extends ProgressObservable>
                 return indeterminate();
             }
             total += p.getProgress();
+            count++;
         }
 
         return of(total / count);
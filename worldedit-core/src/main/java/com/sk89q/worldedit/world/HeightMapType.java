@@ -0,0 +1,36 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world;
+
+/**
+ * The types of height map that a platform may keep for each column of a world.
+ *
+ * @see World#getHighestBlockY(HeightMapType, int, int)
+ */
+public enum HeightMapType {
+    /**
+     * The highest block that is not air.
+     */
+    WORLD_SURFACE,
+    /**
+     * The highest block that blocks movement or contains a fluid.
+     */
+    MOTION_BLOCKING
+}
@@ -47,6 +47,9 @@
 import com.sk89q.worldedit.world.weather.WeatherType;
 
 import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.OptionalInt;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -85,6 +88,23 @@ public interface World extends Extent, Keyed {
      */
     int getMaxY();
 
+    /**
+     * Get the Y of the highest block in a column that counts towards the
+     * platform's height map of the given type, without scanning the column.
+     *
+     * <p>The height map only reflects blocks that are in the world, not those
+     * buffered by an {@link EditSession}.</p>
+     *
+     * @param type the type of height map
+     * @param x the X coordinate of the column
+     * @param z the Z coordinate of the column
+     * @return the Y of the highest block, which is below {@link #getMinY()} if there is none, or empty if the
+     *     platform does not keep that height map
+     */
+    default OptionalInt getHighestBlockY(HeightMapType type, int x, int z) {
+        return OptionalInt.empty();
+    }
+
     /**
      * Create a mask that matches all liquids.
      *
@@ -169,6 +189,23 @@ default boolean notifyAndLightBlock(BlockVector3 position, BlockState previousTy
      */
     Set<SideEffect> applySideEffects(BlockVector3 position, BlockState previousType, SideEffectSet sideEffectSet) throws WorldEditException;
 
+    /**
+     * Applies a set of side effects on the given blocks, which are usually all
+     * in the same chunk section. Implementations may apply the side effects in
+     * bulk, rather than one block at a time.
+     *
+     * @param previousTypes the positions of the blocks, and the types of the previous blocks that were there
+     * @param sideEffectSet which side effects to perform
+     * @return a set of side effects that were applied
+     */
+    default Set<SideEffect> applySideEffects(Map<BlockVector3, BlockState> previousTypes, SideEffectSet sideEffectSet) throws WorldEditException {
+        Set<SideEffect> applied = EnumSet.noneOf(SideEffect.class);
+        for (Map.Entry<BlockVector3, BlockState> entry : previousTypes.entrySet()) {
+            applied.addAll(applySideEffects(entry.getKey(), entry.getValue(), sideEffectSet));
+        }
+        return applied;
+    }
+
     /**
      * Get the light level at the given block.
      *
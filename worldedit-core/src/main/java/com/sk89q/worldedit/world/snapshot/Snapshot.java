@@ -86,23 +86,15 @@ public ChunkStore getChunkStore() throws IOException, DataException {
     private ChunkStore internalGetChunkStore() throws IOException, DataException {
         String lowerCaseFileName = file.getName().toLowerCase(Locale.ROOT);
         if (lowerCaseFileName.endsWith(".zip")) {
-            try {
-                ChunkStore chunkStore = new TrueZipMcRegionChunkStore(file);
-
-                if (!chunkStore.isValid()) {
-                    return new TrueZipLegacyChunkStore(file);
-                }
-
-                return chunkStore;
-            } catch (NoClassDefFoundError e) {
-                ChunkStore chunkStore = new ZippedMcRegionChunkStore(file);
-
-                if (!chunkStore.isValid()) {
-                    return new ZippedLegacyChunkStore(file);
-                }
+            // The JDK's ZIP file system supports concurrent reads, so it's preferred over TrueZip
+            ChunkStore chunkStore = new ZippedMcRegionChunkStore(file);
 
-                return chunkStore;
+            if (!chunkStore.isValid()) {
+                chunkStore.close();
+                return new ZippedLegacyChunkStore(file);
             }
+
+            return chunkStore;
         } else if (lowerCaseFileName.endsWith(".tar.bz2")
                 || lowerCaseFileName.endsWith(".tar.gz")
                 || lowerCaseFileName.endsWith(".tar")) {
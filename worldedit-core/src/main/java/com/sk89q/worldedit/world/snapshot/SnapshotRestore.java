@@ -19,13 +19,16 @@
 
 package com.sk89q.worldedit.world.snapshot;
 
+import com.google.common.base.Throwables;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.chunk.Chunk;
 import com.sk89q.worldedit.world.storage.ChunkStore;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
@@ -33,10 +36,19 @@
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nullable;
 
 /**
  * A snapshot restore operation.
@@ -45,6 +57,12 @@ public class SnapshotRestore {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
+    /**
+     * How many chunks may be loaded ahead of the one being restored, for chunk stores that
+     * support concurrent reads.
+     */
+    private static final int LOAD_AHEAD = 8;
+
     private final Map<BlockVector2, ArrayList<BlockVector3>> neededChunks = new LinkedHashMap<>();
     private final ChunkStore chunkStore;
     private final EditSession editSession;
@@ -138,30 +156,89 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<>();
         errorChunks = new ArrayList<>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
-            Chunk chunk;
-
-            try {
-                chunk = chunkStore.getChunk(chunkPos, editSession.getWorld());
-                // Good, the chunk could be at least loaded
-
-                // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
-                    try {
-                        editSession.setBlock(pos, chunk.getBlock(pos));
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
-                    }
+        World world = editSession.getWorld();
+        // Chunks are loaded (and decompressed) ahead of time on other threads if possible,
+        // but are always applied to the edit session in order on this thread
+        ExecutorService chunkLoader = chunkStore.supportsConcurrentReads()
+            ? WorldEdit.getInstance().getPlatformManager().getSnapshotLoaderService().orElse(null)
+            : null;
+        int loadAhead = chunkLoader != null ? LOAD_AHEAD : 0;
+        Iterator<Map.Entry<BlockVector2, ArrayList<BlockVector3>>> remaining = neededChunks.entrySet().iterator();
+        Deque<PendingChunk> pending = new ArrayDeque<>(loadAhead + 1);
+
+        try {
+            // Now let's start restoring!
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && pending.size() <= loadAhead) {
+                    Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry = remaining.next();
+                    BlockVector2 chunkPos = entry.getKey();
+                    Future<Chunk> future = loadAhead == 0 ? null : submitLoad(chunkLoader, chunkPos, world);
+                    pending.add(new PendingChunk(chunkPos, entry.getValue(), future));
+                }
+                restoreChunk(pending.remove(), world);
+            }
+        } finally {
+            for (PendingChunk chunk : pending) {
+                if (chunk.future() != null) {
+                    // Don't interrupt, as that can close the channel the store is reading from
+                    chunk.future().cancel(false);
+                }
+            }
+        }
+    }
+
+    private void restoreChunk(PendingChunk pending, World world) throws MaxChangedBlocksException {
+        BlockVector2 chunkPos = pending.position();
+        Chunk chunk;
+
+        try {
+            chunk = loadChunk(pending, world);
+            // Good, the chunk could be at least loaded
+
+            // Now just copy blocks!
+            for (BlockVector3 pos : pending.blocks()) {
+                try {
+                    editSession.setBlock(pos, chunk.getBlock(pos));
+                } catch (DataException e) {
+                    // this is a workaround: just ignore for now
                 }
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (IOException | DataException me) {
-                LOGGER.info(() -> "Failed to load chunk at " + chunkPos, me);
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
             }
+        } catch (MissingChunkException me) {
+            missingChunks.add(chunkPos);
+        } catch (IOException | DataException me) {
+            LOGGER.info(() -> "Failed to load chunk at " + chunkPos, me);
+            errorChunks.add(chunkPos);
+            lastErrorMessage = me.getMessage();
+        }
+    }
+
+    @Nullable
+    private Future<Chunk> submitLoad(ExecutorService chunkLoader, BlockVector2 chunkPos, World world) {
+        try {
+            return chunkLoader.submit(() -> chunkStore.getChunk(chunkPos, world));
+        } catch (RejectedExecutionException e) {
+            // The platform is shutting down, so load the chunk on this thread
+            return null;
+        }
+    }
+
+    private Chunk loadChunk(PendingChunk pending, World world) throws DataException, IOException {
+        if (pending.future() == null) {
+            return chunkStore.getChunk(pending.position(), world);
+        }
+        try {
+            return pending.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading chunk", e);
+        } catch (CancellationException e) {
+            throw new IOException("Chunk loading was cancelled", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, DataException.class);
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
         }
     }
 
@@ -204,4 +281,7 @@ public String getLastErrorMessage() {
         return lastErrorMessage;
     }
 
+    private record PendingChunk(BlockVector2 position, List<BlockVector3> blocks, @Nullable Future<Chunk> future) {
+    }
+
 }
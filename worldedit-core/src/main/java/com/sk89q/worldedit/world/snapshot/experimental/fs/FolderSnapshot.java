@@ -22,6 +22,7 @@
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.io.Closer;
+import com.sk89q.worldedit.util.io.ZlibPools;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.snapshot.experimental.Snapshot;
 import com.sk89q.worldedit.world.snapshot.experimental.SnapshotInfo;
@@ -41,7 +42,6 @@
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -139,7 +139,7 @@ public LinCompoundTag getChunkTag(BlockVector3 position) throws DataException, I
             if (!Files.exists(chunkFile)) {
                 throw new MissingChunkException();
             }
-            try (var chunkStream = new DataInputStream(new GZIPInputStream(Files.newInputStream(chunkFile)))) {
+            try (var chunkStream = new DataInputStream(ZlibPools.gzipInputStream(Files.newInputStream(chunkFile)))) {
                 return LinBinaryIO.readUsing(chunkStream, LinRootEntry::readFrom).value();
             }
         }
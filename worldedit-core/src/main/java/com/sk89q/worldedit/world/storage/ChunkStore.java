@@ -124,6 +124,15 @@ public Chunk getChunk(BlockVector2 position, World world) throws DataException,
         return ChunkStoreHelper.getChunk(rootTag);
     }
 
+    /**
+     * Returns whether chunks may be read from this store by several threads at once.
+     *
+     * @return true if concurrent reads are supported
+     */
+    public boolean supportsConcurrentReads() {
+        return false;
+    }
+
     @Override
     public void close() throws IOException {
     }
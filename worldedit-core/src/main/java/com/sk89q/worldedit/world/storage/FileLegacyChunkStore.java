@@ -62,6 +62,11 @@ protected InputStream getInputStream(String f1, String f2, String name) throws D
         }
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
+
     @Override
     public boolean isValid() {
         return true; // Yeah, oh well
@@ -71,6 +71,11 @@ protected InputStream getInputStream(String name, String world) throws IOExcepti
         }
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
+
     @Override
     public boolean isValid() {
         return new File(path, "region").isDirectory()
@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.io.ZlibPools;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 import org.enginehub.linbus.stream.LinBinaryIO;
@@ -30,7 +31,6 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Represents chunk stores that use Alpha's file format for storing chunks.
@@ -79,7 +79,7 @@ public LinCompoundTag getChunkData(BlockVector2 position, World world) throws Da
         String filename = "c." + Integer.toString(x, 36)
                 + "." + Integer.toString(z, 36) + ".dat";
 
-        try (var chunkStream = new DataInputStream(new GZIPInputStream(getInputStream(folder1, folder2, filename)))) {
+        try (var chunkStream = new DataInputStream(ZlibPools.gzipInputStream(getInputStream(folder1, folder2, filename)))) {
             return LinBinaryIO.readUsing(chunkStream, LinRootEntry::readFrom).toLinTag();
         }
     }
@@ -57,16 +57,14 @@ counts. The chunk offset for a chunk (x, z) begins at byte 4*(x+z*32) in the
 
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.util.io.ForwardSeekableInputStream;
+import com.sk89q.worldedit.util.io.ZlibPools;
 import com.sk89q.worldedit.world.DataException;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 
 /**
  * Reader for a MCRegion file. This reader works on input streams, meaning
@@ -144,19 +142,22 @@ public synchronized InputStream getChunkInputStream(BlockVector2 position) throw
 
         byte version = dataStream.readByte();
 
-        byte[] data = new byte[length - 1];
+        // The buffer is handed off to the returned stream, which gives it back to the pool on close
+        byte[] data = ZlibPools.borrowBuffer(length - 1);
         try {
-            dataStream.readFully(data);
+            dataStream.readFully(data, 0, length - 1);
         } catch (EOFException e) {
+            ZlibPools.releaseBuffer(data);
             throw new DataException("MCRegion file does not contain "
                 + x + "," + z + " in full");
         }
 
         if (version == VERSION_GZIP) {
-            return new GZIPInputStream(new ByteArrayInputStream(data));
+            return ZlibPools.inflate(data, length - 1, true);
         } else if (version == VERSION_DEFLATE) {
-            return new InflaterInputStream(new ByteArrayInputStream(data));
+            return ZlibPools.inflate(data, length - 1, false);
         } else {
+            ZlibPools.releaseBuffer(data);
             throw new DataException("MCRegion chunk at "
                     + x + "," + z + " has an unsupported version of " + version);
         }
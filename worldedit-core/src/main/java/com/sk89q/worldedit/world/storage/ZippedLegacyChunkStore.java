@@ -24,18 +24,22 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 /**
  * Represents the chunk store used by Minecraft alpha but zipped.
+ *
+ * <p>
+ * The ZIP is opened as a {@link FileSystem}, so chunks may be read from several threads at once.
+ * </p>
  */
 public class ZippedLegacyChunkStore extends LegacyChunkStore {
 
-    private final ZipFile zip;
+    private final FileSystem zip;
     private String folder;
 
     /**
@@ -51,7 +55,7 @@ public class ZippedLegacyChunkStore extends LegacyChunkStore {
     public ZippedLegacyChunkStore(File zipFile, String folder) throws IOException, ZipException {
         this.folder = folder;
 
-        zip = new ZipFile(zipFile);
+        zip = ZippedMcRegionChunkStore.openZip(zipFile);
     }
 
     /**
@@ -63,7 +67,7 @@ public ZippedLegacyChunkStore(File zipFile, String folder) throws IOException, Z
      * @throws ZipException if there is an error opening the zip
      */
     public ZippedLegacyChunkStore(File zipFile) throws IOException, ZipException {
-        zip = new ZipFile(zipFile);
+        zip = ZippedMcRegionChunkStore.openZip(zipFile);
     }
 
     /**
@@ -78,15 +82,27 @@ public ZippedLegacyChunkStore(File zipFile) throws IOException, ZipException {
      */
     @Override
     protected InputStream getInputStream(String f1, String f2, String name) throws IOException, DataException {
-        String file = f1 + "/" + f2 + "/" + name;
+        String file = resolveEntryName(f1 + "/" + f2 + "/" + name);
+
+        Path entry = getEntry(file);
+        if (entry == null) {
+            throw new MissingChunkException();
+        }
+        try {
+            return Files.newInputStream(entry);
+        } catch (ZipException e) {
+            throw new IOException("Failed to read " + file + " in ZIP");
+        }
+    }
 
+    private synchronized String resolveEntryName(String file) throws IOException {
         // Detect subfolder for the world's files
         if (folder != null) {
             if (!folder.isEmpty()) {
                 file = folder + "/" + file;
             }
         } else {
-            ZipEntry testEntry = zip.getEntry("level.dat");
+            Path testEntry = getEntry("level.dat");
 
             // So, the data is not in the root directory
             if (testEntry == null) {
@@ -97,13 +113,10 @@ protected InputStream getInputStream(String f1, String f2, String name) throws I
 
                 // So not there either...
                 if (testEntry == null) {
-                    for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
-
-                        testEntry = e.nextElement();
-
+                    for (String entryName : ZippedMcRegionChunkStore.listEntries(zip)) {
                         // Whoo, found level.dat!
-                        if (pattern.matcher(testEntry.getName()).matches()) {
-                            folder = testEntry.getName().replaceAll("level\\.dat$", "");
+                        if (pattern.matcher(entryName).matches()) {
+                            folder = entryName.replaceAll("level\\.dat$", "");
                             folder = folder.substring(0, folder.length() - 1);
                             file = folder + file;
                             break;
@@ -114,16 +127,7 @@ protected InputStream getInputStream(String f1, String f2, String name) throws I
                 }
             }
         }
-
-        ZipEntry entry = getEntry(file);
-        if (entry == null) {
-            throw new MissingChunkException();
-        }
-        try {
-            return zip.getInputStream(entry);
-        } catch (ZipException e) {
-            throw new IOException("Failed to read " + file + " in ZIP");
-        }
+        return file;
     }
 
     /**
@@ -132,12 +136,8 @@ protected InputStream getInputStream(String f1, String f2, String name) throws I
      * @param file the file
      * @return an entry
      */
-    private ZipEntry getEntry(String file) {
-        ZipEntry entry = zip.getEntry(file);
-        if (entry != null) {
-            return entry;
-        }
-        return zip.getEntry(file.replace("/", "\\"));
+    private Path getEntry(String file) {
+        return ZippedMcRegionChunkStore.getEntry(zip, file);
     }
 
     @Override
@@ -145,6 +145,11 @@ public void close() throws IOException {
         zip.close();
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
+
     @Override
     public boolean isValid() {
         return true; // Yeah, oh well
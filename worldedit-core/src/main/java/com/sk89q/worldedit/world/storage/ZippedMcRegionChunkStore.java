@@ -21,25 +21,46 @@
 
 package com.sk89q.worldedit.world.storage;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.sk89q.worldedit.world.DataException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 /**
  * Represents the chunk store used by Minecraft alpha but zipped.
+ *
+ * <p>
+ * The ZIP is opened as a {@link FileSystem}, so chunks may be read from several threads at once.
+ * Region files are inflated once and then kept in memory, as restoring an area reads many chunks
+ * from the same few region files.
+ * </p>
  */
 public class ZippedMcRegionChunkStore extends McRegionChunkStore {
 
+    private static final long MAX_CACHED_REGION_BYTES = 64L * 1024 * 1024;
+
     protected File zipFile;
-    protected ZipFile zip;
+    protected FileSystem zip;
     protected String folder;
+    private final Cache<String, byte[]> regionCache;
 
     /**
      * Create an instance. The folder argument lets you choose a folder or
@@ -52,10 +73,15 @@ public class ZippedMcRegionChunkStore extends McRegionChunkStore {
      * @throws ZipException if there is an error opening the zip
      */
     public ZippedMcRegionChunkStore(File zipFile, String folder) throws IOException, ZipException {
+        this(zipFile, folder, MAX_CACHED_REGION_BYTES);
+    }
+
+    ZippedMcRegionChunkStore(File zipFile, String folder, long maxCachedRegionBytes) throws IOException, ZipException {
         this.zipFile = zipFile;
         this.folder = folder;
+        this.regionCache = createRegionCache(maxCachedRegionBytes);
 
-        zip = new ZipFile(zipFile);
+        zip = openZip(zipFile);
     }
 
     /**
@@ -68,12 +94,76 @@ public ZippedMcRegionChunkStore(File zipFile, String folder) throws IOException,
      */
     public ZippedMcRegionChunkStore(File zipFile) throws IOException, ZipException {
         this.zipFile = zipFile;
+        this.regionCache = createRegionCache(MAX_CACHED_REGION_BYTES);
+
+        zip = openZip(zipFile);
+    }
 
-        zip = new ZipFile(zipFile);
+    private static Cache<String, byte[]> createRegionCache(long maxCachedRegionBytes) {
+        return CacheBuilder.newBuilder()
+            // The weight limit is split between the segments, so more than one would stop large regions being cached
+            .concurrencyLevel(1)
+            .maximumWeight(maxCachedRegionBytes)
+            .weigher((String name, byte[] data) -> data.length)
+            .build();
+    }
+
+    static FileSystem openZip(File zipFile) throws IOException {
+        return FileSystems.newFileSystem(zipFile.toPath(), ZippedMcRegionChunkStore.class.getClassLoader());
+    }
+
+    /**
+     * List the names of all files in the ZIP.
+     *
+     * @param zip the ZIP file system
+     * @return the entry names
+     * @throws IOException if the ZIP could not be read
+     */
+    static List<String> listEntries(FileSystem zip) throws IOException {
+        Path root = zip.getPath("/");
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                .map(file -> root.relativize(file).toString())
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Get an entry from the ZIP, trying both types of slashes.
+     *
+     * @param zip the ZIP file system
+     * @param file the file
+     * @return the entry, or {@code null} if there is none
+     */
+    static Path getEntry(FileSystem zip, String file) {
+        Path entry = zip.getPath(file);
+        if (Files.isRegularFile(entry)) {
+            return entry;
+        }
+        entry = zip.getPath(file.replace("/", "\\"));
+        return Files.isRegularFile(entry) ? entry : null;
     }
 
     @Override
     protected InputStream getInputStream(String name, String worldName) throws IOException, DataException {
+        String entryName = resolveEntryName(name, worldName);
+        byte[] data;
+        try {
+            data = regionCache.get(entryName, () -> readRegion(entryName));
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), DataException.class);
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            throw new IOException("Failed to read " + entryName + " in ZIP", e.getCause());
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    @VisibleForTesting
+    Set<String> getCachedRegions() {
+        return ImmutableSet.copyOf(regionCache.asMap().keySet());
+    }
+
+    private synchronized String resolveEntryName(String name, String worldName) throws IOException, DataException {
         // Detect subfolder for the world's files
         if (folder != null) {
             if (!folder.isEmpty()) {
@@ -82,10 +172,8 @@ protected InputStream getInputStream(String name, String worldName) throws IOExc
         } else {
             Pattern pattern = Pattern.compile(".*\\.mc[ra]$");
             Pattern worldPattern = Pattern.compile(worldName + "[\\\\/].*");
-            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
-                ZipEntry testEntry = e.nextElement();
+            for (String entryName : listEntries(zip)) {
                 // Check for world
-                String entryName = testEntry.getName();
                 if (worldPattern.matcher(entryName).matches()) {
                     if (pattern.matcher(entryName).matches()) { // does entry end in .mca
                         int endIndex = entryName.lastIndexOf('/');
@@ -108,11 +196,14 @@ protected InputStream getInputStream(String name, String worldName) throws IOExc
                 throw new MissingWorldException("Target world is not present in ZIP.", worldName);
             }
         }
+        return name;
+    }
 
-        ZipEntry entry = getEntry(name);
+    private byte[] readRegion(String name) throws IOException, DataException {
+        Path entry = getEntry(zip, name);
         if (entry == null) {
             if (name.endsWith(".mca")) { // try old mcr format
-                entry = getEntry(name.replace(".mca", ".mcr"));
+                entry = getEntry(zip, name.replace(".mca", ".mcr"));
                 if (entry == null) {
                     throw new MissingChunkException();
                 }
@@ -121,40 +212,33 @@ protected InputStream getInputStream(String name, String worldName) throws IOExc
             }
         }
         try {
-            return zip.getInputStream(entry);
+            return Files.readAllBytes(entry);
         } catch (ZipException e) {
             throw new IOException("Failed to read " + name + " in ZIP");
         }
     }
 
-    /**
-     * Get an entry from the ZIP, trying both types of slashes.
-     *
-     * @param file the file
-     * @return a ZIP entry
-     */
-    private ZipEntry getEntry(String file) {
-        ZipEntry entry = zip.getEntry(file);
-        if (entry != null) {
-            return entry;
-        }
-        return zip.getEntry(file.replace("/", "\\"));
-    }
-
     @Override
     public void close() throws IOException {
+        regionCache.invalidateAll();
         zip.close();
     }
 
     @Override
-    public boolean isValid() {
-        for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
-
-            ZipEntry testEntry = e.nextElement();
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
 
-            if (testEntry.getName().matches(".*\\.mcr$") || testEntry.getName().matches(".*\\.mca$")) {
-                return true;
+    @Override
+    public boolean isValid() {
+        try {
+            for (String entryName : listEntries(zip)) {
+                if (entryName.matches(".*\\.mcr$") || entryName.matches(".*\\.mca$")) {
+                    return true;
+                }
             }
+        } catch (IOException e) {
+            return false;
         }
 
         return false;
@@ -0,0 +1,206 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.function.mask.BlockTypeMask;
+import com.sk89q.worldedit.function.mask.ExistingBlockMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.MaskUnion;
+import com.sk89q.worldedit.function.mask.SolidBlockMask;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.HeightMapType;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BlockCategoryRegistry;
+import com.sk89q.worldedit.world.registry.BlockMaterial;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies where {@link EditSession#getHighestTerrainBlock} starts scanning
+ * a column, using the world's height maps.
+ */
+class EditSessionTest extends BaseWorldEditTest {
+
+    private static final int X = 3;
+    private static final int Z = -4;
+    private static final int MIN_Y = 0;
+    private static final int MAX_Y = 100;
+    // Stone up to the top of MOTION_BLOCKING, then grass up to the top of WORLD_SURFACE, then air
+    private static final int MOTION_BLOCKING_TOP = 10;
+    private static final int WORLD_SURFACE_TOP = 12;
+
+    private static BlockState stone;
+    private static BlockState grass;
+    private static BlockState air;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BlockMaterial solidMaterial = mock(BlockMaterial.class);
+        when(solidMaterial.isMovementBlocker()).thenReturn(true);
+        BlockMaterial plantMaterial = mock(BlockMaterial.class);
+        BlockMaterial airMaterial = mock(BlockMaterial.class);
+        when(airMaterial.isAir()).thenReturn(true);
+        ImmutableMap<String, BlockMaterial> materials = ImmutableMap.of(
+            "worldedit:test_stone", solidMaterial,
+            "worldedit:test_grass", plantMaterial,
+            "worldedit:test_air", airMaterial
+        );
+        BlockRegistry blockRegistry = mock(BlockRegistry.class);
+        when(blockRegistry.getProperties(any())).thenReturn(ImmutableMap.of());
+        when(blockRegistry.getInternalBlockStateId(any())).thenReturn(OptionalInt.empty());
+        when(blockRegistry.getMaterial(any())).thenAnswer(invocation ->
+            materials.get(invocation.<BlockType>getArgument(0).id()));
+        Registries registries = mock(Registries.class);
+        when(registries.getBlockRegistry()).thenReturn(blockRegistry);
+        when(registries.getBlockCategoryRegistry()).thenReturn(mock(BlockCategoryRegistry.class));
+        when(MOCKED_PLATFORM.getRegistries()).thenReturn(registries);
+
+        stone = new BlockType("worldedit:test_stone").getDefaultState();
+        grass = new BlockType("worldedit:test_grass").getDefaultState();
+        air = new BlockType("worldedit:test_air").getDefaultState();
+    }
+
+    private static BlockState columnBlock(int y) {
+        if (y <= MOTION_BLOCKING_TOP) {
+            return stone;
+        }
+        return y <= WORLD_SURFACE_TOP ? grass : air;
+    }
+
+    /**
+     * A world with the column, which records the highest Y read from it.
+     */
+    private static final class ColumnWorld {
+        private final World world = mock(World.class);
+        private int highestRead = Integer.MIN_VALUE;
+
+        ColumnWorld() {
+            when(world.getBlock(any())).thenAnswer(invocation -> read(invocation.getArgument(0)));
+            when(world.getFullBlock(any())).thenAnswer(invocation -> read(invocation.getArgument(0)).toBaseBlock());
+            setHeightMaps(OptionalInt.of(MOTION_BLOCKING_TOP), OptionalInt.of(WORLD_SURFACE_TOP));
+        }
+
+        private BlockState read(BlockVector3 position) {
+            highestRead = Math.max(highestRead, position.y());
+            return columnBlock(position.y());
+        }
+
+        void setHeightMaps(OptionalInt motionBlocking, OptionalInt worldSurface) {
+            when(world.getHighestBlockY(eq(HeightMapType.MOTION_BLOCKING), anyInt(), anyInt())).thenReturn(motionBlocking);
+            when(world.getHighestBlockY(eq(HeightMapType.WORLD_SURFACE), anyInt(), anyInt())).thenReturn(worldSurface);
+        }
+
+        int takeHighestRead() {
+            int read = highestRead;
+            highestRead = Integer.MIN_VALUE;
+            return read;
+        }
+    }
+
+    private ColumnWorld column;
+    private EditSession editSession;
+
+    @BeforeEach
+    void setUpEditSession() {
+        column = new ColumnWorld();
+        editSession = new EditSession(WorldEdit.getInstance().getEventBus(), column.world, -1, null, null, false);
+    }
+
+    private void assertScan(Mask filter, int expectedY, int expectedStartY) {
+        assertEquals(expectedY, editSession.getHighestTerrainBlock(X, Z, MIN_Y, MAX_Y, filter));
+        assertEquals(expectedStartY, column.takeHighestRead());
+    }
+
+    @Test
+    void testNoFilterStartsAtMotionBlocking() {
+        assertScan(null, MOTION_BLOCKING_TOP, MOTION_BLOCKING_TOP);
+    }
+
+    @Test
+    void testFiltersThatNeverMatchAirStartAtWorldSurface() {
+        assertScan(new ExistingBlockMask(editSession), WORLD_SURFACE_TOP, WORLD_SURFACE_TOP);
+        assertScan(new SolidBlockMask(editSession), MOTION_BLOCKING_TOP, WORLD_SURFACE_TOP);
+        assertScan(new BlockTypeMask(editSession, stone.getBlockType()), MOTION_BLOCKING_TOP, WORLD_SURFACE_TOP);
+        // Masks that read the world directly also skip the air
+        assertScan(new ExistingBlockMask(column.world), WORLD_SURFACE_TOP, WORLD_SURFACE_TOP);
+        assertScan(
+            new MaskUnion(new SolidBlockMask(editSession), new BlockTypeMask(editSession, grass.getBlockType())),
+            WORLD_SURFACE_TOP, WORLD_SURFACE_TOP
+        );
+        // An intersection can't match air if any of its masks can't
+        assertScan(
+            new MaskIntersection(new ExistingBlockMask(editSession), new BlockTypeMask(editSession, air.getBlockType())),
+            MIN_Y, WORLD_SURFACE_TOP
+        );
+    }
+
+    @Test
+    void testFiltersThatMayMatchAirStartAtMaxY() {
+        assertScan(new BlockTypeMask(editSession, air.getBlockType()), MAX_Y, MAX_Y);
+        assertScan(
+            new MaskUnion(new SolidBlockMask(editSession), new BlockTypeMask(editSession, air.getBlockType())),
+            MAX_Y, MAX_Y
+        );
+        // A mask that isn't known can't be trusted
+        assertScan(
+            position -> editSession.getBlock(position).getBlockType() == grass.getBlockType(),
+            WORLD_SURFACE_TOP, MAX_Y
+        );
+    }
+
+    @Test
+    void testFiltersOnOtherExtentsStartAtMaxY() {
+        ColumnWorld other = new ColumnWorld();
+        assertEquals(WORLD_SURFACE_TOP, editSession.getHighestTerrainBlock(X, Z, MIN_Y, MAX_Y,
+            new ExistingBlockMask(other.world)));
+        assertEquals(MAX_Y, other.takeHighestRead());
+    }
+
+    @Test
+    void testMissingHeightMapStartsAtMaxY() {
+        column.setHeightMaps(OptionalInt.empty(), OptionalInt.empty());
+        assertScan(null, MOTION_BLOCKING_TOP, MAX_Y);
+        assertScan(new ExistingBlockMask(editSession), WORLD_SURFACE_TOP, MAX_Y);
+    }
+
+    @Test
+    void testMaxYBelowHeightMap() {
+        assertEquals(8, editSession.getHighestTerrainBlock(X, Z, MIN_Y, 8, null));
+        assertEquals(8, column.takeHighestRead());
+        assertEquals(8, editSession.getHighestTerrainBlock(X, Z, MIN_Y, 8, new ExistingBlockMask(editSession)));
+        assertEquals(8, column.takeHighestRead());
+    }
+}
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit;
 
+import com.google.common.util.concurrent.SettableFuture;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -160,4 +161,21 @@ void testPlacementGeneric(PlacementType placementType) throws Exception {
         assertEquals(expected, session.getPlacementPosition(player));
     }
 
+    @Test
+    void testPendingEdits() {
+        SettableFuture<Void> job = SettableFuture.create();
+        SettableFuture<Void> finish = SettableFuture.create();
+        assertFalse(session.hasPendingEdits());
+
+        session.addPendingEdit(job);
+        session.addPendingEdit(finish);
+        assertTrue(session.hasPendingEdits());
+
+        job.cancel(false);
+        assertTrue(session.hasPendingEdits());
+
+        finish.set(null);
+        assertFalse(session.hasPendingEdits());
+    }
+
 }
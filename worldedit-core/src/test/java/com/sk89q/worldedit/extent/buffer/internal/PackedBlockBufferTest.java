@@ -0,0 +1,336 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.buffer.internal;
+
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.extent.reorder.ChunkBatchingExtent;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockType;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import org.enginehub.linbus.tree.LinCompoundTag;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that {@link PackedBlockBuffer} keys round-trip and sort properly,
+ * and that blocks are buffered and flushed properly.
+ */
+public class PackedBlockBufferTest extends BaseWorldEditTest {
+
+    private static final Comparator<BlockVector3> FLUSH_ORDER =
+        Comparator.<BlockVector3>comparingInt(v -> v.x() >> 9)
+            .thenComparingInt(v -> v.z() >> 9)
+            .thenComparingInt(v -> v.x() >> 4)
+            .thenComparingInt(v -> v.z() >> 4)
+            .thenComparing(Comparator.comparingInt(BlockVector3::y).reversed());
+
+    private static BlockVector3 randomPosition(Random rng, int horizontalRange) {
+        return BlockVector3.at(
+            rng.nextInt(horizontalRange * 2 + 1) - horizontalRange,
+            rng.nextInt(4096) - 2048,
+            rng.nextInt(horizontalRange * 2 + 1) - horizontalRange
+        );
+    }
+
+    @Test
+    void keysRoundTripAtLimits() {
+        for (BlockVector3 position : new BlockVector3[] {
+            BlockVector3.at(-30_000_000, -2048, -30_000_000),
+            BlockVector3.at(30_000_000, 2047, 30_000_000),
+            BlockVector3.at(-1, 0, -1),
+            BlockVector3.ZERO,
+        }) {
+            assertEquals(position, PackedBlockBuffer.toPosition(PackedBlockBuffer.toKey(position)));
+        }
+    }
+
+    @ParameterizedTest(
+        name = "range={0}"
+    )
+    @ValueSource(ints = {
+        16, 1_000, 30_000_000
+    })
+    void keysRoundTripAndSort(int range) {
+        Random rng = new Random(range);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            BlockVector3 position = randomPosition(rng, range);
+            keys[i] = PackedBlockBuffer.toKey(position);
+            assertEquals(position, PackedBlockBuffer.toPosition(keys[i]));
+        }
+        LongArrays.radixSort(keys);
+        for (int i = 0; i < keys.length - 1; i++) {
+            BlockVector3 curr = PackedBlockBuffer.toPosition(keys[i]);
+            BlockVector3 next = PackedBlockBuffer.toPosition(keys[i + 1]);
+            assertTrue(FLUSH_ORDER.compare(curr, next) <= 0, curr + " should be set before " + next);
+        }
+    }
+
+    private static BaseBlock stone;
+    private static BaseBlock dirt;
+    private static BaseBlock unregistered;
+    private static BaseBlock chest;
+    private static BaseBlock otherChest;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BlockState stoneState = new BlockType("worldedit:test_stone").getDefaultState();
+        BlockState dirtState = new BlockType("worldedit:test_dirt").getDefaultState();
+        BlockState chestState = new BlockType("worldedit:test_chest").getDefaultState();
+        for (BlockState state : List.of(stoneState, dirtState, chestState)) {
+            BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+        }
+        stone = stoneState.toBaseBlock();
+        dirt = dirtState.toBaseBlock();
+        // Without an internal ID, so it is kept as a full block
+        unregistered = new BlockType("worldedit:test_unregistered").getDefaultState().toBaseBlock();
+        chest = chestState.toBaseBlock(LinCompoundTag.builder().putString("Lock", "a").build());
+        otherChest = chestState.toBaseBlock(LinCompoundTag.builder().putString("Lock", "b").build());
+    }
+
+    @Test
+    void putOverwrites() {
+        PackedBlockBuffer buffer = new PackedBlockBuffer();
+        BlockVector3 position = BlockVector3.at(-3, 70, 12);
+        assertNull(buffer.get(position));
+        for (BaseBlock block : List.of(stone, chest, dirt, unregistered, otherChest, chest, stone, dirt)) {
+            buffer.put(position, block);
+            assertEquals(block, buffer.get(position));
+            assertEquals(1, buffer.size());
+        }
+        buffer.put(BlockVector3.at(-3, 71, 12), chest);
+        assertEquals(2, buffer.size());
+        assertEquals(dirt, buffer.get(position));
+        assertEquals(chest, buffer.get(BlockVector3.at(-3, 71, 12)));
+    }
+
+    private static Map<BlockVector3, BaseBlock> flushToMap(PackedBlockBuffer buffer, boolean completedChunks)
+        throws WorldEditException {
+        Map<BlockVector3, BaseBlock> flushed = new LinkedHashMap<>();
+        PackedBlockBuffer.BlockSink sink = (position, block) -> {
+            BaseBlock previous = flushed.put(position, block);
+            assertNull(previous, () -> position + " was set twice");
+        };
+        if (completedChunks) {
+            buffer.flushCompletedChunks(sink);
+        } else {
+            buffer.flush(sink);
+        }
+        return flushed;
+    }
+
+    private static Map<BlockVector3, BaseBlock> fillRandomly(PackedBlockBuffer buffer, Random rng, int count) {
+        BaseBlock[] blocks = { stone, dirt, unregistered, chest, otherChest };
+        Map<BlockVector3, BaseBlock> expected = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            BlockVector3 position = BlockVector3.at(rng.nextInt(64) - 32, rng.nextInt(16), rng.nextInt(64) - 32);
+            BaseBlock block = blocks[rng.nextInt(blocks.length)];
+            buffer.put(position, block);
+            expected.put(position, block);
+        }
+        return expected;
+    }
+
+    @Test
+    void flushSetsEveryBlockInOrder() throws WorldEditException {
+        PackedBlockBuffer buffer = new PackedBlockBuffer();
+        Map<BlockVector3, BaseBlock> expected = fillRandomly(buffer, new Random(1), 2_000);
+        Map<BlockVector3, BaseBlock> flushed = flushToMap(buffer, false);
+        assertEquals(expected, flushed);
+        List<BlockVector3> order = new ArrayList<>(flushed.keySet());
+        for (int i = 0; i < order.size() - 1; i++) {
+            assertTrue(FLUSH_ORDER.compare(order.get(i), order.get(i + 1)) <= 0);
+        }
+        assertEquals(0, buffer.size());
+        assertNull(buffer.get(order.getFirst()));
+    }
+
+    @Test
+    void flushCompletedChunksKeepsLastChunk() throws WorldEditException {
+        PackedBlockBuffer buffer = new PackedBlockBuffer();
+        Map<BlockVector3, BaseBlock> expected = fillRandomly(buffer, new Random(2), 2_000);
+        // The last chunk edited, with blocks that have NBT data and no internal ID
+        BlockVector3 last = BlockVector3.at(-40, 3, 100);
+        buffer.put(last.add(1, 0, 0), chest);
+        buffer.put(last.add(2, 0, 0), unregistered);
+        buffer.put(last, stone);
+
+        Map<BlockVector3, BaseBlock> flushed = flushToMap(buffer, true);
+        assertEquals(expected, flushed);
+        assertEquals(3, buffer.size());
+        assertEquals(stone, buffer.get(last));
+        assertEquals(chest, buffer.get(last.add(1, 0, 0)));
+        assertEquals(unregistered, buffer.get(last.add(2, 0, 0)));
+        assertNull(buffer.get(expected.keySet().iterator().next()));
+
+        // Kept blocks can be overwritten, and are set by the next flush
+        buffer.put(last.add(1, 0, 0), otherChest);
+        assertEquals(Map.of(
+            last, stone,
+            last.add(1, 0, 0), otherChest,
+            last.add(2, 0, 0), unregistered
+        ), flushToMap(buffer, false));
+    }
+
+    @ParameterizedTest(
+        name = "completedChunks={0}"
+    )
+    @ValueSource(booleans = {
+        false, true
+    })
+    void failedFlushKeepsUnsetBlocks(boolean completedChunks) throws WorldEditException {
+        PackedBlockBuffer buffer = new PackedBlockBuffer();
+        Map<BlockVector3, BaseBlock> expected = fillRandomly(buffer, new Random(3), 2_000);
+        BlockVector3 last = BlockVector3.at(200, 0, 200);
+        buffer.put(last, chest);
+        expected.put(last, chest);
+        int size = buffer.size();
+
+        Map<BlockVector3, BaseBlock> flushed = new HashMap<>();
+        int[] calls = { 0 };
+        assertThrows(WorldEditException.class, () -> buffer.flush((position, block) -> {
+            if (++calls[0] == 500) {
+                throw new WorldEditException("failed") {
+                };
+            }
+            flushed.put(position, block);
+        }));
+        assertEquals(499, flushed.size());
+        assertEquals(size - 499, buffer.size());
+        for (Map.Entry<BlockVector3, BaseBlock> entry : flushed.entrySet()) {
+            assertNull(buffer.get(entry.getKey()));
+        }
+
+        Map<BlockVector3, BaseBlock> rest = flushToMap(buffer, completedChunks);
+        for (Map.Entry<BlockVector3, BaseBlock> entry : rest.entrySet()) {
+            assertNull(flushed.put(entry.getKey(), entry.getValue()), entry.getKey()::toString);
+        }
+        if (completedChunks) {
+            // Only the last chunk edited is still buffered
+            assertEquals(1, buffer.size());
+            flushed.put(last, buffer.get(last));
+        }
+        assertEquals(expected, flushed);
+    }
+
+    /**
+     * An extent that records the blocks set in it.
+     */
+    private static final class RecordingExtent extends NullExtent {
+        private final Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        private final List<BlockVector3> setOrder = new ArrayList<>();
+
+        @Override
+        public BlockState getBlock(BlockVector3 position) {
+            return getFullBlock(position).toImmutableState();
+        }
+
+        @Override
+        public BaseBlock getFullBlock(BlockVector3 position) {
+            return blocks.getOrDefault(position, unregistered);
+        }
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            setOrder.add(position);
+            blocks.put(position, block.toBaseBlock());
+            return true;
+        }
+    }
+
+    enum BatchingExtentType {
+        BATCHING((extent, threshold) -> {
+            BatchingExtent batching = new BatchingExtent(extent);
+            batching.setFlushThreshold(threshold);
+            return batching;
+        }),
+        CHUNK_BATCHING((extent, threshold) -> {
+            ChunkBatchingExtent batching = new ChunkBatchingExtent(extent);
+            batching.setFlushThreshold(threshold);
+            return batching;
+        });
+
+        final BiFunction<Extent, Integer, Extent> factory;
+
+        BatchingExtentType(BiFunction<Extent, Integer, Extent> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BatchingExtentType.class)
+    void batchingExtentFlushesCompletedChunks(BatchingExtentType type) throws WorldEditException {
+        RecordingExtent world = new RecordingExtent();
+        Extent batching = type.factory.apply(world, 10);
+
+        // Six blocks in one chunk, then five in the next
+        for (int i = 0; i < 6; i++) {
+            batching.setBlock(BlockVector3.at(i, 64, 0), stone);
+        }
+        for (int i = 0; i < 4; i++) {
+            batching.setBlock(BlockVector3.at(16 + i, 64, 0), dirt);
+        }
+        assertTrue(world.setOrder.isEmpty());
+        batching.setBlock(BlockVector3.at(20, 64, 0), chest);
+        assertEquals(6, world.setOrder.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(stone, world.blocks.get(BlockVector3.at(i, 64, 0)));
+        }
+        // The blocks of the last chunk are still buffered, and read back from the buffer
+        assertEquals(chest, batching.getFullBlock(BlockVector3.at(20, 64, 0)));
+        assertEquals(unregistered, world.getFullBlock(BlockVector3.at(20, 64, 0)));
+
+        // Setting a block that was flushed buffers it again
+        batching.setBlock(BlockVector3.at(0, 64, 0), chest);
+        assertEquals(chest, batching.getFullBlock(BlockVector3.at(0, 64, 0)));
+        Operations.complete(batching.commit());
+        assertEquals(12, world.setOrder.size());
+        assertEquals(chest, world.blocks.get(BlockVector3.at(0, 64, 0)));
+        assertEquals(chest, world.blocks.get(BlockVector3.at(20, 64, 0)));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(dirt, world.blocks.get(BlockVector3.at(16 + i, 64, 0)));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.entity.EntityType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockArrayClipboardTest {
+
+    // Not aligned to biome cells, and crossing zero on every axis
+    private static final CuboidRegion REGION = new CuboidRegion(
+        BlockVector3.at(-6, -5, -3), BlockVector3.at(9, 10, 13)
+    );
+    private static final BiomeType[] BIOMES = {
+        new BiomeType("worldedit:test_plains"),
+        new BiomeType("worldedit:test_desert"),
+        new BiomeType("worldedit:test_forest"),
+    };
+
+    private static BiomeType cellBiome(BlockVector3 position) {
+        BlockVector3 cell = position.shr(2);
+        return BIOMES[Math.floorMod(cell.x() + 2 * cell.y() + 4 * cell.z(), BIOMES.length)];
+    }
+
+    private static BiomeType blockBiome(BlockVector3 position) {
+        return BIOMES[Math.floorMod(position.x() + position.y() + position.z(), BIOMES.length)];
+    }
+
+    private static void assertBiomesRoundTrip(Function<BlockVector3, BiomeType> biomes, boolean perBlock) {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        assertFalse(clipboard.hasBiomes());
+        for (BlockVector3 position : REGION) {
+            assertTrue(clipboard.setBiome(position, biomes.apply(position)));
+        }
+        assertTrue(clipboard.hasBiomes());
+        assertEquals(perBlock, clipboard.storesBiomesPerBlock());
+        for (BlockVector3 position : REGION) {
+            assertEquals(biomes.apply(position), clipboard.getBiome(position), position::toString);
+        }
+    }
+
+    @Test
+    void testBiomesAlignedToCellsRoundTrip() {
+        assertBiomesRoundTrip(BlockArrayClipboardTest::cellBiome, false);
+    }
+
+    @Test
+    void testBiomesPerBlockRoundTrip() {
+        assertBiomesRoundTrip(BlockArrayClipboardTest::blockBiome, true);
+    }
+
+    @Test
+    void testBiomesOffsetFromCellsRoundTrip() {
+        // The cells of the source don't line up with the cells of the clipboard
+        assertBiomesRoundTrip(position -> cellBiome(position.add(1, 2, 3)), true);
+    }
+
+    @Test
+    void testSettingOneBiomeSetsCell() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        clipboard.setBiome(BlockVector3.at(1, 1, 1), BIOMES[1]);
+        for (BlockVector3 position : new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(3, 3, 3))) {
+            assertEquals(BIOMES[1], clipboard.getBiome(position));
+        }
+        assertFalse(clipboard.storesBiomesPerBlock());
+    }
+
+    @Test
+    void testSwitchToBiomesPerBlockKeepsBiomes() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        for (BlockVector3 position : REGION) {
+            clipboard.setBiome(position, cellBiome(position));
+        }
+        BlockVector3 changed = BlockVector3.at(-6, 10, 13);
+        BiomeType newBiome = new BiomeType("worldedit:test_ocean");
+        clipboard.setBiome(changed, newBiome);
+        assertTrue(clipboard.storesBiomesPerBlock());
+        for (BlockVector3 position : REGION) {
+            assertEquals(position.equals(changed) ? newBiome : cellBiome(position), clipboard.getBiome(position),
+                position::toString);
+        }
+    }
+
+    @Test
+    void testBiomesOutsideRegionAreNotSet() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        assertFalse(clipboard.setBiome(BlockVector3.at(10, 0, 0), BIOMES[0]));
+        assertFalse(clipboard.hasBiomes());
+    }
+
+    private static final CuboidRegion ENTITY_REGION = new CuboidRegion(
+        BlockVector3.at(-70, 0, -70), BlockVector3.at(69, 15, 69)
+    );
+    private static final EntityType ENTITY_TYPE = new EntityType("worldedit:test_entity");
+
+    private static List<Entity> createEntities(BlockArrayClipboard clipboard) {
+        Random random = new Random(42);
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Location location = new Location(clipboard,
+                random.nextDouble(-70, 70), random.nextDouble(0, 16), random.nextDouble(-70, 70));
+            Entity entity = clipboard.createEntity(location, new BaseEntity(ENTITY_TYPE));
+            assertNotNull(entity);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Check the entities found in each test region against a scan of all
+     * the entities.
+     */
+    private static void assertEntitiesInRegions(BlockArrayClipboard clipboard, List<Entity> entities) {
+        List<Region> regions = List.of(
+            // Within one chunk
+            new CuboidRegion(BlockVector3.at(1, 0, 1), BlockVector3.at(14, 15, 14)),
+            // Across chunk borders, and crossing zero
+            new CuboidRegion(BlockVector3.at(-20, 2, -5), BlockVector3.at(7, 12, 40)),
+            // More chunks than there are entities in, so all entities are scanned
+            new CuboidRegion(BlockVector3.at(-200, 0, -200), BlockVector3.at(200, 15, 200)),
+            ENTITY_REGION
+        );
+        for (Region region : regions) {
+            List<Entity> expected = new ArrayList<>();
+            for (Entity entity : entities) {
+                if (region.contains(entity.getLocation().toVector().toBlockPoint())) {
+                    expected.add(entity);
+                }
+            }
+            assertEquals(expected, clipboard.getEntities(region), region::toString);
+        }
+        assertEquals(entities, clipboard.getEntities());
+    }
+
+    @Test
+    void testEntitiesInRegion() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(ENTITY_REGION);
+        assertEntitiesInRegions(clipboard, createEntities(clipboard));
+    }
+
+    @Test
+    void testRemovedEntitiesAreNotFound() {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(ENTITY_REGION);
+        List<Entity> entities = createEntities(clipboard);
+        List<Entity> remaining = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            if (i % 3 == 0) {
+                assertTrue(entities.get(i).remove());
+                assertFalse(entities.get(i).remove());
+            } else {
+                remaining.add(entities.get(i));
+            }
+        }
+        assertEntitiesInRegions(clipboard, remaining);
+
+        for (Entity entity : remaining) {
+            assertTrue(entity.remove());
+        }
+        assertEntitiesInRegions(clipboard, List.of());
+    }
+}
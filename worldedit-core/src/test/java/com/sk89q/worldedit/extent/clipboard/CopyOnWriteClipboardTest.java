@@ -0,0 +1,187 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityProperties;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.entity.EntityType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CopyOnWriteClipboardTest extends BaseWorldEditTest {
+
+    private static final CuboidRegion REGION = new CuboidRegion(
+        BlockVector3.at(-2, 0, -2), BlockVector3.at(5, 3, 5)
+    );
+    private static final BlockVector3 POSITION = BlockVector3.at(1, 2, 3);
+    private static final BiomeType PLAINS = new BiomeType("worldedit:test_plains");
+    private static final BiomeType DESERT = new BiomeType("worldedit:test_desert");
+    private static final EntityType ENTITY_TYPE = new EntityType("worldedit:test_entity");
+
+    private static BaseBlock stone;
+    private static BaseBlock dirt;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        stone = new BlockType("worldedit:test_stone").getDefaultState().toBaseBlock();
+        dirt = new BlockType("worldedit:test_dirt").getDefaultState().toBaseBlock();
+    }
+
+    private static Clipboard createShared() throws WorldEditException {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        clipboard.setOrigin(BlockVector3.ZERO);
+        for (BlockVector3 position : REGION) {
+            clipboard.setBlock(position, stone);
+            clipboard.setBiome(position, PLAINS);
+        }
+        clipboard.createEntity(new Location(clipboard, 0.5, 1, 0.5), new BaseEntity(ENTITY_TYPE));
+        clipboard.createEntity(new Location(clipboard, 3.5, 2, 4.5), new BaseEntity(ENTITY_TYPE));
+        return clipboard;
+    }
+
+    @Test
+    void testReadsFromShared() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+        assertEquals(shared.getRegion(), clipboard.getRegion());
+        assertEquals(stone, clipboard.getFullBlock(POSITION));
+        assertEquals(PLAINS, clipboard.getBiome(POSITION));
+        assertEquals(2, clipboard.getEntities().size());
+        assertEquals(2, clipboard.getEntities(REGION).size());
+        assertFalse(clipboard.isCopied());
+    }
+
+    @Test
+    void testSetBlockIsIsolated() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard first = new CopyOnWriteClipboard(shared);
+        CopyOnWriteClipboard second = new CopyOnWriteClipboard(shared);
+
+        first.setBlock(POSITION, dirt);
+        first.setBiome(POSITION, DESERT);
+
+        assertTrue(first.isCopied());
+        assertEquals(dirt, first.getFullBlock(POSITION));
+        assertEquals(DESERT, first.getBiome(POSITION));
+        assertEquals(stone, first.getFullBlock(POSITION.add(1, 0, 0)));
+        assertEquals(2, first.getEntities().size());
+        assertFalse(second.isCopied());
+        assertEquals(stone, second.getFullBlock(POSITION));
+        assertEquals(PLAINS, second.getBiome(POSITION));
+        assertEquals(stone, shared.getFullBlock(POSITION));
+        assertEquals(PLAINS, shared.getBiome(POSITION));
+    }
+
+    @Test
+    void testCreateEntityIsIsolated() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard first = new CopyOnWriteClipboard(shared);
+        CopyOnWriteClipboard second = new CopyOnWriteClipboard(shared);
+
+        first.createEntity(new Location(first, 2, 1, 2), new BaseEntity(ENTITY_TYPE));
+
+        assertEquals(3, first.getEntities().size());
+        assertEquals(2, second.getEntities().size());
+        assertEquals(2, shared.getEntities().size());
+    }
+
+    @Test
+    void testRemoveEntityIsIsolated() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard first = new CopyOnWriteClipboard(shared);
+        CopyOnWriteClipboard second = new CopyOnWriteClipboard(shared);
+
+        List<? extends Entity> entities = first.getEntities();
+        assertSame(first, entities.getFirst().getExtent());
+        Location removed = entities.getFirst().getLocation();
+        assertTrue(entities.getFirst().remove());
+
+        assertTrue(first.isCopied());
+        List<? extends Entity> remaining = first.getEntities();
+        assertEquals(1, remaining.size());
+        assertEquals(entities.get(1).getLocation().toVector(), remaining.getFirst().getLocation().toVector());
+        assertFalse(second.isCopied());
+        assertEquals(2, second.getEntities().size());
+        assertEquals(2, shared.getEntities().size());
+        assertEquals(removed.toVector(), shared.getEntities().getFirst().getLocation().toVector());
+
+        // Entities handed out before the copy still refer to the copy
+        assertTrue(entities.get(1).remove());
+        assertTrue(first.getEntities().isEmpty());
+        assertEquals(2, shared.getEntities().size());
+    }
+
+    @Test
+    void testMoveEntityIsIsolated() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+
+        Entity entity = clipboard.getEntities().getFirst();
+        Location original = entity.getLocation();
+        assertTrue(entity.setLocation(new Location(clipboard, 4.5, 1, 4.5)));
+
+        assertTrue(clipboard.isCopied());
+        assertEquals(4.5, entity.getLocation().toVector().x());
+        assertSame(clipboard, entity.getLocation().getExtent());
+        assertEquals(original.toVector(), shared.getEntities().getFirst().getLocation().toVector());
+    }
+
+    @Test
+    void testSharedEntityFacets() {
+        EntityProperties properties = mock(EntityProperties.class);
+        Entity entity = mock(Entity.class);
+        when(entity.getFacet(EntityProperties.class)).thenReturn(properties);
+        Clipboard shared = mock(Clipboard.class);
+        when(shared.getOrigin()).thenReturn(BlockVector3.ZERO);
+        doReturn(List.of(entity)).when(shared).getEntities();
+
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+        assertSame(properties, clipboard.getEntities().getFirst().getFacet(EntityProperties.class));
+    }
+
+    @Test
+    void testOriginIsPrivate() throws WorldEditException {
+        Clipboard shared = createShared();
+        CopyOnWriteClipboard clipboard = new CopyOnWriteClipboard(shared);
+        clipboard.setOrigin(POSITION);
+        assertEquals(POSITION, clipboard.getOrigin());
+        assertEquals(BlockVector3.ZERO, shared.getOrigin());
+        assertFalse(clipboard.isCopied());
+    }
+}
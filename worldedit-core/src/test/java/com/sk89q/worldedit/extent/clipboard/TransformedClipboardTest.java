@@ -0,0 +1,274 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
+import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.internal.util.AxisAlignedTransform;
+import com.sk89q.worldedit.internal.util.ClipboardTransformBaker;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.registry.state.DirectionalProperty;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.concurrency.LazyReference;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.entity.EntityType;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.Registries;
+import org.enginehub.linbus.tree.LinCompoundTag;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the view of a rotated or flipped clipboard is the same as a
+ * transformed copy of it.
+ */
+class TransformedClipboardTest extends BaseWorldEditTest {
+
+    private static final Map<String, Map<String, Property<?>>> PROPERTIES = ImmutableMap.of(
+        "worldedit:test_stairs", ImmutableMap.of(
+            "facing", new DirectionalProperty("facing",
+                List.of(Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST)),
+            "half", new EnumProperty("half", List.of("top", "bottom"))
+        ),
+        "worldedit:test_observer", ImmutableMap.of(
+            "facing", new DirectionalProperty("facing", List.of(Direction.values()).subList(0, 6))
+        ),
+        "worldedit:test_log", ImmutableMap.of(
+            "axis", new EnumProperty("axis", List.of("x", "y", "z"))
+        ),
+        "worldedit:test_skull", ImmutableMap.of()
+    );
+
+    // Not aligned to biome cells, with the origin inside
+    private static final CuboidRegion REGION = new CuboidRegion(
+        BlockVector3.at(-3, -2, 1), BlockVector3.at(3, 2, 6)
+    );
+    private static final BlockVector3 ORIGIN = BlockVector3.at(1, 0, 3);
+    private static final BiomeType[] BIOMES = {
+        new BiomeType("worldedit:test_plains"),
+        new BiomeType("worldedit:test_desert"),
+        new BiomeType("worldedit:test_forest"),
+    };
+    private static final EntityType ENTITY_TYPE = new EntityType("worldedit:test_entity");
+
+    private static List<BaseBlock> blocks;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BlockRegistry blockRegistry = mock(BlockRegistry.class);
+        when(blockRegistry.getProperties(any())).thenAnswer(invocation ->
+            PROPERTIES.get(invocation.<BlockType>getArgument(0).id()));
+        when(blockRegistry.getInternalBlockStateId(any())).thenReturn(OptionalInt.empty());
+        Registries registries = mock(Registries.class);
+        when(registries.getBlockRegistry()).thenReturn(blockRegistry);
+        when(MOCKED_PLATFORM.getRegistries()).thenReturn(registries);
+
+        blocks = new ArrayList<>();
+        for (String id : PROPERTIES.keySet()) {
+            for (BlockState state : new BlockType(id).getAllStates()) {
+                // Blocks that aren't in the registry don't get IDs from the platform
+                BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+                blocks.add(state.toBaseBlock());
+            }
+        }
+        // The skull has a single state, and is added last
+        BlockState skull = blocks.getLast().toImmutableState();
+        for (int rot = 0; rot < 16; rot += 3) {
+            blocks.add(skull.toBaseBlock(LinCompoundTag.builder().putByte("Rot", (byte) rot).build()));
+        }
+    }
+
+    private static Clipboard createOriginal() throws WorldEditException {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(REGION);
+        clipboard.setOrigin(ORIGIN);
+        Random random = new Random(42);
+        for (BlockVector3 position : REGION) {
+            clipboard.setBlock(position, blocks.get(random.nextInt(blocks.size())));
+            clipboard.setBiome(position, BIOMES[random.nextInt(BIOMES.length)]);
+        }
+        clipboard.createEntity(new Location(clipboard, -1.25, 0.5, 2.75, 30, 10), new BaseEntity(ENTITY_TYPE));
+        clipboard.createEntity(new Location(clipboard, 2.5, -1, 5.5, 0, 0), new BaseEntity(ENTITY_TYPE,
+            LazyReference.computed(LinCompoundTag.builder()
+                .putIntArray("block_pos", new int[] { 2, -1, 5 })
+                .putByte("Facing", (byte) 3)
+                .build())
+        ));
+        return clipboard;
+    }
+
+    /**
+     * Bake the transform by copying the clipboard, as was done for every
+     * transform before the view.
+     */
+    private static Clipboard bakeByCopy(Clipboard original, Transform transform) throws WorldEditException {
+        AxisAlignedTransform forward = AxisAlignedTransform.of(transform).withOffsets(ORIGIN, ORIGIN);
+        BlockArrayClipboard target = new BlockArrayClipboard(new CuboidRegion(
+            forward.apply(REGION.getMinimumPoint()), forward.apply(REGION.getMaximumPoint())
+        ));
+        target.setOrigin(ORIGIN);
+        ForwardExtentCopy copy = new ForwardExtentCopy(new BlockTransformExtent(original, transform),
+            original.getRegion(), ORIGIN, target, ORIGIN);
+        copy.setTransform(transform);
+        copy.setCopyingBiomes(true);
+        Operations.complete(copy);
+        return target;
+    }
+
+    /**
+     * Get the 47 rotations and flips that map axes onto axes, other than the
+     * identity.
+     */
+    private static List<AffineTransform> axisAlignedTransforms() {
+        int[][] permutations = { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } };
+        List<AffineTransform> transforms = new ArrayList<>();
+        for (int[] permutation : permutations) {
+            for (int signs = 0; signs < 8; signs++) {
+                double[][] m = new double[3][3];
+                for (int row = 0; row < 3; row++) {
+                    m[row][permutation[row]] = ((signs >> row) & 1) == 0 ? 1 : -1;
+                }
+                AffineTransform transform = new AffineTransform(
+                    m[0][0], m[0][1], m[0][2], 0,
+                    m[1][0], m[1][1], m[1][2], 0,
+                    m[2][0], m[2][1], m[2][2], 0
+                );
+                if (!transform.isIdentity()) {
+                    transforms.add(transform);
+                }
+            }
+        }
+        return transforms;
+    }
+
+    @Test
+    void testViewMatchesCopy() throws WorldEditException {
+        Clipboard original = createOriginal();
+        List<AffineTransform> transforms = axisAlignedTransforms();
+        assertEquals(47, transforms.size());
+        for (AffineTransform transform : transforms) {
+            Clipboard view = ClipboardTransformBaker.viewTransform(original, transform);
+            assertInstanceOf(TransformedClipboard.class, view, transform::toString);
+            Clipboard expected = bakeByCopy(original, transform);
+
+            assertEquals(expected.getRegion().getMinimumPoint(), view.getMinimumPoint(), transform::toString);
+            assertEquals(expected.getRegion().getMaximumPoint(), view.getMaximumPoint(), transform::toString);
+            assertEquals(expected.getOrigin(), view.getOrigin(), transform::toString);
+            for (BlockVector3 position : view.getRegion()) {
+                assertEquals(expected.getFullBlock(position), view.getFullBlock(position),
+                    () -> transform + " at " + position);
+                assertEquals(expected.getBlock(position), view.getBlock(position),
+                    () -> transform + " at " + position);
+                assertEquals(expected.getBiome(position), view.getBiome(position),
+                    () -> transform + " at " + position);
+            }
+
+            List<? extends Entity> expectedEntities = expected.getEntities();
+            List<? extends Entity> viewEntities = view.getEntities();
+            assertEquals(expectedEntities.size(), viewEntities.size(), transform::toString);
+            for (int i = 0; i < expectedEntities.size(); i++) {
+                Location expectedLocation = expectedEntities.get(i).getLocation();
+                Location viewLocation = viewEntities.get(i).getLocation();
+                assertEquals(expectedLocation.toVector(), viewLocation.toVector(), transform::toString);
+                assertEquals(expectedLocation.getYaw(), viewLocation.getYaw(), transform::toString);
+                assertEquals(expectedLocation.getPitch(), viewLocation.getPitch(), transform::toString);
+                BaseEntity expectedState = expectedEntities.get(i).getState();
+                BaseEntity viewState = viewEntities.get(i).getState();
+                assertNotNull(expectedState);
+                assertNotNull(viewState);
+                assertEquals(expectedState.getNbt(), viewState.getNbt(), transform::toString);
+            }
+            assertEquals(viewEntities, view.getEntities(view.getRegion()), transform::toString);
+        }
+    }
+
+    @Test
+    void testIdentityReturnsOriginal() throws WorldEditException {
+        Clipboard original = createOriginal();
+        assertSame(original, original.transform(new AffineTransform()));
+        assertSame(original, ClipboardTransformBaker.viewTransform(original, new AffineTransform()));
+    }
+
+    @Test
+    void testTransformCanBeChanged() throws WorldEditException {
+        Clipboard original = createOriginal();
+        Clipboard transformed = original.transform(new AffineTransform().rotateY(90));
+        BlockVector3 position = transformed.getMinimumPoint();
+        BaseBlock block = original.getFullBlock(REGION.getMaximumPoint());
+
+        assertTrue(transformed.setBlock(position, block));
+        assertEquals(block, transformed.getFullBlock(position));
+        assertNotNull(transformed.createEntity(new Location(transformed, position.toVector3()), new BaseEntity(ENTITY_TYPE)));
+        assertEquals(3, transformed.getEntities().size());
+        assertEquals(2, original.getEntities().size());
+    }
+
+    @Test
+    void testViewIsReadOnly() throws WorldEditException {
+        Clipboard original = createOriginal();
+        Clipboard view = ClipboardTransformBaker.viewTransform(original, new AffineTransform().rotateY(90));
+        BlockVector3 position = view.getMinimumPoint();
+        BaseBlock block = original.getFullBlock(REGION.getMinimumPoint());
+        BaseBlock viewBlock = view.getFullBlock(position);
+
+        assertThrows(UnsupportedOperationException.class, () -> view.setBlock(position, block));
+        assertThrows(UnsupportedOperationException.class, () -> view.setBiome(position, BIOMES[0]));
+        assertThrows(UnsupportedOperationException.class,
+            () -> view.createEntity(new Location(view, position.toVector3()), new BaseEntity(ENTITY_TYPE)));
+        for (Entity entity : view.getEntities()) {
+            assertFalse(entity.remove());
+        }
+        assertEquals(viewBlock, view.getFullBlock(position));
+        assertEquals(2, original.getEntities().size());
+        assertEquals(2, view.getEntities().size());
+    }
+}
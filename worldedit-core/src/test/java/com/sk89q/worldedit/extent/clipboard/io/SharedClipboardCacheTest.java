@@ -0,0 +1,135 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.CopyOnWriteClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SharedClipboardCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private ClipboardFormat format;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Every read gives a clipboard with a different origin, to tell them apart
+        format = mock(ClipboardFormat.class);
+        when(format.getReader(any())).thenAnswer(invocation -> {
+            ClipboardReader reader = mock(ClipboardReader.class);
+            when(reader.read()).thenAnswer(read -> {
+                BlockArrayClipboard clipboard = new BlockArrayClipboard(
+                    new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(3, 3, 3))
+                );
+                clipboard.setOrigin(BlockVector3.at(reads.incrementAndGet(), 0, 0));
+                return clipboard;
+            });
+            return reader;
+        });
+        file = directory.resolve("test.schem");
+        Files.write(file, new byte[] { 1, 2, 3 });
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2024-01-01T00:00:00Z")));
+    }
+
+    @Test
+    void testSameFileIsShared() throws IOException {
+        SharedClipboardCache cache = new SharedClipboardCache();
+        Clipboard first = cache.load(file, format);
+        Clipboard second = cache.load(file, format);
+
+        assertInstanceOf(CopyOnWriteClipboard.class, first);
+        assertNotSame(first, second);
+        assertEquals(1, reads.get());
+        assertEquals(first.getOrigin(), second.getOrigin());
+        // Another path to the same file is the same key
+        Clipboard third = cache.load(directory.resolve(".").resolve("test.schem"), format);
+        assertEquals(1, reads.get());
+        assertEquals(first.getOrigin(), third.getOrigin());
+    }
+
+    @Test
+    void testChangedModificationTimeReloads() throws IOException {
+        SharedClipboardCache cache = new SharedClipboardCache();
+        Clipboard first = cache.load(file, format);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+        Clipboard second = cache.load(file, format);
+
+        assertEquals(2, reads.get());
+        assertEquals(BlockVector3.at(1, 0, 0), first.getOrigin());
+        assertEquals(BlockVector3.at(2, 0, 0), second.getOrigin());
+        // The new version is shared from then on
+        Clipboard third = cache.load(file, format);
+        assertEquals(2, reads.get());
+        assertEquals(second.getOrigin(), third.getOrigin());
+    }
+
+    @Test
+    void testChangedSizeReloads() throws IOException {
+        SharedClipboardCache cache = new SharedClipboardCache();
+        Clipboard first = cache.load(file, format);
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.write(file, new byte[] { 1, 2, 3, 4 });
+        Files.setLastModifiedTime(file, modified);
+        Clipboard second = cache.load(file, format);
+
+        assertEquals(2, reads.get());
+        assertNotEquals(first.getOrigin(), second.getOrigin());
+    }
+
+    @Test
+    void testMissingFile() {
+        SharedClipboardCache cache = new SharedClipboardCache();
+        assertThrows(IOException.class, () -> cache.load(directory.resolve("missing.schem"), format));
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void testReadFailure() throws IOException {
+        when(format.getReader(any())).thenThrow(new IOException("broken"));
+        SharedClipboardCache cache = new SharedClipboardCache();
+        IOException e = assertThrows(IOException.class, () -> cache.load(file, format));
+        assertEquals("broken", e.getMessage());
+    }
+}
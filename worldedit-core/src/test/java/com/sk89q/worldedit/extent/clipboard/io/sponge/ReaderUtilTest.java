@@ -0,0 +1,140 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io.sponge;
+
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.DataFixer;
+import com.sk89q.worldedit.world.entity.EntityType;
+import org.enginehub.linbus.tree.LinCompoundTag;
+import org.enginehub.linbus.tree.LinDoubleTag;
+import org.enginehub.linbus.tree.LinFloatTag;
+import org.enginehub.linbus.tree.LinListTag;
+import org.enginehub.linbus.tree.LinTagType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ReaderUtilTest extends BaseWorldEditTest {
+
+    private static final String ENTITY_ID = "worldedit:test_entity";
+    private static final int OLD_DATA_VERSION = 100;
+
+    /**
+     * Turns entities around, as a fix for an old data version might.
+     */
+    private static final DataFixer ROTATING_FIXER = new DataFixer() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T fixUp(FixType<T> type, T original, int srcVer) {
+            if (type != FixTypes.ENTITY || srcVer != OLD_DATA_VERSION) {
+                return original;
+            }
+            return (T) ((LinCompoundTag) original).toBuilder()
+                .put("Rotation", rotation(90, -45))
+                .putString("Fixed", "yes")
+                .build();
+        }
+    };
+
+    @BeforeAll
+    static void registerEntityType() {
+        if (EntityType.REGISTRY.get(ENTITY_ID) == null) {
+            EntityType.REGISTRY.register(ENTITY_ID, new EntityType(ENTITY_ID));
+        }
+    }
+
+    private static LinListTag<LinFloatTag> rotation(float yaw, float pitch) {
+        return LinListTag.builder(LinTagType.floatTag())
+            .add(LinFloatTag.of(yaw))
+            .add(LinFloatTag.of(pitch))
+            .build();
+    }
+
+    private static LinCompoundTag entityTag(boolean positionIsRelative) {
+        LinListTag<LinDoubleTag> position = LinListTag.builder(LinTagType.doubleTag())
+            .add(LinDoubleTag.of(1.5))
+            .add(LinDoubleTag.of(2))
+            .add(LinDoubleTag.of(3.5))
+            .build();
+        LinCompoundTag data = LinCompoundTag.builder()
+            .put("Rotation", rotation(10, 20))
+            .build();
+        LinCompoundTag.Builder builder = LinCompoundTag.builder()
+            .putString("Id", ENTITY_ID)
+            .put("Pos", position);
+        if (positionIsRelative) {
+            builder.put("Data", data);
+        } else {
+            builder.putAll(data.value());
+        }
+        return builder.build();
+    }
+
+    private static Entity readEntity(boolean positionIsRelative, VersionedDataFixer fixer) {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(
+            new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(15, 15, 15))
+        );
+        ReaderUtil.readEntities(clipboard, List.of(entityTag(positionIsRelative)), fixer, positionIsRelative);
+        List<? extends Entity> entities = clipboard.getEntities();
+        assertEquals(1, entities.size());
+        return entities.get(0);
+    }
+
+    @ParameterizedTest(
+        name = "positionIsRelative={0}"
+    )
+    @ValueSource(booleans = {
+        false, true
+    })
+    void testRotationIsReadFromFixedData(boolean positionIsRelative) {
+        Entity entity = readEntity(positionIsRelative, new VersionedDataFixer(OLD_DATA_VERSION, ROTATING_FIXER));
+        Location location = entity.getLocation();
+        assertEquals(Vector3.at(1.5, 2, 3.5), location.toVector());
+        assertEquals(90, location.getYaw());
+        assertEquals(-45, location.getPitch());
+
+        BaseEntity state = entity.getState();
+        assertNotNull(state);
+        LinCompoundTag nbt = state.getNbt();
+        assertNotNull(nbt);
+        assertEquals("yes", nbt.getTag("Fixed", LinTagType.stringTag()).value());
+        assertEquals(rotation(90, -45), nbt.getListTag("Rotation", LinTagType.floatTag()));
+    }
+
+    @Test
+    void testRotationWithoutFixer() {
+        Entity entity = readEntity(true, new VersionedDataFixer(OLD_DATA_VERSION, null));
+        assertEquals(10, entity.getLocation().getYaw());
+        assertEquals(20, entity.getLocation().getPitch());
+    }
+}
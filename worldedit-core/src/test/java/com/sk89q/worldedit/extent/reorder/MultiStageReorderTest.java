@@ -0,0 +1,239 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.reorder;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.extent.reorder.MultiStageReorder.PlacementPriority;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BlockCategoryRegistry;
+import com.sk89q.worldedit.world.registry.BlockMaterial;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MultiStageReorderTest extends BaseWorldEditTest {
+
+    // The order the early stages are set in, by region, then chunk, then Y value (max -> min)
+    private static final Comparator<BlockVector3> FLUSH_ORDER =
+        Comparator.<BlockVector3>comparingInt(v -> v.x() >> 9)
+            .thenComparingInt(v -> v.z() >> 9)
+            .thenComparingInt(v -> v.x() >> 4)
+            .thenComparingInt(v -> v.z() >> 4)
+            .thenComparing(Comparator.comparingInt(BlockVector3::y).reversed())
+            .thenComparingInt(v -> v.x() & 15)
+            .thenComparingInt(v -> v.z() & 15);
+
+    private static BlockType stone;
+    private static BlockType air;
+    private static BlockType water;
+    private static BlockType torch;
+    private static BlockType door;
+    private static Map<BlockType, PlacementPriority> priorities;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BlockMaterial solid = mock(BlockMaterial.class);
+        BlockMaterial airMaterial = mock(BlockMaterial.class);
+        when(airMaterial.isAir()).thenReturn(true);
+        BlockRegistry blockRegistry = mock(BlockRegistry.class);
+        when(blockRegistry.getProperties(any())).thenReturn(ImmutableMap.of());
+        when(blockRegistry.getInternalBlockStateId(any())).thenReturn(OptionalInt.empty());
+        when(blockRegistry.getMaterial(any())).thenAnswer(invocation ->
+            invocation.<BlockType>getArgument(0).id().equals("worldedit:test_air") ? airMaterial : solid);
+        Registries registries = mock(Registries.class);
+        when(registries.getBlockRegistry()).thenReturn(blockRegistry);
+        // The default priorities are filled in from block categories
+        when(registries.getBlockCategoryRegistry()).thenReturn(mock(BlockCategoryRegistry.class));
+        when(MOCKED_PLATFORM.getRegistries()).thenReturn(registries);
+
+        stone = new BlockType("worldedit:test_stone");
+        air = new BlockType("worldedit:test_air");
+        water = new BlockType("worldedit:test_water");
+        torch = new BlockType("worldedit:test_torch");
+        door = new BlockType("worldedit:test_door");
+        priorities = ImmutableMap.of(
+            water, PlacementPriority.LATE,
+            torch, PlacementPriority.LAST,
+            door, PlacementPriority.FINAL
+        );
+        // Every type but the torch gets an internal ID, so both ways to look up priorities are used
+        for (BlockType type : List.of(stone, air, water, door)) {
+            BlockStateIdAccess.register(type.getDefaultState(), BlockStateIdAccess.invalidId());
+        }
+    }
+
+    /**
+     * An extent that records the blocks set in it, in order.
+     */
+    private static final class RecordingExtent extends NullExtent {
+        private final Map<BlockVector3, BaseBlock> blocks = new HashMap<>();
+        private final List<BlockVector3> setOrder = new ArrayList<>();
+
+        @Override
+        public BlockState getBlock(BlockVector3 position) {
+            return getFullBlock(position).toImmutableState();
+        }
+
+        @Override
+        public BaseBlock getFullBlock(BlockVector3 position) {
+            return blocks.getOrDefault(position, stone.getDefaultState().toBaseBlock());
+        }
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            setOrder.add(position);
+            return !block.toBaseBlock().equals(blocks.put(position, block.toBaseBlock()));
+        }
+    }
+
+    private static List<BlockType> typesSet(RecordingExtent extent) {
+        List<BlockType> types = new ArrayList<>();
+        for (BlockVector3 position : extent.setOrder) {
+            types.add(extent.blocks.get(position).getBlockType());
+        }
+        return types;
+    }
+
+    @Test
+    void testStagesAreSetInPriorityOrder() throws WorldEditException {
+        RecordingExtent extent = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(extent, true, priorities);
+        List<BlockType> types = List.of(door, torch, water, stone, torch, door, water, stone);
+        // Twice, so the priorities are read back from the ID table the second time
+        for (int round = 0; round < 2; round++) {
+            extent.setOrder.clear();
+            for (int i = 0; i < types.size(); i++) {
+                reorder.setBlock(BlockVector3.at(i, round, 0), types.get(i).getDefaultState());
+            }
+            assertTrue(extent.setOrder.isEmpty());
+            Operations.complete(reorder.commit());
+            assertEquals(List.of(stone, stone, water, water, torch, torch, door, door), typesSet(extent));
+        }
+    }
+
+    @Test
+    void testClearingStagesAreSetFirst() throws WorldEditException {
+        RecordingExtent extent = new RecordingExtent();
+        BlockVector3 doorPosition = BlockVector3.at(0, 0, 0);
+        BlockVector3 torchPosition = BlockVector3.at(1, 0, 0);
+        extent.blocks.put(doorPosition, door.getDefaultState().toBaseBlock());
+        extent.blocks.put(torchPosition, torch.getDefaultState().toBaseBlock());
+        MultiStageReorder reorder = new MultiStageReorder(extent, true, priorities);
+
+        reorder.setBlock(doorPosition, air.getDefaultState());
+        reorder.setBlock(torchPosition, air.getDefaultState());
+        reorder.setBlock(BlockVector3.at(2, 0, 0), stone.getDefaultState());
+        Operations.complete(reorder.commit());
+
+        // The door is cleared before the torch, and both before the first stage
+        assertEquals(List.of(doorPosition, torchPosition, BlockVector3.at(2, 0, 0)), extent.setOrder);
+        assertEquals(air, extent.blocks.get(doorPosition).getBlockType());
+        assertEquals(air, extent.blocks.get(torchPosition).getBlockType());
+    }
+
+    @Test
+    void testEarlyStagesAreFlushedPastThreshold() throws WorldEditException {
+        RecordingExtent extent = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(extent, true, priorities);
+        reorder.setFlushThreshold(40);
+
+        List<BlockVector3> positions = new ArrayList<>();
+        for (int y = 0; y < 4; y++) {
+            for (int x = -20; x < 20; x += 4) {
+                positions.add(BlockVector3.at(x, y, 5 - x));
+            }
+        }
+        for (BlockVector3 position : positions) {
+            reorder.setBlock(position, stone.getDefaultState());
+            reorder.setBlock(position.add(0, 100, 0), water.getDefaultState());
+        }
+        assertTrue(extent.setOrder.isEmpty());
+        // Passing the threshold sets the early stages, in chunk order
+        reorder.setBlock(BlockVector3.at(0, -10, 0), stone.getDefaultState());
+        List<BlockVector3> expected = new ArrayList<>(positions);
+        expected.add(BlockVector3.at(0, -10, 0));
+        expected.sort(FLUSH_ORDER);
+        assertEquals(expected, extent.setOrder);
+        // The later stages are only set at the commit
+        extent.setOrder.clear();
+        Operations.complete(reorder.commit());
+        assertEquals(positions.size(), extent.setOrder.size());
+        assertTrue(typesSet(extent).stream().allMatch(water::equals));
+    }
+
+    @Test
+    void testOverwritesDoNotCountTowardsThreshold() throws WorldEditException {
+        RecordingExtent extent = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(extent, true, priorities);
+        reorder.setFlushThreshold(4);
+
+        for (int i = 0; i < 100; i++) {
+            BlockVector3 position = BlockVector3.at(i % 4, 0, 0);
+            reorder.setBlock(position, stone.getDefaultState());
+            assertEquals(stone, reorder.getFullBlock(position).getBlockType());
+        }
+        assertTrue(extent.setOrder.isEmpty());
+        reorder.setBlock(BlockVector3.at(4, 0, 0), stone.getDefaultState());
+        assertEquals(5, extent.setOrder.size());
+    }
+
+    @Test
+    void testClearingStagesCountTowardsThreshold() throws WorldEditException {
+        RecordingExtent extent = new RecordingExtent();
+        for (int x = 0; x < 3; x++) {
+            extent.blocks.put(BlockVector3.at(x, 0, 0), water.getDefaultState().toBaseBlock());
+        }
+        MultiStageReorder reorder = new MultiStageReorder(extent, true, priorities);
+        reorder.setFlushThreshold(2);
+
+        // Replacing water with air only stages it in the clearing stage
+        reorder.setBlock(BlockVector3.at(2, 0, 0), air.getDefaultState());
+        reorder.setBlock(BlockVector3.at(0, 0, 0), air.getDefaultState());
+        assertTrue(extent.setOrder.isEmpty());
+        reorder.setBlock(BlockVector3.at(1, 0, 0), air.getDefaultState());
+        assertEquals(List.of(
+            BlockVector3.at(0, 0, 0), BlockVector3.at(1, 0, 0), BlockVector3.at(2, 0, 0)
+        ), extent.setOrder);
+        assertTrue(typesSet(extent).stream().allMatch(air::equals));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.SideEffect;
+import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SideEffectExtentTest extends BaseWorldEditTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+    private static BlockState glass;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        stone = new BlockType("worldedit:test_stone").getDefaultState();
+        dirt = new BlockType("worldedit:test_dirt").getDefaultState();
+        glass = new BlockType("worldedit:test_glass").getDefaultState();
+    }
+
+    private World world;
+    private final List<SideEffectSet> immediateSets = new ArrayList<>();
+    private final List<Map<BlockVector3, BlockState>> appliedSections = new ArrayList<>();
+    private final List<SideEffectSet> delayedSets = new ArrayList<>();
+
+    @BeforeEach
+    void setUpWorld() throws WorldEditException {
+        world = mock(World.class);
+        // The previous type differs by position, to tell the positions apart
+        when(world.getBlock(any())).thenAnswer(invocation -> {
+            BlockVector3 position = invocation.getArgument(0);
+            return Math.floorMod(position.x() + position.y() + position.z(), 2) == 0 ? stone : dirt;
+        });
+        when(world.setBlock(any(BlockVector3.class), any(BlockState.class), any(SideEffectSet.class)))
+            .thenAnswer(invocation -> {
+                immediateSets.add(invocation.getArgument(2));
+                return true;
+            });
+        when(world.applySideEffects(anyMap(), any(SideEffectSet.class))).thenAnswer(invocation -> {
+            appliedSections.add(new HashMap<>(invocation.<Map<BlockVector3, BlockState>>getArgument(0)));
+            delayedSets.add(invocation.getArgument(1));
+            return EnumSet.noneOf(SideEffect.class);
+        });
+    }
+
+    private static Map<SideEffect, SideEffect.State> states(SideEffectSet set) {
+        Map<SideEffect, SideEffect.State> states = new EnumMap<>(SideEffect.class);
+        for (SideEffect effect : SideEffect.values()) {
+            states.put(effect, set.getState(effect));
+        }
+        return states;
+    }
+
+    private static Map<SideEffect, SideEffect.State> allOff() {
+        Map<SideEffect, SideEffect.State> states = new EnumMap<>(SideEffect.class);
+        for (SideEffect effect : SideEffect.values()) {
+            states.put(effect, SideEffect.State.OFF);
+        }
+        return states;
+    }
+
+    private void setAndCommit(SideEffectExtent extent) throws WorldEditException {
+        extent.setBlock(BlockVector3.at(1, 2, 3), glass);
+        Operations.complete(extent.commit());
+    }
+
+    @Test
+    void testNothingDelayed() throws WorldEditException {
+        SideEffectSet sideEffects = SideEffectSet.defaults().with(SideEffect.VALIDATION, SideEffect.State.ON);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(sideEffects);
+        assertFalse(extent.commitRequired());
+        setAndCommit(extent);
+
+        assertEquals(1, immediateSets.size());
+        assertEquals(states(sideEffects), states(immediateSets.getFirst()));
+        assertTrue(appliedSections.isEmpty());
+    }
+
+    @Test
+    void testDelayedEffectsAreSplit() throws WorldEditException {
+        SideEffectSet sideEffects = SideEffectSet.defaults()
+            .with(SideEffect.LIGHTING, SideEffect.State.DELAYED)
+            .with(SideEffect.NEIGHBORS, SideEffect.State.DELAYED)
+            .with(SideEffect.VALIDATION, SideEffect.State.ON);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(sideEffects);
+        setAndCommit(extent);
+
+        // Delayed effects are off while setting blocks, and every other effect is as set
+        Map<SideEffect, SideEffect.State> immediate = states(sideEffects);
+        immediate.put(SideEffect.LIGHTING, SideEffect.State.OFF);
+        immediate.put(SideEffect.NEIGHBORS, SideEffect.State.OFF);
+        assertEquals(immediate, states(immediateSets.getFirst()));
+
+        // Only the delayed effects are applied after the edit, along with the effects that can't be delayed
+        Map<SideEffect, SideEffect.State> delayed = allOff();
+        delayed.put(SideEffect.LIGHTING, SideEffect.State.ON);
+        delayed.put(SideEffect.NEIGHBORS, SideEffect.State.ON);
+        delayed.put(SideEffect.VALIDATION, SideEffect.State.ON);
+        assertEquals(1, delayedSets.size());
+        assertEquals(delayed, states(delayedSets.getFirst()));
+        assertEquals(Map.of(BlockVector3.at(1, 2, 3), stone), appliedSections.getFirst());
+    }
+
+    @Test
+    void testPostEditSimulationDelaysEverything() throws WorldEditException {
+        SideEffectSet sideEffects = SideEffectSet.defaults()
+            .with(SideEffect.LIGHTING, SideEffect.State.DELAYED)
+            .with(SideEffect.ENTITY_AI, SideEffect.State.ON);
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(sideEffects);
+        extent.setPostEditSimulationEnabled(true);
+        assertTrue(extent.commitRequired());
+        setAndCommit(extent);
+
+        assertEquals(allOff(), states(immediateSets.getFirst()));
+        Map<SideEffect, SideEffect.State> delayed = states(sideEffects);
+        delayed.put(SideEffect.LIGHTING, SideEffect.State.ON);
+        assertEquals(delayed, states(delayedSets.getFirst()));
+    }
+
+    @Test
+    void testChangingSetUpdatesSplit() throws WorldEditException {
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(SideEffectSet.defaults().with(SideEffect.LIGHTING, SideEffect.State.DELAYED));
+        extent.setSideEffectSet(SideEffectSet.defaults());
+        setAndCommit(extent);
+
+        assertEquals(states(SideEffectSet.defaults()), states(immediateSets.getFirst()));
+        assertTrue(appliedSections.isEmpty());
+    }
+
+    @Test
+    void testSectionsRoundTrip() throws WorldEditException {
+        SideEffectExtent extent = new SideEffectExtent(world);
+        extent.setSideEffectSet(SideEffectSet.defaults().with(SideEffect.UPDATE, SideEffect.State.DELAYED));
+
+        Map<BlockVector3, BlockState> expected = new HashMap<>();
+        for (int x = -18; x <= 17; x += 5) {
+            for (int y = -65; y <= 40; y += 7) {
+                for (int z = -33; z <= 16; z += 3) {
+                    BlockVector3 position = BlockVector3.at(x, y, z);
+                    extent.setBlock(position, glass);
+                    expected.put(position, world.getBlock(position));
+                }
+            }
+        }
+        // Section edges, on both sides of zero
+        for (BlockVector3 position : List.of(
+            BlockVector3.at(-1, -1, -1), BlockVector3.at(0, 0, 0), BlockVector3.at(-16, -16, -16),
+            BlockVector3.at(15, 15, 15), BlockVector3.at(-17, 16, -32), BlockVector3.at(-30_000_000, -2048, 29_999_999)
+        )) {
+            extent.setBlock(position, glass);
+            expected.put(position, world.getBlock(position));
+        }
+        Operations.complete(extent.commit());
+
+        Map<BlockVector3, BlockState> applied = new HashMap<>();
+        for (Map<BlockVector3, BlockState> section : appliedSections) {
+            BlockVector3 sectionPosition = section.keySet().iterator().next().shr(4);
+            for (Map.Entry<BlockVector3, BlockState> entry : section.entrySet()) {
+                assertEquals(sectionPosition, entry.getKey().shr(4), "Positions in a section must share it");
+                assertNull(applied.put(entry.getKey(), entry.getValue()), entry.getKey()::toString);
+            }
+        }
+        assertEquals(expected, applied);
+        assertFalse(extent.commitRequired());
+    }
+}
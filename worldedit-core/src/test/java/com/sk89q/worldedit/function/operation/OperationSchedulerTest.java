@@ -0,0 +1,238 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.task.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationSchedulerTest {
+
+    private final OperationScheduler scheduler = new OperationScheduler(1, TimeUnit.MILLISECONDS);
+
+    /**
+     * Uses up its share of every tick, and completes after a number of slices.
+     */
+    private static final class SlicedOperation implements Operation {
+        private int slicesLeft;
+        private boolean cancelled;
+
+        private SlicedOperation(int slices) {
+            this.slicesLeft = slices;
+        }
+
+        @Override
+        public Operation resume(RunContext run) {
+            while (run.shouldContinue()) {
+                Thread.onSpinWait();
+            }
+            return --slicesLeft > 0 ? this : null;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @Test
+    void testOperationsRunAcrossTicks() {
+        SlicedOperation operation = new SlicedOperation(3);
+        ListenableFuture<Void> future = scheduler.submit(operation);
+        scheduler.tick();
+        scheduler.tick();
+        assertFalse(future.isDone());
+        assertEquals(1, operation.slicesLeft);
+        scheduler.tick();
+        assertTrue(future.isDone());
+        assertEquals(0, scheduler.getOperationCount());
+    }
+
+    @Test
+    void testOperationsShareTicks() {
+        SlicedOperation first = new SlicedOperation(2);
+        SlicedOperation second = new SlicedOperation(2);
+        scheduler.submit(first);
+        scheduler.submit(second);
+        scheduler.tick();
+        assertEquals(1, first.slicesLeft);
+        assertEquals(1, second.slicesLeft);
+        scheduler.tick();
+        assertEquals(0, scheduler.getOperationCount());
+    }
+
+    @Test
+    void testAfterSliceRunsEverySlice() {
+        AtomicInteger slices = new AtomicInteger();
+        scheduler.submit(new SlicedOperation(2), "Test", null, task -> slices.incrementAndGet());
+        scheduler.tick();
+        scheduler.tick();
+        assertEquals(2, slices.get());
+    }
+
+    @Test
+    void testCancel() {
+        SlicedOperation operation = new SlicedOperation(2);
+        scheduler.submit(operation).cancel(false);
+        scheduler.tick();
+        assertTrue(operation.cancelled);
+        assertEquals(2, operation.slicesLeft);
+        assertEquals(0, scheduler.getOperationCount());
+    }
+
+    @Test
+    void testPause() {
+        SlicedOperation operation = new SlicedOperation(2);
+        OperationTask task = scheduler.submit(operation);
+        assertTrue(task.setPaused(true));
+        assertFalse(task.setPaused(true));
+        scheduler.tick();
+        assertEquals(2, operation.slicesLeft);
+        assertTrue(task.setPaused(false));
+        scheduler.tick();
+        assertEquals(1, operation.slicesLeft);
+    }
+
+    @Test
+    void testCancelPaused() {
+        SlicedOperation operation = new SlicedOperation(2);
+        OperationTask task = scheduler.submit(operation);
+        task.setPaused(true);
+        task.cancel(false);
+        scheduler.tick();
+        assertTrue(operation.cancelled);
+        assertEquals(0, scheduler.getOperationCount());
+    }
+
+    @Test
+    void testTasksById() {
+        OperationTask first = scheduler.submit(new SlicedOperation(1));
+        OperationTask second = scheduler.submit(new SlicedOperation(2));
+        assertEquals(List.of(first, second), scheduler.getTasks());
+        assertSame(second, scheduler.getTask(second.getId()).orElseThrow());
+        scheduler.tick();
+        assertTrue(scheduler.getTask(first.getId()).isEmpty());
+        assertEquals(List.of(second), scheduler.getTasks());
+    }
+
+    @Test
+    void testStopCancelsOperations() {
+        SlicedOperation operation = new SlicedOperation(2);
+        ListenableFuture<Void> future = scheduler.submit(operation);
+        scheduler.stop();
+        assertTrue(operation.cancelled);
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void testFailure() {
+        MaxChangedBlocksException error = new MaxChangedBlocksException(1);
+        ListenableFuture<Void> future = scheduler.submit(new Operation() {
+            @Override
+            public Operation resume(RunContext run) throws MaxChangedBlocksException {
+                throw error;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        scheduler.tick();
+        ExecutionException thrown = assertThrows(ExecutionException.class, future::get);
+        assertSame(error, thrown.getCause());
+    }
+
+    @Test
+    void testRegionVisitorYields() throws Exception {
+        AtomicInteger applied = new AtomicInteger();
+        RegionVisitor visitor = new RegionVisitor(
+            new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(1, 1, 1)),
+            position -> applied.incrementAndGet() > 0
+        );
+        RunContext stop = new RunContext() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        };
+        for (int i = 1; i < 8; i++) {
+            assertSame(visitor, visitor.resume(stop));
+            assertEquals(i, visitor.getAffected());
+        }
+        assertNull(visitor.resume(stop));
+        assertEquals(8, applied.get());
+    }
+
+    @Test
+    void testProgress() {
+        RegionVisitor visitor = new RegionVisitor(
+            new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(1, 1, 1)),
+            position -> true
+        );
+        OperationTask task = scheduler.submit(visitor);
+        assertEquals(Task.State.SCHEDULED, task.getState());
+        assertEquals(0, task.getProcessedCount());
+        assertEquals(8, task.getEstimatedCount());
+        assertEquals(0, task.getProgress().getProgress());
+        scheduler.tick();
+        assertEquals(Task.State.SUCCEEDED, task.getState());
+        assertEquals(8, task.getProcessedCount());
+        assertEquals(1, task.getProgress().getProgress());
+    }
+
+    @Test
+    void testQueueProgress() {
+        CuboidRegion region = new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(1, 1, 1));
+        RegionVisitor first = new RegionVisitor(region, position -> true);
+        RegionVisitor second = new RegionVisitor(region, position -> true);
+        OperationQueue queue = new OperationQueue(first, second);
+        assertEquals(16, queue.getEstimatedCount());
+        Operations.completeBlindly(first);
+        assertEquals(8, queue.getProcessedCount());
+        assertEquals(0.5, queue.getProgress().getProgress());
+        queue.offer(new SlicedOperation(1));
+        assertEquals(-1, queue.getEstimatedCount());
+        assertTrue(queue.getProgress().isIndeterminate());
+    }
+
+    @Test
+    void testDeadlineRunContextExpires() {
+        DeadlineRunContext run = new DeadlineRunContext(0);
+        assertTrue(run.isExpired());
+        assertFalse(run.shouldContinue());
+    }
+
+}
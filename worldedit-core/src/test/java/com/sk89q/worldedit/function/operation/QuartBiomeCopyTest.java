@@ -0,0 +1,171 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.biome.ExtentBiomeCopy;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.internal.util.AxisAlignedTransform;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that copying biomes per cell gives the same result as copying
+ * them per block.
+ */
+class QuartBiomeCopyTest {
+
+    // Not aligned to biome cells
+    private static final CuboidRegion REGION = new CuboidRegion(
+        BlockVector3.at(-6, -5, 3), BlockVector3.at(13, 10, 22)
+    );
+    private static final CuboidRegion DESTINATION_REGION = new CuboidRegion(
+        BlockVector3.at(-64, -64, -64), BlockVector3.at(64, 64, 64)
+    );
+    private static final BlockVector3 FROM = BlockVector3.at(2, 0, 5);
+    private static final BiomeType[] BIOMES = {
+        new BiomeType("worldedit:test_plains"),
+        new BiomeType("worldedit:test_desert"),
+        new BiomeType("worldedit:test_forest"),
+    };
+
+    private static BiomeType cellBiome(BlockVector3 position) {
+        BlockVector3 cell = position.shr(2);
+        return BIOMES[Math.floorMod(cell.x() + 2 * cell.y() + 4 * cell.z(), BIOMES.length)];
+    }
+
+    private static BiomeType blockBiome(BlockVector3 position) {
+        return BIOMES[Math.floorMod(position.x() + position.y() + position.z(), BIOMES.length)];
+    }
+
+    private static BlockArrayClipboard createSource(Function<BlockVector3, BiomeType> biomes) {
+        BlockArrayClipboard source = new BlockArrayClipboard(REGION);
+        for (BlockVector3 position : REGION) {
+            source.setBiome(position, biomes.apply(position));
+        }
+        return source;
+    }
+
+    /**
+     * Counts the biomes set in a clipboard, which it hides from the copy.
+     */
+    private static final class CountingExtent extends AbstractDelegateExtent {
+        private int biomesSet;
+
+        private CountingExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public boolean setBiome(BlockVector3 position, BiomeType biome) {
+            biomesSet++;
+            return super.setBiome(position, biome);
+        }
+    }
+
+    private static CuboidRegion getDestinationBox(BlockVector3 to, Transform transform) {
+        AxisAlignedTransform forward = AxisAlignedTransform.of(transform).withOffsets(FROM, to);
+        return new CuboidRegion(forward.apply(REGION.getMinimumPoint()), forward.apply(REGION.getMaximumPoint()));
+    }
+
+    private static long countCells(CuboidRegion box) {
+        BlockVector3 cells = box.getMaximumPoint().shr(2).subtract(box.getMinimumPoint().shr(2)).add(1, 1, 1);
+        return (long) cells.x() * cells.y() * cells.z();
+    }
+
+    /**
+     * Copy the biomes per cell and per block, and check that the copies are
+     * the same.
+     *
+     * @return the per-cell copy
+     */
+    private static QuartBiomeCopy assertSameAsPerBlockCopy(Extent source, Extent destination, BlockVector3 to,
+                                                           Transform transform) throws WorldEditException {
+        BlockArrayClipboard expected = new BlockArrayClipboard(DESTINATION_REGION);
+        Operations.complete(new RegionVisitor(REGION, new ExtentBiomeCopy(source, FROM, expected, to, transform)));
+
+        QuartBiomeCopy copy = new QuartBiomeCopy(source, REGION, FROM, destination, to, transform,
+            new ExtentBiomeCopy(source, FROM, destination, to, transform));
+        Operations.complete(copy);
+
+        CuboidRegion box = getDestinationBox(to, transform);
+        for (BlockVector3 position : box) {
+            assertEquals(expected.getBiome(position), destination.getBiome(position), position::toString);
+        }
+        assertEquals(countCells(box), copy.getAffected());
+        return copy;
+    }
+
+    @Test
+    void testCopyAlignedCells() throws WorldEditException {
+        BlockArrayClipboard destination = new BlockArrayClipboard(DESTINATION_REGION);
+        assertSameAsPerBlockCopy(createSource(QuartBiomeCopyTest::cellBiome), destination,
+            FROM.add(8, -4, 12), new AffineTransform());
+        assertFalse(destination.storesBiomesPerBlock());
+    }
+
+    @Test
+    void testCopyAlignedCellsSetsOncePerCell() throws WorldEditException {
+        CountingExtent destination = new CountingExtent(new BlockArrayClipboard(DESTINATION_REGION));
+        BlockVector3 to = FROM.add(-16, 4, 8);
+        assertSameAsPerBlockCopy(createSource(QuartBiomeCopyTest::cellBiome), destination, to, new AffineTransform());
+        assertEquals(countCells(getDestinationBox(to, new AffineTransform())), destination.biomesSet);
+    }
+
+    @Test
+    void testCopyRotatedAlignedCells() throws WorldEditException {
+        // Rotating maps x to -z, so cells only line up with an offset of 3 along z
+        Transform transform = new AffineTransform().rotateY(90);
+        CountingExtent destination = new CountingExtent(new BlockArrayClipboard(DESTINATION_REGION));
+        BlockVector3 to = BlockVector3.at(FROM.z() + 4, 0, 3 - FROM.x());
+        assertSameAsPerBlockCopy(createSource(QuartBiomeCopyTest::cellBiome), destination, to, transform);
+        assertEquals(countCells(getDestinationBox(to, transform)), destination.biomesSet);
+    }
+
+    @Test
+    void testCopyMisalignedCells() throws WorldEditException {
+        BlockArrayClipboard destination = new BlockArrayClipboard(DESTINATION_REGION);
+        assertSameAsPerBlockCopy(createSource(QuartBiomeCopyTest::cellBiome), destination,
+            FROM.add(1, 2, 3), new AffineTransform().scale(-1, 1, 1));
+        assertTrue(destination.storesBiomesPerBlock());
+    }
+
+    @Test
+    void testCopyBiomesPerBlock() throws WorldEditException {
+        BlockArrayClipboard source = createSource(QuartBiomeCopyTest::blockBiome);
+        assertTrue(source.storesBiomesPerBlock());
+        CountingExtent destination = new CountingExtent(new BlockArrayClipboard(DESTINATION_REGION));
+        assertSameAsPerBlockCopy(source, destination, FROM.add(8, 4, -4), new AffineTransform());
+        assertEquals(REGION.getVolume(), destination.biomesSet);
+    }
+}
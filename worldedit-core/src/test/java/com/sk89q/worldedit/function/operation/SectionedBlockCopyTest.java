@@ -0,0 +1,165 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.enginehub.linbus.tree.LinCompoundTag;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that copies a section at a time give the same result as the
+ * per-block copy, which is used when there's a source function.
+ */
+class SectionedBlockCopyTest extends BaseWorldEditTest {
+
+    // Not aligned to sections, and crossing zero on the x and y axes
+    private static final CuboidRegion SOURCE_REGION = new CuboidRegion(
+        BlockVector3.at(-7, -3, 5), BlockVector3.at(20, 18, 33)
+    );
+    private static final CuboidRegion DESTINATION_REGION = new CuboidRegion(
+        BlockVector3.at(-40, -24, -40), BlockVector3.at(40, 40, 40)
+    );
+    private static final BlockVector3 TO = BlockVector3.at(3, -11, -9);
+
+    private static BaseBlock[] blocks;
+    private static BaseBlock filler;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BaseBlock stone = new BlockType("worldedit:test_stone").getDefaultState().toBaseBlock();
+        BaseBlock dirt = new BlockType("worldedit:test_dirt").getDefaultState().toBaseBlock();
+        BlockType chest = new BlockType("worldedit:test_chest");
+        blocks = new BaseBlock[] {
+            stone,
+            dirt,
+            chest.getDefaultState().toBaseBlock(LinCompoundTag.builder().putString("dummy", "a").build()),
+            chest.getDefaultState().toBaseBlock(LinCompoundTag.builder().putString("dummy", "b").build()),
+        };
+        filler = new BlockType("worldedit:test_filler").getDefaultState().toBaseBlock();
+    }
+
+    private static BlockArrayClipboard createSource() throws WorldEditException {
+        BlockArrayClipboard source = new BlockArrayClipboard(SOURCE_REGION);
+        Random random = new Random(42);
+        for (BlockVector3 position : SOURCE_REGION) {
+            source.setBlock(position, blocks[random.nextInt(blocks.length)]);
+        }
+        return source;
+    }
+
+    private static BlockArrayClipboard createDestination() throws WorldEditException {
+        BlockArrayClipboard destination = new BlockArrayClipboard(DESTINATION_REGION);
+        for (BlockVector3 position : DESTINATION_REGION) {
+            destination.setBlock(position, filler);
+        }
+        return destination;
+    }
+
+    /**
+     * Copy the region with and without sections, and check that the copies
+     * are the same.
+     *
+     * @param region the region of the source to copy
+     * @param configure sets up the copy
+     * @param wrapDestination wraps the destination clipboard, before the copy into it
+     * @param run the run context to complete the sectioned copy with
+     */
+    private static void assertSameAsPerBlockCopy(Region region, Function<ForwardExtentCopy, ForwardExtentCopy> configure,
+                                                 Function<Extent, Extent> wrapDestination, RunContext run)
+            throws WorldEditException {
+        BlockArrayClipboard source = createSource();
+
+        BlockArrayClipboard expected = createDestination();
+        ForwardExtentCopy perBlockCopy = configure.apply(new ForwardExtentCopy(
+            source, region, SOURCE_REGION.getMinimumPoint(), wrapDestination.apply(expected), TO
+        ));
+        // A source function means the copy can't be done a section at a time
+        perBlockCopy.setSourceFunction(position -> false);
+        Operations.complete(perBlockCopy);
+
+        BlockArrayClipboard actual = createDestination();
+        ForwardExtentCopy sectionedCopy = configure.apply(new ForwardExtentCopy(
+            source, region, SOURCE_REGION.getMinimumPoint(), wrapDestination.apply(actual), TO
+        ));
+        Operation operation = sectionedCopy;
+        while (operation != null) {
+            operation = operation.resume(run);
+        }
+
+        for (BlockVector3 position : DESTINATION_REGION) {
+            assertEquals(expected.getFullBlock(position), actual.getFullBlock(position), position::toString);
+        }
+        assertEquals(perBlockCopy.getAffected(), sectionedCopy.getAffected());
+    }
+
+    @Test
+    void testCopyBetweenClipboards() throws WorldEditException {
+        assertSameAsPerBlockCopy(SOURCE_REGION, Function.identity(), Function.identity(), new RunContext());
+    }
+
+    @Test
+    void testCopyPartOfClipboard() throws WorldEditException {
+        CuboidRegion region = new CuboidRegion(BlockVector3.at(-5, 1, 14), BlockVector3.at(17, 16, 31));
+        assertSameAsPerBlockCopy(region, Function.identity(), Function.identity(), new RunContext());
+    }
+
+    @Test
+    void testCopyWithSourceMask() throws WorldEditException {
+        CuboidRegion maskRegion = new CuboidRegion(BlockVector3.at(-2, -3, 9), BlockVector3.at(11, 7, 25));
+        assertSameAsPerBlockCopy(SOURCE_REGION, copy -> {
+            copy.setSourceMask(new RegionMask(maskRegion));
+            return copy;
+        }, Function.identity(), new RunContext());
+    }
+
+    @Test
+    void testCopyIntoOtherExtent() throws WorldEditException {
+        // The destination isn't a clipboard, so the per-block copy is used for both
+        assertSameAsPerBlockCopy(SOURCE_REGION, Function.identity(),
+            extent -> new AbstractDelegateExtent(extent) {
+            }, new RunContext());
+    }
+
+    @Test
+    void testCopyYieldingAfterEverySection() throws WorldEditException {
+        assertSameAsPerBlockCopy(SOURCE_REGION, Function.identity(), Function.identity(), new RunContext() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        });
+    }
+}
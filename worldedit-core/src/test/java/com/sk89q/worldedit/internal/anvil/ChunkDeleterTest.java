@@ -0,0 +1,176 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.anvil;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that chunk deletion only clears the locations of the deleted
+ * chunks in the region file header.
+ */
+class ChunkDeleterTest {
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int CHUNK_COUNT = 10;
+    private static final int CHUNK_SECTORS = 2;
+    // Region (-1, 0), so that the chunk coordinates are negative
+    private static final int REGION_X = -1;
+    private static final int REGION_Z = 0;
+
+    @TempDir
+    Path worldPath;
+    private Path regionFile;
+    private byte[] original;
+
+    private static BlockVector2 getChunk(int i) {
+        return BlockVector2.at(REGION_X * 32 + i, REGION_Z * 32 + (i * 3) % 32);
+    }
+
+    private static int getHeaderIndex(BlockVector2 chunk) {
+        return (chunk.x() & 31) + (chunk.z() & 31) * 32;
+    }
+
+    private static int getTimestamp(int i) {
+        return 1000 + i * 100;
+    }
+
+    @BeforeEach
+    void writeRegionFile() throws IOException {
+        ByteBuffer region = ByteBuffer.allocate(SECTOR_SIZE * (2 + CHUNK_COUNT * CHUNK_SECTORS));
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            int index = getHeaderIndex(getChunk(i));
+            int sector = 2 + i * CHUNK_SECTORS;
+            region.putInt(index * 4, sector << 8 | CHUNK_SECTORS);
+            region.putInt(SECTOR_SIZE + index * 4, getTimestamp(i));
+            for (int j = 0; j < CHUNK_SECTORS * SECTOR_SIZE; j++) {
+                region.put(sector * SECTOR_SIZE + j, (byte) (i + 1));
+            }
+        }
+        original = region.array();
+        Path regionDir = Files.createDirectories(worldPath.resolve("region"));
+        regionFile = regionDir.resolve("r." + REGION_X + "." + REGION_Z + ".mca");
+        Files.write(regionFile, original);
+    }
+
+    /**
+     * Get the sectors used by the chunks in the given region file.
+     *
+     * @param region the region file
+     * @return the used sectors, including the header
+     */
+    private static BitSet getUsedSectors(byte[] region) {
+        ByteBuffer buffer = ByteBuffer.wrap(region);
+        BitSet used = new BitSet();
+        used.set(0, 2);
+        for (int index = 0; index < 1024; index++) {
+            int location = buffer.getInt(index * 4);
+            int sector = location >>> 8;
+            used.set(sector, sector + (location & 0xFF));
+        }
+        return used;
+    }
+
+    private void assertDeleted(List<Integer> deleted) throws IOException {
+        byte[] region = Files.readAllBytes(regionFile);
+        assertEquals(original.length, region.length);
+        ByteBuffer buffer = ByteBuffer.wrap(region);
+        BitSet used = getUsedSectors(region);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            int index = getHeaderIndex(getChunk(i));
+            int sector = 2 + i * CHUNK_SECTORS;
+            int expectedLocation = deleted.contains(i) ? 0 : sector << 8 | CHUNK_SECTORS;
+            assertEquals(expectedLocation, buffer.getInt(index * 4), "location of chunk " + i);
+            assertEquals(getTimestamp(i), buffer.getInt(SECTOR_SIZE + index * 4), "timestamp of chunk " + i);
+            for (int j = sector; j < sector + CHUNK_SECTORS; j++) {
+                assertEquals(!deleted.contains(i), used.get(j), "sector " + j + " of chunk " + i);
+            }
+        }
+        // Only the header changes, the chunk data stays where it was
+        for (int i = 2 * SECTOR_SIZE; i < region.length; i++) {
+            assertEquals(original[i], region[i], "data at " + i);
+        }
+    }
+
+    @Test
+    void testRegionAccessDeletesChunks() throws IOException {
+        try (RegionAccess region = new RegionAccess(regionFile)) {
+            assertEquals(getTimestamp(3), region.getModificationTime(getChunk(3)));
+            assertEquals(CHUNK_SECTORS, region.getChunkSize(getChunk(3)));
+            region.deleteChunk(getChunk(1));
+            region.deleteChunk(getChunk(3));
+            region.deleteChunk(getChunk(3));
+            region.deleteChunk(getChunk(7));
+            assertEquals(0, region.getChunkSize(getChunk(3)));
+        }
+        assertDeleted(List.of(1, 3, 7));
+    }
+
+    @Test
+    void testRegionAccessWithoutDeletionsLeavesFile() throws IOException {
+        try (RegionAccess region = new RegionAccess(regionFile)) {
+            region.getModificationTime(getChunk(0));
+            // Chunks that aren't stored don't make the header dirty
+            region.deleteChunk(BlockVector2.at(REGION_X * 32 + 31, REGION_Z * 32 + 31));
+        }
+        assertArrayEquals(original, Files.readAllBytes(regionFile));
+        // The file can be replaced once it's closed
+        Files.delete(regionFile);
+    }
+
+    @Test
+    void testRunFromFile() throws IOException {
+        ChunkDeletionInfo.DeletionPredicate predicate = new ChunkDeletionInfo.DeletionPredicate();
+        predicate.property = "modification";
+        predicate.comparison = "<";
+        predicate.value = String.valueOf(getTimestamp(5));
+        ChunkDeletionInfo.ChunkBatch batch = new ChunkDeletionInfo.ChunkBatch();
+        batch.worldPath = worldPath.toString();
+        batch.backup = true;
+        batch.deletionPredicates = List.of(predicate);
+        batch.minChunk = BlockVector2.at(REGION_X * 32, REGION_Z * 32);
+        batch.maxChunk = BlockVector2.at(REGION_X * 32 + 31, REGION_Z * 32 + 31);
+        ChunkDeletionInfo info = new ChunkDeletionInfo();
+        info.batches = List.of(batch);
+        Path chunkFile = worldPath.resolve(ChunkDeleter.DELCHUNKS_FILE_NAME);
+        ChunkDeleter.writeInfo(info, chunkFile);
+
+        ChunkDeleter.runFromFile(chunkFile, true);
+
+        assertDeleted(List.of(0, 1, 2, 3, 4));
+        assertArrayEquals(original, Files.readAllBytes(regionFile.resolveSibling(regionFile.getFileName() + ".bak")));
+        assertFalse(Files.exists(chunkFile));
+        assertTrue(Files.exists(regionFile));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.block;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.BaseWorldEditTest;
+import com.sk89q.worldedit.extent.transform.BlockTransformExtent;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.registry.state.BooleanProperty;
+import com.sk89q.worldedit.registry.state.DirectionalProperty;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.IntegerProperty;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockStateTransformCacheTest extends BaseWorldEditTest {
+
+    private static final List<Direction> CARDINALS = List.of(Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST);
+    private static final List<String> WALL_HEIGHTS = List.of("none", "low", "tall");
+
+    /**
+     * Test blocks with every kind of property that transforms touch, by ID.
+     */
+    private static final Map<String, Map<String, Property<?>>> PROPERTIES = ImmutableMap.of(
+        "worldedit:test_stairs", properties(
+            new DirectionalProperty("facing", CARDINALS),
+            new EnumProperty("half", List.of("top", "bottom"))
+        ),
+        "worldedit:test_chest", properties(
+            new DirectionalProperty("facing", CARDINALS),
+            new EnumProperty("type", List.of("single", "left", "right"))
+        ),
+        "worldedit:test_observer", properties(
+            new DirectionalProperty("facing", List.of(Direction.values()).subList(0, 6))
+        ),
+        "worldedit:test_log", properties(
+            new EnumProperty("axis", List.of("x", "y", "z"))
+        ),
+        "worldedit:test_slab", properties(
+            new EnumProperty("type", List.of("top", "bottom", "double"))
+        ),
+        "worldedit:test_sign", properties(
+            new IntegerProperty("rotation", IntStream.range(0, 16).boxed().toList())
+        ),
+        "worldedit:test_fence", properties(
+            new BooleanProperty("north", List.of(true, false)),
+            new BooleanProperty("east", List.of(true, false)),
+            new BooleanProperty("south", List.of(true, false)),
+            new BooleanProperty("west", List.of(true, false))
+        ),
+        "worldedit:test_wall", properties(
+            new EnumProperty("north", WALL_HEIGHTS),
+            new EnumProperty("east", WALL_HEIGHTS),
+            new EnumProperty("south", WALL_HEIGHTS),
+            new EnumProperty("west", WALL_HEIGHTS)
+        ),
+        "worldedit:test_crafter", properties(
+            new EnumProperty("orientation", List.of(
+                "down_east", "down_north", "down_south", "down_west",
+                "up_east", "up_north", "up_south", "up_west",
+                "west_up", "east_up", "north_up", "south_up"
+            ))
+        )
+    );
+
+    private static Map<String, Property<?>> properties(Property<?>... properties) {
+        ImmutableMap.Builder<String, Property<?>> builder = ImmutableMap.builder();
+        for (Property<?> property : properties) {
+            builder.put(property.name(), property);
+        }
+        return builder.build();
+    }
+
+    private static List<BlockState> states;
+
+    @BeforeAll
+    static void setUpBlocks() {
+        BlockRegistry blockRegistry = mock(BlockRegistry.class);
+        when(blockRegistry.getProperties(any())).thenAnswer(invocation ->
+            PROPERTIES.get(invocation.<BlockType>getArgument(0).id()));
+        when(blockRegistry.getInternalBlockStateId(any())).thenReturn(OptionalInt.empty());
+        Registries registries = mock(Registries.class);
+        when(registries.getBlockRegistry()).thenReturn(blockRegistry);
+        when(MOCKED_PLATFORM.getRegistries()).thenReturn(registries);
+
+        states = new ArrayList<>();
+        for (String id : PROPERTIES.keySet()) {
+            for (BlockState state : new BlockType(id).getAllStates()) {
+                // Blocks that aren't in the registry don't get IDs from the platform
+                BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+                states.add(state);
+            }
+        }
+    }
+
+    /**
+     * Get the 48 rotations and flips that map axes onto axes.
+     */
+    private static List<AffineTransform> axisAlignedTransforms() {
+        int[][] permutations = { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } };
+        List<AffineTransform> transforms = new ArrayList<>();
+        for (int[] permutation : permutations) {
+            for (int signs = 0; signs < 8; signs++) {
+                double[][] m = new double[3][3];
+                for (int row = 0; row < 3; row++) {
+                    m[row][permutation[row]] = ((signs >> row) & 1) == 0 ? 1 : -1;
+                }
+                transforms.add(new AffineTransform(
+                    m[0][0], m[0][1], m[0][2], 0,
+                    m[1][0], m[1][1], m[1][2], 0,
+                    m[2][0], m[2][1], m[2][2], 0
+                ));
+            }
+        }
+        return transforms;
+    }
+
+    @Test
+    void testCachedTransformsMatchUncached() {
+        List<AffineTransform> transforms = axisAlignedTransforms();
+        // Each expected state is computed with an empty cache, so it can't come from another transform's table
+        BlockState[][] expected = new BlockState[transforms.size()][states.size()];
+        for (int t = 0; t < transforms.size(); t++) {
+            for (int s = 0; s < states.size(); s++) {
+                BlockStateTransformCache.clear();
+                expected[t][s] = BlockTransformExtent.transform(states.get(s), transforms.get(t));
+            }
+        }
+
+        BlockStateTransformCache.clear();
+        // The first pass fills the tables, and the second reads them back
+        for (int pass = 0; pass < 2; pass++) {
+            for (int t = 0; t < transforms.size(); t++) {
+                for (int s = 0; s < states.size(); s++) {
+                    BlockState state = states.get(s);
+                    AffineTransform transform = transforms.get(t);
+                    assertEquals(expected[t][s], BlockTransformExtent.transform(state, transform),
+                        () -> state + " transformed by " + transform);
+                }
+            }
+        }
+        for (int t = 0; t < transforms.size(); t++) {
+            for (int s = 0; s < states.size(); s++) {
+                AffineTransform transform = transforms.get(t);
+                if (transform.isIdentity()) {
+                    continue;
+                }
+                assertEquals(expected[t][s], BlockStateTransformCache.computeIfAbsent(states.get(s), transform, state -> {
+                    throw new AssertionError(state + " transformed by " + transform + " was not cached");
+                }));
+            }
+        }
+    }
+}
@@ -20,18 +20,24 @@
 package com.sk89q.worldedit.internal.expression;
 
 import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.math.noise.PerlinNoise;
+import com.sk89q.worldedit.math.noise.RidgedMultiFractalNoise;
 import org.junit.jupiter.api.DynamicNode;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.sk89q.worldedit.internal.expression.ExpressionTestCase.testCase;
 import static java.lang.Math.atan2;
 import static java.lang.Math.sin;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -267,6 +273,97 @@ public void testAssign() throws ExpressionException {
         assertEquals(5, foo.getSlots().getSlotValue("c").orElse(-1), 0);
     }
 
+    @Test
+    public void testAssignUpdatesHeldVariables() throws ExpressionException {
+        Expression foo = compile("x = x * 2; y += x; z = x > 3 ? x : -x; z", "x", "y");
+        LocalSlot.Variable x = foo.getSlots().getVariable("x").orElseThrow();
+        LocalSlot.Variable y = foo.getSlots().getVariable("y").orElseThrow();
+        assertEquals(4, foo.evaluate(2D, 1D), 0);
+        assertEquals(4, x.value(), 0);
+        assertEquals(5, y.value(), 0);
+        assertEquals(-2, foo.evaluate(1D, 0D), 0);
+        assertEquals(2, x.value(), 0);
+        assertEquals(2, y.value(), 0);
+        assertEquals(-2, foo.getSlots().getSlotValue("z").orElse(0), 0);
+    }
+
+    @Test
+    public void testEvaluateRow() throws ExpressionException {
+        String source = "t = sqrt(y * y + z * z) * 2; y = y + 1; x < t ? sin(x) + y : max(z, -x, t)";
+        Expression rowExpression = compile(source, "x", "y", "z");
+        Expression pointExpression = compile(source, "x", "y", "z");
+        assertTrue(rowExpression.supportsRowEvaluation());
+        assertTrue(rowExpression.usesSlot("t"));
+
+        double[] xs = new double[20];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i - 4.5;
+        }
+        double[] results = new double[xs.length];
+        rowExpression.evaluateRow(new double[]{ 0, 3, 4 }, 0, xs, results, xs.length, -1);
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(pointExpression.evaluate(xs[i], 3, 4), results[i], 0);
+        }
+        assertEquals(xs[xs.length - 1], rowExpression.getSlots().getSlotValue("x").orElse(0), 0);
+        assertEquals(4, rowExpression.getSlots().getSlotValue("y").orElse(0), 0);
+    }
+
+    @Test
+    public void testEvaluateRowWithSideEffects() throws ExpressionException {
+        Expression expression = compile("megabuf(0, megabuf(0) + x)", "x");
+        assertFalse(expression.supportsRowEvaluation());
+        double[] results = new double[3];
+        expression.evaluateRow(new double[0], 0, new double[]{ 1, 2, 3 }, results, 3, -1);
+        assertArrayEquals(new double[]{ 1, 3, 6 }, results, 0);
+    }
+
+    @Test
+    public void testContextsAreIndependent() throws ExpressionException {
+        Expression expression = compile("y = megabuf(0, megabuf(0) + x)", "x");
+        ExecutionData first = expression.createContext();
+        ExecutionData second = expression.createContext();
+        assertEquals(1, expression.evaluate(first, new double[]{ 1 }, -1), 0);
+        assertEquals(5, expression.evaluate(second, new double[]{ 5 }, -1), 0);
+        assertEquals(2, expression.evaluate(first, new double[]{ 1 }, -1), 0);
+        assertEquals(2, first.slots().getSlotValue("y").orElse(0), 0);
+        assertEquals(5, second.slots().getSlotValue("y").orElse(0), 0);
+        assertEquals(3, expression.evaluate(3D), 0);
+
+        Expression other = compile("x", "x");
+        assertThrows(IllegalArgumentException.class, () -> other.evaluate(first, new double[]{ 1 }, -1));
+    }
+
+    @Test
+    public void testParallelEvaluation() throws ExpressionException {
+        Expression expression = compile("a = 0; for (i = 0; i < x; i++) { a += i } a", "x");
+        ThreadLocal<ExecutionData> contexts = ThreadLocal.withInitial(expression::createContext);
+        double[] results = IntStream.range(0, 200).parallel()
+            .mapToDouble(x -> expression.evaluate(contexts.get(), new double[]{ x }, -1))
+            .toArray();
+        for (int x = 0; x < results.length; x++) {
+            assertEquals(x * (x - 1) / 2.0, results[x], 0);
+        }
+    }
+
+    @Test
+    public void testOptimize() throws ExpressionException {
+        String[] sources = {
+            "x * x + sin(x * x) - y * y * 1",
+            "true ? x / 1 : (y = 5)",
+            "0 && (y = 5); 1 || (y = 6); y",
+            "-(-x) + 2 ^ 3 * (1 < 2) + (5 >> 1) + ~0 + x ^ 1",
+            "x - 0 + max(2, 3) + (x == x ? 1 : 2)",
+        };
+        double[][] inputs = { { 0, 1 }, { -0.0, 2 }, { 1.5, -3 }, { Double.NaN, 0 } };
+        for (String source : sources) {
+            Expression optimized = compile(source, "x", "y");
+            Expression plain = Expression.compile(source, "x", "y");
+            for (double[] input : inputs) {
+                assertEquals(plain.evaluate(input), optimized.evaluate(input), 0, source);
+            }
+        }
+    }
+
     @Test
     public void testIf() throws ExpressionException {
         checkTestCase("y=0; if (1) x=4; else y=5; x*10+y;", 40);
@@ -427,6 +524,35 @@ public void testTimeout() {
         assertTrue(e.getMessage().contains("Calculations exceeded time limit"));
     }
 
+    @Test
+    public void testNegativeTimeoutDisablesLimit() {
+        Expression expression = compile("a=0; for(i=0;i<256;i++){for(j=0;j<256;j++){a++}} a");
+        assertEquals(65536, expression.evaluate(new double[0], -1), 0);
+        assertEquals(65536, expression.evaluate(new double[0], -1), 0);
+    }
+
+    @Test
+    public void testNoiseFunctions() {
+        PerlinNoise perlin = new PerlinNoise();
+        perlin.setSeed(7);
+        perlin.setFrequency(0.25);
+        perlin.setOctaveCount(4);
+        perlin.setPersistence(0.5);
+        double expected = perlin.noise(Vector3.at(1.5, 2.5, -3.5));
+        assertEquals(expected, perlin.noise(1.5, 2.5, -3.5), 0);
+        // the second evaluation uses the cached generator
+        checkTestCase("perlin(7, 1.5, 2.5, -3.5, 0.25, 4, 0.5)", expected);
+        checkTestCase("perlin(7, 1.5, 2.5, -3.5, 0.25, 4, 0.5)", expected);
+
+        RidgedMultiFractalNoise ridgedMulti = new RidgedMultiFractalNoise();
+        ridgedMulti.setSeed(7);
+        ridgedMulti.setFrequency(0.25);
+        ridgedMulti.setOctaveCount(4);
+        checkTestCase("ridgedmulti(7, 1.5, 2.5, -3.5, 0.25, 4)", ridgedMulti.noise(1.5, 2.5, -3.5));
+
+        assertThrows(EvaluationException.class, () -> simpleEval("perlin(7, 0, 0, 0, 0.25, 100, 0.5)"));
+    }
+
     @Test
     public void testRound() {
         checkTestCase("round(1.3)", 1);
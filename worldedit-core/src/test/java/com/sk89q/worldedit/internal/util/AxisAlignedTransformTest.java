@@ -0,0 +1,126 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies that {@link AxisAlignedTransform} places blocks where the
+ * floating point transform does.
+ */
+class AxisAlignedTransformTest {
+
+    private static final int[] ANGLES = { 0, 90, 180, 270 };
+    private static final List<BlockVector3> OFFSETS = List.of(
+        BlockVector3.ZERO,
+        BlockVector3.at(3, -7, 11),
+        BlockVector3.at(-1000, 64, 29999)
+    );
+
+    /**
+     * Get every rotation by multiples of 90 degrees, with and without a flip
+     * along each axis and an integer translation.
+     *
+     * @return the transforms
+     */
+    static Stream<AffineTransform> axisAlignedTransforms() {
+        List<AffineTransform> flips = List.of(
+            new AffineTransform(),
+            new AffineTransform().scale(-1, 1, 1),
+            new AffineTransform().scale(1, -1, 1),
+            new AffineTransform().scale(1, 1, -1)
+        );
+        List<AffineTransform> transforms = new ArrayList<>();
+        for (int x : ANGLES) {
+            for (int y : ANGLES) {
+                for (int z : ANGLES) {
+                    for (AffineTransform flip : flips) {
+                        AffineTransform transform = flip.rotateX(x).rotateY(y).rotateZ(z);
+                        transforms.add(transform);
+                        transforms.add(transform.translate(5, -3, 17));
+                    }
+                }
+            }
+        }
+        return transforms.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("axisAlignedTransforms")
+    void testMatchesTransform(AffineTransform transform) {
+        Random random = new Random(transform.hashCode());
+        for (BlockVector3 from : OFFSETS) {
+            for (BlockVector3 to : OFFSETS) {
+                AxisAlignedTransform axisAligned = AxisAlignedTransform.of(transform);
+                assertNotNull(axisAligned, transform::toString);
+                AxisAlignedTransform withOffsets = axisAligned.withOffsets(from, to);
+                for (int i = 0; i < 100; i++) {
+                    BlockVector3 position = BlockVector3.at(
+                        random.nextInt(-100, 100), random.nextInt(-64, 320), random.nextInt(-100, 100)
+                    ).add(from);
+                    BlockVector3 expected = transform.apply(position.subtract(from).toVector3()).toBlockPoint().add(to);
+                    assertEquals(expected, withOffsets.apply(position),
+                        () -> transform + " from " + from + " to " + to + " at " + position);
+                }
+            }
+        }
+    }
+
+    static Stream<Transform> otherTransforms() {
+        return Stream.of(
+            new AffineTransform().translate(0.5, 0, 0),
+            new AffineTransform().rotateY(90).translate(0, 0, -0.25),
+            new AffineTransform().scale(2),
+            new AffineTransform().scale(1, 0.5, 1),
+            new AffineTransform().scale(-2, 1, 1),
+            new AffineTransform().rotateY(45),
+            new AffineTransform().scale(1, 1, 0)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("otherTransforms")
+    void testRejectsOtherTransforms(Transform transform) {
+        assertNull(AxisAlignedTransform.of(transform), transform::toString);
+    }
+
+    @Test
+    void testIdentity() {
+        AxisAlignedTransform identity = AxisAlignedTransform.of(new AffineTransform());
+        assertNotNull(identity);
+        BlockVector3 position = BlockVector3.at(12, -40, 7);
+        assertEquals(position, identity.apply(position));
+        assertEquals(BlockVector3.at(9, -32, 2), identity.withOffsets(BlockVector3.at(3, -8, 5), BlockVector3.ZERO).apply(position));
+    }
+}
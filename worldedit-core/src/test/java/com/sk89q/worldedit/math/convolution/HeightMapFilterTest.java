@@ -20,12 +20,21 @@
 package com.sk89q.worldedit.math.convolution;
 
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("A heightmap")
 public class HeightMapFilterTest {
@@ -71,4 +80,184 @@ public void testLinearHeightMap(float height) {
 
         testKernelOnFlat(height, new LinearKernel(3));
     }
+
+    /**
+     * Test that Gaussian and linear kernels are applied as two 1D passes.
+     */
+    @Test
+    public void testSeparableKernels() {
+        assertNotNull(SeparableKernel.of(new GaussianKernel(3, 1)));
+        assertNotNull(SeparableKernel.of(new LinearKernel(3)));
+
+        float[] cross = { 0, 0.2f, 0, 0.2f, 0.2f, 0.2f, 0, 0.2f, 0 };
+        assertNull(SeparableKernel.of(new Kernel(3, 3, cross)));
+    }
+
+    /**
+     * Test that filtering several times at once matches filtering one time after another,
+     * on a height map large enough to be filtered in parallel.
+     */
+    @Test
+    public void testIterationsMatchRepeatedFilter() {
+        int width = 300;
+        int height = 400;
+        Random random = new Random(42);
+        float[] data = new float[width * height];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 60 + random.nextInt(20);
+        }
+        float[] original = data.clone();
+        HeightMapFilter filter = new HeightMapFilter(new GaussianKernel(5, 1));
+
+        float[] expected = data;
+        for (int i = 0; i < 3; i++) {
+            expected = filter.filter(expected, width, height, 0);
+        }
+
+        assertArrayEquals(expected, filter.filter(data, width, height, 0, 3));
+        assertArrayEquals(original, data);
+    }
+
+    /**
+     * Test that cells past the height map are copied unchanged, whether or not the
+     * height map is filtered.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2})
+    public void testCellsPastHeightMapAreCopied(int iterations) {
+        int width = 4;
+        int height = 3;
+        int[] ints = new int[width * height + 5];
+        float[] floats = new float[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = 60 + i;
+            floats[i] = 60 + i;
+        }
+        HeightMapFilter filter = new HeightMapFilter(new GaussianKernel(1, 1));
+
+        int[] intResult = filter.filter(ints, width, height, 0, iterations);
+        float[] floatResult = filter.filter(floats, width, height, 0, iterations);
+        for (int i = width * height; i < ints.length; i++) {
+            assertEquals(ints[i], intResult[i]);
+            assertEquals(floats[i], floatResult[i]);
+        }
+    }
+
+    /**
+     * Convolve with the full 2D kernel, clamping coordinates inside the data
+     * as the filter does.
+     */
+    private static double[] convolve2D(double[] data, int width, int height, Kernel kernel, double offset) {
+        float[] matrix = kernel.getKernelData(null);
+        int kw = kernel.getWidth();
+        int kh = kernel.getHeight();
+        double[] out = new double[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double z = 0;
+                for (int ky = 0; ky < kh; ky++) {
+                    int offsetY = y + ky - kernel.getYOrigin();
+                    if (offsetY < 0 || offsetY >= height) {
+                        offsetY = y;
+                    }
+                    for (int kx = 0; kx < kw; kx++) {
+                        int offsetX = x + kx - kernel.getXOrigin();
+                        if (offsetX < 0 || offsetX >= width) {
+                            offsetX = x;
+                        }
+                        z += matrix[ky * kw + kx] * data[offsetY * width + offsetX];
+                    }
+                }
+                out[y * width + x] = z + offset;
+            }
+        }
+        return out;
+    }
+
+    private static Stream<Arguments> separableKernels() {
+        // An outer product with an even width, so the origin isn't centered
+        float[] horizontal = { 0.1f, 0.4f, 0.3f, 0.2f };
+        float[] vertical = { 0.25f, 0.5f, 0.25f };
+        float[] product = new float[horizontal.length * vertical.length];
+        for (int y = 0; y < vertical.length; y++) {
+            for (int x = 0; x < horizontal.length; x++) {
+                product[y * horizontal.length + x] = vertical[y] * horizontal[x];
+            }
+        }
+        Kernel uneven = new Kernel(horizontal.length, vertical.length, product);
+        return Stream.of(
+            Arguments.of(new GaussianKernel(5, 1), 37, 23),
+            Arguments.of(new GaussianKernel(2, 0.5), 3, 50),
+            Arguments.of(new LinearKernel(3), 64, 64),
+            Arguments.of(uneven, 41, 17),
+            // Large enough to be filtered in parallel
+            Arguments.of(new GaussianKernel(5, 1), 300, 260)
+        );
+    }
+
+    private static double[] randomTerrain(int width, int height) {
+        Random random = new Random(width * 31L + height);
+        double[] data = new double[width * height];
+        for (int i = 0; i < data.length; i++) {
+            // Rough terrain, with some cliffs
+            data[i] = 60 + random.nextInt(20) + (random.nextInt(10) == 0 ? 40 : 0);
+        }
+        return data;
+    }
+
+    /**
+     * Test that separable kernels, which are applied as two 1D passes, give
+     * the same float heights as the 2D convolution.
+     */
+    @ParameterizedTest
+    @MethodSource("separableKernels")
+    public void testSeparableMatches2DForFloats(Kernel kernel, int width, int height) {
+        assertNotNull(SeparableKernel.of(kernel));
+        HeightMapFilter filter = new HeightMapFilter(kernel);
+        double[] expected = randomTerrain(width, height);
+        float[] data = new float[expected.length];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) expected[i];
+        }
+
+        for (int iterations = 1; iterations <= 3; iterations++) {
+            expected = convolve2D(expected, width, height, kernel, 0.25);
+            float[] actual = filter.filter(data, width, height, 0.25f, iterations);
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals(expected[i], actual[i], 1e-3, "iterations " + iterations + " at " + i);
+            }
+        }
+    }
+
+    /**
+     * Test that separable kernels give the same int heights as the 2D
+     * convolution, but for rounding down values within the float error of
+     * a whole number.
+     */
+    @ParameterizedTest
+    @MethodSource("separableKernels")
+    public void testSeparableMatches2DForInts(Kernel kernel, int width, int height) {
+        HeightMapFilter filter = new HeightMapFilter(kernel);
+        double[] expected = randomTerrain(width, height);
+        int[] data = new int[expected.length];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (int) expected[i];
+        }
+
+        for (int iterations = 1; iterations <= 3; iterations++) {
+            expected = convolve2D(expected, width, height, kernel, 0.5);
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = Math.floor(expected[i]);
+            }
+            int[] actual = filter.filter(data, width, height, 0.5f, iterations);
+            int exact = 0;
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals(expected[i], actual[i], 1, "iterations " + iterations + " at " + i);
+                if (expected[i] == actual[i]) {
+                    exact++;
+                }
+            }
+            assertTrue(exact >= actual.length * 0.99, "only " + exact + " of " + actual.length + " heights match");
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.concurrency;
+
+import com.sk89q.worldedit.util.concurrency.FairTaskExecutor.TaskType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairTaskExecutorTest {
+
+    private FairTaskExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = new FairTaskExecutor(1, 3, false, "Test Executor - %s");
+        // occupy the only worker, so that everything after this is queued
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("blocker", TaskType.BULK, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private void submit(String owner, TaskType type, String name) {
+        executor.submit(owner, type, () -> order.add(name));
+    }
+
+    @Test
+    void testOwnersTakeTurns() throws Exception {
+        submit("a", TaskType.BULK, "a1");
+        submit("a", TaskType.BULK, "a2");
+        submit("a", TaskType.BULK, "a3");
+        submit("b", TaskType.BULK, "b1");
+        submit("c", TaskType.BULK, "c1");
+        submit("b", TaskType.BULK, "b2");
+        assertEquals(6, executor.getQueuedTaskCount());
+        assertEquals(3, executor.getQueuedOwnerCount());
+        assertEquals(3, executor.getQueuedTaskCount("a"));
+        assertEquals(1, executor.getRunningTaskCount());
+
+        release.countDown();
+        executor.submit("a", TaskType.BULK, () -> null).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("a1", "b1", "c1", "a2", "b2", "a3"), order);
+        assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    void testInteractiveTasksGoFirst() throws Exception {
+        submit("a", TaskType.BULK, "bulk");
+        // I/O tasks are bulk tasks without virtual threads
+        submit("b", TaskType.IO, "io");
+        submit("c", TaskType.INTERACTIVE, "interactive");
+
+        release.countDown();
+        executor.submit("d", TaskType.BULK, () -> null).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("interactive", "bulk", "io"), order);
+    }
+
+    @Test
+    void testQueueSizeIsPerOwner() {
+        submit("a", TaskType.BULK, "a1");
+        submit("a", TaskType.BULK, "a2");
+        submit("a", TaskType.INTERACTIVE, "a3");
+        assertThrows(RejectedExecutionException.class, () -> submit("a", TaskType.BULK, "a4"));
+        submit("b", TaskType.BULK, "b1");
+    }
+
+    @Test
+    void testRejectsAfterShutdown() {
+        executor.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> submit("a", TaskType.BULK, "a1"));
+    }
+
+    @Test
+    void testThrowingTaskKeepsWorker() throws Exception {
+        executor.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+        submit("a", TaskType.BULK, "a1");
+
+        release.countDown();
+        executor.submit("b", TaskType.BULK, () -> null).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("a1"), order);
+        assertEquals(0, executor.getRunningTaskCount());
+    }
+
+    @Test
+    void testShutdownNowReturnsQueuedTasks() {
+        submit("a", TaskType.BULK, "a1");
+        submit("b", TaskType.INTERACTIVE, "b1");
+
+        assertEquals(2, executor.shutdownNow().size());
+        assertEquals(0, executor.getQueuedTaskCount());
+        assertEquals(0, executor.getQueuedOwnerCount());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ZlibPoolsTest {
+
+    private static byte[] testData() {
+        Random random = new Random(42);
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) random.nextInt(8);
+        }
+        return data;
+    }
+
+    private static byte[] jdkGzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testGzipOutputReadableByJdk() throws IOException {
+        byte[] data = testData();
+        // twice, so the second round uses a pooled deflater
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = ZlibPools.gzipOutputStream(bytes)) {
+                out.write(data);
+            }
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testGzipInputReadsJdkOutput() throws IOException {
+        byte[] data = testData();
+        byte[] compressed = jdkGzip(data);
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = ZlibPools.gzipInputStream(new ByteArrayInputStream(compressed))) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testGzipInputReadsConcatenatedMembers() throws IOException {
+        byte[] data = testData();
+        byte[] first = jdkGzip(Arrays.copyOfRange(data, 0, 30_000));
+        byte[] second = jdkGzip(Arrays.copyOfRange(data, 30_000, data.length));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(first);
+        bytes.write(second);
+        // trailing bytes that are not a GZIP header are ignored, as by GZIPInputStream
+        bytes.write(new byte[] { 0, 0, 0, 0 });
+        byte[] compressed = bytes.toByteArray();
+        try (InputStream in = ZlibPools.gzipInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testInflateBorrowedBuffer() throws IOException {
+        byte[] data = testData();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        }
+        byte[] compressed = bytes.toByteArray();
+        byte[] buffer = ZlibPools.borrowBuffer(compressed.length);
+        System.arraycopy(compressed, 0, buffer, 0, compressed.length);
+        try (InputStream in = ZlibPools.inflate(buffer, compressed.length, false)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testCorruptTrailer() throws IOException {
+        byte[] compressed = jdkGzip(testData());
+        compressed[compressed.length - 5] ^= 1;
+        try (InputStream in = ZlibPools.gzipInputStream(new ByteArrayInputStream(compressed))) {
+            assertThrows(ZipException.class, in::readAllBytes);
+        }
+    }
+
+    @Test
+    void testNotGzip() {
+        assertThrows(ZipException.class,
+            () -> ZlibPools.gzipInputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 })));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import com.sk89q.worldedit.world.DataException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies that {@link ZippedMcRegionChunkStore} keeps recently read regions
+ * in memory, up to its limit.
+ */
+class ZippedMcRegionChunkStoreTest {
+
+    private static final long MAX_CACHED_BYTES = 1000;
+
+    @TempDir
+    Path directory;
+    private Path zipFile;
+
+    private static byte[] createRegion(int size, int fill) {
+        byte[] region = new byte[size];
+        Arrays.fill(region, (byte) fill);
+        return region;
+    }
+
+    @BeforeEach
+    void writeZip() throws IOException {
+        zipFile = directory.resolve("snapshot.zip");
+        try (OutputStream out = Files.newOutputStream(zipFile);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            writeEntry(zip, "world/region/r.0.0.mca", createRegion(400, 1));
+            writeEntry(zip, "world/region/r.1.0.mca", createRegion(400, 2));
+            writeEntry(zip, "world/region/r.2.0.mca", createRegion(500, 3));
+            writeEntry(zip, "world/region/r.3.0.mca", createRegion(900, 4));
+            writeEntry(zip, "world/region/r.4.0.mca", createRegion(1200, 5));
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private static byte[] read(ZippedMcRegionChunkStore store, String name) throws IOException, DataException {
+        try (InputStream in = store.getInputStream(name, "world")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private ZippedMcRegionChunkStore createStore() throws IOException {
+        return new ZippedMcRegionChunkStore(zipFile.toFile(), "world/region", MAX_CACHED_BYTES);
+    }
+
+    @Test
+    void testCachesRegions() throws IOException, DataException {
+        try (ZippedMcRegionChunkStore store = createStore()) {
+            assertArrayEquals(createRegion(400, 1), read(store, "r.0.0.mca"));
+            assertArrayEquals(createRegion(400, 2), read(store, "r.1.0.mca"));
+            assertEquals(Set.of("world/region/r.0.0.mca", "world/region/r.1.0.mca"), store.getCachedRegions());
+            // Reading a cached region again gives the same data
+            assertArrayEquals(createRegion(400, 1), read(store, "r.0.0.mca"));
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws IOException, DataException {
+        try (ZippedMcRegionChunkStore store = createStore()) {
+            read(store, "r.0.0.mca");
+            read(store, "r.1.0.mca");
+            read(store, "r.0.0.mca");
+            assertArrayEquals(createRegion(500, 3), read(store, "r.2.0.mca"));
+            assertEquals(Set.of("world/region/r.0.0.mca", "world/region/r.2.0.mca"), store.getCachedRegions());
+        }
+    }
+
+    @Test
+    void testCachesLargeRegions() throws IOException, DataException {
+        try (ZippedMcRegionChunkStore store = createStore()) {
+            read(store, "r.0.0.mca");
+            // The region is most of the limit, but is still kept while nothing else is read
+            assertArrayEquals(createRegion(900, 4), read(store, "r.3.0.mca"));
+            assertEquals(Set.of("world/region/r.3.0.mca"), store.getCachedRegions());
+        }
+    }
+
+    @Test
+    void testDoesNotCacheRegionsOverLimit() throws IOException, DataException {
+        try (ZippedMcRegionChunkStore store = createStore()) {
+            read(store, "r.0.0.mca");
+            assertArrayEquals(createRegion(1200, 5), read(store, "r.4.0.mca"));
+            assertEquals(Set.of("world/region/r.0.0.mca"), store.getCachedRegions());
+        }
+    }
+
+    @Test
+    void testMissingRegion() throws IOException {
+        try (ZippedMcRegionChunkStore store = createStore()) {
+            assertThrows(MissingChunkException.class, () -> read(store, "r.9.9.mca"));
+            assertEquals(Set.of(), store.getCachedRegions());
+        }
+    }
+}
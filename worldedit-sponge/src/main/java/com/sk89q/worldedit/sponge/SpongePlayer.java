@@ -171,6 +171,11 @@ public void print(Component component) {
         player.sendMessage(SpongeTextAdapter.convert(component, getLocale()));
     }
 
+    @Override
+    public void printActionBar(Component component) {
+        player.sendActionBar(SpongeTextAdapter.convert(component, getLocale()));
+    }
+
     private void sendColorized(String msg, TextColor formatting) {
         for (String part : msg.split("\n", 0)) {
             this.player.sendMessage(
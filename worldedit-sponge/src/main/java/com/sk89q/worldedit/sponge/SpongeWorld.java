@@ -98,6 +98,7 @@
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -254,6 +255,18 @@ public Set<SideEffect> applySideEffects(BlockVector3 position, com.sk89q.worlded
         );
     }
 
+    @Override
+    public Set<SideEffect> applySideEffects(Map<BlockVector3, com.sk89q.worldedit.world.block.BlockState> previousTypes, SideEffectSet sideEffectSet) throws WorldEditException {
+        checkNotNull(previousTypes);
+
+        worldNativeAccess.applySideEffects(previousTypes, sideEffectSet);
+
+        return Sets.intersection(
+            SpongeWorldEdit.inst().getInternalPlatform().getSupportedSideEffects(),
+            sideEffectSet.getSideEffectsToApply()
+        );
+    }
+
     @Override
     public boolean clearContainerBlockContents(BlockVector3 position) {
         getWorld().removeBlockEntity(position.x(), position.y(), position.z());
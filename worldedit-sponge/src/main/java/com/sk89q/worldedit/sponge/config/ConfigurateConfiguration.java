@@ -117,6 +117,12 @@ public void load() {
         scriptTimeout = node.node("scripting", "timeout").getInt(scriptTimeout);
         scriptsDir = node.node("scripting", "dir").getString(scriptsDir);
 
+        taskWorkerThreads = Math.max(1, node.node("tasks", "worker-threads").getInt(taskWorkerThreads));
+        taskQueueSize = Math.max(1, node.node("tasks", "queue-size").getInt(taskQueueSize));
+        taskVirtualThreads = node.node("tasks", "virtual-threads").getBoolean(taskVirtualThreads);
+        taskTickBudget = Math.max(1, node.node("tasks", "tick-budget").getInt(taskTickBudget));
+        taskTickedEditVolume = node.node("tasks", "ticked-edit-volume").getInt(taskTickedEditVolume);
+
         saveDir = node.node("saving", "dir").getString(saveDir);
 
         allowSymlinks = node.node("files", "allow-symbolic-links").getBoolean(false);